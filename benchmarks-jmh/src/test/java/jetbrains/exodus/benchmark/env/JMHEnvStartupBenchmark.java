@@ -0,0 +1,103 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.benchmark.env;
+
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.bindings.StringBinding;
+import jetbrains.exodus.env.*;
+import jetbrains.exodus.log.Log;
+import org.jetbrains.annotations.NotNull;
+import org.junit.rules.TemporaryFolder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures opening of an environment consisting of many small files with utilization profile computed
+ * from scratch, for different startup parallelism.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JMHEnvStartupBenchmark {
+
+    private static final int STORES_COUNT = 16;
+    private static final int KEYS_PER_STORE = 100000;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private TemporaryFolder temporaryFolder;
+    private File testsDirectory;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        temporaryFolder = new TemporaryFolder();
+        temporaryFolder.create();
+        testsDirectory = temporaryFolder.newFolder("data");
+        final DecimalFormat format = (DecimalFormat) NumberFormat.getIntegerInstance();
+        format.applyPattern("00000000");
+        final Environment env = Environments.newInstance(testsDirectory, createConfig());
+        try {
+            for (int i = 0; i < STORES_COUNT; ++i) {
+                final String storeName = "store" + i;
+                env.executeInTransaction(new TransactionalExecutable() {
+                    @Override
+                    public void execute(@NotNull final Transaction txn) {
+                        final Store store = env.openStore(storeName, StoreConfig.WITHOUT_DUPLICATES, txn);
+                        for (int j = 0; j < KEYS_PER_STORE; ++j) {
+                            final ByteIterable key = StringBinding.stringToEntry(format.format(j));
+                            store.put(txn, key, key);
+                        }
+                    }
+                });
+            }
+        } finally {
+            env.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        temporaryFolder.delete();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 6)
+    @Fork(5)
+    public long open() {
+        Log.invalidateSharedCache();
+        final Environment env = Environments.newInstance(testsDirectory, createConfig());
+        try {
+            return env.getEnvironmentConfig().getLogFileSize();
+        } finally {
+            env.close();
+        }
+    }
+
+    private EnvironmentConfig createConfig() {
+        final EnvironmentConfig config = new EnvironmentConfig();
+        config.setLogFileSize(256);
+        config.setGcUtilizationFromScratch(true);
+        config.setEnvStartupParallelism(parallelism);
+        return config;
+    }
+}
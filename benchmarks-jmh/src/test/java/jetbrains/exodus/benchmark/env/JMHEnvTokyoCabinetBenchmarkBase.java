@@ -19,6 +19,7 @@ import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.benchmark.BenchmarkTestBase;
 import jetbrains.exodus.bindings.StringBinding;
 import jetbrains.exodus.env.*;
+import jetbrains.exodus.io.DataReader;
 import jetbrains.exodus.io.FileDataReader;
 import jetbrains.exodus.io.FileDataWriter;
 import jetbrains.exodus.log.Log;
@@ -66,7 +67,7 @@ abstract class JMHEnvTokyoCabinetBenchmarkBase extends BenchmarkTestBase {
         temporaryFolder.create();
         final File testsDirectory = temporaryFolder.newFolder("data");
         LogConfig config = new LogConfig();
-        config.setReader(new FileDataReader(testsDirectory, 16));
+        config.setReader(createReader(testsDirectory));
         config.setWriter(new FileDataWriter(testsDirectory));
         env = Environments.newInstance(config, new EnvironmentConfig());
         store = env.computeInTransaction(new TransactionalComputable<Store>() {
@@ -94,6 +95,10 @@ abstract class JMHEnvTokyoCabinetBenchmarkBase extends BenchmarkTestBase {
         });
     }
 
+    protected DataReader createReader(@NotNull final File testsDirectory) {
+        return new FileDataReader(testsDirectory, 16);
+    }
+
     protected static void shuffleKeys() {
         Collections.shuffle(Arrays.asList(randomKeys));
     }
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.benchmark.env;
+
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.env.StoreConfig;
+import jetbrains.exodus.env.Transaction;
+import jetbrains.exodus.env.TransactionalComputable;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares getting values by random keys in batches using Store.getAll() with calling Store.get() for each key.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JMHEnvTokyoCabinetGetAllBenchmark extends JMHEnvTokyoCabinetBenchmarkBase {
+
+    private static final int BATCH_SIZE = 256;
+
+    @Setup(Level.Invocation)
+    public void beforeBenchmark() {
+        writeSuccessiveKeys();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 6)
+    @Fork(10)
+    public int randomGet() {
+        return env.computeInReadonlyTransaction(new TransactionalComputable<Integer>() {
+            @Override
+            public Integer compute(@NotNull final Transaction txn) {
+                int result = 0;
+                for (final ByteIterable key : randomKeys) {
+                    final ByteIterable value = store.get(txn, key);
+                    if (value != null) {
+                        result += value.getLength();
+                    }
+                }
+                return result;
+            }
+        });
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 6)
+    @Fork(10)
+    public int randomGetAll() {
+        return env.computeInReadonlyTransaction(new TransactionalComputable<Integer>() {
+            @Override
+            public Integer compute(@NotNull final Transaction txn) {
+                int result = 0;
+                for (int i = 0; i < randomKeys.length; i += BATCH_SIZE) {
+                    final ByteIterable[] keys = Arrays.copyOfRange(randomKeys, i, Math.min(i + BATCH_SIZE, randomKeys.length));
+                    for (final ByteIterable value : store.getAll(txn, keys)) {
+                        if (value != null) {
+                            result += value.getLength();
+                        }
+                    }
+                }
+                return result;
+            }
+        });
+    }
+
+    @Override
+    protected StoreConfig getConfig() {
+        return StoreConfig.WITHOUT_DUPLICATES;
+    }
+}
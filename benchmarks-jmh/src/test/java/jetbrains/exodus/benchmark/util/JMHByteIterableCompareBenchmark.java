@@ -0,0 +1,87 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.benchmark.util;
+
+import jetbrains.exodus.ArrayByteIterable;
+import jetbrains.exodus.ByteIterable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JMHByteIterableCompareBenchmark {
+
+    private static final int SHORT_KEY_LENGTH = 12;
+    private static final int LONG_KEY_LENGTH = 256;
+
+    private ByteIterable shortKey;
+    private ByteIterable shortKeyCopy;
+    private ByteIterable longKey;
+    private ByteIterable longKeyCopy;
+
+    @Setup
+    public void prepare() {
+        shortKey = createKey(SHORT_KEY_LENGTH);
+        shortKeyCopy = createKey(SHORT_KEY_LENGTH);
+        longKey = createKey(LONG_KEY_LENGTH);
+        longKeyCopy = createKey(LONG_KEY_LENGTH);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 4, time = 1)
+    @Measurement(iterations = 6, batchSize = 10000)
+    @Fork(5)
+    public int compareShortKeys() {
+        return shortKey.compareTo(shortKeyCopy);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 4, time = 1)
+    @Measurement(iterations = 6, batchSize = 10000)
+    @Fork(5)
+    public int compareLongKeys() {
+        return longKey.compareTo(longKeyCopy);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 4, time = 1)
+    @Measurement(iterations = 6, batchSize = 10000)
+    @Fork(5)
+    public int hashShortKey() {
+        return shortKey.hashCode();
+    }
+
+    @Benchmark
+    @Warmup(iterations = 4, time = 1)
+    @Measurement(iterations = 6, batchSize = 10000)
+    @Fork(5)
+    public int hashLongKey() {
+        return longKey.hashCode();
+    }
+
+    /**
+     * Keys of the same length are equal except the last byte, so comparison has to scan the whole key.
+     */
+    private static ByteIterable createKey(final int length) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            bytes[i] = (byte) (i * 31);
+        }
+        bytes[length - 1] = (byte) System.identityHashCode(bytes);
+        return new ArrayByteIterable(bytes);
+    }
+}
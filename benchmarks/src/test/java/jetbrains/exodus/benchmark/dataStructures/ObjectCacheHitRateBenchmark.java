@@ -0,0 +1,93 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.benchmark.dataStructures;
+
+import jetbrains.exodus.core.dataStructures.ConcurrentObjectCache;
+import jetbrains.exodus.core.dataStructures.ObjectCache;
+import jetbrains.exodus.core.dataStructures.ObjectCacheBase;
+import jetbrains.exodus.core.dataStructures.TinyLfuObjectCache;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Replays point lookups with skewed key distribution mixed with full scans of a key space ten times larger than
+ * cache size, and prints the hit rate of point lookups for different cache implementations.
+ */
+public class ObjectCacheHitRateBenchmark {
+
+    private static final int CACHE_SIZE = 10000;
+    private static final int KEY_SPACE_SIZE = CACHE_SIZE * 10;
+    private static final int LOOKUPS_BETWEEN_SCANS = 200000;
+    private static final int SCANS_COUNT = 10;
+
+    @Test
+    public void benchmarkScanResistance() {
+        replay("ObjectCache", new ObjectCache<Integer, Integer>(CACHE_SIZE));
+        replay("ConcurrentObjectCache", new ConcurrentObjectCache<Integer, Integer>(CACHE_SIZE, 2));
+        replay("TinyLfuObjectCache", new TinyLfuObjectCache<Integer, Integer>(CACHE_SIZE));
+    }
+
+    @Test
+    public void benchmarkPointLookups() {
+        replay("ObjectCache without scans", new ObjectCache<Integer, Integer>(CACHE_SIZE), 0);
+        replay("ConcurrentObjectCache without scans", new ConcurrentObjectCache<Integer, Integer>(CACHE_SIZE, 2), 0);
+        replay("TinyLfuObjectCache without scans", new TinyLfuObjectCache<Integer, Integer>(CACHE_SIZE), 0);
+    }
+
+    private static void replay(final String title, final ObjectCacheBase<Integer, Integer> cache) {
+        replay(title, cache, KEY_SPACE_SIZE);
+    }
+
+    private static void replay(final String title, final ObjectCacheBase<Integer, Integer> cache, final int scanSize) {
+        final Random random = new Random(239);
+        long lookups = 0;
+        long hits = 0;
+        for (int i = 0; i < SCANS_COUNT; ++i) {
+            for (int j = 0; j < LOOKUPS_BETWEEN_SCANS; ++j) {
+                ++lookups;
+                if (access(cache, nextSkewedKey(random))) {
+                    ++hits;
+                }
+            }
+            for (int key = 0; key < scanSize; ++key) {
+                access(cache, KEY_SPACE_SIZE + key);
+            }
+        }
+        System.out.println(title + " point lookups hit rate: " + ObjectCacheBase.formatHitRate((double) hits / lookups));
+    }
+
+    private static boolean access(final ObjectCacheBase<Integer, Integer> cache, final int key) {
+        cache.lock();
+        try {
+            if (cache.tryKey(key) != null) {
+                return true;
+            }
+            cache.cacheObject(key, key);
+            return false;
+        } finally {
+            cache.unlock();
+        }
+    }
+
+    /**
+     * @return key from the key space where smaller keys are much more likely to be accessed.
+     */
+    private static int nextSkewedKey(final Random random) {
+        final double x = random.nextDouble();
+        return (int) (KEY_SPACE_SIZE * x * x * x);
+    }
+}
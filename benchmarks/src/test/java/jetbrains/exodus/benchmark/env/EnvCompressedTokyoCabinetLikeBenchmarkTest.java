@@ -0,0 +1,39 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.benchmark.env;
+
+import jetbrains.exodus.core.dataStructures.Pair;
+import jetbrains.exodus.io.CompressedFileDataReader;
+import jetbrains.exodus.io.CompressedFileDataWriter;
+import jetbrains.exodus.io.CompressedLogFiles;
+import jetbrains.exodus.io.DataReader;
+import jetbrains.exodus.io.DataWriter;
+
+import java.io.File;
+import java.io.IOException;
+
+public class EnvCompressedTokyoCabinetLikeBenchmarkTest extends EnvTokyoCabinetLikeBenchmarkTest {
+
+    @Override
+    protected Pair<DataReader, DataWriter> createRW() throws IOException {
+        final File testsDirectory = temporaryFolder.newFolder("data");
+        final CompressedLogFiles files = new CompressedLogFiles(testsDirectory, 65536, 16);
+        return new Pair<DataReader, DataWriter>(
+                new CompressedFileDataReader(testsDirectory, 16, files),
+                new CompressedFileDataWriter(testsDirectory, files)
+        );
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.benchmark.gc;
+
+import jetbrains.exodus.gc.CleaningPolicy;
+import jetbrains.exodus.gc.CostBenefitCleaningPolicy;
+import jetbrains.exodus.gc.MaxFreeSpaceCleaningPolicy;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Simulates a log of fixed size files holding fixed size records, replays a trace of updates of the records and
+ * prints write amplification of the cleaner for different cleaning policies. The log is cleaned as soon as it
+ * exceeds its capacity, the file with the greatest priority is cleaned first and its used records are appended
+ * to the log. Write amplification is the ratio of the number of records written by both updates and the cleaner
+ * to the number of updates.
+ */
+public class CleaningPolicyWriteAmplificationBenchmark {
+
+    private static final int RECORDS_PER_FILE = 256;
+    private static final int MAX_FILES = 256;
+    private static final int UPDATES_PER_RECORD = 20;
+
+    @Test
+    public void benchmarkUniformUpdates() {
+        replay(0.75, 1.0, 1.0);
+        replay(0.9, 1.0, 1.0);
+    }
+
+    @Test
+    public void benchmarkHotAndColdUpdates() {
+        // 90% of updates touch 10% of records
+        replay(0.75, 0.1, 0.9);
+        replay(0.9, 0.1, 0.9);
+    }
+
+    private static void replay(final double utilization, final double hotRecords, final double hotUpdates) {
+        replay("MaxFreeSpaceCleaningPolicy", new MaxFreeSpaceCleaningPolicy(), utilization, hotRecords, hotUpdates);
+        replay("CostBenefitCleaningPolicy", new CostBenefitCleaningPolicy(), utilization, hotRecords, hotUpdates);
+    }
+
+    private static void replay(final String title, final CleaningPolicy policy, final double utilization,
+                               final double hotRecords, final double hotUpdates) {
+        final int records = (int) (MAX_FILES * RECORDS_PER_FILE * utilization);
+        final int hot = Math.max((int) (records * hotRecords), 1);
+        final int cold = records - hot;
+        final SimulatedLog log = new SimulatedLog(records, policy);
+        // initial fill isn't taken into account
+        for (int record = 0; record < records; ++record) {
+            log.update(record);
+        }
+        final long writtenAfterFill = log.written;
+        final Random random = new Random(239);
+        final long updates = (long) records * UPDATES_PER_RECORD;
+        for (long i = 0; i < updates; ++i) {
+            log.update(cold == 0 || random.nextDouble() < hotUpdates ? random.nextInt(hot) : hot + random.nextInt(cold));
+        }
+        System.out.println(String.format("%s, utilization %d%%, %d%% of updates touch %d%% of records: write amplification %.3f",
+                title, (int) (utilization * 100), (int) (hotUpdates * 100), (int) (hotRecords * 100),
+                (double) (log.written - writtenAfterFill) / updates));
+    }
+
+    private static class SimulatedLog {
+
+        private final CleaningPolicy policy;
+        private final int[] recordAddresses; // record -> address of its up-to-date version
+        private int[] addressRecords; // address -> record
+        private int[] usedRecords; // file number -> number of up-to-date records in it, or -1 if it's cleaned
+        private int lowFile; // files below are already cleaned
+        private int highAddress;
+        private int files;
+        private long written;
+
+        private SimulatedLog(final int records, final CleaningPolicy policy) {
+            this.policy = policy;
+            recordAddresses = new int[records];
+            Arrays.fill(recordAddresses, -1);
+            addressRecords = new int[RECORDS_PER_FILE * MAX_FILES];
+            usedRecords = new int[MAX_FILES];
+        }
+
+        private void update(final int record) {
+            write(record);
+            while (files > MAX_FILES) {
+                clean(selectFile());
+            }
+        }
+
+        private void write(final int record) {
+            final int oldAddress = recordAddresses[record];
+            if (oldAddress >= 0) {
+                --usedRecords[oldAddress / RECORDS_PER_FILE];
+            }
+            if (highAddress % RECORDS_PER_FILE == 0) {
+                ++files;
+                if (highAddress == addressRecords.length) {
+                    addressRecords = Arrays.copyOf(addressRecords, highAddress * 2);
+                    usedRecords = Arrays.copyOf(usedRecords, usedRecords.length * 2);
+                }
+            }
+            recordAddresses[record] = highAddress;
+            addressRecords[highAddress] = record;
+            ++usedRecords[highAddress / RECORDS_PER_FILE];
+            ++highAddress;
+            ++written;
+        }
+
+        private int selectFile() {
+            final int highFile = highAddress / RECORDS_PER_FILE;
+            int result = -1;
+            double maxPriority = -1;
+            for (int file = lowFile; file < highFile; ++file) {
+                if (usedRecords[file] < 0) {
+                    continue; // already cleaned
+                }
+                final long freeBytes = RECORDS_PER_FILE - usedRecords[file];
+                final double priority = policy.getPriority(
+                        (long) file * RECORDS_PER_FILE, freeBytes, RECORDS_PER_FILE, highAddress);
+                if (priority > maxPriority) {
+                    maxPriority = priority;
+                    result = file;
+                }
+            }
+            return result;
+        }
+
+        private void clean(final int file) {
+            final int fileAddress = file * RECORDS_PER_FILE;
+            for (int address = fileAddress; address < fileAddress + RECORDS_PER_FILE; ++address) {
+                final int record = addressRecords[address];
+                if (recordAddresses[record] == address) {
+                    write(record);
+                }
+            }
+            usedRecords[file] = -1;
+            --files;
+            while (usedRecords[lowFile] < 0) {
+                ++lowFile;
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.benchmark.gc;
+
+import jetbrains.exodus.ArrayByteIterable;
+import jetbrains.exodus.benchmark.BenchmarkTestBase;
+import jetbrains.exodus.bindings.IntegerBinding;
+import jetbrains.exodus.env.*;
+import jetbrains.exodus.gc.GarbageCollector;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Fills a log with updates of many stores and prints time of cleaning all its files but the last one depending
+ * on {@linkplain EnvironmentConfig#GC_RECLAIM_PARALLELISM}. The log is the same for each parallelism, so the
+ * difference in time is the effect of reclaiming different stores in parallel. It can't exceed the number of
+ * available processors, which is printed as well.
+ */
+public class ParallelReclaimBenchmark extends BenchmarkTestBase {
+
+    private static final int STORES = 16;
+    private static final int TRANSACTIONS = 500;
+    private static final int PUTS_PER_STORE = 10;
+    private static final int KEYS_PER_STORE = 1000;
+    private static final int FILE_SIZE = 1024; // in kilobytes
+    private static final int WARM_UP_ITERATIONS = 5;
+
+    @Test
+    public void benchmarkReclaimParallelism() throws IOException {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        System.out.println("Available processors: " + processors);
+        for (int i = 0; i < WARM_UP_ITERATIONS; ++i) {
+            clean(1, false);
+        }
+        for (int parallelism = 1; parallelism <= Math.max(4, processors); parallelism *= 2) {
+            clean(parallelism, true);
+        }
+    }
+
+    private void clean(final int parallelism, final boolean print) throws IOException {
+        final EnvironmentConfig ec = new EnvironmentConfig();
+        ec.setGcEnabled(false);
+        ec.setLogFileSize(FILE_SIZE);
+        ec.setGcReclaimParallelism(parallelism);
+        final EnvironmentImpl env = (EnvironmentImpl) Environments.newInstance(temporaryFolder.newFolder(), ec);
+        try {
+            fill(env);
+            final GarbageCollector gc = env.getGC();
+            final long[] files = env.getLog().getAllFileAddresses();
+            final long started = System.nanoTime();
+            // files are from the newest to the oldest, the newest one isn't cleaned
+            for (int i = files.length - 1; i > 0; --i) {
+                gc.doCleanFile(files[i]);
+            }
+            final long time = (System.nanoTime() - started) / 1000000;
+            if (!print) {
+                return;
+            }
+            System.out.println(String.format("Reclaim parallelism %d, %d stores: %d files cleaned in %d ms",
+                    parallelism, STORES, files.length - 1, time));
+            if (myMessenger != null) {
+                myMessenger.putValue("ParallelReclaim" + parallelism, time);
+            }
+        } finally {
+            env.close();
+        }
+    }
+
+    private static void fill(@NotNull final Environment env) {
+        final Store[] stores = new Store[STORES];
+        env.executeInTransaction(new TransactionalExecutable() {
+            @Override
+            public void execute(@NotNull final Transaction txn) {
+                for (int i = 0; i < STORES; ++i) {
+                    stores[i] = env.openStore("store" + i, StoreConfig.WITHOUT_DUPLICATES, txn);
+                }
+            }
+        });
+        final Random random = new Random(0);
+        for (int i = 0; i < TRANSACTIONS; ++i) {
+            env.executeInTransaction(new TransactionalExecutable() {
+                @Override
+                public void execute(@NotNull final Transaction txn) {
+                    for (final Store store : stores) {
+                        for (int j = 0; j < PUTS_PER_STORE; ++j) {
+                            final byte[] value = new byte[16];
+                            random.nextBytes(value);
+                            store.put(txn, IntegerBinding.intToEntry(random.nextInt(KEYS_PER_STORE)),
+                                    new ArrayByteIterable(value));
+                        }
+                    }
+                }
+            });
+        }
+    }
+}
@@ -18,6 +18,7 @@ package jetbrains.exodus.benchmark.tree;
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.ByteIterator;
 import jetbrains.exodus.bindings.StringBinding;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.env.Cursor;
 import jetbrains.exodus.env.EnvironmentConfig;
 import jetbrains.exodus.log.LogConfig;
@@ -73,6 +74,25 @@ public abstract class TokyoCabinetLikeBenchmarkTestBase extends TreeBenchmarkTes
         }
     }
 
+    @Test
+    public void testBulkWrite() {
+        long time = time("Bulk write:", new Runnable() {
+            @Override
+            public void run() {
+                final List<Pair<ByteIterable, ByteIterable>> pairs = new ArrayList<>(TOKYO_CABINET_BENCHMARK_SIZE);
+                for (final ByteIterable key : keys) {
+                    pairs.add(new Pair<>(key, key));
+                }
+                tm.putAllRight(pairs.iterator());
+                tm.save();
+            }
+        });
+
+        if (myMessenger != null) {
+            myMessenger.putValue("BulkWriteTokyoTest", time);
+        }
+    }
+
     @Test
     public void testWriteRandom() {
         shuffleKeys();
@@ -85,6 +85,7 @@ public class EntitiesOfTypeIterable extends EntityIterableBase {
 
         private boolean hasNext;
         private boolean hasNextValid;
+        private boolean cursorMoved;
 
         private EntitiesOfTypeIterator(@NotNull final EntitiesOfTypeIterable iterable,
                                        @NotNull final Cursor index) {
@@ -97,10 +98,23 @@ public class EntitiesOfTypeIterable extends EntityIterableBase {
             if (!hasNextValid) {
                 hasNext = getCursor().getNext();
                 hasNextValid = true;
+                cursorMoved = true;
             }
             return hasNext;
         }
 
+        @Override
+        public boolean skip(final int number) {
+            // until the cursor is moved, it can be moved right to the entity by its index
+            if (number > 0 && !cursorMoved && getCursor() != null) {
+                hasNext = getCursor().getByIndex(number);
+                hasNextValid = true;
+                cursorMoved = true;
+                return super.skip(0);
+            }
+            return super.skip(number);
+        }
+
         @Override
         public int getCurrentVersion() {
             return IntegerBinding.compressedEntryToInt(getCursor().getValue());
@@ -121,6 +135,7 @@ public class EntitiesOfTypeIterable extends EntityIterableBase {
         @Nullable
         @Override
         public EntityId getLast() {
+            cursorMoved = true;
             if (!getCursor().getPrev()) {
                 return null;
             }
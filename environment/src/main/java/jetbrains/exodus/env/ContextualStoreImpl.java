@@ -16,10 +16,13 @@
 package jetbrains.exodus.env;
 
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.tree.TreeMetaInfo;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Iterator;
+
 public class ContextualStoreImpl extends StoreImpl implements ContextualStore {
 
     @NotNull
@@ -41,6 +44,11 @@ public class ContextualStoreImpl extends StoreImpl implements ContextualStore {
         return get(environment.getAndCheckCurrentTransaction(), key);
     }
 
+    @NotNull
+    public ByteIterable[] getAll(@NotNull final ByteIterable[] keys) {
+        return getAll(environment.getAndCheckCurrentTransaction(), keys);
+    }
+
     public boolean exists(@NotNull final ByteIterable key, @NotNull final ByteIterable data) {
         return exists(environment.getAndCheckCurrentTransaction(), key, data);
     }
@@ -53,6 +61,10 @@ public class ContextualStoreImpl extends StoreImpl implements ContextualStore {
         putRight(environment.getAndCheckCurrentTransaction(), key, value);
     }
 
+    public void putAllRight(@NotNull final Iterator<Pair<ByteIterable, ByteIterable>> pairs) {
+        putAllRight(environment.getAndCheckCurrentTransaction(), pairs);
+    }
+
     public boolean add(@NotNull final ByteIterable key, @NotNull final ByteIterable value) {
         return add(environment.getAndCheckCurrentTransaction(), key, value);
     }
@@ -16,6 +16,7 @@
 package jetbrains.exodus.env;
 
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.log.RandomAccessLoggable;
 import jetbrains.exodus.tree.IExpirationChecker;
 import jetbrains.exodus.tree.ITreeCursor;
@@ -24,6 +25,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 class ContextualTemporaryEmptyStore extends ContextualStoreImpl {
 
@@ -38,6 +41,12 @@ class ContextualTemporaryEmptyStore extends ContextualStoreImpl {
         return null;
     }
 
+    @Override
+    @NotNull
+    public ByteIterable[] getAll(@NotNull final Transaction txn, @NotNull final ByteIterable[] keys) {
+        return new ByteIterable[keys.length];
+    }
+
     @Override
     public boolean exists(@NotNull final Transaction txn,
                           @NotNull final ByteIterable key,
@@ -59,6 +68,12 @@ class ContextualTemporaryEmptyStore extends ContextualStoreImpl {
         throwCantModify();
     }
 
+    @Override
+    public void putAllRight(@NotNull final Transaction txn,
+                            @NotNull final Iterator<Pair<ByteIterable, ByteIterable>> pairs) {
+        throwCantModify();
+    }
+
     @Override
     public boolean add(@NotNull final Transaction txn,
                        @NotNull final ByteIterable key,
@@ -89,6 +104,23 @@ class ContextualTemporaryEmptyStore extends ContextualStoreImpl {
         // nothing to reclaim
     }
 
+    @NotNull
+    @Override
+    public Callable<Boolean> getReclaimTask(@NotNull final Transaction txn,
+                                            @NotNull final List<List<RandomAccessLoggable>> runs,
+                                            @NotNull final IExpirationChecker expirationChecker) {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return false; // nothing to reclaim
+            }
+        };
+    }
+
+    @Override
+    public void reclaimFinished(@NotNull final Transaction txn, final boolean keepMutableTree) {
+    }
+
     private boolean throwCantModify() {
         if (getEnvironment().getEnvironmentConfig().getEnvIsReadonly()) {
             throw new ReadonlyTransactionException();
@@ -125,6 +125,19 @@ final class CursorImpl implements Cursor {
         return treeCursor.getSearchBothRange(key, value);
     }
 
+    @Override
+    public boolean getByIndex(final long index) {
+        checkTreeCursor();
+        setTreeNodesCache();
+        return treeCursor.getByIndex(index);
+    }
+
+    @Override
+    public long getIndex() {
+        checkTreeCursor();
+        return treeCursor.getIndex();
+    }
+
     @Override
     public int count() {
         checkTreeCursor();
@@ -60,7 +60,7 @@ class EnvironmentBackupStrategyImpl extends BackupStrategy {
                             final File file = files[i++];
                             if (file.isFile()) {
                                 final long fileSize = file.length();
-                                if (fileSize != 0 && file.getName().endsWith(LogUtil.LOG_FILE_EXTENSION)) {
+                                if (fileSize != 0 && LogUtil.isLogRelatedFile(file.getName())) {
                                     next = new FileDescriptor(file, "", fileSize);
                                     return true;
                                 }
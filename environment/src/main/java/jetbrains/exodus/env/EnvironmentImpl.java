@@ -26,7 +26,9 @@ import jetbrains.exodus.gc.GarbageCollector;
 import jetbrains.exodus.log.Log;
 import jetbrains.exodus.log.LogUtil;
 import jetbrains.exodus.log.Loggable;
+import jetbrains.exodus.log.SyncListener;
 import jetbrains.exodus.tree.TreeMetaInfo;
+import jetbrains.exodus.tree.TreeNodesCache;
 import jetbrains.exodus.tree.btree.BTree;
 import jetbrains.exodus.tree.btree.BTreeBalancePolicy;
 import jetbrains.exodus.util.DeferredIO;
@@ -63,11 +65,15 @@ public class EnvironmentImpl implements Environment {
     @Nullable
     private StoreGetCache storeGetCache;
     @Nullable
-    private SoftReference<LongObjectCacheBase> treeNodesCache;
+    private StoreBloomFilters storeBloomFilters;
+    @Nullable
+    private SoftReference<LongObjectCacheBase<Object>> treeNodesCache;
     private final EnvironmentSettingsListener envSettingsListener;
     private final GarbageCollector gc;
     private final Object commitLock = new Object();
     private final Object metaLock = new Object();
+    @NotNull
+    private final GroupCommit groupCommit;
     @Nullable
     private final jetbrains.exodus.env.management.EnvironmentConfig configMBean;
 
@@ -86,12 +92,15 @@ public class EnvironmentImpl implements Environment {
         this.log = log;
         this.ec = ec;
         applyEnvironmentSettings(log.getLocation(), ec);
+        groupCommit = new GroupCommit(log, commitLock);
+        applyDurableWriteSettings();
         final Pair<MetaTree, Integer> meta = MetaTree.create(this);
         metaTree = meta.getFirst();
         structureId = new AtomicInteger(meta.getSecond());
         txns = new TransactionSet();
         txnSafeTasks = new LinkedList<>();
         invalidateStoreGetCache();
+        invalidateStoreBloomFilters();
         invalidateTreeNodesCache();
         envSettingsListener = new EnvironmentSettingsListener();
         ec.addChangedSettingsListener(envSettingsListener);
@@ -249,18 +258,40 @@ public class EnvironmentImpl implements Environment {
         }
     }
 
+    /**
+     * Executes the task exclusively of commits of other transactions, so a transaction started and flushed by
+     * the task can't fail to flush due to concurrent commits. Other committers are blocked while the task runs.
+     *
+     * @param task task to execute.
+     */
+    public void executeExclusively(@NotNull final Runnable task) {
+        final long committedHighAddress;
+        synchronized (commitLock) {
+            task.run();
+            committedHighAddress = log.getHighAddress();
+        }
+        // group commit syncs the log taking the commit lock, so wait for sync after the lock is released
+        if (isGroupCommit()) {
+            groupCommit.waitForSync(committedHighAddress);
+        }
+    }
+
     @Override
     public void clear() {
         suspendGC();
+        finishStoreBloomFilters();
         try {
             synchronized (commitLock) {
                 synchronized (metaLock) {
                     checkInactive(false);
                     log.clear();
+                    groupCommit.reset();
                     runAllTransactionSafeTasks();
                     final Pair<MetaTree, Integer> meta = MetaTree.create(this);
                     metaTree = meta.getFirst();
                     structureId.set(meta.getSecond());
+                    // addresses in the log start over, so filters cached by tree root addresses are no longer valid
+                    invalidateStoreBloomFilters();
                 }
             }
         } finally {
@@ -277,9 +308,18 @@ public class EnvironmentImpl implements Environment {
         // in order to avoid deadlock, do not finish gc inside lock
         // it is safe to invoke gc.finish() several times
         gc.finish();
+        finishStoreBloomFilters();
         final double logCacheHitRate;
+        final double offHeapLogCacheHitRate;
+        final long readAheadPages;
+        final long readAheadUsefulPages;
+        final long readAheadWastedPages;
+        final long groupCommitTransactions;
+        final double groupCommitBatchSize;
+        final double groupCommitLatency;
         final double storeGetCacheHitRate;
         final double treeNodesCacheHitRate;
+        final long gcThrottledTime = gc.getThrottledTime();
         synchronized (commitLock) {
             if (!isOpen()) {
                 throw new IllegalStateException("Already closed, see cause for previous close stack trace", throwableOnClose);
@@ -291,12 +331,19 @@ public class EnvironmentImpl implements Environment {
                 }
                 ec.removeChangedSettingsListener(envSettingsListener);
                 logCacheHitRate = log.getCacheHitRate();
+                offHeapLogCacheHitRate = log.getOffHeapCacheHitRate();
+                readAheadPages = log.getReadAheadPages();
+                readAheadUsefulPages = log.getReadAheadUsefulPages();
+                readAheadWastedPages = log.getReadAheadWastedPages();
+                groupCommitTransactions = groupCommit.getTransactions();
+                groupCommitBatchSize = groupCommit.getAverageBatchSize();
+                groupCommitLatency = groupCommit.getAverageLatency();
                 log.close();
             } finally {
                 log.release();
             }
             storeGetCacheHitRate = storeGetCache == null ? 0 : storeGetCache.hitRate();
-            final LongObjectCacheBase treeNodesCache = this.treeNodesCache == null ? null : this.treeNodesCache.get();
+            final LongObjectCacheBase<Object> treeNodesCache = this.treeNodesCache == null ? null : this.treeNodesCache.get();
             treeNodesCacheHitRate = treeNodesCache == null ? 0 : treeNodesCache.hitRate();
             throwableOnClose = new Throwable();
             throwableOnCommit = EnvironmentClosedException.INSTANCE;
@@ -306,6 +353,20 @@ public class EnvironmentImpl implements Environment {
             logging.info("Store get cache hit rate: " + ObjectCacheBase.formatHitRate(storeGetCacheHitRate));
             logging.info("Tree nodes cache hit rate: " + ObjectCacheBase.formatHitRate(treeNodesCacheHitRate));
             logging.info("Exodus log cache hit rate: " + ObjectCacheBase.formatHitRate(logCacheHitRate));
+            if (ec.getLogCacheOffHeapSize() > 0) {
+                logging.info("Exodus off-heap log cache hit rate: " + ObjectCacheBase.formatHitRate(offHeapLogCacheHitRate));
+            }
+            if (gcThrottledTime > 0) {
+                logging.info("Background cleaner throttled time: " + gcThrottledTime + " ms");
+            }
+            if (groupCommitTransactions > 0) {
+                logging.info("Group commit average batch size: " + String.format("%.2f", groupCommitBatchSize) +
+                        ", average latency: " + String.format("%.3f", groupCommitLatency) + " ms");
+            }
+            if (ec.getLogReadAheadPages() > 0) {
+                logging.info("Exodus log pages read ahead: " + readAheadPages +
+                        ", useful: " + readAheadUsefulPages + ", wasted: " + readAheadWastedPages);
+            }
         }
     }
 
@@ -336,7 +397,13 @@ public class EnvironmentImpl implements Environment {
 
     @Override
     public long getDiskUsage() {
-        return IOUtil.getDirectorySize(new File(getLocation()), LogUtil.LOG_FILE_EXTENSION, false);
+        long result = 0;
+        for (final File file : IOUtil.listFiles(new File(getLocation()))) {
+            if (file.isFile() && LogUtil.isLogRelatedFile(file.getName())) {
+                result += IOUtil.getAdjustedFileLength(file);
+            }
+        }
+        return result;
     }
 
     @Override
@@ -372,7 +439,9 @@ public class EnvironmentImpl implements Environment {
     public BTreeBalancePolicy getBTreeBalancePolicy() {
         // we don't care of possible race condition here
         if (balancePolicy == null) {
-            balancePolicy = new BTreeBalancePolicy(ec.getTreeMaxPageSize());
+            balancePolicy = new BTreeBalancePolicy(
+                    ec.getTreeMaxPageSize(), ec.getTreeKeyPrefixLength(), ec.getTreeCountedPages(),
+                    ec.getTreeInlineValueMaxLength());
         }
         return balancePolicy;
     }
@@ -429,21 +498,46 @@ public class EnvironmentImpl implements Environment {
         }
     }
 
+    @Nullable
+    CommitFuture commitTransactionAsync(@NotNull final TransactionImpl txn) {
+        final TransactionCommitFuture result = new TransactionCommitFuture();
+        if (flushTransaction(txn, false, result)) {
+            finishTransaction(txn);
+            return result;
+        }
+        return null;
+    }
+
     boolean flushTransaction(@NotNull final TransactionImpl txn, final boolean forceCommit) {
+        return flushTransaction(txn, forceCommit, null);
+    }
+
+    /**
+     * @param syncListener if not null, the log is synced in background and the listener is notified after that,
+     *                     otherwise the method returns after the log is synced if group commit is on.
+     */
+    private boolean flushTransaction(@NotNull final TransactionImpl txn, final boolean forceCommit,
+                                     @Nullable final SyncListener syncListener) {
         if (!forceCommit && txn.isIdempotent()) {
+            if (syncListener != null) {
+                syncListener.synced(null);
+            }
             return true;
         }
+        final long started = System.nanoTime();
         final Iterable<Loggable>[] expiredLoggables;
+        final long highAddress;
+        final long committedHighAddress;
         synchronized (commitLock) {
             if (ec.getEnvIsReadonly()) {
                 throw new ReadonlyTransactionException();
             }
             checkIsOperative();
-            if (!txn.checkVersion(metaTree.root)) {
-                // meta lock not needed 'cause write can only occur in another commit lock
+            // meta lock not needed 'cause write can only occur in another commit lock
+            if (!txn.checkVersion(metaTree.root) && !(ec.getEnvTxnRebase() && txn.rebase(metaTree))) {
                 return false;
             }
-            final long highAddress = log.getHighAddress();
+            highAddress = log.getHighAddress();
             try {
                 final MetaTree[] tree = new MetaTree[1];
                 expiredLoggables = txn.doCommit(tree);
@@ -451,6 +545,7 @@ public class EnvironmentImpl implements Environment {
                     txn.setMetaTree(metaTree = tree[0]);
                     txn.executeCommitHook();
                 }
+                committedHighAddress = log.getHighAddress();
             } catch (Throwable t) { // pokémon exception handling to decrease try/catch block overhead
                 logging.error("Failed to flush transaction", t);
                 try {
@@ -462,6 +557,13 @@ public class EnvironmentImpl implements Environment {
                 throw ExodusException.toExodusException(t, "Failed to flush transaction");
             }
         }
+        if (syncListener != null) {
+            log.syncAsync(syncListener);
+        } else if (isGroupCommit() && !Thread.holdsLock(commitLock)) {
+            // transactions flushed exclusively wait for sync in executeExclusively()
+            groupCommit.waitForSync(committedHighAddress);
+        }
+        gc.transactionFlushed(committedHighAddress - highAddress, System.nanoTime() - started);
         gc.fetchExpiredLoggables(new ExpiredLoggableIterable(expiredLoggables));
         return true;
     }
@@ -475,13 +577,18 @@ public class EnvironmentImpl implements Environment {
         }
     }
 
+    @NotNull
+    GroupCommit getGroupCommit() {
+        return groupCommit;
+    }
+
     MetaTree getMetaTreeUnsafe() {
         return metaTree;
     }
 
     TreeMetaInfo getCurrentMetaInfo(final String name, @NotNull final TransactionImpl txn) {
         final TreeMetaInfo newlyCreated = txn.getNewStoreMetaInfo(name);
-        return newlyCreated != null ? newlyCreated : txn.getMetaTree().getMetaInfo(name, this);
+        return newlyCreated != null ? newlyCreated : txn.getSnapshotStoreMetaInfo(name);
     }
 
     /**
@@ -590,15 +697,31 @@ public class EnvironmentImpl implements Environment {
     }
 
     @Nullable
-    LongObjectCacheBase getTreeNodesCache() {
-        final SoftReference<LongObjectCacheBase> cacheRef = treeNodesCache;
+    StoreBloomFilters getStoreBloomFilters() {
+        return storeBloomFilters;
+    }
+
+    @Nullable
+    LongObjectCacheBase<Object> getTreeNodesCache() {
+        final SoftReference<LongObjectCacheBase<Object>> cacheRef = treeNodesCache;
         if (cacheRef != null) {
-            final LongObjectCacheBase cache = cacheRef.get();
+            final LongObjectCacheBase<Object> cache = cacheRef.get();
             return cache != null ? cache : invalidateTreeNodesCache();
         }
         return null;
     }
 
+    /**
+     * @return environment-wide tree nodes cache bounded by memory or null if the cache is
+     * bounded by the number of nodes or is disabled.
+     * @see EnvironmentConfig#TREE_NODES_CACHE_MEMORY
+     */
+    @Nullable
+    public TreeNodesCache getTreeNodesCacheBoundedByMemory() {
+        final LongObjectCacheBase<Object> cache = getTreeNodesCache();
+        return cache instanceof TreeNodesCache ? (TreeNodesCache) cache : null;
+    }
+
     protected StoreImpl createTemporaryEmptyStore(String name) {
         return new TemporaryEmptyStore(this, name);
     }
@@ -687,10 +810,31 @@ public class EnvironmentImpl implements Environment {
         storeGetCache = storeGetCacheSize == 0 ? null : new StoreGetCache(storeGetCacheSize);
     }
 
-    private LongObjectCacheBase invalidateTreeNodesCache() {
+    private void invalidateStoreBloomFilters() {
+        finishStoreBloomFilters();
+        final int bitsPerKey = ec.getEnvStoreBloomFilterBitsPerKey();
+        storeBloomFilters = bitsPerKey == 0 ? null : new StoreBloomFilters(this, bitsPerKey);
+    }
+
+    /**
+     * Waits for the filter being built in background, since it holds a read-only transaction.
+     */
+    private void finishStoreBloomFilters() {
+        final StoreBloomFilters storeBloomFilters = this.storeBloomFilters;
+        if (storeBloomFilters != null) {
+            storeBloomFilters.finish();
+        }
+    }
+
+    private LongObjectCacheBase<Object> invalidateTreeNodesCache() {
+        final long treeNodesCacheMemory = ec.getTreeNodesCacheMemory();
         final int treeNodesCacheSize = ec.getTreeNodesCacheSize();
-        final LongObjectCacheBase result = treeNodesCacheSize == 0 ? null :
-                new ConcurrentLongObjectCache(treeNodesCacheSize, 2);
+        final LongObjectCacheBase<Object> result;
+        if (treeNodesCacheMemory > 0) {
+            result = new TreeNodesCache(treeNodesCacheMemory);
+        } else {
+            result = treeNodesCacheSize == 0 ? null : new ConcurrentLongObjectCache<Object>(treeNodesCacheSize, 2);
+        }
         treeNodesCache = result == null ? null : new SoftReference<>(result);
         return result;
     }
@@ -714,18 +858,34 @@ public class EnvironmentImpl implements Environment {
         }
     }
 
+    private boolean isGroupCommit() {
+        return ec.getLogDurableWrite() && ec.getEnvGroupCommit();
+    }
+
+    /**
+     * In group commit mode, transactions are written to the log without sync, and durability is provided by
+     * {@link GroupCommit}.
+     */
+    private void applyDurableWriteSettings() {
+        log.getConfig().setDurableWrite(ec.getLogDurableWrite() && !ec.getEnvGroupCommit());
+    }
+
     private class EnvironmentSettingsListener implements AbstractConfig.ChangedSettingsListener {
 
         @Override
         public void settingChanged(@NotNull final String settingName) {
             if (settingName.equals(EnvironmentConfig.ENV_STOREGET_CACHE_SIZE)) {
                 invalidateStoreGetCache();
-            } else if (settingName.equals(EnvironmentConfig.TREE_NODES_CACHE_SIZE)) {
+            } else if (settingName.equals(EnvironmentConfig.ENV_STORE_BLOOM_FILTER_BITS_PER_KEY)) {
+                invalidateStoreBloomFilters();
+            } else if (settingName.equals(EnvironmentConfig.TREE_NODES_CACHE_SIZE) ||
+                    settingName.equals(EnvironmentConfig.TREE_NODES_CACHE_MEMORY)) {
                 invalidateTreeNodesCache();
             } else if (settingName.equals(EnvironmentConfig.LOG_SYNC_PERIOD)) {
                 log.getConfig().setSyncPeriod(ec.getLogSyncPeriod());
-            } else if (settingName.equals(EnvironmentConfig.LOG_DURABLE_WRITE)) {
-                log.getConfig().setDurableWrite(ec.getLogDurableWrite());
+            } else if (settingName.equals(EnvironmentConfig.LOG_DURABLE_WRITE) ||
+                    settingName.equals(EnvironmentConfig.ENV_GROUP_COMMIT)) {
+                applyDurableWriteSettings();
             } else if (settingName.equals(EnvironmentConfig.ENV_IS_READONLY)) {
                 if (ec.getEnvIsReadonly()) {
                     suspendGC();
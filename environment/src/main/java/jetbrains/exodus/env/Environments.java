@@ -100,12 +100,19 @@ public final class Environments {
         config.setLockTimeout(ec.getLogLockTimeout());
         config.setCachePageSize(ec.getLogCachePageSize());
         config.setCacheOpenFilesCount(ec.getLogCacheOpenFilesCount());
+        config.setMappedFiles(ec.isLogMappedFiles());
+        config.setPreallocate(ec.isLogPreallocate());
+        config.setCompressed(ec.isLogCompressed());
         config.setDurableWrite(ec.getLogDurableWrite());
         config.setSharedCache(ec.isLogCacheShared());
         config.setNonBlockingCache(ec.isLogCacheNonBlocking());
+        config.setScanResistantCache(ec.isLogCacheScanResistant());
+        config.setReadAheadPages(ec.getLogReadAheadPages());
+        config.setOffHeapCacheSize(ec.getLogCacheOffHeapSize());
         config.setCleanDirectoryExpected(ec.isLogCleanDirectoryExpected());
         config.setClearInvalidLog(ec.isLogClearInvalid());
         config.setSyncPeriod(ec.getLogSyncPeriod());
+        config.setStartupParallelism(ec.getEnvStartupParallelism());
         final Long maxMemory = ec.getMemoryUsage();
         if (maxMemory != null) {
             config.setMemoryUsage(maxMemory);
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.env;
+
+import jetbrains.exodus.ExodusException;
+import jetbrains.exodus.log.Log;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Makes committed transactions durable sharing a single log sync between all transactions committed
+ * concurrently. Transactions are written to the log without sync, then each committing thread waits until
+ * the log is synced up to its high address. The first waiting thread becomes a leader: it syncs the log
+ * for all transactions committed by that moment, whereas other threads wait for it. The threads which
+ * committed while the leader was syncing are served by the next leader.
+ */
+final class GroupCommit {
+
+    @NotNull
+    private final Log log;
+    @NotNull
+    private final Object commitLock;
+    private long syncedAddress;
+    private boolean syncInProgress;
+    private long batches;
+    private long transactions;
+    private long totalLatency; // in nanoseconds
+
+    GroupCommit(@NotNull final Log log, @NotNull final Object commitLock) {
+        this.log = log;
+        this.commitLock = commitLock;
+        syncedAddress = 0;
+        syncInProgress = false;
+    }
+
+    /**
+     * Waits until the log is synced at least up to specified address.
+     *
+     * @param address high address of the log after transaction was committed.
+     */
+    void waitForSync(final long address) {
+        final long started = System.nanoTime();
+        synchronized (this) {
+            while (syncedAddress < address) {
+                if (!syncInProgress) {
+                    syncInProgress = true;
+                    break;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ExodusException("Interrupted while waiting for log sync", e);
+                }
+            }
+            if (syncedAddress >= address) {
+                transactionSynced(started);
+                return;
+            }
+        }
+        long synced = -1;
+        try {
+            final long highAddress;
+            synchronized (commitLock) {
+                highAddress = log.getHighAddress();
+            }
+            // committers aren't blocked while syncing, so they form the next batch
+            log.sync();
+            synced = highAddress;
+        } finally {
+            synchronized (this) {
+                syncInProgress = false;
+                if (synced >= 0) {
+                    syncedAddress = Math.max(syncedAddress, synced);
+                    ++batches;
+                    transactionSynced(started);
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Should be called after the log is cleared.
+     */
+    synchronized void reset() {
+        syncedAddress = 0;
+    }
+
+    synchronized long getBatches() {
+        return batches;
+    }
+
+    synchronized long getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * @return average number of transactions made durable by a single sync.
+     */
+    synchronized double getAverageBatchSize() {
+        return batches == 0 ? 0 : (double) transactions / batches;
+    }
+
+    /**
+     * @return average time in milliseconds spent by committing thread waiting for sync.
+     */
+    synchronized double getAverageLatency() {
+        return transactions == 0 ? 0 : (double) totalLatency / transactions / 1000000;
+    }
+
+    private void transactionSynced(final long started) {
+        ++transactions;
+        totalLatency += System.nanoTime() - started;
+    }
+}
@@ -104,6 +104,17 @@ final class MetaTree {
         return value == null ? Loggable.NULL_ADDRESS : CompressedUnsignedLongByteIterable.getLong(value);
     }
 
+    boolean hasSameMetaInfo(@NotNull final MetaTree other, @NotNull final String storeName) {
+        final ByteIterable key = StringBinding.stringToEntry(storeName);
+        final ByteIterable value = tree.get(key);
+        final ByteIterable otherValue = other.tree.get(key);
+        return value == null ? otherValue == null : otherValue != null && value.compareTo(otherValue) == 0;
+    }
+
+    boolean hasSameRootAddress(@NotNull final MetaTree other, final int structureId) {
+        return getRootAddress(structureId) == other.getRootAddress(structureId);
+    }
+
     static void removeStore(@NotNull final ITreeMutable out, @NotNull final String storeName, final long id) {
         out.delete(StringBinding.stringToEntry(storeName));
         out.delete(LongBinding.longToCompressedEntry(id));
@@ -19,6 +19,7 @@ import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.ExodusException;
 import jetbrains.exodus.bindings.LongBinding;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.core.dataStructures.hash.*;
 import jetbrains.exodus.core.dataStructures.hash.LinkedHashSet;
 import jetbrains.exodus.gc.GarbageCollector;
@@ -410,13 +411,15 @@ public class Reflect {
                     @Override
                     public void execute(@NotNull final Transaction txn) {
                         final Store store = target.openStore(name, config[0], txn);
+                        final List<Pair<ByteIterable, ByteIterable>> sortedPairs = new ArrayList<>(totalPairs[0]);
                         for (final Map.Entry<ByteIterable, Set<ByteIterable>> pair : pairs.entrySet()) {
                             final ByteIterable key = pair.getKey();
                             final Set<ByteIterable> valueSet = pair.getValue();
                             for (final ByteIterable value : valueSet) {
-                                store.putRight(txn, key, value);
+                                sortedPairs.add(new Pair<>(key, value));
                             }
                         }
+                        store.putAllRight(txn, sortedPairs.iterator());
                     }
                 });
             }
@@ -0,0 +1,250 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.env;
+
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.WeightedLongObjectCache;
+import jetbrains.exodus.core.execution.Job;
+import jetbrains.exodus.core.execution.JobProcessor;
+import jetbrains.exodus.core.execution.JobProcessorExceptionHandler;
+import jetbrains.exodus.core.execution.ThreadJobProcessor;
+import jetbrains.exodus.log.Loggable;
+import jetbrains.exodus.tree.ITree;
+import jetbrains.exodus.tree.ITreeCursor;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bloom filters of keys of immutable trees, cached by tree root address. Content of an immutable tree never
+ * changes, so its filter is valid as long as the tree is. A filter is built after the number of lookups in a tree
+ * reaches a fraction of its size, so the cost of building is amortized by lookups and filters are not built for
+ * trees which are replaced by new versions faster than they are read. Filters are built in background by scanning
+ * the current version of the store in a read-only transaction, lookups don't wait for them.
+ * <p/>
+ * The cache is bounded by total size of filters, filters of too large trees are not built.
+ */
+class StoreBloomFilters {
+
+    private static final Log logging = LogFactory.getLog(StoreBloomFilters.class);
+
+    private static final long MEMORY = 16L << 20; // total bytes held by cached filters
+    private static final long MAX_FILTER_LENGTH = MEMORY / 8 / 8; // in longs, i.e. 1/8 of the memory
+    private static final int LOOKUPS_WEIGHT = 32;
+    private static final long MIN_LOOKUPS_TO_BUILD = 16;
+    private static final int TREE_SIZE_TO_LOOKUPS_RATIO = 16;
+
+    @NotNull
+    private final EnvironmentImpl env;
+    private final int bitsPerKey;
+    private final int hashFunctions;
+    // tree root address -> long[] filter bits or AtomicLong number of lookups if the filter is not built yet
+    private final FiltersCache filters;
+    @Nullable
+    private ThreadJobProcessor processor;
+    private boolean finished;
+
+    StoreBloomFilters(@NotNull final EnvironmentImpl env, final int bitsPerKey) {
+        this.env = env;
+        this.bitsPerKey = bitsPerKey;
+        // optimal number of hash functions is bitsPerKey * ln(2)
+        hashFunctions = Math.max(1, Math.min(30, (int) Math.round(bitsPerKey * Math.log(2))));
+        filters = new FiltersCache(MEMORY);
+    }
+
+    /**
+     * @return false if the tree definitely doesn't contain the key.
+     */
+    boolean mightContain(@NotNull final StoreImpl store, @NotNull final ITree tree, @NotNull final ByteIterable key) {
+        final long treeRootAddress = tree.getRootAddress();
+        final Object cached = filters.tryKey(treeRootAddress);
+        if (cached instanceof long[]) {
+            return mightContain((long[]) cached, key);
+        }
+        final AtomicLong lookups;
+        if (cached == null) {
+            lookups = new AtomicLong();
+            filters.cacheObject(treeRootAddress, lookups);
+        } else {
+            lookups = (AtomicLong) cached;
+        }
+        final long treeSize = tree.getSize();
+        // only a single thread gets the exact threshold value, so the filter is queued for building once
+        if (lookups.incrementAndGet() == Math.max(MIN_LOOKUPS_TO_BUILD, treeSize / TREE_SIZE_TO_LOOKUPS_RATIO) &&
+                getFilterLength(treeSize) <= MAX_FILTER_LENGTH) {
+            final JobProcessor processor = getProcessor();
+            if (processor != null) {
+                processor.queue(new BuildFilterJob(store));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the filter of the tree with specified root address is built and cached.
+     */
+    boolean hasFilter(final long treeRootAddress) {
+        return filters.getObject(treeRootAddress) instanceof long[];
+    }
+
+    /**
+     * Stops building filters and waits for the filter being built, so no read-only transaction is started
+     * by this instance anymore.
+     */
+    void finish() {
+        final ThreadJobProcessor processor;
+        synchronized (this) {
+            finished = true;
+            processor = this.processor;
+        }
+        if (processor != null) {
+            processor.finish();
+        }
+    }
+
+    @Nullable
+    private synchronized JobProcessor getProcessor() {
+        ThreadJobProcessor result = processor;
+        if (result == null && !finished) {
+            result = new ThreadJobProcessor("Exodus Bloom filters builder for " + env.getLocation());
+            result.setExceptionHandler(new JobProcessorExceptionHandler() {
+                @Override
+                public void handle(JobProcessor processor, Job job, Throwable t) {
+                    logging.error("Failed to build Bloom filter", t);
+                }
+            });
+            result.start();
+            processor = result;
+        }
+        return result;
+    }
+
+    private long getFilterLength(final long treeSize) {
+        return Math.max(1, (treeSize * bitsPerKey + 63) >>> 6);
+    }
+
+    @NotNull
+    private long[] build(@NotNull final ITree tree) {
+        final long[] result = new long[(int) getFilterLength(tree.getSize())];
+        try (ITreeCursor cursor = tree.openCursor()) {
+            while (cursor.getNextNoDup()) {
+                final long hash = hash(cursor.getKey());
+                for (int i = 0; i < hashFunctions; ++i) {
+                    final int bit = getBit(result, hash, i);
+                    result[bit >>> 6] |= 1L << bit;
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean mightContain(@NotNull final long[] filter, @NotNull final ByteIterable key) {
+        final long hash = hash(key);
+        for (int i = 0; i < hashFunctions; ++i) {
+            final int bit = getBit(filter, hash, i);
+            if ((filter[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return i-th bit of the key with specified hash, bits are computed by double hashing.
+     */
+    private static int getBit(@NotNull final long[] filter, final long hash, final int i) {
+        final long h1 = (int) hash;
+        final long h2 = (int) (hash >>> 32);
+        return (int) (((h1 + i * h2) & Long.MAX_VALUE) % ((long) filter.length << 6));
+    }
+
+    /**
+     * FNV-1a hash of key bytes with the finalizer of MurmurHash3 to spread it over all 64 bits.
+     */
+    private static long hash(@NotNull final ByteIterable key) {
+        final byte[] bytes = key.getBytesUnsafe();
+        final int length = key.getLength();
+        long result = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; ++i) {
+            result ^= bytes[i] & 0xff;
+            result *= 0x100000001b3L;
+        }
+        result ^= result >>> 33;
+        result *= 0xff51afd7ed558ccdL;
+        result ^= result >>> 33;
+        result *= 0xc4ceb9fe1a85ec53L;
+        result ^= result >>> 33;
+        return result;
+    }
+
+    private class BuildFilterJob extends Job {
+
+        @NotNull
+        private final StoreImpl store;
+
+        private BuildFilterJob(@NotNull final StoreImpl store) {
+            this.store = store;
+        }
+
+        @Override
+        public String getName() {
+            return "Building Bloom filter of " + store.getName();
+        }
+
+        @Override
+        public boolean isEqualTo(Job job) {
+            return store.getName().equals(((BuildFilterJob) job).store.getName());
+        }
+
+        public int hashCode() {
+            return store.getName().hashCode();
+        }
+
+        @Override
+        protected void execute() throws Throwable {
+            if (!env.isOpen()) {
+                return;
+            }
+            // the transaction prevents files of the tree from being deleted by GC while the tree is scanned
+            final TransactionImpl txn = env.beginReadonlyTransaction(null);
+            try {
+                final ITree tree = txn.getTree(store);
+                final long treeRootAddress = tree.getRootAddress();
+                if (treeRootAddress != Loggable.NULL_ADDRESS && !hasFilter(treeRootAddress) &&
+                        getFilterLength(tree.getSize()) <= MAX_FILTER_LENGTH) {
+                    filters.cacheObject(treeRootAddress, build(tree));
+                }
+            } finally {
+                txn.abort();
+            }
+        }
+    }
+
+    private static class FiltersCache extends WeightedLongObjectCache<Object> {
+
+        private FiltersCache(final long memory) {
+            super(memory);
+        }
+
+        @Override
+        protected int getWeight(@NotNull final Object value) {
+            return value instanceof long[] ? 16 + (((long[]) value).length << 3) : LOOKUPS_WEIGHT;
+        }
+    }
+}
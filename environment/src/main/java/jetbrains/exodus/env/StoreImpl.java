@@ -17,11 +17,13 @@ package jetbrains.exodus.env;
 
 import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.log.Log;
 import jetbrains.exodus.log.Loggable;
 import jetbrains.exodus.log.RandomAccessLoggable;
 import jetbrains.exodus.tree.IExpirationChecker;
 import jetbrains.exodus.tree.ITree;
+import jetbrains.exodus.tree.ITreeMutable;
 import jetbrains.exodus.tree.TreeMetaInfo;
 import jetbrains.exodus.tree.btree.BTree;
 import jetbrains.exodus.tree.btree.BTreeBalancePolicy;
@@ -32,7 +34,11 @@ import jetbrains.exodus.tree.patricia.PatriciaTreeWithDuplicates;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 @SuppressWarnings({"ClassNameSameAsAncestorName"})
 public class StoreImpl implements Store {
@@ -64,6 +70,9 @@ public class StoreImpl implements Store {
     public ByteIterable get(@NotNull final Transaction txn, @NotNull final ByteIterable key) {
         final ITree tree = ((TransactionImpl) txn).getTree(this);
         final long treeRootAddress = tree.getRootAddress();
+        if (!mightContain(tree, treeRootAddress, key)) {
+            return null;
+        }
         final StoreGetCache storeGetCache;
         // if neither tree is empty nor mutable and StoreGetCache is on
         if (treeRootAddress != Loggable.NULL_ADDRESS && (storeGetCache = environment.getStoreGetCache()) != null) {
@@ -79,11 +88,64 @@ public class StoreImpl implements Store {
         return tree.get(key);
     }
 
+    @Override
+    @NotNull
+    public ByteIterable[] getAll(@NotNull final Transaction txn, @NotNull final ByteIterable[] keys) {
+        final ByteIterable[] result = new ByteIterable[keys.length];
+        final ITree tree = ((TransactionImpl) txn).getTree(this);
+        final long treeRootAddress = tree.getRootAddress();
+        final StoreGetCache storeGetCache =
+                treeRootAddress == Loggable.NULL_ADDRESS ? null : environment.getStoreGetCache();
+        // indices of keys which are neither excluded by Bloom filter nor cached
+        final Integer[] notCached = new Integer[keys.length];
+        int notCachedCount = 0;
+        for (int i = 0; i < keys.length; ++i) {
+            if (!mightContain(tree, treeRootAddress, keys[i])) {
+                continue;
+            }
+            if (storeGetCache != null) {
+                final ByteIterable cached = storeGetCache.tryKey(treeRootAddress, keys[i]);
+                if (cached != null) {
+                    result[i] = cached == NULL_CACHED_VALUE ? null : cached;
+                    continue;
+                }
+            }
+            notCached[notCachedCount++] = i;
+        }
+        if (notCachedCount > 0) {
+            Arrays.sort(notCached, 0, notCachedCount, new Comparator<Integer>() {
+                @Override
+                public int compare(final Integer i1, final Integer i2) {
+                    return keys[i1].compareTo(keys[i2]);
+                }
+            });
+            final ByteIterable[] sortedKeys = new ByteIterable[notCachedCount];
+            for (int i = 0; i < notCachedCount; ++i) {
+                sortedKeys[i] = keys[notCached[i]];
+            }
+            final ByteIterable[] values = new ByteIterable[notCachedCount];
+            if (storeGetCache != null) {
+                tree.setTreeNodesCache(environment.getTreeNodesCache());
+            }
+            tree.getAll(sortedKeys, values);
+            for (int i = 0; i < notCachedCount; ++i) {
+                final ByteIterable value = values[i];
+                result[notCached[i]] = value;
+                if (storeGetCache != null) {
+                    storeGetCache.cacheObject(treeRootAddress, sortedKeys[i],
+                            value == null ? NULL_CACHED_VALUE : new ArrayByteIterable(value));
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public boolean exists(@NotNull final Transaction txn,
                           @NotNull final ByteIterable key,
                           @NotNull final ByteIterable data) {
-        return ((TransactionImpl) txn).getTree(this).hasPair(key, data);
+        final ITree tree = ((TransactionImpl) txn).getTree(this);
+        return mightContain(tree, tree.getRootAddress(), key) && tree.hasPair(key, data);
     }
 
     @Override
@@ -100,6 +162,12 @@ public class StoreImpl implements Store {
         ((TransactionImpl) txn).getMutableTree(this).putRight(key, value);
     }
 
+    @Override
+    public void putAllRight(@NotNull final Transaction txn,
+                            @NotNull final Iterator<Pair<ByteIterable, ByteIterable>> pairs) {
+        ((TransactionImpl) txn).getMutableTree(this).putAllRight(pairs);
+    }
+
     @Override
     public boolean add(@NotNull final Transaction txn,
                        @NotNull final ByteIterable key,
@@ -165,6 +233,46 @@ public class StoreImpl implements Store {
         }
     }
 
+    /**
+     * Creates a task which reclaims specified runs of loggables of the store just like
+     * {@linkplain #reclaim(Transaction, RandomAccessLoggable, Iterator, IExpirationChecker)} does for each run.
+     * The task doesn't access the transaction, so it can be called in any thread before the transaction is
+     * flushed. Result of the task should be passed then to {@linkplain #reclaimFinished(Transaction, boolean)}
+     * in the thread of the transaction.
+     *
+     * @param runs runs of loggables of the store in the order of their addresses.
+     * @return task returning true if mutable tree of the store should be kept in the transaction.
+     */
+    @NotNull
+    public Callable<Boolean> getReclaimTask(@NotNull final Transaction txn,
+                                            @NotNull final List<List<RandomAccessLoggable>> runs,
+                                            @NotNull final IExpirationChecker expirationChecker) {
+        final TransactionImpl jt = (TransactionImpl) txn;
+        final boolean wasTreeCreated = jt.hasTreeMutable(this);
+        final ITreeMutable tree = jt.getMutableTree(this);
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                boolean result = wasTreeCreated;
+                for (final List<RandomAccessLoggable> run : runs) {
+                    final Iterator<RandomAccessLoggable> loggables = run.iterator();
+                    while (loggables.hasNext()) {
+                        if (tree.reclaim(loggables.next(), loggables, expirationChecker)) {
+                            result = true;
+                        }
+                    }
+                }
+                return result;
+            }
+        };
+    }
+
+    public void reclaimFinished(@NotNull final Transaction txn, final boolean keepMutableTree) {
+        if (!keepMutableTree) {
+            ((TransactionImpl) txn).removeTreeMutable(this);
+        }
+    }
+
     public ITree openImmutableTree(@NotNull final MetaTree metaTree) {
         final int structureId = getStructureId();
         final long upToDateRootAddress = metaTree.getRootAddress(structureId);
@@ -192,4 +300,14 @@ public class StoreImpl implements Store {
     int getStructureId() {
         return metaInfo.getStructureId();
     }
+
+    /**
+     * @return false if the tree is immutable and its Bloom filter says that the tree doesn't contain the key.
+     */
+    private boolean mightContain(@NotNull final ITree tree, final long treeRootAddress, @NotNull final ByteIterable key) {
+        final StoreBloomFilters storeBloomFilters;
+        return treeRootAddress == Loggable.NULL_ADDRESS ||
+                (storeBloomFilters = environment.getStoreBloomFilters()) == null ||
+                storeBloomFilters.mightContain(this, tree, key);
+    }
 }
\ No newline at end of file
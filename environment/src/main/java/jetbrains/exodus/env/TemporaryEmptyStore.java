@@ -16,6 +16,7 @@
 package jetbrains.exodus.env;
 
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.log.RandomAccessLoggable;
 import jetbrains.exodus.tree.IExpirationChecker;
 import jetbrains.exodus.tree.ITreeCursor;
@@ -24,6 +25,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 class TemporaryEmptyStore extends StoreImpl {
 
@@ -47,6 +50,12 @@ class TemporaryEmptyStore extends StoreImpl {
         return null;
     }
 
+    @Override
+    @NotNull
+    public ByteIterable[] getAll(@NotNull final Transaction txn, @NotNull final ByteIterable[] keys) {
+        return new ByteIterable[keys.length];
+    }
+
     @Override
     public boolean exists(@NotNull final Transaction txn,
                           @NotNull final ByteIterable key,
@@ -68,6 +77,12 @@ class TemporaryEmptyStore extends StoreImpl {
         throwCantModify();
     }
 
+    @Override
+    public void putAllRight(@NotNull final Transaction txn,
+                            @NotNull final Iterator<Pair<ByteIterable, ByteIterable>> pairs) {
+        throwCantModify();
+    }
+
     @Override
     public boolean add(@NotNull final Transaction txn,
                        @NotNull final ByteIterable key,
@@ -98,6 +113,23 @@ class TemporaryEmptyStore extends StoreImpl {
         // nothing to reclaim
     }
 
+    @NotNull
+    @Override
+    public Callable<Boolean> getReclaimTask(@NotNull final Transaction txn,
+                                            @NotNull final List<List<RandomAccessLoggable>> runs,
+                                            @NotNull final IExpirationChecker expirationChecker) {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return false; // nothing to reclaim
+            }
+        };
+    }
+
+    @Override
+    public void reclaimFinished(@NotNull final Transaction txn, final boolean keepMutableTree) {
+    }
+
     private boolean throwCantModify() {
         if (getEnvironment().getEnvironmentConfig().getEnvIsReadonly()) {
             throw new ReadonlyTransactionException();
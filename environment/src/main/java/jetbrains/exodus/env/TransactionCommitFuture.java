@@ -0,0 +1,131 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.env;
+
+import jetbrains.exodus.log.SyncListener;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+final class TransactionCommitFuture implements CommitFuture, SyncListener {
+
+    private static final Log logging = LogFactory.getLog(TransactionCommitFuture.class);
+
+    private boolean done;
+    @Nullable
+    private Throwable error;
+    @Nullable
+    private List<Runnable> listeners;
+
+    TransactionCommitFuture() {
+        done = false;
+        error = null;
+        listeners = null;
+    }
+
+    @Override
+    public void synced(@Nullable final Throwable error) {
+        final List<Runnable> listeners;
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            done = true;
+            this.error = error;
+            listeners = this.listeners;
+            this.listeners = null;
+            notifyAll();
+        }
+        if (listeners != null) {
+            for (final Runnable listener : listeners) {
+                runListener(listener);
+            }
+        }
+    }
+
+    @Override
+    public void addListener(@NotNull final Runnable listener) {
+        synchronized (this) {
+            if (!done) {
+                if (listeners == null) {
+                    listeners = new ArrayList<>(2);
+                }
+                listeners.add(listener);
+                return;
+            }
+        }
+        runListener(listener);
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public synchronized Void get() throws InterruptedException, ExecutionException {
+        while (!done) {
+            wait();
+        }
+        return getResult();
+    }
+
+    @Override
+    public synchronized Void get(final long timeout, @NotNull final TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!done) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return getResult();
+    }
+
+    private Void getResult() throws ExecutionException {
+        if (error != null) {
+            throw new ExecutionException("Failed to sync log", error);
+        }
+        return null;
+    }
+
+    private static void runListener(@NotNull final Runnable listener) {
+        try {
+            listener.run();
+        } catch (Throwable t) {
+            logging.error("Commit listener failed", t);
+        }
+    }
+}
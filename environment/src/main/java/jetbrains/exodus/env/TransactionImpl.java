@@ -45,6 +45,9 @@ public class TransactionImpl implements Transaction {
     private final LongHashMap<Pair<String, ITree>> removedStores;
     @NotNull
     private final Map<String, TreeMetaInfo> createdStores;
+    @NotNull
+    private final Set<String> readStoreNames;
+    private boolean allStoreNamesRead;
     @Nullable
     private Runnable beginHook;
     @Nullable
@@ -61,6 +64,7 @@ public class TransactionImpl implements Transaction {
         mutableTrees = new TreeMap<>();
         removedStores = new LongHashMap<>();
         createdStores = new HashMapDecorator<>();
+        readStoreNames = new HashSet<>();
         this.beginHook = new Runnable() {
             @Override
             public void run() {
@@ -89,6 +93,7 @@ public class TransactionImpl implements Transaction {
         mutableTrees = new TreeMap<>();
         removedStores = new LongHashMap<>();
         createdStores = new HashMapDecorator<>();
+        readStoreNames = new HashSet<>();
         trace = env.transactionTimeout() > 0 ? new Throwable() : null;
         invalidateCreated();
         env.registerTransaction(this);
@@ -109,6 +114,12 @@ public class TransactionImpl implements Transaction {
         return env.commitTransaction(this, false);
     }
 
+    @Override
+    @Nullable
+    public CommitFuture commitAsync() {
+        return env.commitTransactionAsync(this);
+    }
+
     @Override
     public boolean flush() {
         final boolean result = env.flushTransaction(this, false);
@@ -213,6 +224,45 @@ public class TransactionImpl implements Transaction {
         return metaTree.root == root;
     }
 
+    /**
+     * Rebases the transaction onto specified meta tree if none of the stores the transaction has looked up,
+     * read, modified, created or removed was changed since the transaction's snapshot.
+     *
+     * @return true if the transaction is rebased.
+     */
+    boolean rebase(@NotNull final MetaTree currentMetaTree) {
+        if (allStoreNamesRead) {
+            return false;
+        }
+        for (final String name : readStoreNames) {
+            if (!metaTree.hasSameMetaInfo(currentMetaTree, name)) {
+                return false;
+            }
+        }
+        for (final String name : createdStores.keySet()) {
+            if (!metaTree.hasSameMetaInfo(currentMetaTree, name)) {
+                return false;
+            }
+        }
+        for (final Integer structureId : immutableTrees.keySet()) {
+            if (!metaTree.hasSameRootAddress(currentMetaTree, structureId)) {
+                return false;
+            }
+        }
+        for (final Integer structureId : mutableTrees.keySet()) {
+            if (!metaTree.hasSameRootAddress(currentMetaTree, structureId)) {
+                return false;
+            }
+        }
+        for (final Long structureId : removedStores.keySet()) {
+            if (!metaTree.hasSameRootAddress(currentMetaTree, structureId.intValue())) {
+                return false;
+            }
+        }
+        metaTree = currentMetaTree;
+        return true;
+    }
+
     Iterable<Loggable>[] doCommit(@NotNull final MetaTree[] out) {
         final Set<Map.Entry<Integer, ITreeMutable>> entries = mutableTrees.entrySet();
         final Set<Map.Entry<Long, Pair<String, ITree>>> removedEntries = removedStores.entrySet();
@@ -239,6 +289,8 @@ public class TransactionImpl implements Transaction {
         }
         immutableTrees.clear();
         mutableTrees.clear();
+        readStoreNames.clear();
+        allStoreNamesRead = false;
         expiredLoggables[i] = last = metaTreeMutable.getExpiredLoggables();
         out[0] = MetaTree.saveMetaTree(metaTreeMutable, env, last);
         return expiredLoggables;
@@ -294,7 +346,18 @@ public class TransactionImpl implements Transaction {
         return metaTree.root;
     }
 
+    /**
+     * Returns meta info of a store existing in the transaction's snapshot and remembers that the transaction
+     * depends on it.
+     */
+    @Nullable
+    TreeMetaInfo getSnapshotStoreMetaInfo(@NotNull final String name) {
+        readStoreNames.add(name);
+        return metaTree.getMetaInfo(name, env);
+    }
+
     List<String> getAllStoreNames() {
+        allStoreNamesRead = true;
         // TODO: optimize
         List<String> result = metaTree.getAllStoreNames();
         if (createdStores.isEmpty()) return result;
@@ -330,5 +393,7 @@ public class TransactionImpl implements Transaction {
         mutableTrees.clear();
         removedStores.clear();
         createdStores.clear();
+        readStoreNames.clear();
+        allStoreNamesRead = false;
     }
 }
@@ -19,6 +19,7 @@ import jetbrains.exodus.env.Environment;
 import jetbrains.exodus.env.EnvironmentImpl;
 import jetbrains.exodus.env.TransactionImpl;
 import jetbrains.exodus.management.MBeanBase;
+import jetbrains.exodus.tree.TreeNodesCache;
 import org.jetbrains.annotations.NotNull;
 
 public class EnvironmentConfig extends MBeanBase implements EnvironmentConfigMBean {
@@ -84,6 +85,36 @@ public class EnvironmentConfig extends MBeanBase implements EnvironmentConfigMBe
         return config.isLogCacheNonBlocking();
     }
 
+    @Override
+    public boolean isLogCacheScanResistant() {
+        return config.isLogCacheScanResistant();
+    }
+
+    @Override
+    public int getLogReadAheadPages() {
+        return config.getLogReadAheadPages();
+    }
+
+    @Override
+    public long getLogCacheOffHeapSize() {
+        return config.getLogCacheOffHeapSize();
+    }
+
+    @Override
+    public boolean isLogMappedFiles() {
+        return config.isLogMappedFiles();
+    }
+
+    @Override
+    public boolean isLogPreallocate() {
+        return config.isLogPreallocate();
+    }
+
+    @Override
+    public boolean isLogCompressed() {
+        return config.isLogCompressed();
+    }
+
     @Override
     public boolean isLogCleanDirectoryExpected() {
         return config.isLogCleanDirectoryExpected();
@@ -135,6 +166,16 @@ public class EnvironmentConfig extends MBeanBase implements EnvironmentConfigMBe
         }
     }
 
+    @Override
+    public boolean getEnvGroupCommit() {
+        return config.getEnvGroupCommit();
+    }
+
+    @Override
+    public void setEnvGroupCommit(boolean groupCommit) {
+        config.setEnvGroupCommit(groupCommit);
+    }
+
     @Override
     public int getEnvStoreGetCacheSize() {
         return config.getEnvStoreGetCacheSize();
@@ -145,11 +186,36 @@ public class EnvironmentConfig extends MBeanBase implements EnvironmentConfigMBe
         config.setEnvStoreGetCacheSize(storeGetCacheSize);
     }
 
+    @Override
+    public int getEnvStoreBloomFilterBitsPerKey() {
+        return config.getEnvStoreBloomFilterBitsPerKey();
+    }
+
+    @Override
+    public void setEnvStoreBloomFilterBitsPerKey(int bitsPerKey) {
+        config.setEnvStoreBloomFilterBitsPerKey(bitsPerKey);
+    }
+
     @Override
     public boolean getEnvCloseForcedly() {
         return config.getEnvCloseForcedly();
     }
 
+    @Override
+    public boolean getEnvTxnRebase() {
+        return config.getEnvTxnRebase();
+    }
+
+    @Override
+    public void setEnvTxnRebase(boolean rebase) {
+        config.setEnvTxnRebase(rebase);
+    }
+
+    @Override
+    public int getEnvStartupParallelism() {
+        return config.getEnvStartupParallelism();
+    }
+
     @Override
     public void setEnvCloseForcedly(boolean closeForcedly) {
         config.setEnvCloseForcedly(closeForcedly);
@@ -170,6 +236,21 @@ public class EnvironmentConfig extends MBeanBase implements EnvironmentConfigMBe
         return config.getTreeMaxPageSize();
     }
 
+    @Override
+    public int getTreeKeyPrefixLength() {
+        return config.getTreeKeyPrefixLength();
+    }
+
+    @Override
+    public boolean getTreeCountedPages() {
+        return config.getTreeCountedPages();
+    }
+
+    @Override
+    public int getTreeInlineValueMaxLength() {
+        return config.getTreeInlineValueMaxLength();
+    }
+
     @Override
     public int getTreeNodesCacheSize() {
         return config.getTreeNodesCacheSize();
@@ -180,6 +261,40 @@ public class EnvironmentConfig extends MBeanBase implements EnvironmentConfigMBe
         config.setTreeNodesCacheSize(cacheSize);
     }
 
+    @Override
+    public long getTreeNodesCacheMemory() {
+        return config.getTreeNodesCacheMemory();
+    }
+
+    @Override
+    public void setTreeNodesCacheMemory(long bytes) {
+        config.setTreeNodesCacheMemory(bytes);
+    }
+
+    @Override
+    public long getTreeNodesCacheWeight() {
+        final TreeNodesCache cache = env.getTreeNodesCacheBoundedByMemory();
+        return cache == null ? 0 : cache.getWeight();
+    }
+
+    @Override
+    public long getTreeNodesCacheHits() {
+        final TreeNodesCache cache = env.getTreeNodesCacheBoundedByMemory();
+        return cache == null ? 0 : cache.getHitCount();
+    }
+
+    @Override
+    public long getTreeNodesCacheMisses() {
+        final TreeNodesCache cache = env.getTreeNodesCacheBoundedByMemory();
+        return cache == null ? 0 : cache.getMissCount();
+    }
+
+    @Override
+    public long getTreeNodesCacheEvictions() {
+        final TreeNodesCache cache = env.getTreeNodesCacheBoundedByMemory();
+        return cache == null ? 0 : cache.getEvictionCount();
+    }
+
     @Override
     public boolean isGcEnabled() {
         return config.isGcEnabled();
@@ -245,6 +360,56 @@ public class EnvironmentConfig extends MBeanBase implements EnvironmentConfigMBe
         return config.getGcUtilizationFromScratch();
     }
 
+    @Override
+    public boolean getGcUseCostBenefitPolicy() {
+        return config.getGcUseCostBenefitPolicy();
+    }
+
+    @Override
+    public void setGcUseCostBenefitPolicy(boolean useCostBenefitPolicy) {
+        config.setGcUseCostBenefitPolicy(useCostBenefitPolicy);
+    }
+
+    @Override
+    public int getGcChunkSize() {
+        return config.getGcChunkSize();
+    }
+
+    @Override
+    public void setGcChunkSize(int chunkSize) {
+        config.setGcChunkSize(chunkSize);
+    }
+
+    @Override
+    public int getGcMaxThroughput() {
+        return config.getGcMaxThroughput();
+    }
+
+    @Override
+    public void setGcMaxThroughput(int megabytesPerSecond) {
+        config.setGcMaxThroughput(megabytesPerSecond);
+    }
+
+    @Override
+    public int getGcMinThroughput() {
+        return config.getGcMinThroughput();
+    }
+
+    @Override
+    public void setGcMinThroughput(int megabytesPerSecond) {
+        config.setGcMinThroughput(megabytesPerSecond);
+    }
+
+    @Override
+    public int getGcReclaimParallelism() {
+        return config.getGcReclaimParallelism();
+    }
+
+    @Override
+    public void setGcReclaimParallelism(int parallelism) {
+        config.setGcReclaimParallelism(parallelism);
+    }
+
     @Override
     public void close() {
         env.close();
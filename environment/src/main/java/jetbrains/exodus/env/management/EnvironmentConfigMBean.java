@@ -39,6 +39,18 @@ public interface EnvironmentConfigMBean {
 
     boolean isLogCacheNonBlocking();
 
+    boolean isLogCacheScanResistant();
+
+    int getLogReadAheadPages();
+
+    long getLogCacheOffHeapSize();
+
+    boolean isLogMappedFiles();
+
+    boolean isLogPreallocate();
+
+    boolean isLogCompressed();
+
     boolean isLogCleanDirectoryExpected();
 
     boolean isLogClearInvalid();
@@ -51,24 +63,56 @@ public interface EnvironmentConfigMBean {
 
     void setEnvIsReadonly(boolean isReadonly);
 
+    boolean getEnvGroupCommit();
+
+    void setEnvGroupCommit(boolean groupCommit);
+
     int getEnvStoreGetCacheSize();
 
     void setEnvStoreGetCacheSize(int storeGetCacheSize);
 
+    int getEnvStoreBloomFilterBitsPerKey();
+
+    void setEnvStoreBloomFilterBitsPerKey(int bitsPerKey);
+
     boolean getEnvCloseForcedly();
 
     void setEnvCloseForcedly(boolean closeForcedly);
 
+    boolean getEnvTxnRebase();
+
+    void setEnvTxnRebase(boolean rebase);
+
+    int getEnvStartupParallelism();
+
     int getEnvMonitorTxnsTimeout();
 
     int getEnvMonitorTxnsCheckFreq();
 
     int getTreeMaxPageSize();
 
+    int getTreeKeyPrefixLength();
+
+    boolean getTreeCountedPages();
+
+    int getTreeInlineValueMaxLength();
+
     int getTreeNodesCacheSize();
 
     void setTreeNodesCacheSize(int cacheSize);
 
+    long getTreeNodesCacheMemory();
+
+    void setTreeNodesCacheMemory(long bytes);
+
+    long getTreeNodesCacheWeight();
+
+    long getTreeNodesCacheHits();
+
+    long getTreeNodesCacheMisses();
+
+    long getTreeNodesCacheEvictions();
+
     boolean isGcEnabled();
 
     void setGcEnabled(boolean enabled);
@@ -95,5 +139,25 @@ public interface EnvironmentConfigMBean {
 
     boolean getGcUtilizationFromScratch();
 
+    boolean getGcUseCostBenefitPolicy();
+
+    void setGcUseCostBenefitPolicy(boolean useCostBenefitPolicy);
+
+    int getGcChunkSize();
+
+    void setGcChunkSize(int chunkSize);
+
+    int getGcMaxThroughput();
+
+    void setGcMaxThroughput(int megabytesPerSecond);
+
+    int getGcMinThroughput();
+
+    void setGcMinThroughput(int megabytesPerSecond);
+
+    int getGcReclaimParallelism();
+
+    void setGcReclaimParallelism(int parallelism);
+
     void close();
 }
@@ -86,7 +86,7 @@ final class BackgroundCleaningJob extends Job {
     private void doCleanLog(@NotNull final Log log, @NotNull final GarbageCollector gc) {
         GarbageCollector.loggingInfo("Starting background cleaner loop for " + log.getLocation());
         final int newFiles = gc.getNewFiles();
-        final Long[] sparseFiles = gc.getUtilizationProfile().getFilesSortedByUtilization();
+        final Long[] sparseFiles = gc.getUtilizationProfile().getFilesToClean(gc.getCleaningPolicy());
         for (int i = 0; i < sparseFiles.length && canContinue(); ++i) {
             // reset new files count before each cleaned file to prevent queueing of the
             // next cleaning job before this one is not finished
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.gc;
+
+import jetbrains.exodus.env.EnvironmentConfig;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Limits the rate at which cleaner reads and relocates data. Cleaner reports the bytes it consumes, and then
+ * pauses until the rate allows to continue. The rate adapts to latency of foreground operations: commits and
+ * reads of pages missed in the log cache. Average latency observed while cleaner is idle is a baseline. While
+ * cleaning, the rate is halved each period in which average latency exceeds the baseline twice, otherwise it is
+ * increased additively. The rate ranges from {@linkplain EnvironmentConfig#GC_MIN_THROUGHPUT} to
+ * {@linkplain EnvironmentConfig#GC_MAX_THROUGHPUT}.
+ */
+final class CleanerThrottle {
+
+    private static final long SECOND = 1000000000L; // in nanoseconds
+    private static final long MEGABYTE = 1 << 20;
+    private static final long ADAPTATION_PERIOD = SECOND / 10;
+    private static final long MAX_BURST = SECOND / 10; // budget which can be accumulated while cleaner pauses
+    private static final double BASELINE_WEIGHT = 0.01; // weight of a new sample in the moving average of baseline
+    private static final double LATENCY_THRESHOLD = 2;
+    private static final int RATE_INCREMENTS = 16; // number of periods to increase the rate from 0 to maximum
+
+    @NotNull
+    private final EnvironmentConfig ec;
+    private double baselineLatency; // in nanoseconds
+    private long latencySum; // in nanoseconds
+    private int latencyCount;
+    private long rate; // bytes per second, 0 if not throttled
+    private long adaptedAt;
+    private long allowedAt; // time at which cleaner is allowed to continue
+    private long throttledTime; // in nanoseconds
+
+    CleanerThrottle(@NotNull final EnvironmentConfig ec) {
+        this.ec = ec;
+    }
+
+    /**
+     * Is called after a foreground operation is done.
+     *
+     * @param nanos    latency of the operation in nanoseconds.
+     * @param cleaning whether cleaner was running while the operation was being done.
+     */
+    void foregroundOperation(final long nanos, final boolean cleaning) {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            if (cleaning) {
+                latencySum += nanos;
+                ++latencyCount;
+            } else if (baselineLatency == 0) {
+                baselineLatency = nanos;
+            } else {
+                baselineLatency += (nanos - baselineLatency) * BASELINE_WEIGHT;
+            }
+        }
+    }
+
+    /**
+     * @return true if {@linkplain EnvironmentConfig#GC_MAX_THROUGHPUT} is set, so that cleaner is throttled.
+     * The setting can be changed at runtime.
+     */
+    boolean isEnabled() {
+        return ec.getGcMaxThroughput() > 0;
+    }
+
+    void consumed(final long bytes) {
+        consumed(bytes, System.nanoTime());
+    }
+
+    /**
+     * Accounts bytes read or written by cleaner postponing the time at which it is allowed to continue.
+     */
+    synchronized void consumed(final long bytes, final long now) {
+        if (bytes <= 0) {
+            return;
+        }
+        adapt(now);
+        if (rate > 0) {
+            allowedAt = Math.max(allowedAt, now - MAX_BURST) + bytes * SECOND / rate;
+        }
+    }
+
+    /**
+     * Pauses current thread until the rate allows cleaner to continue.
+     */
+    void pause() {
+        final long delay;
+        synchronized (this) {
+            delay = allowedAt - System.nanoTime();
+        }
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay / 1000000, (int) (delay % 1000000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            throttledTime += delay;
+        }
+    }
+
+    /**
+     * @return current rate in bytes per second, 0 if cleaner is not throttled.
+     */
+    synchronized long getRate() {
+        return rate;
+    }
+
+    /**
+     * @return total time in milliseconds which cleaner spent paused.
+     */
+    synchronized long getThrottledTime() {
+        return throttledTime / 1000000;
+    }
+
+    private void adapt(final long now) {
+        final long maxRate = ec.getGcMaxThroughput() * MEGABYTE;
+        if (maxRate == 0) {
+            rate = 0;
+            return;
+        }
+        final long minRate = Math.min(ec.getGcMinThroughput() * MEGABYTE, maxRate);
+        if (rate == 0) {
+            rate = maxRate;
+            adaptedAt = now;
+        } else if (now - adaptedAt >= ADAPTATION_PERIOD) {
+            if (latencyCount > 0 && baselineLatency > 0 &&
+                    (double) latencySum / latencyCount > baselineLatency * LATENCY_THRESHOLD) {
+                rate /= 2;
+            } else {
+                rate += maxRate / RATE_INCREMENTS;
+            }
+            latencySum = 0;
+            latencyCount = 0;
+            adaptedAt = now;
+        }
+        rate = Math.max(minRate, Math.min(maxRate, rate));
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.gc;
+
+/**
+ * Policy of selection of files to clean. Background cleaner considers files having more free space than
+ * allowed by {@linkplain jetbrains.exodus.env.EnvironmentConfig#GC_MIN_UTILIZATION} and cleans them in
+ * descending order of their priorities.
+ */
+public interface CleaningPolicy {
+
+    /**
+     * @param fileAddress address of file.
+     * @param freeBytes   number of free bytes in the file, not greater than fileSize.
+     * @param fileSize    size of file in bytes.
+     * @param highAddress high address of the log, so highAddress - fileAddress is the number of bytes
+     *                    written to the log since the file was created.
+     * @return priority of cleaning of the file, files with greater priorities are cleaned first.
+     */
+    double getPriority(long fileAddress, long freeBytes, long fileSize, long highAddress);
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.gc;
+
+/**
+ * Cost-benefit policy of log-structured file systems. Cleaning a file with utilization u costs reading the
+ * file and writing its used space, i.e. 1 + u, and frees 1 - u of space, which stays free longer if the data
+ * in the file is older. So priority of a file is (1 - u) * age / (1 + u), where age is the number of bytes
+ * written to the log since the file was created. Unlike {@linkplain MaxFreeSpaceCleaningPolicy}, the policy
+ * lets young files with frequently updated data get emptier by themselves before they are cleaned.
+ */
+public final class CostBenefitCleaningPolicy implements CleaningPolicy {
+
+    @Override
+    public double getPriority(final long fileAddress, final long freeBytes, final long fileSize, final long highAddress) {
+        final double utilization = fileSize == 0 ? 0 : (double) (fileSize - freeBytes) / fileSize;
+        final long age = Math.max(highAddress - fileAddress, 1L);
+        return (1 - utilization) * age / (1 + utilization);
+    }
+}
@@ -24,13 +24,19 @@ import java.lang.ref.SoftReference;
 final class FileUtilization {
 
     private long freeBytes;
+    private long cleanedBytes; // length of the head of the file which is already cleaned
     private SoftReference<LongIntSkipList> freeSpace;
 
-    FileUtilization(long freeBytes) {
+    FileUtilization(long freeBytes, long cleanedBytes) {
         this.freeBytes = freeBytes;
+        this.cleanedBytes = cleanedBytes;
         freeSpace = new SoftReference<>(new LongIntSkipList());
     }
 
+    FileUtilization(long freeBytes) {
+        this(freeBytes, 0);
+    }
+
     FileUtilization() {
         this(0);
     }
@@ -39,6 +45,14 @@ final class FileUtilization {
         return freeBytes;
     }
 
+    long getCleanedBytes() {
+        return cleanedBytes;
+    }
+
+    void setCleanedBytes(long cleanedBytes) {
+        this.cleanedBytes = cleanedBytes;
+    }
+
     boolean isExpired(@NotNull final Loggable loggable) {
         return isExpired(loggable.getAddress(), 1);
     }
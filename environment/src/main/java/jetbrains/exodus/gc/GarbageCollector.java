@@ -27,12 +27,16 @@ import jetbrains.exodus.env.TransactionImpl;
 import jetbrains.exodus.io.RemoveBlockType;
 import jetbrains.exodus.log.*;
 import jetbrains.exodus.tree.IExpirationChecker;
+import jetbrains.exodus.util.ParallelTasks;
 import org.apache.commons.logging.LogFactory;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
-import java.util.Iterator;
+import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
 
 @SuppressWarnings({"ThisEscapedInObjectConstruction"})
 public final class GarbageCollector {
@@ -41,6 +45,9 @@ public final class GarbageCollector {
 
     private static final org.apache.commons.logging.Log logging = LogFactory.getLog(GarbageCollector.class);
 
+    private static final int THROTTLED_READ_SIZE = 1 << 16; // cleaner reports read bytes to the throttle by these portions
+    static final int RECLAIM_BATCH_SIZE = 1 << 13; // max number of loggables collected for parallel reclaim
+
     @NotNull
     private final EnvironmentImpl env;
     @NotNull
@@ -53,11 +60,19 @@ public final class GarbageCollector {
     private final ConcurrentLinkedQueue<Long> deletionQueue;
     @NotNull
     private final BackgroundCleaner cleaner;
+    @NotNull
+    private final CleanerThrottle throttle;
+    @NotNull
+    private final ThreadLocal<Boolean> isReclaimingThread; // set in threads reclaiming stores in parallel
+    @Nullable
+    private ForkJoinPool reclaimPool; // is created on first parallel reclaim and is shut down on finish
     private volatile int newFiles; // number of new files appeared after last cleaning job
     @NotNull
     private final IExpirationChecker expirationChecker;
     @NotNull
     private final IntHashMap<StoreImpl> openStoresCache;
+    @NotNull
+    private volatile CleaningPolicy cleaningPolicy;
 
     public GarbageCollector(@NotNull final EnvironmentImpl env) {
         this.env = env;
@@ -66,6 +81,8 @@ public final class GarbageCollector {
         deletionQueue = new ConcurrentLinkedQueue<>();
         utilizationProfile = new UtilizationProfile(env, this);
         cleaner = new BackgroundCleaner(this);
+        throttle = new CleanerThrottle(ec);
+        isReclaimingThread = new ThreadLocal<>();
         newFiles = ec.getGcFilesInterval() + 1;
         if (!ec.getGcUseExpirationChecker()) {
             expirationChecker = IExpirationChecker.NONE;
@@ -84,6 +101,7 @@ public final class GarbageCollector {
             };
         }
         openStoresCache = new IntHashMap<>();
+        cleaningPolicy = ec.getGcUseCostBenefitPolicy() ? new CostBenefitCleaningPolicy() : new MaxFreeSpaceCleaningPolicy();
         env.getLog().addNewFileListener(new NewFileListener() {
             @Override
             public void fileCreated(long fileAddress) {
@@ -93,12 +111,29 @@ public final class GarbageCollector {
                 }
             }
         });
+        env.getLog().addPageMissListener(new PageMissListener() {
+            @Override
+            public void pageMissed(long pageAddress, long nanos) {
+                if (throttle.isEnabled() && !cleaner.isCurrentThread() && isReclaimingThread.get() == null) {
+                    throttle.foregroundOperation(nanos, cleaner.isCleaning());
+                }
+            }
+        });
     }
 
     public void setCleanerJobProcessor(@NotNull final JobProcessorAdapter processor) {
         cleaner.setJobProcessor(processor);
     }
 
+    @NotNull
+    public CleaningPolicy getCleaningPolicy() {
+        return cleaningPolicy;
+    }
+
+    public void setCleaningPolicy(@NotNull final CleaningPolicy cleaningPolicy) {
+        this.cleaningPolicy = cleaningPolicy;
+    }
+
     public void wake() {
         if (ec.isGcEnabled()) {
             env.executeTransactionSafeTask(new Runnable() {
@@ -120,6 +155,35 @@ public final class GarbageCollector {
         return 100 - ec.getGcMinUtilization();
     }
 
+    /**
+     * Is called after a transaction is flushed. Transactions flushed by cleaner consume its throughput,
+     * latency of others is a feedback for throttling of cleaner.
+     *
+     * @param bytes number of bytes written to the log.
+     * @param nanos time spent flushing the transaction in nanoseconds.
+     */
+    public void transactionFlushed(final long bytes, final long nanos) {
+        if (cleaner.isCurrentThread()) {
+            throttle.consumed(bytes);
+        } else {
+            throttle.foregroundOperation(nanos, cleaner.isCleaning());
+        }
+    }
+
+    /**
+     * @return total time in milliseconds which cleaner spent paused due to throttling.
+     */
+    public long getThrottledTime() {
+        return throttle.getThrottledTime();
+    }
+
+    /**
+     * @return current rate in bytes per second at which cleaner reads and relocates data, 0 if it is not throttled.
+     */
+    public long getThrottledRate() {
+        return throttle.getRate();
+    }
+
     public void fetchExpiredLoggables(@NotNull final Iterable<Loggable> loggables) {
         utilizationProfile.fetchExpiredLoggables(loggables);
     }
@@ -142,6 +206,12 @@ public final class GarbageCollector {
 
     public void finish() {
         cleaner.finish();
+        synchronized (this) {
+            if (reclaimPool != null) {
+                reclaimPool.shutdown();
+                reclaimPool = null;
+            }
+        }
     }
 
     @NotNull
@@ -156,7 +226,6 @@ public final class GarbageCollector {
         }
     }
 
-    @SuppressWarnings("OverlyLongMethod")
     public /* public access is necessary to invoke the method from the Reflect class */
     boolean doCleanFile(final long fileAddress) {
         // the file may be already cleaned
@@ -164,47 +233,29 @@ public final class GarbageCollector {
             return false;
         }
         loggingInfo("start cleanFile(" + env.getLocation() + File.separatorChar + LogUtil.getLogFilename(fileAddress) + ')');
-        // At first, we clone whole meta tree inside of 'begin transaction'
-        // in order to save it completely on commit of transaction.
-        // Thus we can ignore all loggables belonging to the meta tree.
-        final TransactionImpl txn = env.beginTransactionWithClonedMetaTree();
-        try {
-            final Log log = getLog();
-            if (logging.isDebugEnabled()) {
-                final long high = log.getHighAddress();
-                final long highFile = log.getHighFileAddress();
-                logging.debug(String.format(
-                        "Cleaner acquired txn when log high address was: %d (%s@%d) when cleaning file %s",
-                        high, LogUtil.getLogFilename(highFile), high - highFile, LogUtil.getLogFilename(fileAddress)
-                ));
+        final long nextFileAddress = getLog().getNextFileAddress(fileAddress);
+        final long fileEnd = nextFileAddress == Loggable.NULL_ADDRESS ? Long.MAX_VALUE : nextFileAddress;
+        final long chunkSize = ec.getGcChunkSize();
+        if (chunkSize == 0) {
+            final long result = cleanChunk(fileAddress, fileAddress, fileEnd, Long.MAX_VALUE, true, true);
+            throttle.pause();
+            if (result == Loggable.NULL_ADDRESS) {
+                Thread.yield();
+                return false;
             }
-            final long nextFileAddress = log.getNextFileAddress(fileAddress);
-            final Iterator<RandomAccessLoggable> loggables = log.getLoggableIterator(fileAddress);
-            while (loggables.hasNext()) {
-                final RandomAccessLoggable loggable = loggables.next();
-                if (nextFileAddress != Loggable.NULL_ADDRESS && loggable.getAddress() >= nextFileAddress) {
-                    break;
-                }
-                final int structureId = loggable.getStructureId();
-                if (structureId != Loggable.NO_STRUCTURE_ID && structureId != EnvironmentImpl.META_TREE_ID) {
-                    StoreImpl store = openStoresCache.get(structureId);
-                    if (store == null) {
-                        // TODO: remove openStoresCache when txn.openStoreByStructureId() is fast enough (XD-381)
-                        store = txn.openStoreByStructureId(structureId);
-                        openStoresCache.put(structureId, store);
-                    }
-                    store.reclaim(txn, loggable, loggables, expirationChecker);
+        } else {
+            long cursor = utilizationProfile.getCleaningCursor(fileAddress);
+            while (cursor < fileEnd) {
+                cursor = cleanChunkWithPriority(fileAddress, cursor, fileEnd, chunkSize, false);
+                throttle.pause();
+                if (cursor == Loggable.NULL_ADDRESS) {
+                    return false;
                 }
             }
-            if (!txn.forceFlush()) {
-                Thread.yield();
+            // loggables of the meta tree are reclaimed by saving it completely once the file is cleaned
+            if (cleanChunkWithPriority(fileAddress, fileEnd, fileEnd, 0, true) == Loggable.NULL_ADDRESS) {
                 return false;
             }
-        } catch (Throwable e) {
-            logging.error("cleanFile(" + LogUtil.getLogFilename(fileAddress) + ')', e);
-            throw ExodusException.toExodusException(e);
-        } finally {
-            txn.abort();
         }
         pendingFilesToDelete.add(fileAddress);
         env.executeTransactionSafeTask(new Runnable() {
@@ -316,6 +367,203 @@ public final class GarbageCollector {
         }
     }
 
+    /**
+     * Reclaims loggables of a file starting from specified address in a single transaction. The chunk ends at
+     * the first loggable at least chunkSize bytes away from the start which is not consumed by reclaim of
+     * preceding loggables, so it can end inside the loggables of a transaction. If the file is not cleaned
+     * completely, the cursor of cleaning is saved in the same transaction.
+     *
+     * @param cloneMetaTree whether to save the meta tree completely on commit of the transaction.
+     * @param mayPause      whether cleaner may pause due to throttling while reading the chunk.
+     * @return address from which cleaning of the file should be resumed, fileEnd if the file is cleaned,
+     * or {@linkplain Loggable#NULL_ADDRESS} if the transaction failed to flush.
+     */
+    @SuppressWarnings("OverlyLongMethod")
+    private long cleanChunk(final long fileAddress, final long startAddress, final long fileEnd,
+                            final long chunkSize, final boolean cloneMetaTree, final boolean mayPause) {
+        // If the meta tree is cloned inside of 'begin transaction', it is saved completely on commit of
+        // transaction. Thus we can ignore all loggables belonging to the meta tree.
+        final TransactionImpl txn = cloneMetaTree ? env.beginTransactionWithClonedMetaTree() : env.beginTransaction();
+        try {
+            final Log log = getLog();
+            if (logging.isDebugEnabled()) {
+                final long high = log.getHighAddress();
+                final long highFile = log.getHighFileAddress();
+                logging.debug(String.format(
+                        "Cleaner acquired txn when log high address was: %d (%s@%d) when cleaning file %s from %d",
+                        high, LogUtil.getLogFilename(highFile), high - highFile, LogUtil.getLogFilename(fileAddress),
+                        startAddress - fileAddress
+                ));
+            }
+            long cursor = fileEnd;
+            long readAddress = startAddress; // bytes up to this address are reported to the throttle
+            final Iterator<RandomAccessLoggable> loggables = startAddress < fileEnd ?
+                    log.getLoggableIterator(startAddress) : Collections.<RandomAccessLoggable>emptyIterator();
+            // if reclaim is parallel, runs of loggables are collected by stores and reclaimed in batches,
+            // so at most a batch of loggables and a run exceeding it are held in memory
+            IntHashMap<List<List<RandomAccessLoggable>>> storesRuns =
+                    ec.getGcReclaimParallelism() > 1 ? new IntHashMap<List<List<RandomAccessLoggable>>>() : null;
+            int collected = 0;
+            RandomAccessLoggable loggable = loggables.hasNext() ? loggables.next() : null;
+            while (loggable != null) {
+                final long address = loggable.getAddress();
+                if (address >= fileEnd) {
+                    break;
+                }
+                if (address - startAddress >= chunkSize) {
+                    cursor = address;
+                    break;
+                }
+                if (address - readAddress >= THROTTLED_READ_SIZE) {
+                    throttle.consumed(address - readAddress);
+                    readAddress = address;
+                    if (mayPause) {
+                        throttle.pause();
+                    }
+                }
+                final int structureId = loggable.getStructureId();
+                if (structureId != Loggable.NO_STRUCTURE_ID && structureId != EnvironmentImpl.META_TREE_ID) {
+                    if (storesRuns == null) {
+                        openStore(txn, structureId).reclaim(txn, loggable, loggables, expirationChecker);
+                    } else {
+                        List<List<RandomAccessLoggable>> runs = storesRuns.get(structureId);
+                        if (runs == null) {
+                            runs = new ArrayList<>();
+                            storesRuns.put(structureId, runs);
+                        }
+                        final List<RandomAccessLoggable> run = new ArrayList<>();
+                        run.add(loggable);
+                        loggable = collectRun(structureId, loggables, run);
+                        runs.add(run);
+                        collected += run.size();
+                        if (collected >= RECLAIM_BATCH_SIZE) {
+                            reclaimInParallel(txn, storesRuns);
+                            storesRuns = new IntHashMap<>();
+                            collected = 0;
+                        }
+                        continue;
+                    }
+                }
+                loggable = loggables.hasNext() ? loggables.next() : null;
+            }
+            if (storesRuns != null && !storesRuns.isEmpty()) {
+                reclaimInParallel(txn, storesRuns);
+            }
+            throttle.consumed(Math.min(cursor, log.getHighAddress()) - readAddress);
+            if (cursor < fileEnd) {
+                utilizationProfile.putCleaningCursor(txn, fileAddress, cursor);
+            }
+            if (!txn.forceFlush()) {
+                return Loggable.NULL_ADDRESS;
+            }
+            if (cursor < fileEnd) {
+                utilizationProfile.setCleaningCursor(fileAddress, cursor);
+            }
+            return cursor;
+        } catch (Throwable e) {
+            logging.error("cleanFile(" + LogUtil.getLogFilename(fileAddress) + ')', e);
+            throw ExodusException.toExodusException(e);
+        } finally {
+            txn.abort();
+        }
+    }
+
+    private StoreImpl openStore(@NotNull final TransactionImpl txn, final int structureId) {
+        StoreImpl store = openStoresCache.get(structureId);
+        if (store == null) {
+            // TODO: remove openStoresCache when txn.openStoreByStructureId() is fast enough (XD-381)
+            store = txn.openStoreByStructureId(structureId);
+            openStoresCache.put(structureId, store);
+        }
+        return store;
+    }
+
+    /**
+     * Adds to a run of loggables of a store the loggables which follow its first loggable in the log up to
+     * a loggable of another structure. Loggables of a store written by a transaction are contiguous in the log,
+     * so the run contains at least all loggables of the transaction starting from the first one.
+     *
+     * @return loggable following the run or null if there are no more loggables.
+     */
+    @Nullable
+    private static RandomAccessLoggable collectRun(final int structureId,
+                                                   @NotNull final Iterator<RandomAccessLoggable> loggables,
+                                                   @NotNull final List<RandomAccessLoggable> run) {
+        while (loggables.hasNext()) {
+            final RandomAccessLoggable loggable = loggables.next();
+            // null loggables can pad the end of a file in the middle of a transaction
+            if (loggable.getStructureId() != structureId && loggable.getType() != NullLoggable.TYPE) {
+                return loggable;
+            }
+            run.add(loggable);
+        }
+        return null;
+    }
+
+    /**
+     * Reclaims runs of loggables of different stores in parallel. Mutable trees of the stores are created in
+     * the transaction beforehand, and each store is reclaimed into its own tree by a single task.
+     */
+    private void reclaimInParallel(@NotNull final TransactionImpl txn,
+                                   @NotNull final IntHashMap<List<List<RandomAccessLoggable>>> storesRuns) {
+        final List<StoreImpl> stores = new ArrayList<>(storesRuns.size());
+        final List<Callable<Boolean>> tasks = new ArrayList<>(storesRuns.size());
+        for (final Map.Entry<Integer, List<List<RandomAccessLoggable>>> entry : storesRuns.entrySet()) {
+            final StoreImpl store = openStore(txn, entry.getKey());
+            final Callable<Boolean> task = store.getReclaimTask(txn, entry.getValue(), expirationChecker);
+            stores.add(store);
+            tasks.add(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    isReclaimingThread.set(Boolean.TRUE);
+                    try {
+                        return task.call();
+                    } finally {
+                        isReclaimingThread.remove();
+                    }
+                }
+            });
+        }
+        final List<Boolean> results = ParallelTasks.invokeAll(tasks, getReclaimPool());
+        for (int i = 0; i < stores.size(); ++i) {
+            stores.get(i).reclaimFinished(txn, results.get(i));
+        }
+    }
+
+    /**
+     * The pool is owned by cleaner and is reused by all chunks. It is recreated if reclaim parallelism is changed.
+     */
+    @NotNull
+    private synchronized ForkJoinPool getReclaimPool() {
+        final int parallelism = ec.getGcReclaimParallelism();
+        if (reclaimPool == null || reclaimPool.getParallelism() != parallelism) {
+            if (reclaimPool != null) {
+                reclaimPool.shutdown();
+            }
+            reclaimPool = new ForkJoinPool(parallelism);
+        }
+        return reclaimPool;
+    }
+
+    private long cleanChunkWithPriority(final long fileAddress, final long startAddress, final long fileEnd,
+                                        final long chunkSize, final boolean cloneMetaTree) {
+        final long result = cleanChunk(fileAddress, startAddress, fileEnd, chunkSize, cloneMetaTree, true);
+        if (result != Loggable.NULL_ADDRESS) {
+            return result;
+        }
+        // a chunk is small, so clean it once again preventing concurrent commits
+        // in order to make progress regardless of the foreground load
+        final long[] exclusiveResult = {Loggable.NULL_ADDRESS};
+        env.executeExclusively(new Runnable() {
+            @Override
+            public void run() {
+                // foreground commits wait for the chunk, so don't pause
+                exclusiveResult[0] = cleanChunk(fileAddress, startAddress, fileEnd, chunkSize, cloneMetaTree, false);
+            }
+        });
+        return exclusiveResult[0];
+    }
+
     private boolean doDeletePendingFile(long fileAddress) {
         if (pendingFilesToDelete.remove(fileAddress)) {
             utilizationProfile.removeFile(fileAddress);
@@ -15,6 +15,8 @@
  */
 package jetbrains.exodus.gc;
 
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.ByteIterator;
 import jetbrains.exodus.bindings.LongBinding;
 import jetbrains.exodus.core.dataStructures.hash.LongHashMap;
 import jetbrains.exodus.env.*;
@@ -23,10 +25,14 @@ import jetbrains.exodus.log.Loggable;
 import jetbrains.exodus.log.NewFileListener;
 import jetbrains.exodus.log.RandomAccessLoggable;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
+import jetbrains.exodus.tree.ITree;
 import jetbrains.exodus.tree.LongIterator;
+import jetbrains.exodus.util.LightOutputStream;
+import jetbrains.exodus.util.ParallelTasks;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 
 public final class UtilizationProfile {
 
@@ -78,8 +84,10 @@ public final class UtilizationProfile {
                         try (Cursor cursor = store.openCursor(txn)) {
                             while (cursor.getNext()) {
                                 final long fileAddress = LongBinding.compressedEntryToLong(cursor.getKey());
-                                final long freeBytes = CompressedUnsignedLongByteIterable.getLong(cursor.getValue());
-                                filesUtilization.put(fileAddress, new FileUtilization(freeBytes));
+                                final ByteIterator value = cursor.getValue().iterator();
+                                final long freeBytes = CompressedUnsignedLongByteIterable.getLong(value);
+                                final long cleanedBytes = value.hasNext() ? CompressedUnsignedLongByteIterable.getLong(value) : 0;
+                                filesUtilization.put(fileAddress, new FileUtilization(freeBytes, cleanedBytes));
                             }
                         }
                         synchronized (UtilizationProfile.this.filesUtilization) {
@@ -97,26 +105,32 @@ public final class UtilizationProfile {
     }
 
     /**
-     * Reloads utilization profile.
+     * Reloads utilization profile. Trees of all stores are scanned in parallel, each by a separate task
+     * computing used space of files on its own. The tasks are run inside the transaction, so files of the
+     * trees can't be deleted while they are scanned.
      */
     public void computeUtilizationFromScratch() {
         final TreeMap<Long, Long> usedSpace = new TreeMap<>();
         env.executeInReadonlyTransaction(new TransactionalExecutable() {
             @Override
             public void execute(@NotNull Transaction txn) {
+                final List<Callable<LongHashMap<Long>>> tasks = new ArrayList<>();
                 for (final String storeName : env.getAllStoreNames(txn)) {
                     final StoreImpl store = env.openStore(storeName, StoreConfig.USE_EXISTING, txn);
-                    final LongIterator it = ((TransactionImpl) txn).getTree(store).addressIterator();
-                    while (it.hasNext()) {
-                        final long address = it.next();
-                        final RandomAccessLoggable loggable = log.read(address);
-                        final Long fileAddress = log.getFileAddress(address);
-                        Long usedBytes = usedSpace.get(fileAddress);
-                        if (usedBytes == null) {
-                            usedBytes = 0L;
+                    final ITree tree = ((TransactionImpl) txn).getTree(store);
+                    tasks.add(new Callable<LongHashMap<Long>>() {
+                        @Override
+                        public LongHashMap<Long> call() {
+                            return computeUsedSpace(tree);
                         }
-                        usedBytes += loggable.length();
-                        usedSpace.put(fileAddress, usedBytes);
+                    });
+                }
+                final int parallelism = env.getEnvironmentConfig().getEnvStartupParallelism();
+                for (final LongHashMap<Long> treeUsedSpace : ParallelTasks.invokeAll(tasks, parallelism)) {
+                    for (final Map.Entry<Long, Long> entry : treeUsedSpace.entrySet()) {
+                        final Long fileAddress = entry.getKey();
+                        final Long usedBytes = usedSpace.get(fileAddress);
+                        usedSpace.put(fileAddress, usedBytes == null ? entry.getValue() : usedBytes + entry.getValue());
                     }
                 }
             }
@@ -129,6 +143,37 @@ public final class UtilizationProfile {
         }
     }
 
+    /**
+     * @return free bytes of the file optionally followed by length of its already cleaned head.
+     */
+    private static ByteIterable getEntry(@NotNull final FileUtilization fileUtilization) {
+        final long freeBytes = fileUtilization.getFreeBytes();
+        final long cleanedBytes = fileUtilization.getCleanedBytes();
+        if (cleanedBytes == 0) {
+            return CompressedUnsignedLongByteIterable.getIterable(freeBytes);
+        }
+        final LightOutputStream output = new LightOutputStream();
+        CompressedUnsignedLongByteIterable.fillBytes(freeBytes, output);
+        CompressedUnsignedLongByteIterable.fillBytes(cleanedBytes, output);
+        return output.asArrayByteIterable();
+    }
+
+    /**
+     * @return map from file address to number of bytes used by the tree in the file.
+     */
+    private LongHashMap<Long> computeUsedSpace(@NotNull final ITree tree) {
+        final LongHashMap<Long> result = new LongHashMap<>();
+        final LongIterator it = tree.addressIterator();
+        while (it.hasNext()) {
+            final long address = it.next();
+            final RandomAccessLoggable loggable = log.read(address);
+            final long fileAddress = log.getFileAddress(address);
+            final Long usedBytes = result.get(fileAddress);
+            result.put(fileAddress, (Long) ((usedBytes == null ? 0L : usedBytes) + loggable.length()));
+        }
+        return result;
+    }
+
     /**
      * Saves utilization profile in internal store.
      */
@@ -157,14 +202,54 @@ public final class UtilizationProfile {
                     filesUtilization = new ArrayList<>(UtilizationProfile.this.filesUtilization.entrySet());
                 }
                 for (final Map.Entry<Long, FileUtilization> entry : filesUtilization) {
-                    store.put(txn,
-                            LongBinding.longToCompressedEntry(entry.getKey()),
-                            CompressedUnsignedLongByteIterable.getIterable(entry.getValue().getFreeBytes()));
+                    store.put(txn, LongBinding.longToCompressedEntry(entry.getKey()), getEntry(entry.getValue()));
                 }
             }
         });
     }
 
+    /**
+     * @param fileAddress address of file.
+     * @return address from which cleaning of the file should be resumed.
+     */
+    long getCleaningCursor(final long fileAddress) {
+        synchronized (filesUtilization) {
+            final FileUtilization fileUtilization = filesUtilization.get(fileAddress);
+            return fileAddress + (fileUtilization == null ? 0 : fileUtilization.getCleanedBytes());
+        }
+    }
+
+    /**
+     * Saves the cursor of cleaning of a file in the transaction which cleans the file, so that the cursor is
+     * persisted atomically with the cleaned chunk. {@linkplain #setCleaningCursor(long, long)} should be called
+     * after the transaction is flushed.
+     *
+     * @param txn         transaction of the cleaner.
+     * @param fileAddress address of file.
+     * @param cursor      address from which cleaning of the file should be resumed.
+     */
+    void putCleaningCursor(@NotNull final Transaction txn, final long fileAddress, final long cursor) {
+        final FileUtilization fileUtilization;
+        synchronized (filesUtilization) {
+            final FileUtilization current = filesUtilization.get(fileAddress);
+            fileUtilization = new FileUtilization(current == null ? 0 : current.getFreeBytes(), cursor - fileAddress);
+        }
+        final StoreImpl store = env.openStore(GarbageCollector.UTILIZATION_PROFILE_STORE_NAME,
+                StoreConfig.WITHOUT_DUPLICATES, txn);
+        store.put(txn, LongBinding.longToCompressedEntry(fileAddress), getEntry(fileUtilization));
+    }
+
+    void setCleaningCursor(final long fileAddress, final long cursor) {
+        synchronized (filesUtilization) {
+            FileUtilization fileUtilization = filesUtilization.get(fileAddress);
+            if (fileUtilization == null) {
+                fileUtilization = new FileUtilization();
+                filesUtilization.put(fileAddress, fileUtilization);
+            }
+            fileUtilization.setCleanedBytes(cursor - fileAddress);
+        }
+    }
+
     int totalFreeSpacePercent() {
         final long totalBytes = this.totalBytes;
         return (int) (totalBytes == 0 ? 0 : ((totalFreeBytes * 100L) / totalBytes));
@@ -255,21 +340,22 @@ public final class UtilizationProfile {
         this.totalFreeBytes = totalFreeBytes;
     }
 
-    Long[] getFilesSortedByUtilization() {
+    /**
+     * @param policy policy of selection of files to clean.
+     * @return files having too much free space in descending order of priorities of their cleaning.
+     */
+    Long[] getFilesToClean(@NotNull final CleaningPolicy policy) {
         final long maxFreeBytes = fileSize * (long) gc.getMaximumFreeSpacePercent() / 100L;
         final long[] fileAddresses = log.getAllFileAddresses();
-        final LongHashMap<Long> sparseFiles = new LongHashMap<>();
+        final long highAddress = log.getHighAddress();
+        final LongHashMap<Double> sparseFiles = new LongHashMap<>();
         synchronized (filesUtilization) {
             for (int i = gc.getMinFileAge(); i < fileAddresses.length; ++i) {
                 final long file = fileAddresses[i];
                 final FileUtilization fileUtilization = filesUtilization.get(file);
-                if (fileUtilization == null) {
-                    sparseFiles.put(file, (Long) Long.MAX_VALUE);
-                } else {
-                    final long freeBytes = fileUtilization.getFreeBytes();
-                    if (freeBytes > maxFreeBytes) {
-                        sparseFiles.put(file, (Long) freeBytes);
-                    }
+                final long freeBytes = fileUtilization == null ? fileSize : Math.min(fileUtilization.getFreeBytes(), fileSize);
+                if (fileUtilization == null || freeBytes > maxFreeBytes) {
+                    sparseFiles.put(file, (Double) policy.getPriority(file, freeBytes, fileSize, highAddress));
                 }
             }
         }
@@ -283,12 +369,7 @@ public final class UtilizationProfile {
         Arrays.sort(result, new Comparator<Long>() {
             @Override
             public int compare(Long o1, Long o2) {
-                final long freeBytes1 = sparseFiles.get(o1);
-                final long freeBytes2 = sparseFiles.get(o2);
-                if (freeBytes1 == freeBytes2) {
-                    return 0;
-                }
-                return freeBytes1 < freeBytes2 ? 1 : -1;
+                return Double.compare(sparseFiles.get(o2), sparseFiles.get(o1));
             }
         });
         return result;
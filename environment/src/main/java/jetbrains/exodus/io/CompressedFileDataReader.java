@@ -0,0 +1,90 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.io;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+
+/**
+ * Reads log files both page-compressed by {@link CompressedFileDataWriter} and uncompressed ones.
+ * Length of a compressed file is its logical length, i.e. the length of uncompressed data.
+ */
+public class CompressedFileDataReader extends FileDataReader {
+
+    @NotNull
+    private final CompressedLogFiles files;
+
+    public CompressedFileDataReader(@NotNull final File dir, final int openFiles, @NotNull final CompressedLogFiles files) {
+        super(dir, openFiles);
+        this.files = files;
+    }
+
+    @Override
+    public Block[] getBlocks() {
+        final Block[] result = super.getBlocks();
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = getBlock(result[i].getAddress());
+        }
+        return result;
+    }
+
+    @Override
+    public Block getBlock(final long address) {
+        return new CompressedBlock(address, super.getBlock(address));
+    }
+
+    @Override
+    public void removeBlock(final long blockAddress, @NotNull final RemoveBlockType rbt) {
+        files.remove(blockAddress);
+        super.removeBlock(blockAddress, rbt);
+    }
+
+    @Override
+    public void close() {
+        files.close();
+        super.close();
+    }
+
+    private final class CompressedBlock implements Block {
+
+        private final long address;
+        @NotNull
+        private final Block fileBlock;
+
+        private CompressedBlock(final long address, @NotNull final Block fileBlock) {
+            this.address = address;
+            this.fileBlock = fileBlock;
+        }
+
+        @Override
+        public long getAddress() {
+            return address;
+        }
+
+        @Override
+        public long length() {
+            final CompressedLogFiles.FileIndex index = files.getIndex(address);
+            return index == null ? fileBlock.length() : index.getLength();
+        }
+
+        @Override
+        public int read(final byte[] output, final long position, final int count) {
+            final CompressedLogFiles.FileIndex index = files.getIndex(address);
+            return index == null ? fileBlock.read(output, position, count) : index.read(output, position, count);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.io;
+
+import jetbrains.exodus.ExodusException;
+import jetbrains.exodus.OutOfDiskSpaceException;
+import jetbrains.exodus.io.CompressedLogFiles.FileIndex;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.ClosedChannelException;
+
+import static jetbrains.exodus.io.CompressedLogFiles.*;
+
+/**
+ * Writes new log files page-compressed in the format described in {@link CompressedLogFiles}. Files which
+ * were created uncompressed are appended uncompressed. Each complete page is compressed and written as a single
+ * frame, and all written bytes are appended to the tail file which is deleted when a complete file is closed.
+ */
+public class CompressedFileDataWriter extends AbstractDataWriter {
+
+    private static final Log logging = LogFactory.getLog(CompressedFileDataWriter.class);
+
+    @NotNull
+    private final CompressedLogFiles files;
+    @NotNull
+    private final LockingManager lockingManager;
+    private final int pageSize;
+    /**
+     * Frame header followed by payload.
+     */
+    @NotNull
+    private final byte[] frame;
+    @Nullable
+    private RandomAccessFile file;
+    @Nullable
+    private RandomAccessFile tailFile;
+    /**
+     * Index of current file or null if it's not compressed.
+     */
+    @Nullable
+    private FileIndex index;
+
+    public CompressedFileDataWriter(@NotNull final File directory, @NotNull final CompressedLogFiles files) {
+        this.files = files;
+        lockingManager = new LockingManager(directory);
+        pageSize = files.getPageSize();
+        frame = new byte[FRAME_HEADER_SIZE + pageSize];
+        file = null;
+        tailFile = null;
+        index = null;
+    }
+
+    @Override
+    public boolean write(byte[] b, int off, int len) throws ExodusException {
+        try {
+            final FileIndex index = this.index;
+            if (index == null) {
+                file.write(b, off, len);
+                return true;
+            }
+            tailFile.write(b, off, len);
+            while (len > 0) {
+                final int tailLength = index.getTailLength();
+                final int bytesToWrite = Math.min(len, pageSize - tailLength);
+                index.appendTail(b, off, bytesToWrite);
+                off += bytesToWrite;
+                len -= bytesToWrite;
+                if (tailLength + bytesToWrite == pageSize) {
+                    writePage(index);
+                }
+            }
+        } catch (IOException ioe) {
+            if (lockingManager.getUsableSpace() < len) {
+                throw new OutOfDiskSpaceException(ioe);
+            }
+            throw new ExodusException("Can't write to file", ioe);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean lock(long timeout) {
+        return lockingManager.lock(timeout);
+    }
+
+    @Override
+    public boolean release() {
+        return lockingManager.release();
+    }
+
+    @Override
+    protected void syncImpl() {
+        // frames of full pages get to disk before the tail file
+        force(file);
+        force(tailFile);
+    }
+
+    @Override
+    protected void closeImpl() {
+        final FileIndex index = this.index;
+        this.index = null;
+        final RandomAccessFile tailFile = this.tailFile;
+        if (tailFile != null) {
+            this.tailFile = null;
+            close(tailFile);
+        }
+        final RandomAccessFile file = this.file;
+        if (file != null) {
+            this.file = null;
+            if (index != null && index.getTailLength() == 0) {
+                // all data is in frames of full pages
+                force(file);
+                index.tailFileOffset = -1;
+                final File tail = files.getTailFile(index.address);
+                if (!tail.delete()) {
+                    logging.warn("Can't delete " + tail.getAbsolutePath());
+                }
+            }
+            close(file);
+        }
+    }
+
+    @Override
+    protected void openOrCreateBlockImpl(final long address, final long length) {
+        try {
+            final RandomAccessFile result = new RandomAccessFile(files.getFile(address), "rw");
+            FileIndex index = null;
+            if (length == 0 && result.length() < FILE_HEADER_SIZE) {
+                index = files.create(address, result);
+            } else {
+                index = files.getIndex(address);
+                if (index == null) {
+                    result.seek(length);
+                    if (length != result.length()) {
+                        result.setLength(length);
+                        result.getChannel().force(false);
+                    }
+                } else {
+                    final long logicalLength = index.getLength();
+                    if (length > logicalLength) {
+                        throw new ExodusException("Compressed file is shorter than expected, address = " + address +
+                                ", length = " + logicalLength + ", expected length = " + length);
+                    }
+                    // cut off incomplete frame if any
+                    if (result.length() != index.physicalLength) {
+                        result.setLength(index.physicalLength);
+                    }
+                    result.seek(index.physicalLength);
+                }
+            }
+            file = result;
+            this.index = index;
+            if (index != null) {
+                tailFile = openTailFile(index);
+                if (length < index.getLength()) {
+                    truncate(index, length);
+                }
+            }
+        } catch (IOException ioe) {
+            throw new ExodusException(ioe);
+        }
+    }
+
+    private void writePage(@NotNull final FileIndex index) throws IOException {
+        final byte[] tail = index.tail;
+        // compression should save at least 1/16 of the page, otherwise the page is written raw
+        int payloadLength = PageCompressor.compress(tail, 0, pageSize, frame, FRAME_HEADER_SIZE, pageSize - (pageSize >> 4));
+        final byte kind;
+        if (payloadLength < 0) {
+            kind = RAW_PAGE;
+            payloadLength = pageSize;
+            System.arraycopy(tail, 0, frame, FRAME_HEADER_SIZE, pageSize);
+        } else {
+            kind = COMPRESSED_PAGE;
+        }
+        final long logicalOffset = (long) index.getPagesCount() * pageSize;
+        final int checksum = crc(frame, FRAME_HEADER_SIZE, payloadLength);
+        writeFrameHeader(frame, kind, logicalOffset, pageSize, payloadLength, checksum);
+        final long position = index.physicalLength;
+        file.write(frame, 0, FRAME_HEADER_SIZE + payloadLength);
+        index.physicalLength = position + FRAME_HEADER_SIZE + payloadLength;
+        index.addPage(kind, position, payloadLength, checksum);
+    }
+
+    /**
+     * Writes frame which payload is already in the frame buffer.
+     */
+    private void writeFrame(@NotNull final FileIndex index, final byte kind,
+                            final long logicalOffset, final int payloadLength) throws IOException {
+        writeFrameHeader(frame, kind, logicalOffset, payloadLength, payloadLength, crc(frame, FRAME_HEADER_SIZE, payloadLength));
+        file.write(frame, 0, FRAME_HEADER_SIZE + payloadLength);
+        index.physicalLength += FRAME_HEADER_SIZE + payloadLength;
+    }
+
+    private void truncate(@NotNull final FileIndex index, final long length) throws IOException {
+        final int tailLength = (int) (length % pageSize);
+        final long tailAddress = length - tailLength;
+        if (tailLength > 0 && index.read(frame, tailAddress, tailLength) != tailLength) {
+            throw new ExodusException("Can't read compressed page at " + tailAddress);
+        }
+        // the tail is read from the frame buffer before it's overwritten by the frame header
+        System.arraycopy(frame, 0, frame, FRAME_HEADER_SIZE, tailLength);
+        writeFrame(index, TRUNCATE, length, tailLength);
+        index.truncate(length, frame, FRAME_HEADER_SIZE, tailLength);
+        startTailFile(tailFile, index);
+    }
+
+    /**
+     * Opens the tail file for appending if it matches the index, otherwise starts it over.
+     */
+    @NotNull
+    private RandomAccessFile openTailFile(@NotNull final FileIndex index) throws IOException {
+        final RandomAccessFile result = new RandomAccessFile(files.getTailFile(index.address), "rw");
+        final long tailFileOffset = index.tailFileOffset;
+        final long length = TAIL_HEADER_SIZE + index.getLength() - tailFileOffset;
+        if (tailFileOffset < 0 || result.length() < length) {
+            startTailFile(result, index);
+        } else {
+            // cut off bytes which are not in the index
+            if (result.length() != length) {
+                result.setLength(length);
+            }
+            result.seek(length);
+        }
+        return result;
+    }
+
+    /**
+     * Starts the tail file over with content of the incomplete last page. The compressed file is forced first,
+     * so the tail file never refers to frames which are not on disk.
+     */
+    private void startTailFile(@NotNull final RandomAccessFile tailFile, @NotNull final FileIndex index) throws IOException {
+        file.getChannel().force(false);
+        final long logicalOffset = (long) index.getPagesCount() * pageSize;
+        tailFile.setLength(0);
+        tailFile.write(createTailHeader(index.physicalLength, logicalOffset));
+        tailFile.write(index.tail, 0, index.getTailLength());
+        index.tailFileOffset = logicalOffset;
+    }
+
+    private static void force(@Nullable final RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.getChannel().force(false);
+            } catch (ClosedChannelException e) {
+                // ignore
+            } catch (IOException ioe) {
+                if (file.getChannel().isOpen()) {
+                    throw new ExodusException(ioe);
+                }
+            }
+        }
+    }
+
+    private static void close(@NotNull final RandomAccessFile file) {
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new ExodusException(e);
+        }
+    }
+}
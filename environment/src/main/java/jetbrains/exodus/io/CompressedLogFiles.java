@@ -0,0 +1,516 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.io;
+
+import jetbrains.exodus.ExodusException;
+import jetbrains.exodus.core.dataStructures.hash.LongHashMap;
+import jetbrains.exodus.core.dataStructures.hash.LongLinkedHashMap;
+import jetbrains.exodus.log.LogUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Format and in-memory indices of page-compressed log files shared by {@link CompressedFileDataReader} and
+ * {@link CompressedFileDataWriter}. A compressed file starts with a header (magic and page size) followed by
+ * frames. A frame header contains frame kind, logical offset in the file, logical length, payload length and
+ * CRC32 of the payload. Kinds of frames:
+ * <ul>
+ * <li>compressed or raw (if incompressible) full page,</li>
+ * <li>truncate: new logical length of the file followed by raw content of new incomplete last page.</li>
+ * </ul>
+ * Only full pages get to the compressed file, so it contains no superseded frames. Bytes written to a file are
+ * appended uncompressed to its tail file as well, so data is on disk right after it's written as with
+ * uncompressed files. The tail file starts with physical length of the compressed file and logical offset
+ * of its first byte at the moment it was started. It's started over on truncation and deleted once the file
+ * is complete, so a tail file which was started before the last truncate frame is stale and is ignored.
+ * The first byte of a log file which isn't compressed is a loggable type with the highest bit set, so
+ * compressed files are recognized by the magic, and compressed and uncompressed files can be mixed in a log.
+ * Files are scanned once on first access, only frame headers of full pages are read on scan.
+ */
+public final class CompressedLogFiles {
+
+    static final int FILE_HEADER_SIZE = 8;
+    static final int FRAME_HEADER_SIZE = 21;
+    static final byte COMPRESSED_PAGE = 1;
+    static final byte RAW_PAGE = 2;
+    static final byte TRUNCATE = 4;
+    static final int TAIL_HEADER_SIZE = 16;
+    public static final String TAIL_FILE_EXTENSION = ".tail";
+    private static final byte[] MAGIC = {'X', 'D', 'Z', 1};
+
+    @NotNull
+    private final File dir;
+    private final int pageSize;
+    @NotNull
+    private final LongHashMap<FileIndex> indices;
+    /**
+     * Files which are not compressed.
+     */
+    @NotNull
+    private final LongHashMap<Boolean> plainFiles;
+    /**
+     * Indices with open channels, channel of the eldest one is closed if there are too many of them.
+     */
+    @NotNull
+    private final LongLinkedHashMap<FileIndex> openIndices;
+
+    public CompressedLogFiles(@NotNull final File dir, final int pageSize, final int openFiles) {
+        this.dir = dir;
+        this.pageSize = pageSize;
+        indices = new LongHashMap<>();
+        plainFiles = new LongHashMap<>();
+        openIndices = new LongLinkedHashMap<FileIndex>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, FileIndex> eldest) {
+                if (size() > openFiles) {
+                    eldest.getValue().closeChannel();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    @NotNull
+    File getFile(final long address) {
+        return new File(dir, LogUtil.getLogFilename(address));
+    }
+
+    @NotNull
+    File getTailFile(final long address) {
+        return new File(dir, LogUtil.getLogFilename(address) + TAIL_FILE_EXTENSION);
+    }
+
+    /**
+     * @return index of the file or null if the file is not compressed.
+     */
+    @Nullable
+    synchronized FileIndex getIndex(final long address) {
+        FileIndex result = indices.get(address);
+        if (result == null && !plainFiles.containsKey(address)) {
+            final File file = getFile(address);
+            try (RandomAccessFile f = new RandomAccessFile(file, "r")) {
+                final long length = f.length();
+                if (length < FILE_HEADER_SIZE) {
+                    // empty file can become compressed, so it's not remembered
+                    return null;
+                }
+                final byte[] header = new byte[FILE_HEADER_SIZE];
+                f.readFully(header);
+                if (!Arrays.equals(MAGIC, Arrays.copyOf(header, MAGIC.length))) {
+                    plainFiles.put(address, Boolean.TRUE);
+                    return null;
+                }
+                final int filePageSize = ByteBuffer.wrap(header, MAGIC.length, 4).getInt();
+                if (filePageSize != pageSize) {
+                    throw new ExodusException("Compressed file " + file.getAbsolutePath() +
+                            " has page size " + filePageSize + ", expected " + pageSize);
+                }
+                result = new FileIndex(address);
+                result.scan(f.getChannel(), length);
+                result.loadTail();
+            } catch (IOException e) {
+                throw new ExodusException("Can't read file " + file.getAbsolutePath(), e);
+            }
+            indices.put(address, result);
+        }
+        return result;
+    }
+
+    /**
+     * Writes file header to a new file and creates an empty index for it.
+     */
+    @NotNull
+    FileIndex create(final long address, @NotNull final RandomAccessFile file) throws IOException {
+        file.setLength(0);
+        file.write(createFileHeader());
+        final FileIndex result = new FileIndex(address);
+        result.physicalLength = FILE_HEADER_SIZE;
+        synchronized (this) {
+            plainFiles.remove(address);
+            final FileIndex old = indices.put(address, result);
+            if (old != null) {
+                openIndices.remove(address);
+                old.closeChannel();
+            }
+        }
+        return result;
+    }
+
+    synchronized void remove(final long address) {
+        plainFiles.remove(address);
+        openIndices.remove(address);
+        final FileIndex index = indices.remove(address);
+        if (index != null) {
+            index.closeChannel();
+        }
+        final File tailFile = getTailFile(address);
+        if (tailFile.exists() && !tailFile.delete()) {
+            throw new ExodusException("Failed to delete " + tailFile.getAbsolutePath());
+        }
+    }
+
+    synchronized void close() {
+        for (final FileIndex index : indices.values()) {
+            index.closeChannel();
+        }
+        indices.clear();
+        plainFiles.clear();
+        openIndices.clear();
+    }
+
+    @NotNull
+    byte[] createFileHeader() {
+        final ByteBuffer result = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        result.put(MAGIC);
+        result.putInt(pageSize);
+        return result.array();
+    }
+
+    static void writeFrameHeader(@NotNull final byte[] output, final byte kind, final long logicalOffset,
+                                 final int logicalLength, final int payloadLength, final int checksum) {
+        final ByteBuffer buffer = ByteBuffer.wrap(output, 0, FRAME_HEADER_SIZE);
+        buffer.put(kind);
+        buffer.putLong(logicalOffset);
+        buffer.putInt(logicalLength);
+        buffer.putInt(payloadLength);
+        buffer.putInt(checksum);
+    }
+
+    @NotNull
+    static byte[] createTailHeader(final long physicalLength, final long logicalOffset) {
+        final ByteBuffer result = ByteBuffer.allocate(TAIL_HEADER_SIZE);
+        result.putLong(physicalLength);
+        result.putLong(logicalOffset);
+        return result.array();
+    }
+
+    private synchronized void channelOpened(@NotNull final FileIndex index) {
+        if (indices.get(index.address) == index) {
+            openIndices.put(index.address, index);
+        }
+    }
+
+    static int crc(@NotNull final byte[] bytes, final int off, final int len) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, off, len);
+        return (int) crc.getValue();
+    }
+
+    private static void readFully(@NotNull final FileChannel channel, @NotNull final byte[] output,
+                                  final int count, final long position) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(output, 0, count);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new ExodusException("Unexpected end of compressed file");
+            }
+        }
+    }
+
+    /**
+     * In-memory index of a compressed file: physical locations of full pages and content of incomplete
+     * last page. It's mutated only by the writer.
+     */
+    final class FileIndex {
+
+        final long address;
+        private long[] positions;
+        private int[] payloadLengths;
+        private int[] checksums;
+        private byte[] kinds;
+        private int pagesCount;
+        @NotNull
+        final byte[] tail;
+        private int tailLength;
+        /**
+         * End of the last valid frame.
+         */
+        long physicalLength;
+        /**
+         * Position of the last truncate frame.
+         */
+        private long truncatePosition;
+        /**
+         * Logical offset of the first byte of the tail file or -1 if the tail file is missing or stale.
+         */
+        long tailFileOffset;
+        @Nullable
+        private FileChannel channel;
+
+        private FileIndex(final long address) {
+            this.address = address;
+            positions = new long[16];
+            payloadLengths = new int[16];
+            checksums = new int[16];
+            kinds = new byte[16];
+            pagesCount = 0;
+            tail = new byte[pageSize];
+            tailLength = 0;
+            physicalLength = 0;
+            truncatePosition = 0;
+            tailFileOffset = -1;
+            channel = null;
+        }
+
+        synchronized long getLength() {
+            return (long) pagesCount * pageSize + tailLength;
+        }
+
+        synchronized int getPagesCount() {
+            return pagesCount;
+        }
+
+        synchronized int getTailLength() {
+            return tailLength;
+        }
+
+        int read(@NotNull final byte[] output, final long position, final int count) {
+            int result = 0;
+            byte[] page = null;
+            while (result < count) {
+                final long current = position + result;
+                final int pageIndex = (int) (current / pageSize);
+                final int offset = (int) (current % pageSize);
+                final int len = Math.min(count - result, pageSize - offset);
+                synchronized (this) {
+                    if (pageIndex == pagesCount) {
+                        final int available = Math.min(len, tailLength - offset);
+                        if (available <= 0) {
+                            break;
+                        }
+                        System.arraycopy(tail, offset, output, result, available);
+                        result += available;
+                        break;
+                    }
+                    if (pageIndex > pagesCount) {
+                        break;
+                    }
+                }
+                if (offset == 0 && len == pageSize) {
+                    if (!readPage(pageIndex, output, result)) {
+                        continue;
+                    }
+                } else {
+                    if (page == null) {
+                        page = new byte[pageSize];
+                    }
+                    if (!readPage(pageIndex, page, 0)) {
+                        continue;
+                    }
+                    System.arraycopy(page, offset, output, result, len);
+                }
+                result += len;
+            }
+            return result == 0 && count > 0 ? -1 : result;
+        }
+
+        /**
+         * @return false if the page is not in the index any longer.
+         */
+        private boolean readPage(final int pageIndex, @NotNull final byte[] output, final int outputOffset) {
+            while (true) {
+                final long position;
+                final int payloadLength;
+                final int checksum;
+                final byte kind;
+                final FileChannel channel;
+                synchronized (this) {
+                    if (pageIndex >= pagesCount) {
+                        return false;
+                    }
+                    position = positions[pageIndex];
+                    payloadLength = payloadLengths[pageIndex];
+                    checksum = checksums[pageIndex];
+                    kind = kinds[pageIndex];
+                    channel = getChannel();
+                }
+                channelOpened(this);
+                final byte[] payload = new byte[payloadLength];
+                try {
+                    readFully(channel, payload, payloadLength, position + FRAME_HEADER_SIZE);
+                } catch (ClosedByInterruptException e) {
+                    throw new ExodusException("Interrupted while reading compressed file", e);
+                } catch (ClosedChannelException e) {
+                    // the channel was closed by eviction, retry with actual one
+                    continue;
+                } catch (IOException e) {
+                    throw new ExodusException("Can't read compressed file " + getFile(address).getAbsolutePath(), e);
+                }
+                if (crc(payload, 0, payloadLength) != checksum) {
+                    throw new ExodusException("Checksum mismatch in compressed file " +
+                            getFile(address).getAbsolutePath() + ", page " + pageIndex);
+                }
+                if (kind == RAW_PAGE) {
+                    System.arraycopy(payload, 0, output, outputOffset, pageSize);
+                } else {
+                    PageCompressor.decompress(payload, 0, payloadLength, output, outputOffset, pageSize);
+                }
+                return true;
+            }
+        }
+
+        @NotNull
+        private FileChannel getChannel() {
+            FileChannel result = channel;
+            if (result == null) {
+                final File file = getFile(address);
+                try {
+                    result = new RandomAccessFile(file, "r").getChannel();
+                } catch (IOException e) {
+                    throw new ExodusException("Can't open compressed file " + file.getAbsolutePath(), e);
+                }
+                channel = result;
+            }
+            return result;
+        }
+
+        synchronized void closeChannel() {
+            final FileChannel channel = this.channel;
+            if (channel != null) {
+                this.channel = null;
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    throw new ExodusException(e);
+                }
+            }
+        }
+
+        synchronized void appendTail(@NotNull final byte[] bytes, final int off, final int len) {
+            System.arraycopy(bytes, off, tail, tailLength, len);
+            tailLength += len;
+        }
+
+        synchronized void addPage(final byte kind, final long position, final int payloadLength, final int checksum) {
+            if (pagesCount == positions.length) {
+                final int capacity = pagesCount * 2;
+                positions = Arrays.copyOf(positions, capacity);
+                payloadLengths = Arrays.copyOf(payloadLengths, capacity);
+                checksums = Arrays.copyOf(checksums, capacity);
+                kinds = Arrays.copyOf(kinds, capacity);
+            }
+            positions[pagesCount] = position;
+            payloadLengths[pagesCount] = payloadLength;
+            checksums[pagesCount] = checksum;
+            kinds[pagesCount] = kind;
+            ++pagesCount;
+            tailLength = 0;
+        }
+
+        /**
+         * Drops pages and tail bytes beyond specified length, the incomplete last page gets specified content.
+         */
+        synchronized void truncate(final long length, @NotNull final byte[] newTail,
+                                   final int newTailOffset, final int newTailLength) {
+            pagesCount = (int) (length / pageSize);
+            System.arraycopy(newTail, newTailOffset, tail, 0, newTailLength);
+            tailLength = newTailLength;
+        }
+
+        private void scan(@NotNull final FileChannel channel, final long fileLength) throws IOException {
+            final byte[] header = new byte[FRAME_HEADER_SIZE];
+            long position = FILE_HEADER_SIZE;
+            while (position + FRAME_HEADER_SIZE <= fileLength) {
+                readFully(channel, header, FRAME_HEADER_SIZE, position);
+                final ByteBuffer buffer = ByteBuffer.wrap(header);
+                final byte kind = buffer.get();
+                final long logicalOffset = buffer.getLong();
+                final int logicalLength = buffer.getInt();
+                final int payloadLength = buffer.getInt();
+                final int checksum = buffer.getInt();
+                final long end = position + FRAME_HEADER_SIZE + payloadLength;
+                if (payloadLength < 0 || end > fileLength) {
+                    break;
+                }
+                final long pagesLength = (long) pagesCount * pageSize;
+                if (kind == COMPRESSED_PAGE || kind == RAW_PAGE) {
+                    // payload of a full page is checked on read
+                    if (logicalOffset != pagesLength || logicalLength != pageSize || payloadLength > pageSize) {
+                        break;
+                    }
+                    addPage(kind, position, payloadLength, checksum);
+                } else if (kind == TRUNCATE) {
+                    if (logicalLength != payloadLength || payloadLength > pageSize ||
+                            logicalOffset > pagesLength + tailLength || logicalOffset % pageSize != payloadLength) {
+                        break;
+                    }
+                    final byte[] payload = new byte[payloadLength];
+                    readFully(channel, payload, payloadLength, position + FRAME_HEADER_SIZE);
+                    if (crc(payload, 0, payloadLength) != checksum) {
+                        break;
+                    }
+                    truncate(logicalOffset, payload, 0, payloadLength);
+                    truncatePosition = position;
+                } else {
+                    break;
+                }
+                position = end;
+            }
+            physicalLength = position;
+        }
+
+        /**
+         * Reads content of the incomplete last page from the tail file unless it's stale. Frames of full pages
+         * have precedence over the tail file, bytes beyond the incomplete last page are not recoverable.
+         */
+        private void loadTail() throws IOException {
+            final File file = getTailFile(address);
+            if (!file.exists()) {
+                return;
+            }
+            try (RandomAccessFile f = new RandomAccessFile(file, "r")) {
+                final long length = f.length();
+                if (length < TAIL_HEADER_SIZE) {
+                    return;
+                }
+                final long startPhysicalLength = f.readLong();
+                final long startLogicalOffset = f.readLong();
+                if (startPhysicalLength <= truncatePosition || startPhysicalLength > physicalLength ||
+                        startLogicalOffset < 0 || startLogicalOffset % pageSize != 0) {
+                    return;
+                }
+                final long pagesLength = (long) pagesCount * pageSize;
+                final long tailEnd = startLogicalOffset + length - TAIL_HEADER_SIZE;
+                if (startLogicalOffset > pagesLength) {
+                    return;
+                }
+                tailFileOffset = startLogicalOffset;
+                // tail of the truncate frame and the tail file are prefixes of the same data
+                if (tailEnd - pagesLength > tailLength) {
+                    final int count = (int) Math.min(pageSize, tailEnd - pagesLength);
+                    f.seek(TAIL_HEADER_SIZE + pagesLength - startLogicalOffset);
+                    f.readFully(tail, 0, count);
+                    tailLength = count;
+                }
+            }
+        }
+    }
+}
@@ -30,6 +30,15 @@ public interface DataReader {
 
     void removeBlock(long blockAddress, @NotNull RemoveBlockType rbt);
 
+    /**
+     * Notifies the reader that the block is about to be truncated by the writer, so the reader should
+     * drop any state which relies on the block being immutable.
+     *
+     * @param blockAddress address of the block.
+     * @param length       new length of the block.
+     */
+    void truncateBlock(long blockAddress, long length);
+
     void clear();
 
     void close();
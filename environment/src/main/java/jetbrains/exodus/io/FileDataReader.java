@@ -17,6 +17,7 @@ package jetbrains.exodus.io;
 
 import jetbrains.exodus.ExodusException;
 import jetbrains.exodus.core.dataStructures.LongObjectCache;
+import jetbrains.exodus.core.dataStructures.LongObjectCacheBase;
 import jetbrains.exodus.log.LogUtil;
 import jetbrains.exodus.util.SharedRandomAccessFile;
 import org.apache.commons.logging.Log;
@@ -25,25 +26,43 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
 
-@SuppressWarnings({"PackageVisibleField", "ClassEscapesDefinedScope"})
+@SuppressWarnings({"PackageVisibleField", "ProtectedField"})
 public class FileDataReader implements DataReader {
 
     private static final Log logging = LogFactory.getLog(FileDataReader.class);
 
     private static final String DELETED_FILE_EXTENSION = ".del";
+    private static final int MAX_FILE_CACHE_STRIPES = 16;
 
     @NotNull
-    private final File dir;
+    protected final File dir;
+    /**
+     * Open files are cached in several independently locked stripes, so concurrent reads of different files
+     * don't contend for a single lock. Reads of the same file share its channel since they are positional.
+     */
     @NotNull
-    private final LongObjectCache<SharedRandomAccessFile> fileCache;
+    private final LongObjectCache<SharedRandomAccessFile>[] fileCaches;
 
     public FileDataReader(@NotNull final File dir, final int openFiles) {
         this.dir = dir;
-        fileCache = new LongObjectCache<>(openFiles);
+        final int stripes = Math.max(1, Math.min(MAX_FILE_CACHE_STRIPES, openFiles / LongObjectCacheBase.MIN_SIZE));
+        fileCaches = newFileCaches(stripes);
+        for (int i = 0; i < stripes; ++i) {
+            fileCaches[i] = new LongObjectCache<>(openFiles / stripes);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static LongObjectCache<SharedRandomAccessFile>[] newFileCaches(final int stripes) {
+        return (LongObjectCache<SharedRandomAccessFile>[]) new LongObjectCache<?>[stripes];
     }
 
     @Override
@@ -59,6 +78,7 @@ public class FileDataReader implements DataReader {
 
     @Override
     public void removeBlock(long blockAddress, @NotNull final RemoveBlockType rbt) {
+        final LongObjectCache<SharedRandomAccessFile> fileCache = getFileCache(blockAddress);
         fileCache.lock();
         final SharedRandomAccessFile f;
         try {
@@ -94,15 +114,19 @@ public class FileDataReader implements DataReader {
 
     @Override
     public void close() {
-        try {
-            final Iterator<SharedRandomAccessFile> itr = fileCache.values();
-            while (itr.hasNext()) {
-                itr.next().close();
+        for (final LongObjectCache<SharedRandomAccessFile> fileCache : fileCaches) {
+            fileCache.lock();
+            try {
+                final Iterator<SharedRandomAccessFile> itr = fileCache.values();
+                while (itr.hasNext()) {
+                    itr.next().close();
+                }
+            } catch (IOException e) {
+                throw new ExodusException("Can't close all files", e);
+            } finally {
+                fileCache.clear();
+                fileCache.unlock();
             }
-        } catch (IOException e) {
-            throw new ExodusException("Can't close all files", e);
-        } finally {
-            fileCache.clear();
         }
     }
 
@@ -112,10 +136,15 @@ public class FileDataReader implements DataReader {
     }
 
     @Override
-    public FileBlock getBlock(final long address) {
+    public Block getBlock(final long address) {
         return new FileBlock(address);
     }
 
+    @Override
+    public void truncateBlock(final long blockAddress, final long length) {
+        // nothing to do: files are opened only for reading and don't cache their length
+    }
+
     public static void sortBlocks(Block[] result) {
         Arrays.sort(result, new Comparator<Block>() {
             @Override
@@ -131,6 +160,25 @@ public class FileDataReader implements DataReader {
         });
     }
 
+    private LongObjectCache<SharedRandomAccessFile> getFileCache(final long address) {
+        // file addresses are multiples of file length, so mix them in order to spread files over stripes
+        return fileCaches[(int) (((address * 0x9E3779B97F4A7C15L) >>> 40) % fileCaches.length)];
+    }
+
+    private static int read(@NotNull final FileChannel channel,
+                            final byte[] output, final long position, final int count) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(output, 0, count);
+        int result = 0;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position + result);
+            if (read < 0) {
+                return result == 0 ? read : result;
+            }
+            result += read;
+        }
+        return result;
+    }
+
     private static boolean renameFile(@NotNull final File file) {
         final String name = file.getName();
         return file.renameTo(new File(file.getParent(),
@@ -154,42 +202,76 @@ public class FileDataReader implements DataReader {
         @Override
         public int read(final byte[] output, long position, int count) {
             try {
-                fileCache.lock();
-                SharedRandomAccessFile f;
-                try {
-                    f = fileCache.tryKey(address);
-                    if (f != null && f.employ() > 1) {
-                        f.close();
-                        f = null;
-                    }
-                } finally {
-                    fileCache.unlock();
-                }
-                if (f == null) {
-                    f = new SharedRandomAccessFile(this, "r");
-                    SharedRandomAccessFile obsolete = null;
-                    fileCache.lock();
+                while (true) {
+                    final SharedRandomAccessFile f = employFile();
                     try {
-                        if (fileCache.getObject(address) == null) {
-                            f.employ();
-                            obsolete = fileCache.cacheObject(address, f);
-                        }
+                        return FileDataReader.read(f.getChannel(), output, position, count);
+                    } catch (ClosedByInterruptException e) {
+                        throw e;
+                    } catch (ClosedChannelException e) {
+                        // the channel is closed by interruption of another thread reading the file, so reopen it
+                        evictFile(f);
                     } finally {
-                        fileCache.unlock();
-                        if (obsolete != null) {
-                            obsolete.close();
-                        }
+                        f.close();
                     }
                 }
-                try {
-                    f.seek(position);
-                    return f.read(output, 0, count);
-                } finally {
-                    f.close();
-                }
             } catch (IOException e) {
                 throw new ExodusException("Can't read file " + getAbsolutePath(), e);
             }
         }
+
+        /**
+         * Returns cached or newly opened file registering a new client of the file. Since reads are positional,
+         * any number of clients can read the file concurrently.
+         */
+        private SharedRandomAccessFile employFile() throws IOException {
+            final LongObjectCache<SharedRandomAccessFile> fileCache = getFileCache(address);
+            fileCache.lock();
+            try {
+                final SharedRandomAccessFile f = fileCache.tryKey(address);
+                if (f != null) {
+                    f.employ();
+                    return f;
+                }
+            } finally {
+                fileCache.unlock();
+            }
+            final SharedRandomAccessFile result = new SharedRandomAccessFile(this, "r");
+            SharedRandomAccessFile obsolete = null;
+            fileCache.lock();
+            try {
+                final SharedRandomAccessFile f = fileCache.getObject(address);
+                if (f != null) {
+                    f.employ();
+                    obsolete = result;
+                    return f;
+                }
+                result.employ();
+                obsolete = fileCache.cacheObject(address, result);
+                return result;
+            } finally {
+                fileCache.unlock();
+                if (obsolete != null) {
+                    obsolete.close();
+                }
+            }
+        }
+
+        private void evictFile(@NotNull final SharedRandomAccessFile f) throws IOException {
+            final LongObjectCache<SharedRandomAccessFile> fileCache = getFileCache(address);
+            boolean evicted = false;
+            fileCache.lock();
+            try {
+                if (fileCache.getObject(address) == f) {
+                    fileCache.remove(address);
+                    evicted = true;
+                }
+            } finally {
+                fileCache.unlock();
+            }
+            if (evicted) {
+                f.close();
+            }
+        }
     }
 }
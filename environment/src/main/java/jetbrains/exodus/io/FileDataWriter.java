@@ -29,16 +29,29 @@ import java.nio.channels.FileChannel;
 
 public class FileDataWriter extends AbstractDataWriter {
 
+    private static final int ZERO_FILL_CHUNK_SIZE = 65536;
+
     @NotNull
     private final File dir;
+    private final long preallocatedLength;
     @NotNull
     private final LockingManager lockingManager;
     @Nullable
     private RandomAccessFile file;
 
     public FileDataWriter(final File directory) {
+        this(directory, 0);
+    }
+
+    /**
+     * @param preallocatedLength if positive, each file is allocated at this length filled with zeros when it's
+     *                           opened for writing, so appending to the file doesn't change its size. Bytes beyond
+     *                           the logical length of the file are zeroed, so recovery of the log stops there.
+     */
+    public FileDataWriter(final File directory, final long preallocatedLength) {
         file = null;
         dir = directory;
+        this.preallocatedLength = preallocatedLength;
         lockingManager = new LockingManager(dir);
     }
 
@@ -87,17 +100,56 @@ public class FileDataWriter extends AbstractDataWriter {
     protected void openOrCreateBlockImpl(final long address, final long length) {
         try {
             final RandomAccessFile result = new RandomAccessFile(new File(dir, LogUtil.getLogFilename(address)), "rw");
-            result.seek(length);
-            if (length != result.length()) {
+            if (preallocatedLength > 0) {
+                if (zeroFill(result, length, Math.max(result.length(), preallocatedLength))) {
+                    forceSync(result);
+                }
+            } else if (length != result.length()) {
                 result.setLength(length);
                 forceSync(result);
             }
+            result.seek(length);
             file = result;
         } catch (IOException ioe) {
             throw new ExodusException(ioe);
         }
     }
 
+    /**
+     * Fills the file with zeros from specified position to specified length skipping chunks which are already zeros.
+     *
+     * @return true if anything was written.
+     */
+    private static boolean zeroFill(@NotNull final RandomAccessFile file, final long from, final long to) throws IOException {
+        final long fileLength = file.length();
+        final byte[] zeros = new byte[ZERO_FILL_CHUNK_SIZE];
+        final byte[] chunk = new byte[ZERO_FILL_CHUNK_SIZE];
+        boolean result = false;
+        for (long position = from; position < to; position += ZERO_FILL_CHUNK_SIZE) {
+            final int len = (int) Math.min(ZERO_FILL_CHUNK_SIZE, to - position);
+            if (position + len <= fileLength) {
+                file.seek(position);
+                file.readFully(chunk, 0, len);
+                if (isZero(chunk, len)) {
+                    continue;
+                }
+            }
+            file.seek(position);
+            file.write(zeros, 0, len);
+            result = true;
+        }
+        return result;
+    }
+
+    private static boolean isZero(@NotNull final byte[] bytes, final int len) {
+        for (int i = 0; i < len; ++i) {
+            if (bytes[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private void forceSync(@NotNull final RandomAccessFile file) {
         try {
             final FileChannel channel = file.getChannel();
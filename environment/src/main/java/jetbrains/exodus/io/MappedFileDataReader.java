@@ -0,0 +1,175 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.io;
+
+import jetbrains.exodus.ExodusException;
+import jetbrains.exodus.core.dataStructures.ConcurrentLongObjectCache;
+import jetbrains.exodus.core.dataStructures.LongObjectCacheBase;
+import jetbrains.exodus.log.LogUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads log files mapping them into memory. Only files which can't grow any longer are mapped, i.e. all files
+ * but the last one, and each of them is mapped once at its full length. The last file is read as by
+ * {@linkplain FileDataReader}, since mapping a file which is being appended would require re-mapping it on
+ * each read beyond the mapped region. A file is known to be not the last one as soon as a file with a greater
+ * address is accessed. Reading of a mapped file is a plain memory copy which requires neither a system call nor
+ * a lock. Mapped regions are released by the garbage collector, so on Windows the deletion of a file can fail
+ * while it is still mapped.
+ */
+public class MappedFileDataReader extends FileDataReader {
+
+    @NotNull
+    private final LongObjectCacheBase<MappedByteBuffer> mappedFiles;
+    private volatile long lastBlockAddress; // greatest address of a file which was accessed
+
+    public MappedFileDataReader(@NotNull final File dir, final int openFiles) {
+        super(dir, openFiles);
+        mappedFiles = new ConcurrentLongObjectCache<>(openFiles);
+        lastBlockAddress = -1L;
+    }
+
+    @Override
+    public Block[] getBlocks() {
+        final Block[] result = super.getBlocks();
+        if (result.length > 0) {
+            blockAccessed(result[result.length - 1].getAddress());
+        }
+        return result;
+    }
+
+    @Override
+    public Block getBlock(final long address) {
+        blockAccessed(address);
+        return new MappedBlock(address, super.getBlock(address));
+    }
+
+    @Override
+    public void removeBlock(final long blockAddress, @NotNull final RemoveBlockType rbt) {
+        mappedFiles.remove(blockAddress);
+        super.removeBlock(blockAddress, rbt);
+        if (blockAddress >= lastBlockAddress) {
+            // the last file is unknown until a file is accessed once again
+            lastBlockAddress = -1L;
+        }
+    }
+
+    @Override
+    public void truncateBlock(final long blockAddress, final long length) {
+        // accessing a mapped region beyond the end of truncated file is fatal, so the file should be re-mapped
+        mappedFiles.remove(blockAddress);
+        super.truncateBlock(blockAddress, length);
+        // only the last file can be truncated, it can grow since then
+        lastBlockAddress = blockAddress;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        lastBlockAddress = -1L;
+    }
+
+    @Override
+    public void close() {
+        mappedFiles.clear();
+        super.close();
+    }
+
+    /**
+     * For tests only!!!
+     */
+    boolean isMapped(final long address) {
+        return mappedFiles.tryKeyLocked(address) != null;
+    }
+
+    private void blockAccessed(final long address) {
+        if (address > lastBlockAddress) {
+            synchronized (this) {
+                if (address > lastBlockAddress) {
+                    lastBlockAddress = address;
+                }
+            }
+        }
+    }
+
+    private final class MappedBlock implements Block {
+
+        private final long address;
+        @NotNull
+        private final Block fileBlock;
+
+        private MappedBlock(final long address, @NotNull final Block fileBlock) {
+            this.address = address;
+            this.fileBlock = fileBlock;
+        }
+
+        @Override
+        public long getAddress() {
+            return address;
+        }
+
+        @Override
+        public long length() {
+            return fileBlock.length();
+        }
+
+        @Override
+        public int read(final byte[] output, final long position, final int count) {
+            MappedByteBuffer buffer = mappedFiles.tryKeyLocked(address);
+            if (buffer == null) {
+                if (address >= lastBlockAddress || (buffer = map()) == null) {
+                    return fileBlock.read(output, position, count);
+                }
+            }
+            final int limit = buffer.limit();
+            if (position >= limit) {
+                return -1;
+            }
+            final ByteBuffer view = buffer.duplicate();
+            view.position((int) position);
+            final int result = Math.min(count, limit - (int) position);
+            view.get(output, 0, result);
+            return result;
+        }
+
+        /**
+         * @return region mapping the whole file or null if the file can't be mapped.
+         */
+        @Nullable
+        private MappedByteBuffer map() {
+            final File file = new File(dir, LogUtil.getLogFilename(address));
+            try (RandomAccessFile f = new RandomAccessFile(file, "r")) {
+                final long length = f.length();
+                if (length == 0 || length > Integer.MAX_VALUE) {
+                    return null;
+                }
+                final MappedByteBuffer result = f.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+                mappedFiles.cacheObject(address, result);
+                return result;
+            } catch (IOException e) {
+                throw new ExodusException("Can't map file " + file.getAbsolutePath(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.io;
+
+import jetbrains.exodus.ExodusException;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Compresses log pages in the LZ4 block format using the fastest implementation of the lz4-java library
+ * available on the platform. Compression and decompression are thread-safe.
+ */
+final class PageCompressor {
+
+    @NotNull
+    private static final LZ4Compressor COMPRESSOR;
+    @NotNull
+    private static final LZ4SafeDecompressor DECOMPRESSOR;
+
+    static {
+        final LZ4Factory factory = LZ4Factory.fastestInstance();
+        COMPRESSOR = factory.fastCompressor();
+        DECOMPRESSOR = factory.safeDecompressor();
+    }
+
+    private PageCompressor() {
+    }
+
+    /**
+     * @return length of compressed data or -1 if it doesn't fit in maxLength bytes.
+     */
+    static int compress(@NotNull final byte[] src, final int srcOff, final int srcLen,
+                        @NotNull final byte[] dest, final int destOff, final int maxLength) {
+        try {
+            return COMPRESSOR.compress(src, srcOff, srcLen, dest, destOff, maxLength);
+        } catch (LZ4Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Decompresses data which is expected to be exactly destLen bytes long.
+     */
+    static void decompress(@NotNull final byte[] src, final int srcOff, final int srcLen,
+                           @NotNull final byte[] dest, final int destOff, final int destLen) {
+        final int length;
+        try {
+            length = DECOMPRESSOR.decompress(src, srcOff, srcLen, dest, destOff, destLen);
+        } catch (LZ4Exception e) {
+            throw new ExodusException("Corrupted compressed page", e);
+        }
+        if (length != destLen) {
+            throw new ExodusException("Corrupted compressed page");
+        }
+    }
+}
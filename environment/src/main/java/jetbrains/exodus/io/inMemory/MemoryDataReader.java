@@ -60,6 +60,11 @@ public class MemoryDataReader implements DataReader {
         }
     }
 
+    @Override
+    public void truncateBlock(final long blockAddress, final long length) {
+        // nothing to do
+    }
+
     @Override
     public void clear() {
         data.clear();
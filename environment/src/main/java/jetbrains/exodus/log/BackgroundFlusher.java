@@ -0,0 +1,144 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log;
+
+import jetbrains.exodus.core.execution.Job;
+import jetbrains.exodus.core.execution.JobProcessor;
+import jetbrains.exodus.core.execution.JobProcessorExceptionHandler;
+import jetbrains.exodus.core.execution.ThreadJobProcessor;
+import org.apache.commons.logging.LogFactory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Syncs the log in a dedicated thread on request. All requests pending by the moment the thread wakes up
+ * are served by a single sync, then their listeners are notified in the flusher thread. Data should be flushed
+ * to the log before the sync is requested. The thread is created on first request.
+ */
+final class BackgroundFlusher {
+
+    private static final org.apache.commons.logging.Log logging = LogFactory.getLog(BackgroundFlusher.class);
+
+    @NotNull
+    private final Log log;
+    @NotNull
+    private final SyncJob syncJob;
+    @Nullable
+    private ThreadJobProcessor processor;
+    @NotNull
+    private List<SyncListener> pending;
+    private boolean closed;
+
+    BackgroundFlusher(@NotNull final Log log) {
+        this.log = log;
+        syncJob = new SyncJob();
+        processor = null;
+        pending = new ArrayList<>();
+        closed = false;
+    }
+
+    void requestSync(@NotNull final SyncListener listener) {
+        final ThreadJobProcessor processor;
+        synchronized (this) {
+            if (!closed) {
+                pending.add(listener);
+                processor = getProcessor();
+            } else {
+                processor = null;
+            }
+        }
+        if (processor == null) {
+            // the log was synced on close after all data had been flushed
+            listener.synced(null);
+        } else {
+            processor.queue(syncJob);
+        }
+    }
+
+    /**
+     * Stops the flusher thread. Listeners of requests which were not served are notified as synced,
+     * so the log should be synced after this method returns.
+     */
+    void close() {
+        final ThreadJobProcessor processor;
+        final List<SyncListener> listeners;
+        synchronized (this) {
+            closed = true;
+            processor = this.processor;
+            this.processor = null;
+        }
+        if (processor != null) {
+            processor.finish();
+        }
+        synchronized (this) {
+            listeners = pending;
+            pending = new ArrayList<>();
+        }
+        notifyListeners(listeners, null);
+    }
+
+    private ThreadJobProcessor getProcessor() {
+        ThreadJobProcessor result = processor;
+        if (result == null) {
+            result = new ThreadJobProcessor("Exodus log flusher for " + log.getLocation());
+            result.setExceptionHandler(new JobProcessorExceptionHandler() {
+                @Override
+                public void handle(JobProcessor processor, Job job, Throwable t) {
+                    logging.error(t, t);
+                }
+            });
+            result.start();
+            processor = result;
+        }
+        return result;
+    }
+
+    private static void notifyListeners(@NotNull final List<SyncListener> listeners, @Nullable final Throwable error) {
+        for (final SyncListener listener : listeners) {
+            try {
+                listener.synced(error);
+            } catch (Throwable t) {
+                logging.error("Sync listener failed", t);
+            }
+        }
+    }
+
+    private final class SyncJob extends Job {
+
+        @Override
+        protected void execute() throws Throwable {
+            final List<SyncListener> listeners;
+            synchronized (BackgroundFlusher.this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                listeners = pending;
+                pending = new ArrayList<>();
+            }
+            Throwable error = null;
+            try {
+                log.sync();
+            } catch (Throwable t) {
+                logging.error("Failed to sync log", t);
+                error = t;
+            }
+            notifyListeners(listeners, error);
+        }
+    }
+}
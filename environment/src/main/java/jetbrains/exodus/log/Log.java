@@ -24,14 +24,17 @@ import jetbrains.exodus.core.dataStructures.skiplists.LongSkipList;
 import jetbrains.exodus.io.*;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
 import jetbrains.exodus.util.DeferredIO;
+import jetbrains.exodus.util.ParallelTasks;
 import org.apache.commons.logging.LogFactory;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.Closeable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @SuppressWarnings({"JavaDoc"})
@@ -50,6 +53,10 @@ public final class Log implements Closeable {
     private final String location;
     private final LongSkipList blockAddrs;
     final LogCache cache;
+    @NotNull
+    final ReadAhead readAhead;
+    @NotNull
+    private final BackgroundFlusher flusher;
 
     private int logIdentity;
     @NotNull
@@ -62,6 +69,10 @@ public final class Log implements Closeable {
     private final DataReader reader;
 
     private final List<NewFileListener> newFileListeners;
+    /**
+     * Is replaced on adding a listener, so a page miss doesn't lock or allocate.
+     */
+    private volatile PageMissListener[] pageMissListeners;
 
     /**
      * Size of single page in log cache.
@@ -72,6 +83,7 @@ public final class Log implements Closeable {
      */
     private final long fileSize;
     private final long fileLengthBound; // and in bytes
+    private final int startupParallelism;
     private long highAddress;
 
     @SuppressWarnings({"OverlyLongMethod", "ThisEscapedInObjectConstruction", "OverlyCoupledMethod"})
@@ -89,13 +101,14 @@ public final class Log implements Closeable {
         fileLengthBound = fileLength;
         reader = config.getReader();
         location = reader.getLocation();
+        startupParallelism = config.getStartupParallelism();
         final Block[] blocks = reader.getBlocks();
+        final long[] blockLengths = getBlockLengths(blocks, startupParallelism);
         for (int i = 0; i < blocks.length; ++i) {
-            final Block block = blocks[i];
-            final long address = block.getAddress();
+            final long address = blocks[i].getAddress();
             blockAddrs.add(address);
             // if it is not the last file and its size is not as expected
-            final long blockLength = block.length();
+            final long blockLength = blockLengths[i];
             if (blockLength > fileLength || (i < blocks.length - 1 && blockLength != fileLength)) {
                 if (config.isClearInvalidLog()) {
                     blockAddrs.clear();
@@ -107,18 +120,23 @@ public final class Log implements Closeable {
             }
         }
         newFileListeners = new ArrayList<>(2);
+        pageMissListeners = new PageMissListener[0];
         final long memoryUsage = config.getMemoryUsage();
         final boolean nonBlockingCache = config.isNonBlockingCache();
+        final boolean scanResistantCache = config.isScanResistantCache();
+        final long offHeapCacheSize = config.getOffHeapCacheSize();
         if (memoryUsage != 0) {
             cache = config.isSharedCache() ?
-                    getSharedCache(memoryUsage, cachePageSize, nonBlockingCache) :
-                    new SeparateLogCache(memoryUsage, cachePageSize, nonBlockingCache);
+                    getSharedCache(memoryUsage, cachePageSize, nonBlockingCache, scanResistantCache, offHeapCacheSize) :
+                    new SeparateLogCache(memoryUsage, cachePageSize, nonBlockingCache, scanResistantCache, offHeapCacheSize);
         } else {
             final int memoryUsagePercentage = config.getMemoryUsagePercentage();
             cache = config.isSharedCache() ?
-                    getSharedCache(memoryUsagePercentage, cachePageSize, nonBlockingCache) :
-                    new SeparateLogCache(memoryUsagePercentage, cachePageSize, nonBlockingCache);
+                    getSharedCache(memoryUsagePercentage, cachePageSize, nonBlockingCache, scanResistantCache, offHeapCacheSize) :
+                    new SeparateLogCache(memoryUsagePercentage, cachePageSize, nonBlockingCache, scanResistantCache, offHeapCacheSize);
         }
+        readAhead = new ReadAhead(this, config.getReadAheadPages());
+        flusher = new BackgroundFlusher(this);
         DeferredIO.getJobProcessor();
         highAddress = 0;
 
@@ -153,7 +171,10 @@ public final class Log implements Closeable {
                     approvedHighAddress = loggable.getAddress() + loggable.length();
                 }
             } catch (ExodusException e) { // if an exception is thrown then last loggable wasn't read correctly
-                logging.error("Exception on Log recovery. Approved high address = " + approvedHighAddress, e);
+                // written type of a loggable is never zero, so zero byte is the start of preallocated space
+                if (readIteratorFrom(approvedHighAddress).next() != 0) {
+                    logging.error("Exception on Log recovery. Approved high address = " + approvedHighAddress, e);
+                }
             }
             setHighAddress(approvedHighAddress);
         }
@@ -219,6 +240,15 @@ public final class Log implements Closeable {
         if (highAddress == this.highAddress) {
             return;
         }
+        readAhead.suspend();
+        try {
+            truncate(highAddress);
+        } finally {
+            readAhead.resume();
+        }
+    }
+
+    private void truncate(final long highAddress) {
         // at first, remove all files which are higher than highAddress
         bufferedWriter.close();
         final LongArrayList blocksToDelete = new LongArrayList();
@@ -245,6 +275,8 @@ public final class Log implements Closeable {
         } else {
             final long oldHighPageAddress = getHighPageAddress();
             this.highAddress = highAddress;
+            // the writer is going to truncate the file which contains new high address
+            reader.truncateBlock(getFileAddress(highAddress), getLastFileLength());
             final long highPageAddress = getHighPageAddress();
             if (oldHighPageAddress != highPageAddress || !bufferedWriter.tryAndUpdateHighAddress(highAddress)) {
                 final int highPageSize = (int) (highAddress - highPageAddress);
@@ -346,12 +378,43 @@ public final class Log implements Closeable {
         return cache == null ? 0 : cache.hitRate();
     }
 
+    public double getOffHeapCacheHitRate() {
+        return cache == null ? 0 : cache.offHeapHitRate();
+    }
+
+    /**
+     * @return number of pages read ahead into the log cache.
+     */
+    public long getReadAheadPages() {
+        return readAhead.getPrefetchedPages();
+    }
+
+    /**
+     * @return number of pages read ahead which were then accessed by sequential reading.
+     */
+    public long getReadAheadUsefulPages() {
+        return readAhead.getUsefulPages();
+    }
+
+    /**
+     * @return number of pages read ahead which weren't accessed or were evicted before the access.
+     */
+    public long getReadAheadWastedPages() {
+        return readAhead.getWastedPages();
+    }
+
     public void addNewFileListener(@NotNull final NewFileListener listener) {
         synchronized (newFileListeners) {
             newFileListeners.add(listener);
         }
     }
 
+    public synchronized void addPageMissListener(@NotNull final PageMissListener listener) {
+        final PageMissListener[] listeners = Arrays.copyOf(pageMissListeners, pageMissListeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        pageMissListeners = listeners;
+    }
+
     /**
      * Reads a random access loggable by specified address in the log.
      *
@@ -479,28 +542,11 @@ public final class Log implements Closeable {
         synchronized (blockAddrs) {
             node = blockAddrs.getMaximumNode();
         }
-        Loggable result = null;
-        if (node != null) {
-            // last file can be empty due to recovery procedure
-            if (getFileSize(node.getKey()) == 0) {
-                node = blockAddrs.getPrevious(node);
-            }
-            while (result == null && node != null) {
-                final long fileAddress = node.getKey();
-                final Iterator<RandomAccessLoggable> it = getLoggableIterator(fileAddress);
-                while (it.hasNext()) {
-                    final Loggable loggable = it.next();
-                    if (loggable.getAddress() >= fileAddress + fileLengthBound) {
-                        break;
-                    }
-                    if (loggable.getType() == type) {
-                        result = loggable;
-                    }
-                }
-                node = blockAddrs.getPrevious(node);
-            }
+        // last file can be empty due to recovery procedure
+        if (node != null && getFileSize(node.getKey()) == 0) {
+            node = blockAddrs.getPrevious(node);
         }
-        return result;
+        return getLastLoggableOfType(type, node, Long.MAX_VALUE);
     }
 
     /**
@@ -514,20 +560,79 @@ public final class Log implements Closeable {
         synchronized (blockAddrs) {
             node = blockAddrs.getLessOrEqual(beforeAddress);
         }
-        Loggable result = null;
-        while (result == null && node != null) {
-            final Iterator<RandomAccessLoggable> it = getLoggableIterator(node.getKey());
-            while (it.hasNext()) {
-                final Loggable loggable = it.next();
-                if (loggable.getAddress() >= beforeAddress) {
-                    break;
-                }
-                if (loggable.getType() == type) {
-                    result = loggable;
+        return getLastLoggableOfType(type, node, beforeAddress);
+    }
+
+    /**
+     * Scans files starting from the specified one backwards. The files are scanned in parallel in batches,
+     * the first batch consists of a single file and each next one is twice as large until it reaches
+     * startup parallelism, so the usual case when the loggable is in the last file costs a single file scan.
+     */
+    @Nullable
+    private Loggable getLastLoggableOfType(final int type,
+                                           @Nullable LongSkipList.SkipListNode node, final long beforeAddress) {
+        int batchSize = 1;
+        while (node != null) {
+            final List<Callable<Loggable>> tasks = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize && node != null; ++i) {
+                final long fileAddress = node.getKey();
+                tasks.add(new Callable<Loggable>() {
+                    @Override
+                    public Loggable call() {
+                        return getLastLoggableOfTypeInFile(type, fileAddress,
+                                Math.min(beforeAddress, fileAddress + fileLengthBound));
+                    }
+                });
+                node = blockAddrs.getPrevious(node);
+            }
+            for (final Loggable result : ParallelTasks.invokeAll(tasks, startupParallelism)) {
+                if (result != null) {
+                    return result;
                 }
             }
-            node = blockAddrs.getPrevious(node);
+            batchSize = Math.min(batchSize * 2, startupParallelism);
+        }
+        return null;
+    }
+
+    @Nullable
+    private Loggable getLastLoggableOfTypeInFile(final int type, final long fileAddress, final long boundAddress) {
+        Loggable result = null;
+        final Iterator<RandomAccessLoggable> it = getLoggableIterator(fileAddress);
+        while (it.hasNext()) {
+            final Loggable loggable = it.next();
+            if (loggable.getAddress() >= boundAddress) {
+                break;
+            }
+            if (loggable.getType() == type) {
+                result = loggable;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return lengths of the blocks got in parallel, since getting length of a file can cost more than
+     * a system call, e.g. reading the index of a compressed file.
+     */
+    static long[] getBlockLengths(@NotNull final Block[] blocks, final int parallelism) {
+        final long[] result = new long[blocks.length];
+        final int chunkSize = ParallelTasks.getChunkSize(blocks.length, parallelism);
+        final List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < blocks.length; i += chunkSize) {
+            final int from = i;
+            final int to = Math.min(blocks.length, i + chunkSize);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int j = from; j < to; ++j) {
+                        result[j] = blocks[j].length();
+                    }
+                    return null;
+                }
+            });
         }
+        ParallelTasks.invokeAll(tasks, parallelism);
         return result;
     }
 
@@ -544,9 +649,29 @@ public final class Log implements Closeable {
         }
     }
 
+    /**
+     * Syncs data written to the log without flushing it, so it can be called concurrently with writing.
+     * All data flushed by the moment of the call is durable after it, because the file is always synced
+     * before it's closed and the next file is created.
+     */
+    public void sync() {
+        bufferedWriter.sync();
+        lastSyncTicks = System.currentTimeMillis();
+    }
+
+    /**
+     * Requests the log to be synced in background. The listener is notified once all data flushed
+     * by the moment of the call is durable.
+     */
+    public void syncAsync(@NotNull final SyncListener listener) {
+        flusher.requestSync(listener);
+    }
+
     @Override
     public void close() {
+        readAhead.close();
         flush(true);
+        flusher.close();
         reader.close();
         bufferedWriter.close();
         release();
@@ -560,14 +685,19 @@ public final class Log implements Closeable {
     }
 
     public void clear() {
-        bufferedWriter.close();
-        synchronized (blockAddrs) {
-            blockAddrs.clear();
+        readAhead.suspend();
+        try {
+            bufferedWriter.close();
+            synchronized (blockAddrs) {
+                blockAddrs.clear();
+            }
+            cache.clear();
+            reader.clear();
+            setBufferedWriter(createEmptyBufferedWriter(bufferedWriter.getChildWriter()));
+            highAddress = 0;
+        } finally {
+            readAhead.resume();
         }
-        cache.clear();
-        reader.clear();
-        setBufferedWriter(createEmptyBufferedWriter(bufferedWriter.getChildWriter()));
-        highAddress = 0;
     }
 
     public void removeFile(final long address) {
@@ -575,6 +705,15 @@ public final class Log implements Closeable {
     }
 
     public void removeFile(final long address, @NotNull final RemoveBlockType rbt) {
+        readAhead.suspend();
+        try {
+            removeFileImpl(address, rbt);
+        } finally {
+            readAhead.resume();
+        }
+    }
+
+    private void removeFileImpl(final long address, @NotNull final RemoveBlockType rbt) {
         // force fsync in order to fix XD-249
         // in order to avoid data loss , it's necessary to make sure that any GC transaction is flushed
         // to underlying physical storage before any file is deleted
@@ -651,22 +790,26 @@ public final class Log implements Closeable {
         return new DataIterator(this, address);
     }
 
-    private static LogCache getSharedCache(final long memoryUsage, final int pageSize, final boolean nonBlocking) {
+    private static LogCache getSharedCache(final long memoryUsage, final int pageSize,
+                                           final boolean nonBlocking, final boolean scanResistant,
+                                           final long offHeapSize) {
         if (sharedCache == null) {
             synchronized (Log.class) {
                 if (sharedCache == null) {
-                    sharedCache = new SharedLogCache(memoryUsage, pageSize, nonBlocking);
+                    sharedCache = new SharedLogCache(memoryUsage, pageSize, nonBlocking, scanResistant, offHeapSize);
                 }
             }
         }
         return sharedCache;
     }
 
-    private static LogCache getSharedCache(final int memoryUsagePercentage, final int pageSize, final boolean nonBlocking) {
+    private static LogCache getSharedCache(final int memoryUsagePercentage, final int pageSize,
+                                           final boolean nonBlocking, final boolean scanResistant,
+                                           final long offHeapSize) {
         if (sharedCache == null) {
             synchronized (Log.class) {
                 if (sharedCache == null) {
-                    sharedCache = new SharedLogCache(memoryUsagePercentage, pageSize, nonBlocking);
+                    sharedCache = new SharedLogCache(memoryUsagePercentage, pageSize, nonBlocking, scanResistant, offHeapSize);
                 }
             }
         }
@@ -768,6 +911,12 @@ public final class Log implements Closeable {
         }
     }
 
+    void notifyPageMissed(final long pageAddress, final long nanos) {
+        for (final PageMissListener listener : pageMissListeners) {
+            listener.pageMissed(pageAddress, nanos);
+        }
+    }
+
     private void notifyFileCreated(long fileAddress) {
         final NewFileListener[] listeners;
         synchronized (newFileListeners) {
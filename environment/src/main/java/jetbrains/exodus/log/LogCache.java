@@ -20,6 +20,7 @@ import jetbrains.exodus.ExodusException;
 import jetbrains.exodus.InvalidSettingException;
 import jetbrains.exodus.util.MathUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.concurrent.ConcurrentLinkedQueue;
 
@@ -36,15 +37,19 @@ abstract class LogCache {
     protected final int memoryUsagePercentage;
     protected final int pageSize;
     protected final int pageSizeLogarithm;
+    @Nullable
+    protected final OffHeapPageCache offHeapCache;
 
     private final ConcurrentLinkedQueue<ArrayByteIterable> freePages = new ConcurrentLinkedQueue<>();
 
     /**
-     * @param memoryUsage amount of memory which the cache is allowed to occupy (in bytes).
-     * @param pageSize    number of bytes in a page.
+     * @param memoryUsage  amount of memory which the cache is allowed to occupy (in bytes).
+     * @param pageSize     number of bytes in a page.
+     * @param offHeapSize  amount of direct memory which the cache is allowed to occupy (in bytes),
+     *                     zero if pages shouldn't be cached off-heap.
      * @throws InvalidSettingException if settings are invalid.
      */
-    protected LogCache(final long memoryUsage, final int pageSize) {
+    protected LogCache(final long memoryUsage, final int pageSize, final long offHeapSize) {
         checkPageSize(pageSize);
         this.pageSize = pageSize;
         if ((pageSizeLogarithm = integerLogarithm(pageSize)) < 0) {
@@ -56,14 +61,17 @@ abstract class LogCache {
         }
         this.memoryUsage = memoryUsage;
         memoryUsagePercentage = 0;
+        offHeapCache = createOffHeapCache(offHeapSize, pageSize, pageSizeLogarithm);
     }
 
     /**
      * @param memoryUsagePercentage amount of memory which the cache is allowed to occupy (in percents to the max memory value).
      * @param pageSize              number of bytes in a page.
+     * @param offHeapSize           amount of direct memory which the cache is allowed to occupy (in bytes),
+     *                              zero if pages shouldn't be cached off-heap.
      * @throws InvalidSettingException if settings are invalid.
      */
-    protected LogCache(final int memoryUsagePercentage, final int pageSize) {
+    protected LogCache(final int memoryUsagePercentage, final int pageSize, final long offHeapSize) {
         checkPageSize(pageSize);
         if (memoryUsagePercentage < MINIMUM_MEM_USAGE_PERCENT) {
             throw new InvalidSettingException("Memory usage percent cannot be less than " + MINIMUM_MEM_USAGE_PERCENT);
@@ -78,6 +86,7 @@ abstract class LogCache {
         final long maxMemory = Runtime.getRuntime().maxMemory();
         memoryUsage = maxMemory == Long.MAX_VALUE ? Long.MAX_VALUE : maxMemory / 100L * (long) memoryUsagePercentage;
         this.memoryUsagePercentage = memoryUsagePercentage;
+        offHeapCache = createOffHeapCache(offHeapSize, pageSize, pageSizeLogarithm);
     }
 
     final void removePage(@NotNull final Log log, final long pageAddress) {
@@ -85,6 +94,28 @@ abstract class LogCache {
         if (page != null) {
             freePages.offer(page);
         }
+        final OffHeapPageCache offHeapCache = this.offHeapCache;
+        if (offHeapCache != null) {
+            offHeapCache.removePage(log.getIdentity(), pageAddress);
+        }
+    }
+
+    double offHeapHitRate() {
+        final OffHeapPageCache offHeapCache = this.offHeapCache;
+        return offHeapCache == null ? 0 : offHeapCache.hitRate();
+    }
+
+    /**
+     * Reads the page into the cache unless it's already cached.
+     *
+     * @return true if the page was read.
+     */
+    final boolean prefetchPage(@NotNull final Log log, final long pageAddress) {
+        if (isCached(log, pageAddress)) {
+            return false;
+        }
+        cachePage(log, pageAddress, readPage(log, pageAddress));
+        return true;
     }
 
     abstract void clear();
@@ -98,11 +129,29 @@ abstract class LogCache {
 
     abstract ArrayByteIterable removePageImpl(@NotNull final Log log, final long pageAddress);
 
+    abstract boolean isCached(@NotNull final Log log, final long pageAddress);
+
     protected ArrayByteIterable readFullPage(Log log, long pageAddress) {
+        log.readAhead.pageMissed(pageAddress);
+        final long started = System.nanoTime();
+        final ArrayByteIterable page = readPage(log, pageAddress);
+        log.notifyPageMissed(pageAddress, System.nanoTime() - started);
+        return page;
+    }
+
+    private ArrayByteIterable readPage(@NotNull final Log log, final long pageAddress) {
         final ArrayByteIterable page = allocPage();
-        if (log.readBytes(page.getBytesUnsafe(), pageAddress) != pageSize) {
+        final byte[] bytes = page.getBytesUnsafe();
+        final OffHeapPageCache offHeapCache = this.offHeapCache;
+        if (offHeapCache != null && offHeapCache.getPage(log.getIdentity(), pageAddress, bytes)) {
+            return page;
+        }
+        if (log.readBytes(bytes, pageAddress) != pageSize) {
             throw new ExodusException("Can't read full page from log [" + log.getLocation() + "] with address " + pageAddress);
         }
+        if (offHeapCache != null) {
+            offHeapCache.cachePage(log.getIdentity(), pageAddress, bytes);
+        }
         return page;
     }
 
@@ -123,6 +172,14 @@ abstract class LogCache {
         }
     }
 
+    @Nullable
+    private static OffHeapPageCache createOffHeapCache(final long offHeapSize, final int pageSize, final int pageSizeLogarithm) {
+        if (offHeapSize < 0) {
+            throw new InvalidSettingException("Off-heap log cache size cannot be negative");
+        }
+        return offHeapSize == 0 ? null : new OffHeapPageCache(offHeapSize, pageSize, pageSizeLogarithm);
+    }
+
     private static int integerLogarithm(int i) {
         final int result = MathUtil.integerLogarithm(i);
         return 1 << result == i ? result : -1;
@@ -16,18 +16,30 @@
 package jetbrains.exodus.log;
 
 import jetbrains.exodus.ExodusException;
+import jetbrains.exodus.io.CompressedFileDataReader;
+import jetbrains.exodus.io.CompressedFileDataWriter;
+import jetbrains.exodus.io.CompressedLogFiles;
 import jetbrains.exodus.io.DataReader;
 import jetbrains.exodus.io.DataWriter;
 import jetbrains.exodus.io.FileDataReader;
 import jetbrains.exodus.io.FileDataWriter;
+import jetbrains.exodus.io.MappedFileDataReader;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 
 public class LogConfig {
 
     private static final int DEFAULT_FILE_SIZE = 1024; // in kilobytes
     private static final int DEFAULT_SYNC_PERIOD = 1000; // in milliseconds
+    private static final int DEFAULT_STARTUP_PARALLELISM = 1;
+    /**
+     * Presence of this file in the log directory means that the log is compressed.
+     */
+    public static final String COMPRESSED_LOG_MARKER = "xd.compressed";
+    private static final byte[] COMPRESSED_LOG_MARKER_CONTENT = {'l', 'z', '4'}; // compression algorithm
 
     private File dir;
     private long fileSize;
@@ -39,11 +51,19 @@ public class LogConfig {
     private boolean isDurableWrite;
     private boolean sharedCache;
     private boolean nonBlockingCache;
+    private boolean scanResistantCache;
+    private int readAheadPages;
     private int cachePageSize;
     private int cacheOpenFilesCount;
+    private boolean mappedFiles;
+    private boolean preallocate;
+    private boolean compressed;
+    private CompressedLogFiles compressedFiles;
+    private long offHeapCacheSize;
     private boolean cleanDirectoryExpected;
     private boolean clearInvalidLog;
     private long syncPeriod;
+    private int startupParallelism;
 
     public void setDir(@NotNull final File dir) {
         this.dir = dir;
@@ -89,7 +109,13 @@ public class LogConfig {
 
     public DataReader getReader() {
         if (reader == null) {
-            reader = new FileDataReader(checkDirectory(dir), getCacheOpenFilesCount());
+            final File directory = checkDirectory(dir);
+            final int openFiles = getCacheOpenFilesCount();
+            if (isCompressed()) {
+                reader = new CompressedFileDataReader(directory, openFiles, getCompressedFiles());
+            } else {
+                reader = mappedFiles ? new MappedFileDataReader(directory, openFiles) : new FileDataReader(directory, openFiles);
+            }
         }
         return reader;
     }
@@ -100,7 +126,13 @@ public class LogConfig {
 
     public DataWriter getWriter() {
         if (writer == null) {
-            writer = new FileDataWriter(checkDirectory(dir));
+            final File directory = checkDirectory(dir);
+            if (isCompressed()) {
+                markCompressed(directory);
+                writer = new CompressedFileDataWriter(directory, getCompressedFiles());
+            } else {
+                writer = new FileDataWriter(directory, preallocate ? getFileSize() * 1024 : 0);
+            }
         }
         return writer;
     }
@@ -133,6 +165,22 @@ public class LogConfig {
         this.nonBlockingCache = nonBlockingCache;
     }
 
+    public boolean isScanResistantCache() {
+        return scanResistantCache;
+    }
+
+    public void setScanResistantCache(boolean scanResistantCache) {
+        this.scanResistantCache = scanResistantCache;
+    }
+
+    public int getReadAheadPages() {
+        return readAheadPages;
+    }
+
+    public void setReadAheadPages(int readAheadPages) {
+        this.readAheadPages = readAheadPages;
+    }
+
     public int getCachePageSize() {
         if (cachePageSize == 0) {
             cachePageSize = LogCache.MINIMUM_PAGE_SIZE;
@@ -155,6 +203,46 @@ public class LogConfig {
         this.cacheOpenFilesCount = cacheOpenFilesCount;
     }
 
+    public long getOffHeapCacheSize() {
+        return offHeapCacheSize;
+    }
+
+    public void setOffHeapCacheSize(long offHeapCacheSize) {
+        this.offHeapCacheSize = offHeapCacheSize;
+    }
+
+    public boolean isMappedFiles() {
+        return mappedFiles;
+    }
+
+    public void setMappedFiles(boolean mappedFiles) {
+        this.mappedFiles = mappedFiles;
+    }
+
+    public boolean isPreallocate() {
+        return preallocate;
+    }
+
+    public void setPreallocate(boolean preallocate) {
+        this.preallocate = preallocate;
+    }
+
+    /**
+     * @return true if the log is configured to be compressed or it was compressed before.
+     */
+    public boolean isCompressed() {
+        return compressed || (dir != null && new File(dir, COMPRESSED_LOG_MARKER).exists());
+    }
+
+    /**
+     * If set, new log files are written page-compressed. The setting is persisted in the log directory, so
+     * the log remains compressed after it's reopened without the setting. Memory mapping and preallocation
+     * of files are not applicable to compressed files, so these settings are ignored.
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
     public void setCleanDirectoryExpected(boolean cleanDirectoryExpected) {
         this.cleanDirectoryExpected = cleanDirectoryExpected;
     }
@@ -178,6 +266,43 @@ public class LogConfig {
         this.syncPeriod = syncPeriod;
     }
 
+    /**
+     * @return number of threads scanning log files on startup.
+     */
+    public int getStartupParallelism() {
+        if (startupParallelism == 0) {
+            startupParallelism = DEFAULT_STARTUP_PARALLELISM;
+        }
+        return startupParallelism;
+    }
+
+    public void setStartupParallelism(int startupParallelism) {
+        this.startupParallelism = startupParallelism;
+    }
+
+    /**
+     * Creates the marker of compressed log. It isn't empty, since backups skip empty files.
+     */
+    private static void markCompressed(@NotNull final File directory) {
+        final File marker = new File(directory, COMPRESSED_LOG_MARKER);
+        if (marker.length() > 0) {
+            return;
+        }
+        try (FileOutputStream output = new FileOutputStream(marker)) {
+            output.write(COMPRESSED_LOG_MARKER_CONTENT);
+            output.getFD().sync();
+        } catch (IOException e) {
+            throw new ExodusException("Failed to create " + marker.getAbsolutePath(), e);
+        }
+    }
+
+    private CompressedLogFiles getCompressedFiles() {
+        if (compressedFiles == null) {
+            compressedFiles = new CompressedLogFiles(dir, getCachePageSize(), getCacheOpenFilesCount());
+        }
+        return compressedFiles;
+    }
+
     private File checkDirectory(@NotNull final File directory) {
         if (directory.isFile()) {
             throw new ExodusException("A directory is required: " + directory);
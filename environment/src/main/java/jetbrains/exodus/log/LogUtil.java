@@ -16,6 +16,7 @@
 package jetbrains.exodus.log;
 
 import jetbrains.exodus.core.dataStructures.hash.IntHashMap;
+import jetbrains.exodus.io.CompressedLogFiles;
 import jetbrains.exodus.util.IOUtil;
 import org.jetbrains.annotations.NotNull;
 
@@ -72,6 +73,16 @@ public final class LogUtil {
         return new String(name);
     }
 
+    /**
+     * @return true if the file with specified name is a log file or a file which is necessary to read the log,
+     * i.e. a tail file of a compressed log file or the marker of compressed log.
+     */
+    public static boolean isLogRelatedFile(@NotNull final String fileName) {
+        return fileName.endsWith(LOG_FILE_EXTENSION) ||
+                fileName.endsWith(LOG_FILE_EXTENSION + CompressedLogFiles.TAIL_FILE_EXTENSION) ||
+                fileName.equals(LogConfig.COMPRESSED_LOG_MARKER);
+    }
+
     public static long getAddress(final String logFilename) {
         final int length = logFilename.length();
         if (length != LOG_FILE_NAME_WITH_EXT_LENGTH || !logFilename.endsWith(LOG_FILE_EXTENSION)) {
@@ -0,0 +1,193 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log;
+
+import jetbrains.exodus.InvalidSettingException;
+import jetbrains.exodus.core.dataStructures.IntArrayList;
+import jetbrains.exodus.core.dataStructures.ObjectCache;
+import jetbrains.exodus.core.dataStructures.ObjectCacheBase;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Second level log cache which keeps pages outside of the Java heap in direct memory slabs pre-allocated
+ * on creation. Heap log cache falls back to this cache on miss, so the heap holds only the hottest pages,
+ * whereas the bulk of cached data is not scanned by the garbage collector. The cache is split into segments
+ * each having its own slab, lock and eviction queue. Pages are copied to and from slabs under the segment lock.
+ */
+final class OffHeapPageCache {
+
+    private static final int MIN_SEGMENTS_COUNT = 16;
+    private static final long MAX_SLAB_SIZE = 1 << 30;
+
+    private final int pageSize;
+    private final int pageSizeLogarithm;
+    @NotNull
+    private final Segment[] segments;
+
+    OffHeapPageCache(final long size, final int pageSize, final int pageSizeLogarithm) {
+        this.pageSize = pageSize;
+        this.pageSizeLogarithm = pageSizeLogarithm;
+        final int segmentsCount = (int) Math.max(MIN_SEGMENTS_COUNT, (size + MAX_SLAB_SIZE - 1) / MAX_SLAB_SIZE);
+        final int pagesPerSegment = (int) (size / segmentsCount / pageSize);
+        if (pagesPerSegment <= ObjectCacheBase.MIN_SIZE) {
+            throw new InvalidSettingException("Off-heap log cache size is too small: " + size);
+        }
+        segments = new Segment[segmentsCount];
+        for (int i = 0; i < segmentsCount; ++i) {
+            segments[i] = new Segment(pagesPerSegment);
+        }
+    }
+
+    boolean getPage(final int logIdentity, final long pageAddress, final byte[] output) {
+        final long adjustedPageAddress = pageAddress >> pageSizeLogarithm;
+        return getSegment(logIdentity, adjustedPageAddress).getPage(new CacheKey(logIdentity, adjustedPageAddress), output);
+    }
+
+    void cachePage(final int logIdentity, final long pageAddress, final byte[] page) {
+        final long adjustedPageAddress = pageAddress >> pageSizeLogarithm;
+        getSegment(logIdentity, adjustedPageAddress).cachePage(new CacheKey(logIdentity, adjustedPageAddress), page);
+    }
+
+    void removePage(final int logIdentity, final long pageAddress) {
+        final long adjustedPageAddress = pageAddress >> pageSizeLogarithm;
+        getSegment(logIdentity, adjustedPageAddress).removePage(new CacheKey(logIdentity, adjustedPageAddress));
+    }
+
+    void clear() {
+        for (final Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    double hitRate() {
+        double result = 0;
+        for (final Segment segment : segments) {
+            result += segment.slots.hitRate();
+        }
+        return result / segments.length;
+    }
+
+    private Segment getSegment(final int logIdentity, final long adjustedPageAddress) {
+        return segments[(int) (((adjustedPageAddress ^ logIdentity) & Long.MAX_VALUE) % segments.length)];
+    }
+
+    private final class Segment {
+
+        @NotNull
+        private final ByteBuffer slab;
+        /**
+         * Maps keys of cached pages to their slot numbers in the slab. Its size is by one less than the number
+         * of slots, so there is always a free slot to place a new page before the cache pushes out an old one.
+         */
+        @NotNull
+        private final ObjectCache<CacheKey, Integer> slots;
+        @NotNull
+        private final IntArrayList freeSlots;
+        private final int slotsCount;
+        private int allocatedSlots;
+
+        private Segment(final int slotsCount) {
+            slab = ByteBuffer.allocateDirect(slotsCount * pageSize);
+            slots = new ObjectCache<>(slotsCount - 1);
+            freeSlots = new IntArrayList();
+            this.slotsCount = slotsCount;
+            allocatedSlots = 0;
+        }
+
+        private boolean getPage(@NotNull final CacheKey key, final byte[] output) {
+            slots.lock();
+            try {
+                final Integer slot = slots.tryKey(key);
+                if (slot == null) {
+                    return false;
+                }
+                final ByteBuffer view = slab.duplicate();
+                view.position(slot * pageSize);
+                view.get(output, 0, pageSize);
+                return true;
+            } finally {
+                slots.unlock();
+            }
+        }
+
+        private void cachePage(@NotNull final CacheKey key, final byte[] page) {
+            slots.lock();
+            try {
+                if (slots.getObject(key) == null) {
+                    final int slot = freeSlots.isEmpty() ? allocatedSlots++ : freeSlots.remove(freeSlots.size() - 1);
+                    if (slot >= slotsCount) {
+                        throw new IllegalStateException("Off-heap log cache has no free slots");
+                    }
+                    final ByteBuffer view = slab.duplicate();
+                    view.position(slot * pageSize);
+                    view.put(page, 0, pageSize);
+                    final Integer pushedOut = slots.cacheObject(key, slot);
+                    if (pushedOut != null) {
+                        freeSlots.add(pushedOut);
+                    }
+                }
+            } finally {
+                slots.unlock();
+            }
+        }
+
+        private void removePage(@NotNull final CacheKey key) {
+            slots.lock();
+            try {
+                final Integer slot = slots.remove(key);
+                if (slot != null) {
+                    freeSlots.add(slot);
+                }
+            } finally {
+                slots.unlock();
+            }
+        }
+
+        private void clear() {
+            slots.lock();
+            try {
+                slots.clear();
+                freeSlots.clear();
+                allocatedSlots = 0;
+            } finally {
+                slots.unlock();
+            }
+        }
+    }
+
+    private static final class CacheKey {
+
+        private final int logIdentity;
+        private final long address;
+
+        private CacheKey(final int logIdentity, final long address) {
+            this.logIdentity = logIdentity;
+            this.address = address;
+        }
+
+        @SuppressWarnings({"EqualsWhichDoesntCheckParameterClass"})
+        public boolean equals(Object obj) {
+            final CacheKey key = (CacheKey) obj;
+            return address == key.address && logIdentity == key.logIdentity;
+        }
+
+        public int hashCode() {
+            return (logIdentity ^ (int) address) + (logIdentity << 16);
+        }
+    }
+}
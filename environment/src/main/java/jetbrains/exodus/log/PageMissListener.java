@@ -0,0 +1,27 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log;
+
+public interface PageMissListener {
+
+    /**
+     * Is called after a page missed in the log cache is read.
+     *
+     * @param pageAddress address of the page.
+     * @param nanos       time spent reading the page in nanoseconds.
+     */
+    void pageMissed(long pageAddress, long nanos);
+}
@@ -17,6 +17,7 @@ package jetbrains.exodus.log;
 
 import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.util.ByteIterableUtil;
 import org.jetbrains.annotations.NotNull;
 
 class RandomAccessByteIterable extends ByteIterableWithAddress {
@@ -69,12 +70,14 @@ class RandomAccessByteIterable extends ByteIterableWithAddress {
 
         while (true) {
             int limit = Math.min(len, Math.min(leftLen - leftStep, rightLen));
-            while (rightStep < limit) {
-                byte b1 = leftArray[leftStep++];
-                byte b2 = rightArray[rightStep++];
-                if (b1 != b2) {
-                    return (b1 & 0xff) - (b2 & 0xff);
+            if (rightStep < limit) {
+                final int count = limit - rightStep;
+                final int cmp = ByteIterableUtil.compare(leftArray, leftStep, rightArray, rightStep, count);
+                if (cmp != 0) {
+                    return cmp;
                 }
+                leftStep += count;
+                rightStep = limit;
             }
             if (rightStep == rightLen || alignedAddress >= endAddress) {
                 return len - rightLen;
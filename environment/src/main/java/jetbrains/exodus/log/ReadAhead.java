@@ -0,0 +1,207 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log;
+
+import jetbrains.exodus.core.execution.Job;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Detects sequential reading of the log and reads pages ahead into the log cache in background.
+ * Detection works on log cache misses: up to {@link #STREAMS_COUNT} concurrent sequential streams are tracked,
+ * and once a stream misses {@link #SEQUENTIAL_MISSES_THRESHOLD} successive pages, next pages of the window
+ * are read in {@link ReadAheadJobProcessor}. Each subsequent miss of the stream shifts the window.
+ * <p>
+ * A prefetched page is considered useful if the stream passes over it, otherwise it's considered wasted
+ * (the stream is abandoned before reaching the page, or the page is evicted or still not read when the stream
+ * reaches it). Read-ahead is disabled if the window size is zero.
+ */
+final class ReadAhead {
+
+    private static final int STREAMS_COUNT = 8;
+    private static final int SEQUENTIAL_MISSES_THRESHOLD = 2;
+
+    @NotNull
+    private final Log log;
+    private final int windowPages;
+    private final int pageSize;
+    @NotNull
+    private final Stream[] streams;
+    private int nextStreamToReplace;
+    /**
+     * Prefetching jobs read pages holding the read lock. The log holds the write lock while truncating or
+     * removing files, so stale pages can't get into the cache.
+     */
+    @NotNull
+    private final ReadWriteLock lock;
+    private volatile boolean closed;
+    private final AtomicLong prefetchedPages;
+    private final AtomicLong usefulPages;
+    private final AtomicLong wastedPages;
+
+    ReadAhead(@NotNull final Log log, final int windowPages) {
+        this.log = log;
+        this.windowPages = windowPages;
+        pageSize = log.getCachePageSize();
+        streams = new Stream[STREAMS_COUNT];
+        for (int i = 0; i < STREAMS_COUNT; ++i) {
+            streams[i] = new Stream();
+        }
+        nextStreamToReplace = 0;
+        lock = new ReentrantReadWriteLock();
+        closed = false;
+        prefetchedPages = new AtomicLong();
+        usefulPages = new AtomicLong();
+        wastedPages = new AtomicLong();
+    }
+
+    long getPrefetchedPages() {
+        return prefetchedPages.get();
+    }
+
+    long getUsefulPages() {
+        return usefulPages.get();
+    }
+
+    long getWastedPages() {
+        return wastedPages.get();
+    }
+
+    void pageMissed(final long pageAddress) {
+        if (windowPages <= 0 || closed) {
+            return;
+        }
+        final long from;
+        final long to;
+        synchronized (streams) {
+            Stream stream = null;
+            for (final Stream s : streams) {
+                if (s.lastMissed < pageAddress && pageAddress <= Math.max(s.lastMissed + pageSize, s.prefetchedTo)) {
+                    stream = s;
+                    break;
+                }
+            }
+            if (stream == null) {
+                stream = streams[nextStreamToReplace];
+                nextStreamToReplace = (nextStreamToReplace + 1) % STREAMS_COUNT;
+                final long notReached = stream.prefetchedTo - stream.lastMissed - pageSize;
+                if (notReached > 0) {
+                    wastedPages.addAndGet(notReached / pageSize);
+                }
+                stream.lastMissed = pageAddress;
+                stream.prefetchedTo = pageAddress + pageSize;
+                stream.misses = 1;
+                return;
+            }
+            final long passedPrefetched = Math.min(pageAddress, stream.prefetchedTo) - stream.lastMissed - pageSize;
+            if (passedPrefetched > 0) {
+                usefulPages.addAndGet(passedPrefetched / pageSize);
+            }
+            if (pageAddress < stream.prefetchedTo) {
+                // the page was prefetched, but it's either evicted or still not read
+                wastedPages.incrementAndGet();
+            }
+            stream.lastMissed = pageAddress;
+            if (++stream.misses < SEQUENTIAL_MISSES_THRESHOLD) {
+                return;
+            }
+            from = Math.max(stream.prefetchedTo, pageAddress + pageSize);
+            to = pageAddress + (long) pageSize * (windowPages + 1);
+            if (from >= to) {
+                return;
+            }
+            stream.prefetchedTo = to;
+        }
+        ReadAheadJobProcessor.getInstance().queue(new ReadAheadJob(from, to));
+    }
+
+    /**
+     * Stops prefetching until {@link #resume()} is called and waits for running prefetching jobs.
+     */
+    void suspend() {
+        lock.writeLock().lock();
+    }
+
+    void resume() {
+        lock.writeLock().unlock();
+    }
+
+    void close() {
+        suspend();
+        try {
+            closed = true;
+        } finally {
+            resume();
+        }
+    }
+
+    private final class ReadAheadJob extends Job {
+
+        private final long from;
+        private final long to;
+
+        private ReadAheadJob(final long from, final long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void execute() throws Throwable {
+            final Lock readLock = lock.readLock();
+            if (!readLock.tryLock()) {
+                return;
+            }
+            try {
+                for (long pageAddress = from; pageAddress < to && !closed; pageAddress += pageSize) {
+                    // only pages preceding the high page are completely written to the file
+                    if (pageAddress + pageSize >= log.getHighAddress()) {
+                        break;
+                    }
+                    try {
+                        if (log.cache.prefetchPage(log, pageAddress)) {
+                            prefetchedPages.incrementAndGet();
+                        }
+                    } catch (BlockNotFoundException e) {
+                        break;
+                    }
+                }
+            } finally {
+                readLock.unlock();
+            }
+        }
+
+        @Override
+        public String getName() {
+            return "Read log pages ahead";
+        }
+
+        @Override
+        public String getGroup() {
+            return log.getLocation();
+        }
+    }
+
+    private static final class Stream {
+
+        private long lastMissed = Long.MIN_VALUE / 2;
+        private long prefetchedTo = Long.MIN_VALUE / 2;
+        private int misses = 0;
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log;
+
+import jetbrains.exodus.core.execution.Job;
+import jetbrains.exodus.core.execution.JobProcessor;
+import jetbrains.exodus.core.execution.JobProcessorExceptionHandler;
+import jetbrains.exodus.core.execution.MultiThreadDelegatingJobProcessor;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Pool of threads shared by all logs to read pages ahead.
+ */
+final class ReadAheadJobProcessor extends MultiThreadDelegatingJobProcessor {
+
+    private static final String THREAD_NAME = "Exodus shared log read-ahead job processor";
+    private static final Log logging = LogFactory.getLog(ReadAheadJobProcessor.class);
+    private static final int MAX_THREAD_COUNT = 4;
+
+    private static volatile ReadAheadJobProcessor instance = null;
+
+    private ReadAheadJobProcessor() {
+        super(THREAD_NAME, Math.min(MAX_THREAD_COUNT, Runtime.getRuntime().availableProcessors()));
+        setExceptionHandler(new JobProcessorExceptionHandler() {
+            @Override
+            public void handle(final JobProcessor processor, final Job job, final Throwable t) {
+                logging.error("Failed to read log pages ahead", t);
+            }
+        });
+        start();
+    }
+
+    static ReadAheadJobProcessor getInstance() {
+        if (instance == null) {
+            synchronized (ReadAheadJobProcessor.class) {
+                if (instance == null) {
+                    instance = new ReadAheadJobProcessor();
+                }
+            }
+        }
+        return instance;
+    }
+}
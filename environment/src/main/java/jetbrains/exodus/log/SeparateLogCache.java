@@ -19,6 +19,7 @@ import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.core.dataStructures.ConcurrentLongObjectCache;
 import jetbrains.exodus.core.dataStructures.LongObjectCache;
 import jetbrains.exodus.core.dataStructures.LongObjectCacheBase;
+import jetbrains.exodus.core.dataStructures.TinyLfuLongObjectCache;
 import org.jetbrains.annotations.NotNull;
 
 final class SeparateLogCache extends LogCache {
@@ -26,27 +27,23 @@ final class SeparateLogCache extends LogCache {
     @NotNull
     private final LongObjectCacheBase<ArrayByteIterable> pagesCache;
 
-    SeparateLogCache(final long memoryUsage, final int pageSize, final boolean nonBlocking) {
-        super(memoryUsage, pageSize);
+    SeparateLogCache(final long memoryUsage, final int pageSize, final boolean nonBlocking,
+                     final boolean scanResistant, final long offHeapSize) {
+        super(memoryUsage, pageSize, offHeapSize);
         final int pagesCount = (int) (memoryUsage / (pageSize +
                 /* each page consumes additionally nearly 80 bytes in the cache */ 80));
-        pagesCache = nonBlocking ?
-                new ConcurrentLongObjectCache<ArrayByteIterable>(pagesCount, CONCURRENT_CACHE_GENERATION_COUNT) :
-                new LongObjectCache<ArrayByteIterable>(pagesCount);
+        pagesCache = createPagesCache(pagesCount, nonBlocking, scanResistant);
     }
 
-    SeparateLogCache(final int memoryUsagePercentage, final int pageSize, final boolean nonBlocking) {
-        super(memoryUsagePercentage, pageSize);
+    SeparateLogCache(final int memoryUsagePercentage, final int pageSize, final boolean nonBlocking,
+                     final boolean scanResistant, final long offHeapSize) {
+        super(memoryUsagePercentage, pageSize, offHeapSize);
         if (memoryUsage == Long.MAX_VALUE) {
-            pagesCache = nonBlocking ?
-                    new ConcurrentLongObjectCache<ArrayByteIterable>(LongObjectCacheBase.DEFAULT_SIZE, CONCURRENT_CACHE_GENERATION_COUNT) :
-                    new LongObjectCache<ArrayByteIterable>();
+            pagesCache = createPagesCache(LongObjectCacheBase.DEFAULT_SIZE, nonBlocking, scanResistant);
         } else {
             final int pagesCount = (int) (memoryUsage / (pageSize +
                     /* each page consumes additionally nearly 80 bytes in the cache */ 80));
-            pagesCache = nonBlocking ?
-                    new ConcurrentLongObjectCache<ArrayByteIterable>(pagesCount, CONCURRENT_CACHE_GENERATION_COUNT) :
-                    new LongObjectCache<ArrayByteIterable>(pagesCount);
+            pagesCache = createPagesCache(pagesCount, nonBlocking, scanResistant);
         }
     }
 
@@ -58,6 +55,9 @@ final class SeparateLogCache extends LogCache {
         } finally {
             pagesCache.unlock();
         }
+        if (offHeapCache != null) {
+            offHeapCache.clear();
+        }
     }
 
     @Override
@@ -97,6 +97,16 @@ final class SeparateLogCache extends LogCache {
         }
     }
 
+    @Override
+    boolean isCached(@NotNull final Log log, final long pageAddress) {
+        pagesCache.lock();
+        try {
+            return pagesCache.isCached(pageAddress >> pageSizeLogarithm);
+        } finally {
+            pagesCache.unlock();
+        }
+    }
+
     private void cachePage(final long cacheKey, @NotNull final ArrayByteIterable page) {
         pagesCache.lock();
         try {
@@ -107,4 +117,15 @@ final class SeparateLogCache extends LogCache {
             pagesCache.unlock();
         }
     }
+
+    private static LongObjectCacheBase<ArrayByteIterable> createPagesCache(final int pagesCount,
+                                                                            final boolean nonBlocking,
+                                                                            final boolean scanResistant) {
+        if (scanResistant) {
+            return new TinyLfuLongObjectCache<>(pagesCount);
+        }
+        return nonBlocking ?
+                new ConcurrentLongObjectCache<ArrayByteIterable>(pagesCount, CONCURRENT_CACHE_GENERATION_COUNT) :
+                new LongObjectCache<ArrayByteIterable>(pagesCount);
+    }
 }
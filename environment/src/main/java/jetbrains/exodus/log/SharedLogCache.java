@@ -19,6 +19,7 @@ import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.core.dataStructures.ConcurrentObjectCache;
 import jetbrains.exodus.core.dataStructures.ObjectCache;
 import jetbrains.exodus.core.dataStructures.ObjectCacheBase;
+import jetbrains.exodus.core.dataStructures.TinyLfuObjectCache;
 import org.jetbrains.annotations.NotNull;
 
 final class SharedLogCache extends LogCache {
@@ -26,27 +27,23 @@ final class SharedLogCache extends LogCache {
     @NotNull
     private final ObjectCacheBase<CacheKey, ArrayByteIterable> pagesCache;
 
-    SharedLogCache(final long memoryUsage, final int pageSize, final boolean nonBlocking) {
-        super(memoryUsage, pageSize);
+    SharedLogCache(final long memoryUsage, final int pageSize, final boolean nonBlocking,
+                   final boolean scanResistant, final long offHeapSize) {
+        super(memoryUsage, pageSize, offHeapSize);
         final int pagesCount = (int) (memoryUsage / (pageSize +
                 /* each page consumes additionally nearly 104 bytes in the cache */ 104));
-        pagesCache = nonBlocking ?
-                new ConcurrentObjectCache<CacheKey, ArrayByteIterable>(pagesCount, CONCURRENT_CACHE_GENERATION_COUNT) :
-                new ObjectCache<CacheKey, ArrayByteIterable>(pagesCount);
+        pagesCache = createPagesCache(pagesCount, nonBlocking, scanResistant);
     }
 
-    SharedLogCache(final int memoryUsagePercentage, final int pageSize, final boolean nonBlocking) {
-        super(memoryUsagePercentage, pageSize);
+    SharedLogCache(final int memoryUsagePercentage, final int pageSize, final boolean nonBlocking,
+                   final boolean scanResistant, final long offHeapSize) {
+        super(memoryUsagePercentage, pageSize, offHeapSize);
         if (memoryUsage == Long.MAX_VALUE) {
-            pagesCache = nonBlocking ?
-                    new ConcurrentObjectCache<CacheKey, ArrayByteIterable>(ObjectCacheBase.DEFAULT_SIZE, CONCURRENT_CACHE_GENERATION_COUNT) :
-                    new ObjectCache<CacheKey, ArrayByteIterable>();
+            pagesCache = createPagesCache(ObjectCacheBase.DEFAULT_SIZE, nonBlocking, scanResistant);
         } else {
             final int pagesCount = (int) (memoryUsage / (pageSize +
                     /* each page consumes additionally nearly 104 bytes in the cache */ 104));
-            pagesCache = nonBlocking ?
-                    new ConcurrentObjectCache<CacheKey, ArrayByteIterable>(pagesCount, CONCURRENT_CACHE_GENERATION_COUNT) :
-                    new ObjectCache<CacheKey, ArrayByteIterable>(pagesCount);
+            pagesCache = createPagesCache(pagesCount, nonBlocking, scanResistant);
         }
     }
 
@@ -97,6 +94,17 @@ final class SharedLogCache extends LogCache {
         }
     }
 
+    @Override
+    boolean isCached(@NotNull final Log log, final long pageAddress) {
+        final CacheKey cacheKey = new CacheKey(log.getIdentity(), pageAddress >> pageSizeLogarithm);
+        pagesCache.lock();
+        try {
+            return pagesCache.isCached(cacheKey);
+        } finally {
+            pagesCache.unlock();
+        }
+    }
+
     private void cachePage(@NotNull final CacheKey cacheKey, @NotNull final ArrayByteIterable page) {
         pagesCache.lock();
         try {
@@ -108,6 +116,17 @@ final class SharedLogCache extends LogCache {
         }
     }
 
+    private static ObjectCacheBase<CacheKey, ArrayByteIterable> createPagesCache(final int pagesCount,
+                                                                                  final boolean nonBlocking,
+                                                                                  final boolean scanResistant) {
+        if (scanResistant) {
+            return new TinyLfuObjectCache<>(pagesCount);
+        }
+        return nonBlocking ?
+                new ConcurrentObjectCache<CacheKey, ArrayByteIterable>(pagesCount, CONCURRENT_CACHE_GENERATION_COUNT) :
+                new ObjectCache<CacheKey, ArrayByteIterable>(pagesCount);
+    }
+
     private static final class CacheKey {
 
         private final int logIdentity;
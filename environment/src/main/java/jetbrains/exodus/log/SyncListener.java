@@ -0,0 +1,28 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log;
+
+import org.jetbrains.annotations.Nullable;
+
+public interface SyncListener {
+
+    /**
+     * Is called once data flushed to the log before the sync was requested is durable or the sync failed.
+     *
+     * @param error null if the sync succeeded, otherwise the reason of failure.
+     */
+    void synced(@Nullable Throwable error);
+}
@@ -38,6 +38,14 @@ public interface ITree {
     @Nullable
     ByteIterable get(@NotNull final ByteIterable key);
 
+    /**
+     * Gets values by several keys at once. Pages or nodes common to paths to several keys are read only once.
+     *
+     * @param keys   keys sorted in ascending order.
+     * @param values array of the same length as keys to put values to, value is null if its key is not found.
+     */
+    void getAll(@NotNull final ByteIterable[] keys, @NotNull final ByteIterable[] values);
+
     boolean hasPair(@NotNull final ByteIterable key, @NotNull final ByteIterable value);
 
     boolean hasKey(@NotNull final ByteIterable key);
@@ -53,7 +61,7 @@ public interface ITree {
 
     LongIterator addressIterator();
 
-    void setTreeNodesCache(@Nullable final LongObjectCacheBase cache);
+    void setTreeNodesCache(@Nullable final LongObjectCacheBase<Object> cache);
 
     void dump(PrintStream out);
 
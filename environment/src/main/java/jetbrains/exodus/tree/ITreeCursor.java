@@ -103,6 +103,16 @@ public interface ITreeCursor extends Cursor {
             return null;
         }
 
+        @Override
+        public boolean getByIndex(long index) {
+            return false;
+        }
+
+        @Override
+        public long getIndex() {
+            return -1;
+        }
+
         @Override
         public int count() {
             return 0;
@@ -16,6 +16,7 @@
 package jetbrains.exodus.tree;
 
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.log.Loggable;
 import jetbrains.exodus.log.RandomAccessLoggable;
 import org.jetbrains.annotations.NotNull;
@@ -54,6 +55,15 @@ public interface ITreeMutable extends ITree {
      */
     void putRight(@NotNull final ByteIterable key, @NotNull final ByteIterable value);
 
+    /**
+     * Add key/value pairs sorted by key (and by value in duplicates tree) which are all greater than
+     * any pair in the tree. Equivalent to sequential calls of {@link #putRight(ByteIterable, ByteIterable)},
+     * but an empty tree can be built at once without repeated splitting of its pages.
+     *
+     * @param pairs sorted key/value pairs.
+     */
+    void putAllRight(@NotNull final Iterator<Pair<ByteIterable, ByteIterable>> pairs);
+
     /**
      * If tree supports duplicates and key already exists, then return false.
      * If tree supports duplicates and key doesn't exists, then add key/value pair, return true.
@@ -16,6 +16,7 @@
 package jetbrains.exodus.tree;
 
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.env.Cursor;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -209,6 +210,16 @@ public class TreeCursor implements ITreeCursor {
         return moveTo(key, value, true);
     }
 
+    @Override
+    public boolean getByIndex(final long index) {
+        return getByIndexIteratively(this, index);
+    }
+
+    @Override
+    public long getIndex() {
+        return inited ? getIndexIteratively(getTree(), getKey(), getValue()) : -1;
+    }
+
     @Override
     public int count() {
         return 1;
@@ -246,4 +257,37 @@ public class TreeCursor implements ITreeCursor {
         return null;
     }
 
+    /**
+     * Moves the cursor to the record with specified index by iterating records from the first one.
+     */
+    public static boolean getByIndexIteratively(@NotNull final Cursor cursor, long index) {
+        if (index < 0 || cursor.getSearchKeyRange(ByteIterable.EMPTY) == null) {
+            return false;
+        }
+        while (index-- > 0) {
+            if (!cursor.getNext()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets index of the record by iterating records of the tree from the first one.
+     */
+    public static long getIndexIteratively(@NotNull final ITree tree,
+                                           @NotNull final ByteIterable key,
+                                           @NotNull final ByteIterable value) {
+        long result = 0;
+        try (ITreeCursor cursor = tree.openCursor()) {
+            while (cursor.getNext()) {
+                final int cmp = cursor.getKey().compareTo(key);
+                if (cmp > 0 || (cmp == 0 && cursor.getValue().compareTo(value) >= 0)) {
+                    break;
+                }
+                ++result;
+            }
+        }
+        return result;
+    }
 }
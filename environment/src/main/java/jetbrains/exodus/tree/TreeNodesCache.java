@@ -0,0 +1,47 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.tree;
+
+import jetbrains.exodus.core.dataStructures.WeightedLongObjectCache;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Cache of decoded tree nodes keyed by their addresses and bounded by estimated memory held by the nodes.
+ */
+public final class TreeNodesCache extends WeightedLongObjectCache<Object> {
+
+    private static final int DEFAULT_WEIGHT = 128;
+
+    public TreeNodesCache(final long memory) {
+        super(memory);
+    }
+
+    @Override
+    protected int getWeight(@NotNull final Object node) {
+        return node instanceof Weighted ? ((Weighted) node).getWeight() : DEFAULT_WEIGHT;
+    }
+
+    /**
+     * Decoded node which can estimate memory it holds.
+     */
+    public interface Weighted {
+
+        /**
+         * @return estimated number of bytes of heap memory held by the node.
+         */
+        int getWeight();
+    }
+}
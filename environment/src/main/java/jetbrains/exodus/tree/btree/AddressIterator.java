@@ -48,6 +48,15 @@ public class AddressIterator implements LongIterator {
 
     @Override
     public long next() {
+        long result;
+        // leaves inline in bottom pages have no addresses, the root address is always the last one
+        do {
+            result = nextAddress();
+        } while (result == Loggable.NULL_ADDRESS && hasNext());
+        return result;
+    }
+
+    private long nextAddress() {
         if (alreadyIn) {
             alreadyIn = false;
             return traverser.getCurrentAddress();
@@ -66,7 +66,7 @@ public class BTree extends BTreeBase {
     }
 
     @Override
-    public void setTreeNodesCache(@Nullable final LongObjectCacheBase cache) {
+    public void setTreeNodesCache(@Nullable final LongObjectCacheBase<Object> cache) {
         if (size > 0) {
             root.setTreeNodesCache(cache);
         }
@@ -22,15 +22,61 @@ public class BTreeBalancePolicy {
     public static BTreeBalancePolicy DEFAULT = new BTreeBalancePolicy(256);
 
     private final int maxSize;
+    private final int keyPrefixLength;
+    private final boolean countedPages;
+    private final int inlineValueMaxLength;
 
     public BTreeBalancePolicy(int maxSize) {
+        this(maxSize, 0);
+    }
+
+    public BTreeBalancePolicy(int maxSize, int keyPrefixLength) {
+        this(maxSize, keyPrefixLength, false);
+    }
+
+    public BTreeBalancePolicy(int maxSize, int keyPrefixLength, boolean countedPages) {
+        this(maxSize, keyPrefixLength, countedPages, 0);
+    }
+
+    public BTreeBalancePolicy(int maxSize, int keyPrefixLength, boolean countedPages, int inlineValueMaxLength) {
+        if (keyPrefixLength < 0 || keyPrefixLength > KeyPrefixes.MAX_PREFIX_LENGTH) {
+            throw new IllegalArgumentException("Invalid key prefix length: " + keyPrefixLength);
+        }
+        if (inlineValueMaxLength < 0) {
+            throw new IllegalArgumentException("Invalid inline value max length: " + inlineValueMaxLength);
+        }
         this.maxSize = maxSize;
+        this.keyPrefixLength = keyPrefixLength;
+        this.countedPages = countedPages;
+        this.inlineValueMaxLength = inlineValueMaxLength;
     }
 
     public int getPageMaxSize() {
         return maxSize;
     }
 
+    /**
+     * @return length of key prefixes stored inline in pages, 0 if pages are saved without key prefixes.
+     */
+    public int getKeyPrefixLength() {
+        return keyPrefixLength;
+    }
+
+    /**
+     * @return true if internal pages are saved with numbers of keys in subtrees of their children.
+     */
+    public boolean isCountedPages() {
+        return countedPages;
+    }
+
+    /**
+     * @return maximum length of a value of a leaf stored inline in a bottom page, 0 if leaves are saved
+     * as separate loggables.
+     */
+    public int getInlineValueMaxLength() {
+        return inlineValueMaxLength;
+    }
+
     /**
      * @param page page to check whether it has to be split.
      * @return true if specified page has to be split before inserting new item.
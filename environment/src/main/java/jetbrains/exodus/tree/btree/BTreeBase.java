@@ -24,7 +24,6 @@ import jetbrains.exodus.log.RandomAccessLoggable;
 import jetbrains.exodus.tree.INode;
 import jetbrains.exodus.tree.ITree;
 import jetbrains.exodus.tree.ITreeCursor;
-import jetbrains.exodus.tree.TreeCursor;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -105,11 +104,11 @@ public abstract class BTreeBase implements ITree {
     public ITreeCursor openCursor() {
         return allowsDuplicates ?
                 new BTreeCursorDup(new BTreeTraverserDup(getRoot())) :
-                new TreeCursor(new BTreeTraverser(getRoot()));
+                new BTreeCursor(new BTreeTraverser(getRoot()));
     }
 
     @Override
-    public void setTreeNodesCache(@Nullable final LongObjectCacheBase cache) {
+    public void setTreeNodesCache(@Nullable final LongObjectCacheBase<Object> cache) {
         // by default do nothing
     }
 
@@ -118,7 +117,7 @@ public abstract class BTreeBase implements ITree {
     }
 
     @NotNull
-    protected final BasePageImmutable loadPage(final long address, @Nullable final LongObjectCacheBase treeNodesCache) {
+    protected final BasePageImmutable loadPage(final long address, @Nullable final LongObjectCacheBase<Object> treeNodesCache) {
         if (treeNodesCache == null) {
             return loadPage(address);
         }
@@ -161,7 +160,7 @@ public abstract class BTreeBase implements ITree {
     }
 
     @NotNull
-    protected LeafNode loadLeaf(final long address, @Nullable final LongObjectCacheBase treeNodesCache) {
+    protected LeafNode loadLeaf(final long address, @Nullable final LongObjectCacheBase<Object> treeNodesCache) {
         if (treeNodesCache == null) {
             return loadLeaf(address);
         }
@@ -201,6 +200,13 @@ public abstract class BTreeBase implements ITree {
         return leaf == null ? null : leaf.getValue();
     }
 
+    @Override
+    public void getAll(@NotNull final ByteIterable[] keys, @NotNull final ByteIterable[] values) {
+        if (keys.length > 0) {
+            getRoot().getAll(keys, 0, keys.length, values);
+        }
+    }
+
     @Override
     public boolean hasKey(@NotNull final ByteIterable key) {
         return getRoot().keyExists(key);
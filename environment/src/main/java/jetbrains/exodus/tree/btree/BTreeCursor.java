@@ -0,0 +1,46 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.tree.btree;
+
+import jetbrains.exodus.tree.TreeCursor;
+
+/**
+ * Cursor of immutable B-tree without duplicates. Moves to a record by its index and gets index of current record
+ * by numbers of keys in subtrees of children of internal pages, the numbers are computed by loading subtrees if
+ * pages don't store them.
+ */
+class BTreeCursor extends TreeCursor {
+
+    BTreeCursor(BTreeTraverser traverser) {
+        super(traverser);
+    }
+
+    @Override
+    public boolean getByIndex(final long index) {
+        if (((BTreeTraverser) traverser).moveToIndex(index)) {
+            canGoDown = true;
+            alreadyIn = false;
+            inited = true;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public long getIndex() {
+        return inited ? ((BTreeTraverser) traverser).getIndex() : -1;
+    }
+}
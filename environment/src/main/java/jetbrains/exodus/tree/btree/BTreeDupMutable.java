@@ -110,6 +110,11 @@ final class BTreeDupMutable extends BTreeMutable {
         return result;
     }
 
+    @Override
+    protected boolean canInlineLeaves() {
+        return false;
+    }
+
     @Override
     protected byte getBottomPageType() {
         return DUP_BOTTOM;
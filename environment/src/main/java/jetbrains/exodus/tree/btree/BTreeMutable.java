@@ -19,6 +19,7 @@ import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.ByteIterator;
 import jetbrains.exodus.ExodusException;
 import jetbrains.exodus.bindings.LongBinding;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.log.*;
 import jetbrains.exodus.log.iterate.CompoundByteIterable;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
@@ -124,6 +125,60 @@ public class BTreeMutable extends BTreeBase implements ITreeMutable {
         TreeCursorMutable.notifyCursors(this);
     }
 
+    @Override
+    public void putAllRight(@NotNull final Iterator<Pair<ByteIterable, ByteIterable>> pairs) {
+        if (size > 0) {
+            while (pairs.hasNext()) {
+                final Pair<ByteIterable, ByteIterable> pair = pairs.next();
+                putRight(pair.getFirst(), pair.getSecond());
+            }
+            return;
+        }
+        // the tree is empty, so fill bottom pages completely and build internal pages over them
+        final int maxSize = balancePolicy.getPageMaxSize();
+        final List<BasePageMutable> pages = new ArrayList<>();
+        BottomPageMutable page = new BottomPageMutable(this);
+        BaseLeafNodeMutable last = null;
+        while (pairs.hasNext()) {
+            final Pair<ByteIterable, ByteIterable> pair = pairs.next();
+            final ByteIterable key = pair.getFirst();
+            final ByteIterable value = pair.getSecond();
+            if (last != null) {
+                final int cmp = last.compareKeyTo(key);
+                if (cmp > 0) {
+                    throw new IllegalArgumentException("Key must be greater");
+                } else if (cmp == 0) {
+                    if (!allowsDuplicates) {
+                        throw new IllegalArgumentException("Key must not be equal");
+                    }
+                    last = LeafNodeDupMutable.convert(last, this).putRight(value);
+                    page.set(page.size - 1, last, null);
+                    continue;
+                }
+            }
+            if (page.size == maxSize) {
+                pages.add(page);
+                page = new BottomPageMutable(this);
+            }
+            last = createMutableLeaf(key, value);
+            page.insertDirectly(page.size, last, null);
+            incrementSize();
+        }
+        pages.add(page);
+        List<BasePageMutable> level = pages;
+        while (level.size() > 1) {
+            final int levelSize = level.size();
+            final List<BasePageMutable> upperLevel = new ArrayList<>((levelSize + maxSize - 1) / maxSize);
+            for (int i = 0; i < levelSize; i += maxSize) {
+                upperLevel.add(new InternalPageMutable(this, level, i, Math.min(maxSize, levelSize - i)));
+            }
+            level = upperLevel;
+        }
+        root = level.get(0);
+
+        TreeCursorMutable.notifyCursors(this);
+    }
+
     @Override
     public boolean add(@NotNull final ByteIterable key, @NotNull final ByteIterable value) {
         return put(key, value, false);
@@ -251,6 +306,13 @@ public class BTreeMutable extends BTreeBase implements ITreeMutable {
         openCursors.remove(cursor);
     }
 
+    /**
+     * @return true if small leaves are saved inline in bottom pages rather than as separate loggables.
+     */
+    protected boolean canInlineLeaves() {
+        return !allowsDuplicates && balancePolicy.getInlineValueMaxLength() > 0;
+    }
+
     protected byte getBottomPageType() {
         return BOTTOM;
     }
@@ -367,7 +429,7 @@ public class BTreeMutable extends BTreeBase implements ITreeMutable {
 
     @Nullable
     private LeafNode loadMinKey(ByteIterator it) {
-        final int addressLen = it.next();
+        final int addressLen = it.next() & ~(KeyPrefixes.PAGE_FLAG | InlineLeaves.PAGE_FLAG);
         final long keyAddress = LongBinding.entryToUnsignedLong(it, addressLen);
         return log.hasAddress(keyAddress) ? loadLeaf(keyAddress) : null;
     }
@@ -251,6 +251,58 @@ class BTreeTraverser implements TreeTraverser {
         return true;
     }
 
+    /**
+     * Moves to the leaf with specified index, the tree shouldn't have duplicates.
+     *
+     * @return false if there is no leaf with specified index.
+     */
+    boolean moveToIndex(long index) {
+        BasePage page = top == 0 ? currentNode : stack[0].node; // the most bottom node, ignoring lower bound
+        if (index < 0 || index >= page.getTree().getSize()) {
+            return false;
+        }
+        final int oldTop = top;
+        top = 0;
+        while (!page.isBottom()) {
+            // the last child contains the rest of keys, so there is no need to count them
+            final int lastChild = page.size - 1;
+            int i = 0;
+            for (; i < lastChild; ++i) {
+                final long childKeysCount = page.countChildKeys(i);
+                if (index < childKeysCount) {
+                    break;
+                }
+                index -= childKeysCount;
+            }
+            setAt(top++, new TreePos(page, i));
+            page = page.getChild(i);
+        }
+        for (int i = top; i < oldTop; ++i) {
+            stack[i] = null;
+        }
+        currentNode = page;
+        currentPos = (int) index;
+        node = handleLeaf(page.getKey(currentPos));
+        return true;
+    }
+
+    /**
+     * @return index of current leaf, the tree shouldn't have duplicates, or -1 if there is no current leaf.
+     */
+    long getIndex() {
+        if (node == ILeafNode.EMPTY) {
+            return -1;
+        }
+        long result = currentPos;
+        for (int i = 0; i < top; ++i) {
+            final TreePos treePos = stack[i];
+            for (int j = 0; j < treePos.pos; ++j) {
+                result += treePos.node.countChildKeys(j);
+            }
+        }
+        return result;
+    }
+
     @NotNull
     @Override
     public BTreeBase getTree() {
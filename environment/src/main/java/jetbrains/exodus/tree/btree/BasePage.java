@@ -83,6 +83,40 @@ abstract class BasePage implements Dumpable {
 
     protected abstract long getBottomPagesCount();
 
+    /**
+     * @return number of keys in the subtree of the page or -1 if it can't be got without loading pages of the subtree.
+     */
+    protected abstract long getKeysCount();
+
+    /**
+     * @return number of keys in the subtree of index-th child or -1 if it can't be got without loading the child.
+     */
+    protected long getChildKeysCount(int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return number of keys in the subtree of the page, pages of the subtree are loaded if necessary.
+     */
+    protected long countKeys() {
+        long result = getKeysCount();
+        if (result < 0) {
+            result = 0;
+            for (int i = 0; i < size; ++i) {
+                result += countChildKeys(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return number of keys in the subtree of index-th child, pages of the subtree are loaded if necessary.
+     */
+    protected long countChildKeys(final int index) {
+        final long result = getChildKeysCount(index);
+        return result < 0 ? getChild(index).countKeys() : result;
+    }
+
     protected abstract SearchRes binarySearch(final ByteIterable key);
 
     protected abstract SearchRes binarySearch(final ByteIterable key, final int low);
@@ -90,6 +124,45 @@ abstract class BasePage implements Dumpable {
     @Nullable
     protected abstract ILeafNode get(@NotNull final ByteIterable key);
 
+    /**
+     * Looks up sorted keys from the range [from, to). Each child page is read once for all keys which can be in it.
+     */
+    protected void getAll(@NotNull final ByteIterable[] keys, final int from, final int to, @NotNull final ByteIterable[] values) {
+        int i = from;
+        SearchRes res = binarySearch(keys[i], 0);
+        while (true) {
+            final int index = res.index;
+            final int low;
+            if (index >= 0) {
+                values[i++] = res.key.getValue();
+                low = index;
+            } else if (isBottom()) {
+                ++i;
+                low = -index - 1;
+            } else {
+                final int childIndex = Math.max(-index - 2, 0);
+                final int childFrom = i;
+                // the keys going to the same child are looked up in it together
+                while (++i < to) {
+                    res = binarySearch(keys[i], childIndex);
+                    if (res.index >= 0 || Math.max(-res.index - 2, 0) != childIndex) {
+                        break;
+                    }
+                }
+                getChild(childIndex).getAll(keys, childFrom, i, values);
+                if (i == to) {
+                    break;
+                }
+                // res is the search result for keys[i]
+                continue;
+            }
+            if (i == to) {
+                break;
+            }
+            res = binarySearch(keys[i], low);
+        }
+    }
+
     @Nullable
     protected abstract ILeafNode find(@NotNull BTreeTraverser stack, int depth,
                                       @NotNull ByteIterable key, @Nullable ByteIterable value, boolean equalOrNext);
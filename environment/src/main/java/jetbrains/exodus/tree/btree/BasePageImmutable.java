@@ -25,17 +25,27 @@ import jetbrains.exodus.log.ByteIteratorWithAddress;
 import jetbrains.exodus.log.IByteIterableComparator;
 import jetbrains.exodus.log.Loggable;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
+import jetbrains.exodus.tree.TreeNodesCache;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-abstract class BasePageImmutable extends BasePage {
+abstract class BasePageImmutable extends BasePage implements TreeNodesCache.Weighted {
+
+    // the page object and its data iterable
+    private static final int BASE_WEIGHT = 96;
 
     @NotNull
     protected final ByteIterableWithAddress data;
     protected long dataAddress;
     protected int keyAddressLen;
+    private boolean hasKeyPrefixes;
+    @Nullable
+    private byte[] keyPrefixes;
+    private boolean hasInlineLeaves;
+    @Nullable
+    private InlineLeaves inlineLeaves;
     @Nullable
-    protected LongObjectCacheBase treeNodesCache;
+    protected LongObjectCacheBase<Object> treeNodesCache;
 
     /**
      * Create empty page
@@ -81,7 +91,9 @@ abstract class BasePageImmutable extends BasePage {
         if (size > 0) {
             final int next = itr.next();
             dataAddress = itr.getAddress();
-            loadAddressLengths(next);
+            hasKeyPrefixes = (next & KeyPrefixes.PAGE_FLAG) != 0;
+            hasInlineLeaves = (next & InlineLeaves.PAGE_FLAG) != 0;
+            loadAddressLengths(next & ~(KeyPrefixes.PAGE_FLAG | InlineLeaves.PAGE_FLAG));
         } else {
             dataAddress = itr.getAddress();
         }
@@ -101,6 +113,53 @@ abstract class BasePageImmutable extends BasePage {
         checkAddressLength(keyAddressLen = length);
     }
 
+    /**
+     * @return offset of key prefixes in page data.
+     */
+    protected int getKeyPrefixesOffset() {
+        return size * keyAddressLen;
+    }
+
+    /**
+     * @return inline key prefixes or null if the page has no key prefixes.
+     */
+    @Nullable
+    protected byte[] getKeyPrefixes() {
+        if (!hasKeyPrefixes) {
+            return null;
+        }
+        byte[] result = keyPrefixes;
+        if (result == null) {
+            keyPrefixes = result = KeyPrefixes.load(getDataIterator(getKeyPrefixesOffset()), size);
+        }
+        return result;
+    }
+
+    /**
+     * @return inline leaves or null if leaves of the page are separate loggables.
+     */
+    @Nullable
+    protected InlineLeaves getInlineLeaves() {
+        if (!hasInlineLeaves) {
+            return null;
+        }
+        InlineLeaves result = inlineLeaves;
+        if (result == null) {
+            inlineLeaves = result = InlineLeaves.load(getDataIterator(keyAddressLen), size);
+        }
+        return result;
+    }
+
+    @Override
+    public int getWeight() {
+        final InlineLeaves inlineLeaves = getInlineLeaves();
+        if (inlineLeaves != null) {
+            return BASE_WEIGHT + inlineLeaves.getWeight();
+        }
+        // key prefixes are loaded lazily, so their size is estimated in advance
+        return hasKeyPrefixes ? BASE_WEIGHT + 16 + size * (getTree().getBalancePolicy().getKeyPrefixLength() + 1) : BASE_WEIGHT;
+    }
+
     protected static void checkAddressLength(long addressLen) {
         if (addressLen < 0 || addressLen > 8) {
             throw new ExodusException("Invalid length of address: " + addressLen);
@@ -109,12 +168,20 @@ abstract class BasePageImmutable extends BasePage {
 
     @Override
     protected long getKeyAddress(final int index) {
+        final InlineLeaves inlineLeaves = getInlineLeaves();
+        if (inlineLeaves != null) {
+            return inlineLeaves.getAddress(index);
+        }
         return LongBinding.entryToUnsignedLong(getDataIterator(index * keyAddressLen), keyAddressLen);
     }
 
     @Override
     @NotNull
     public BaseLeafNode getKey(final int index) {
+        final InlineLeaves inlineLeaves = getInlineLeaves();
+        if (inlineLeaves != null) {
+            return inlineLeaves.getLeaf(this, index);
+        }
         return getTree().loadLeaf(getKeyAddress(index), treeNodesCache);
     }
 
@@ -133,6 +200,15 @@ abstract class BasePageImmutable extends BasePage {
         if (dataAddress == Loggable.NULL_ADDRESS) {
             return SearchRes.NOT_FOUND;
         }
+        final InlineLeaves inlineLeaves = getInlineLeaves();
+        if (inlineLeaves != null) {
+            final int index = inlineLeaves.binarySearch(key, low, size - 1);
+            return index >= 0 ? new SearchRes(index, inlineLeaves.getLeaf(this, index)) : new SearchRes(index);
+        }
+        final byte[] keyPrefixes = getKeyPrefixes();
+        if (keyPrefixes != null) {
+            return binarySearch(keyPrefixes, key, low, size - 1);
+        }
         final ILeafNode[] lastComparedKey = new ILeafNode[1];
         final int index = ByteIterableWithAddress.binarySearch(
                 new IByteIterableComparator() {
@@ -144,7 +220,33 @@ abstract class BasePageImmutable extends BasePage {
         return index >= 0 ? new SearchRes(index, lastComparedKey[0]) : new SearchRes(index);
     }
 
-    protected void setTreeNodesCache(@Nullable final LongObjectCacheBase treeNodesCache) {
+    /**
+     * Binary search comparing keys by inline prefixes, a leaf is loaded only if prefix is not enough to compare
+     * or the key is found.
+     */
+    private SearchRes binarySearch(@NotNull final byte[] keyPrefixes, @NotNull final ByteIterable key, int low, int high) {
+        final byte[] keyBytes = key.getBytesUnsafe();
+        final int keyLength = key.getLength();
+        while (low <= high) {
+            final int mid = (low + high + 1) >>> 1;
+            int cmp = KeyPrefixes.compare(keyPrefixes, mid, keyBytes, keyLength);
+            ILeafNode midKey = null;
+            if (cmp == 0 || cmp == KeyPrefixes.UNKNOWN) {
+                midKey = getKey(mid);
+                cmp = midKey.compareKeyTo(key);
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return new SearchRes(mid, midKey);
+            }
+        }
+        return new SearchRes(-(low + 1));
+    }
+
+    protected void setTreeNodesCache(@Nullable final LongObjectCacheBase<Object> treeNodesCache) {
         if (this.treeNodesCache == null) {
             this.treeNodesCache = treeNodesCache;
         }
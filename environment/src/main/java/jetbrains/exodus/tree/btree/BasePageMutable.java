@@ -33,6 +33,7 @@ abstract class BasePageMutable extends BasePage implements MutableTreeRoot {
 
     protected BaseLeafNodeMutable[] keys;
     protected long[] keysAddresses;
+    protected byte[][] keysPrefixes; // inline key prefixes, null prefix should be computed on save
 
     protected BasePageMutable(BTreeMutable tree) {
         super(tree);
@@ -43,7 +44,18 @@ abstract class BasePageMutable extends BasePage implements MutableTreeRoot {
         size = page.size;
         createChildren(Math.max(page.size, getBalancePolicy().getPageMaxSize()));
         if (size > 0) {
+            final InlineLeaves inlineLeaves = page.getInlineLeaves();
+            if (inlineLeaves != null) {
+                loadInlineLeaves(inlineLeaves);
+                return;
+            }
             load(page.getDataIterator(0), page.keyAddressLen);
+            final byte[] prefixes = page.getKeyPrefixes();
+            if (prefixes != null && KeyPrefixes.getPrefixLength(prefixes) == getKeyPrefixLength()) {
+                for (int i = 0; i < size; ++i) {
+                    keysPrefixes[i] = KeyPrefixes.getPrefix(prefixes, i);
+                }
+            }
         }
     }
 
@@ -52,6 +64,19 @@ abstract class BasePageMutable extends BasePage implements MutableTreeRoot {
         CompressedUnsignedLongArrayByteIterable.loadLongs(keysAddresses, it, size, keyAddressLen);
     }
 
+    /**
+     * Inline leaves become mutable leaves which are inlined again on save if the tree still inlines leaves.
+     */
+    private void loadInlineLeaves(@NotNull final InlineLeaves inlineLeaves) {
+        for (int i = 0; i < size; ++i) {
+            final long address = inlineLeaves.getAddress(i);
+            keysAddresses[i] = address;
+            if (address == Loggable.NULL_ADDRESS) {
+                keys[i] = new LeafNodeMutable(inlineLeaves.getKey(i), inlineLeaves.getValue(i));
+            }
+        }
+    }
+
     @Override
     @SuppressWarnings({"ReturnOfThis"})
     @NotNull
@@ -67,6 +92,7 @@ abstract class BasePageMutable extends BasePage implements MutableTreeRoot {
     protected void createChildren(int max) {
         keys = new BaseLeafNodeMutable[max];
         keysAddresses = new long[max];
+        keysPrefixes = new byte[max][];
     }
 
     /**
@@ -105,6 +131,31 @@ abstract class BasePageMutable extends BasePage implements MutableTreeRoot {
 
     protected abstract ByteIterable[] getByteIterables(ReclaimFlag flag);
 
+    /**
+     * @return key addresses, marked as followed by key prefixes if the tree stores them.
+     */
+    protected ByteIterable getKeysAddressesIterable() {
+        final ByteIterable result = CompressedUnsignedLongArrayByteIterable.getIterable(keysAddresses, size);
+        return size == 0 || getKeyPrefixLength() == 0 ? result : KeyPrefixes.markKeyAddresses(result);
+    }
+
+    /**
+     * @return key prefixes or null if the tree doesn't store them.
+     */
+    @Nullable
+    protected ByteIterable getKeysPrefixesIterable() {
+        final int prefixLength = getKeyPrefixLength();
+        if (size == 0 || prefixLength == 0) {
+            return null;
+        }
+        for (int i = 0; i < size; ++i) {
+            if (keysPrefixes[i] == null) {
+                keysPrefixes[i] = KeyPrefixes.getPrefix(getKey(i).getKey(), prefixLength);
+            }
+        }
+        return KeyPrefixes.getIterable(keysPrefixes, size, prefixLength);
+    }
+
     /**
      * Save page to log
      *
@@ -164,6 +215,10 @@ abstract class BasePageMutable extends BasePage implements MutableTreeRoot {
         return getTree().getBalancePolicy();
     }
 
+    protected int getKeyPrefixLength() {
+        return getBalancePolicy().getKeyPrefixLength();
+    }
+
     @Override
     protected boolean isMutable() {
         return true;
@@ -197,6 +252,8 @@ abstract class BasePageMutable extends BasePage implements MutableTreeRoot {
             keys[pos] = null; // forget previous mutable leaf
         }
         keysAddresses[pos] = key.getAddress();
+        final int prefixLength = getKeyPrefixLength();
+        keysPrefixes[pos] = prefixLength == 0 ? null : KeyPrefixes.getPrefix(key.getKey(), prefixLength);
     }
 
     protected void insertDirectly(final int pos, @NotNull ILeafNode key, @Nullable BasePageMutable child) {
@@ -211,6 +268,7 @@ abstract class BasePageMutable extends BasePage implements MutableTreeRoot {
         if (from >= size) return;
         System.arraycopy(keys, from, keys, to, size - from);
         System.arraycopy(keysAddresses, from, keysAddresses, to, size - from);
+        System.arraycopy(keysPrefixes, from, keysPrefixes, to, size - from);
     }
 
     @Override
@@ -232,6 +290,7 @@ abstract class BasePageMutable extends BasePage implements MutableTreeRoot {
         for (int i = size; i < initialSize; ++i) {
             keys[i] = null;
             keysAddresses[i] = 0L;
+            keysPrefixes[i] = null;
         }
     }
 
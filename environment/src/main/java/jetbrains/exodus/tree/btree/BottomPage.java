@@ -52,6 +52,11 @@ final class BottomPage extends BasePageImmutable {
         return 1;
     }
 
+    @Override
+    protected long getKeysCount() {
+        return size;
+    }
+
     @Override
     public ILeafNode get(@NotNull ByteIterable key) {
         return get(key, this);
@@ -33,15 +33,22 @@ class BottomPageMutable extends BasePageMutable {
         super(tree, page);
     }
 
+    BottomPageMutable(BTreeMutable tree) {
+        super(tree);
+        createChildren(getBalancePolicy().getPageMaxSize());
+    }
+
     private BottomPageMutable(BottomPageMutable page, int from, int length) {
         super((BTreeMutable) page.getTree());
 
         final int max = Math.max(length, getBalancePolicy().getPageMaxSize());
         keys = new BaseLeafNodeMutable[max];
         keysAddresses = new long[max];
+        keysPrefixes = new byte[max][];
 
         System.arraycopy(page.keys, from, keys, 0, length);
         System.arraycopy(page.keysAddresses, from, keysAddresses, 0, length);
+        System.arraycopy(page.keysPrefixes, from, keysPrefixes, 0, length);
 
         size = length;
     }
@@ -142,6 +149,11 @@ class BottomPageMutable extends BasePageMutable {
         return 1;
     }
 
+    @Override
+    protected long getKeysCount() {
+        return size;
+    }
+
     @Override
     public ILeafNode get(@NotNull ByteIterable key) {
         return BottomPage.get(key, this);
@@ -165,9 +177,14 @@ class BottomPageMutable extends BasePageMutable {
     @NotNull
     @Override
     protected ReclaimFlag saveChildren() {
-        final BTreeBase tree = getTree();
+        final BTreeMutable tree = (BTreeMutable) getTree();
+        final boolean inlineLeaves = tree.canInlineLeaves();
         ReclaimFlag result = ReclaimFlag.RECLAIM;
         for (int i = 0; i < size; i++) {
+            // the first leaf is always saved, parent pages refer to the page by it
+            if (inlineLeaves && i > 0 && inlineLeaf(tree, i)) {
+                continue;
+            }
             if (keysAddresses[i] == Loggable.NULL_ADDRESS) {
                 keysAddresses[i] = keys[i].save(tree);
                 result = ReclaimFlag.PRESERVE;
@@ -176,12 +193,35 @@ class BottomPageMutable extends BasePageMutable {
         return result;
     }
 
+    /**
+     * @return true if index-th leaf is small enough to be inline, the leaf is converted to inline one if it's
+     * a separate loggable.
+     */
+    private boolean inlineLeaf(@NotNull final BTreeMutable tree, final int index) {
+        final BaseLeafNode leaf = getKey(index);
+        final ByteIterable value = leaf.getValue();
+        if (value.getLength() > getBalancePolicy().getInlineValueMaxLength()) {
+            return false;
+        }
+        final long address = keysAddresses[index];
+        if (address != Loggable.NULL_ADDRESS) {
+            tree.addExpiredLoggable(address);
+            keys[index] = new LeafNodeMutable(leaf.getKey(), value);
+            keysAddresses[index] = Loggable.NULL_ADDRESS;
+        }
+        return true;
+    }
+
     @Override
     protected ByteIterable[] getByteIterables(@NotNull final ReclaimFlag flag) {
-        return new ByteIterable[]{
-                CompressedUnsignedLongByteIterable.getIterable((size << 1) + flag.value), // store flag bit
-                CompressedUnsignedLongArrayByteIterable.getIterable(keysAddresses, size)
-        };
+        final ByteIterable header = CompressedUnsignedLongByteIterable.getIterable((size << 1) + flag.value); // store flag bit
+        if (size > 0 && ((BTreeMutable) getTree()).canInlineLeaves()) {
+            return new ByteIterable[]{header, InlineLeaves.getIterable(this)};
+        }
+        final ByteIterable keysPrefixes = getKeysPrefixesIterable();
+        return keysPrefixes == null ?
+                new ByteIterable[]{header, getKeysAddressesIterable()} :
+                new ByteIterable[]{header, getKeysAddressesIterable(), keysPrefixes};
     }
 
     @Override
@@ -269,6 +309,7 @@ class BottomPageMutable extends BasePageMutable {
     protected void mergeWithRight(BasePageMutable page) {
         System.arraycopy(page.keys, 0, keys, size, page.size);
         System.arraycopy(page.keysAddresses, 0, keysAddresses, size, page.size);
+        System.arraycopy(page.keysPrefixes, 0, keysPrefixes, size, page.size);
         size += page.size;
     }
 
@@ -277,6 +318,7 @@ class BottomPageMutable extends BasePageMutable {
         page.mergeWithRight(this);
         keys = page.keys;
         keysAddresses = page.keysAddresses;
+        keysPrefixes = page.keysPrefixes;
         size = page.size;
     }
 
@@ -0,0 +1,204 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.tree.btree;
+
+import jetbrains.exodus.ArrayByteIterable;
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.ByteIterableBase;
+import jetbrains.exodus.ByteIterator;
+import jetbrains.exodus.bindings.CompressedUnsignedLongArrayByteIterable;
+import jetbrains.exodus.log.Loggable;
+import jetbrains.exodus.log.iterate.CompoundByteIterable;
+import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
+import jetbrains.exodus.util.ByteIterableUtil;
+import jetbrains.exodus.util.LightOutputStream;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Leaves stored inline in a bottom page instead of separate loggables, so that a lookup reads the page only.
+ * Presence of inline leaves is marked by {@link #PAGE_FLAG} in the byte containing length of key addresses.
+ * The byte is followed by the address of the first leaf which is always saved as a separate loggable, because
+ * parent pages and GC refer to a page by its first leaf. Then a record per leaf follows: the length of the prefix
+ * shared with the previous key, the length of the rest of the key and the rest of the key, then either
+ * (value length << 1) followed by the value or (leaf address << 1) | 1 if the leaf is a separate loggable.
+ * All lengths and addresses are compressed unsigned longs.
+ */
+final class InlineLeaves {
+
+    static final int PAGE_FLAG = 0x20;
+
+    // per leaf: references and headers of arrays, key and value objects created by getLeaf()
+    private static final int LEAF_WEIGHT = 56;
+
+    @NotNull
+    private final byte[][] keys;
+    @NotNull
+    private final byte[][] values; // null value means that the leaf is a separate loggable
+    @NotNull
+    private final long[] addresses;
+
+    private InlineLeaves(@NotNull final byte[][] keys, @NotNull final byte[][] values, @NotNull final long[] addresses) {
+        this.keys = keys;
+        this.values = values;
+        this.addresses = addresses;
+    }
+
+    /**
+     * Reads leaf records of a page, the iterator should be positioned after the address of the first leaf.
+     */
+    @NotNull
+    static InlineLeaves load(@NotNull final ByteIterator it, final int size) {
+        final byte[][] keys = new byte[size][];
+        final byte[][] values = new byte[size][];
+        final long[] addresses = new long[size];
+        byte[] prevKey = ByteIterable.EMPTY_BYTES;
+        for (int i = 0; i < size; ++i) {
+            final int shared = CompressedUnsignedLongByteIterable.getInt(it);
+            final int suffixLength = CompressedUnsignedLongByteIterable.getInt(it);
+            final byte[] key = new byte[shared + suffixLength];
+            System.arraycopy(prevKey, 0, key, 0, shared);
+            read(it, key, shared);
+            keys[i] = prevKey = key;
+            final long valueRecord = CompressedUnsignedLongByteIterable.getLong(it);
+            if ((valueRecord & 1) == 0) {
+                final byte[] value = new byte[(int) (valueRecord >> 1)];
+                read(it, value, 0);
+                values[i] = value;
+                addresses[i] = Loggable.NULL_ADDRESS;
+            } else {
+                addresses[i] = valueRecord >> 1;
+            }
+        }
+        return new InlineLeaves(keys, values, addresses);
+    }
+
+    /**
+     * Serializes leaves of a page whose leaves which are not inline are already saved.
+     *
+     * @return address of the first leaf marked with {@link #PAGE_FLAG} followed by leaf records.
+     */
+    @NotNull
+    static ByteIterable getIterable(@NotNull final BasePageMutable page) {
+        final ByteIterable firstAddress = CompressedUnsignedLongArrayByteIterable.getIterable(page.keysAddresses, 1);
+        final byte[] header = Arrays.copyOf(firstAddress.getBytesUnsafe(), firstAddress.getLength());
+        header[0] |= PAGE_FLAG;
+        final LightOutputStream output = new LightOutputStream();
+        byte[] prevKey = ByteIterable.EMPTY_BYTES;
+        int prevLength = 0;
+        for (int i = 0; i < page.size; ++i) {
+            final ILeafNode leaf = page.getKey(i);
+            final ByteIterable key = leaf.getKey();
+            final byte[] keyBytes = key.getBytesUnsafe();
+            final int keyLength = key.getLength();
+            final int shared = getCommonPrefixLength(prevKey, prevLength, keyBytes, keyLength);
+            CompressedUnsignedLongByteIterable.fillBytes(shared, output);
+            CompressedUnsignedLongByteIterable.fillBytes(keyLength - shared, output);
+            output.write(keyBytes, shared, keyLength - shared);
+            final long address = page.keysAddresses[i];
+            if (address == Loggable.NULL_ADDRESS) {
+                final ByteIterable value = leaf.getValue();
+                CompressedUnsignedLongByteIterable.fillBytes((long) value.getLength() << 1, output);
+                ByteIterableBase.fillBytes(value, output);
+            } else {
+                CompressedUnsignedLongByteIterable.fillBytes((address << 1) | 1, output);
+            }
+            prevKey = keyBytes;
+            prevLength = keyLength;
+        }
+        return new CompoundByteIterable(new ByteIterable[]{
+                new ArrayByteIterable(header), output.asArrayByteIterable()});
+    }
+
+    long getAddress(final int index) {
+        return addresses[index];
+    }
+
+    @NotNull
+    ByteIterable getKey(final int index) {
+        return new ArrayByteIterable(keys[index]);
+    }
+
+    @NotNull
+    ByteIterable getValue(final int index) {
+        return new ArrayByteIterable(values[index]);
+    }
+
+    /**
+     * @return inline leaf or the leaf loaded from the log if it's a separate loggable.
+     */
+    @NotNull
+    BaseLeafNode getLeaf(@NotNull final BasePageImmutable page, final int index) {
+        final long address = addresses[index];
+        return address == Loggable.NULL_ADDRESS ?
+                new LeafNodeKV(getKey(index), getValue(index)) :
+                page.getTree().loadLeaf(address, page.treeNodesCache);
+    }
+
+    /**
+     * @return index of the key like {@link java.util.Arrays#binarySearch(Object[], Object)} does.
+     */
+    int binarySearch(@NotNull final ByteIterable key, int low, int high) {
+        final byte[] keyBytes = key.getBytesUnsafe();
+        final int keyLength = key.getLength();
+        final byte[][] keys = this.keys;
+        while (low <= high) {
+            final int mid = (low + high + 1) >>> 1;
+            final byte[] midKey = keys[mid];
+            final int cmp = ByteIterableUtil.compare(midKey, midKey.length, keyBytes, keyLength);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @return estimated number of bytes of heap memory held by the leaves.
+     */
+    int getWeight() {
+        int result = 16 * 3 + addresses.length * (LEAF_WEIGHT + 8);
+        for (int i = 0; i < keys.length; ++i) {
+            result += keys[i].length;
+            final byte[] value = values[i];
+            if (value != null) {
+                result += value.length;
+            }
+        }
+        return result;
+    }
+
+    private static void read(@NotNull final ByteIterator it, @NotNull final byte[] bytes, final int offset) {
+        for (int i = offset; i < bytes.length; ++i) {
+            bytes[i] = it.next();
+        }
+    }
+
+    private static int getCommonPrefixLength(@NotNull final byte[] key1, final int len1,
+                                             @NotNull final byte[] key2, final int len2) {
+        final int min = Math.min(len1, len2);
+        int i = 0;
+        while (i < min && key1[i] == key2[i]) {
+            ++i;
+        }
+        return i;
+    }
+}
@@ -27,7 +27,14 @@ import java.io.PrintStream;
 
 final class InternalPage extends BasePageImmutable {
 
+    /**
+     * Flag in the byte containing length of child addresses which marks the addresses as followed by numbers of keys
+     * in subtrees of children. The numbers are saved as the length byte followed by a fixed-length number per child.
+     */
+    static final int KEYS_COUNTS_FLAG = 0x40;
+
     private int childAddressLen;
+    private int keysCountLen; // 0 if the page has no numbers of keys in subtrees
 
     protected InternalPage(@NotNull final BTreeBase tree, @NotNull final ByteIterableWithAddress data) {
         super(tree, data);
@@ -42,7 +49,25 @@ final class InternalPage extends BasePageImmutable {
         super.loadAddressLengths(length);
         final ByteIterator it = getDataIterator(0);
         it.skip(size * keyAddressLen);
-        checkAddressLength(childAddressLen = it.next());
+        final int next = it.next();
+        checkAddressLength(childAddressLen = next & ~KEYS_COUNTS_FLAG);
+        if ((next & KEYS_COUNTS_FLAG) != 0) {
+            it.skip(size * childAddressLen);
+            checkAddressLength(keysCountLen = it.next());
+        }
+    }
+
+    @Override
+    protected int getKeyPrefixesOffset() {
+        final int result = size * (keyAddressLen + childAddressLen) + 1;
+        return keysCountLen == 0 ? result : result + size * keysCountLen + 1;
+    }
+
+    /**
+     * @return true if the page has numbers of keys in subtrees of its children.
+     */
+    boolean hasKeysCounts() {
+        return keysCountLen != 0;
     }
 
     @Override
@@ -63,6 +88,27 @@ final class InternalPage extends BasePageImmutable {
         return getTree().loadPage(getChildAddress(index), treeNodesCache);
     }
 
+    @Override
+    protected long getChildKeysCount(final int index) {
+        if (keysCountLen == 0) {
+            return -1;
+        }
+        final int offset = size * (keyAddressLen + childAddressLen) + index * keysCountLen + 2;
+        return LongBinding.entryToUnsignedLong(getDataIterator(offset), keysCountLen);
+    }
+
+    @Override
+    protected long getKeysCount() {
+        if (keysCountLen == 0) {
+            return -1;
+        }
+        long result = 0;
+        for (int i = 0; i < size; ++i) {
+            result += getChildKeysCount(i);
+        }
+        return result;
+    }
+
     @Override
     protected boolean isBottom() {
         return false;
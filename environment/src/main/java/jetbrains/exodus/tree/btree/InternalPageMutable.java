@@ -15,6 +15,7 @@
  */
 package jetbrains.exodus.tree.btree;
 
+import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.ByteIterator;
 import jetbrains.exodus.bindings.CompressedUnsignedLongArrayByteIterable;
@@ -24,12 +25,16 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  */
 public class InternalPageMutable extends BasePageMutable {
     protected BasePageMutable[] children;
     protected long[] childrenAddresses;
+    protected long[] childrenKeysCounts; // numbers of keys in subtrees of not changed children, -1 if unknown
 
     InternalPageMutable(BTreeMutable tree, InternalPage page) {
         super(tree, page);
@@ -42,12 +47,25 @@ public class InternalPageMutable extends BasePageMutable {
 
         System.arraycopy(page.keys, from, keys, 0, length);
         System.arraycopy(page.keysAddresses, from, keysAddresses, 0, length);
+        System.arraycopy(page.keysPrefixes, from, keysPrefixes, 0, length);
         System.arraycopy(page.children, from, children, 0, length);
         System.arraycopy(page.childrenAddresses, from, childrenAddresses, 0, length);
+        System.arraycopy(page.childrenKeysCounts, from, childrenKeysCounts, 0, length);
 
         size = length;
     }
 
+    InternalPageMutable(BTreeMutable tree, List<BasePageMutable> pages, int from, int length) {
+        super(tree);
+
+        createChildren(Math.max(length, getBalancePolicy().getPageMaxSize()));
+        for (int i = 0; i < length; ++i) {
+            final BasePageMutable page = pages.get(from + i);
+            set(i, page.getMinKey(), page);
+        }
+        size = length;
+    }
+
     InternalPageMutable(BTreeMutable tree, BasePageMutable page1, BasePageMutable page2) {
         super(tree);
 
@@ -60,7 +78,14 @@ public class InternalPageMutable extends BasePageMutable {
     @Override
     protected void load(@NotNull final ByteIterator it, final int keyAddressLen) {
         super.load(it, keyAddressLen);
-        CompressedUnsignedLongArrayByteIterable.loadLongs(childrenAddresses, it, size);
+        final int childAddressLen = it.next();
+        CompressedUnsignedLongArrayByteIterable.loadLongs(
+                childrenAddresses, it, size, childAddressLen & ~InternalPage.KEYS_COUNTS_FLAG);
+        if ((childAddressLen & InternalPage.KEYS_COUNTS_FLAG) != 0) {
+            CompressedUnsignedLongArrayByteIterable.loadLongs(childrenKeysCounts, it, size);
+        } else {
+            Arrays.fill(childrenKeysCounts, 0, size, -1L);
+        }
     }
 
     @Override
@@ -73,6 +98,7 @@ public class InternalPageMutable extends BasePageMutable {
         super.createChildren(max);
         children = new BasePageMutable[max];
         childrenAddresses = new long[max];
+        childrenKeysCounts = new long[max];
     }
 
     @Override
@@ -90,6 +116,25 @@ public class InternalPageMutable extends BasePageMutable {
         return children[index];
     }
 
+    @Override
+    protected long getChildKeysCount(final int index) {
+        final BasePageMutable child = children[index];
+        return child == null ? childrenKeysCounts[index] : child.getKeysCount();
+    }
+
+    @Override
+    protected long getKeysCount() {
+        long result = 0;
+        for (int i = 0; i < size; ++i) {
+            final long childKeysCount = getChildKeysCount(i);
+            if (childKeysCount < 0) {
+                return -1;
+            }
+            result += childKeysCount;
+        }
+        return result;
+    }
+
     @Override
     public boolean childExists(@NotNull ByteIterable key, long pageAddress) {
         final int index = InternalPage.binarySearchGuessUnsafe(this, key);
@@ -125,6 +170,7 @@ public class InternalPageMutable extends BasePageMutable {
         if (key != null) { // first key is mutable ==> changed, no merges or reclaims allowed
             keys[index] = key;
             keysAddresses[index] = key.getAddress();
+            keysPrefixes[index] = child.keysPrefixes[0];
         }
         children[index] = child;
         ((BTreeMutable) getTree()).addExpiredLoggable(childrenAddresses[index]);
@@ -194,6 +240,7 @@ public class InternalPageMutable extends BasePageMutable {
         super.copyChildren(from, to);
         System.arraycopy(children, from, children, to, size - from);
         System.arraycopy(childrenAddresses, from, childrenAddresses, to, size - from);
+        System.arraycopy(childrenKeysCounts, from, childrenKeysCounts, to, size - from);
     }
 
     @Override
@@ -203,6 +250,7 @@ public class InternalPageMutable extends BasePageMutable {
         for (int i = size; i < initialSize; ++i) {
             children[i] = null;
             childrenAddresses[i] = 0L;
+            childrenKeysCounts[i] = 0L;
         }
     }
 
@@ -259,11 +307,43 @@ public class InternalPageMutable extends BasePageMutable {
 
     @Override
     protected ByteIterable[] getByteIterables(@NotNull final ReclaimFlag flag) {
-        return new ByteIterable[]{
-                CompressedUnsignedLongByteIterable.getIterable((size << 1) + flag.value),
-                CompressedUnsignedLongArrayByteIterable.getIterable(keysAddresses, size),
-                CompressedUnsignedLongArrayByteIterable.getIterable(childrenAddresses, size),
-        };
+        final ByteIterable header = CompressedUnsignedLongByteIterable.getIterable((size << 1) + flag.value);
+        final List<ByteIterable> result = new ArrayList<>(5);
+        result.add(header);
+        result.add(getKeysAddressesIterable());
+        final ByteIterable childrenAddresses = CompressedUnsignedLongArrayByteIterable.getIterable(this.childrenAddresses, size);
+        final ByteIterable keysCounts = getKeysCountsIterable();
+        if (keysCounts == null) {
+            result.add(childrenAddresses);
+        } else {
+            final byte[] bytes = Arrays.copyOf(childrenAddresses.getBytesUnsafe(), childrenAddresses.getLength());
+            bytes[0] |= InternalPage.KEYS_COUNTS_FLAG;
+            result.add(new ArrayByteIterable(bytes));
+            result.add(keysCounts);
+        }
+        final ByteIterable keysPrefixes = getKeysPrefixesIterable();
+        if (keysPrefixes != null) {
+            result.add(keysPrefixes);
+        }
+        return result.toArray(new ByteIterable[result.size()]);
+    }
+
+    /**
+     * @return numbers of keys in subtrees of children or null if the tree doesn't store them or some of them are
+     * unknown since the page was loaded from a page without them.
+     */
+    @Nullable
+    private ByteIterable getKeysCountsIterable() {
+        if (!getBalancePolicy().isCountedPages()) {
+            return null;
+        }
+        final long[] keysCounts = new long[size];
+        for (int i = 0; i < size; ++i) {
+            if ((keysCounts[i] = getChildKeysCount(i)) < 0) {
+                return null;
+            }
+        }
+        return CompressedUnsignedLongArrayByteIterable.getIterable(keysCounts, size);
     }
 
     @Override
@@ -281,8 +361,10 @@ public class InternalPageMutable extends BasePageMutable {
         InternalPageMutable page = (InternalPageMutable) _page;
         System.arraycopy(page.keys, 0, keys, size, page.size);
         System.arraycopy(page.keysAddresses, 0, keysAddresses, size, page.size);
+        System.arraycopy(page.keysPrefixes, 0, keysPrefixes, size, page.size);
         System.arraycopy(page.children, 0, children, size, page.size);
         System.arraycopy(page.childrenAddresses, 0, childrenAddresses, size, page.size);
+        System.arraycopy(page.childrenKeysCounts, 0, childrenKeysCounts, size, page.size);
         size += page.size;
     }
 
@@ -292,8 +374,10 @@ public class InternalPageMutable extends BasePageMutable {
         page.mergeWithRight(this);
         keys = page.keys;
         keysAddresses = page.keysAddresses;
+        keysPrefixes = page.keysPrefixes;
         children = page.children;
         childrenAddresses = page.childrenAddresses;
+        childrenKeysCounts = page.childrenKeysCounts;
         size = page.size;
     }
 
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.tree.btree;
+
+import jetbrains.exodus.ArrayByteIterable;
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.ByteIterator;
+import jetbrains.exodus.log.iterate.CompoundByteIterable;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-length key prefixes stored inline in a page after the addresses of its children and numbers of keys in
+ * their subtrees (see {@link InternalPage#KEYS_COUNTS_FLAG}), so binary search can compare keys without loading
+ * leaves. Presence of the prefixes is marked by {@link #PAGE_FLAG} in the byte containing length of key addresses.
+ * The prefixes section is the prefix length byte followed by a prefix per key.
+ * A prefix is a byte containing the length of the key, or prefix length + 1 if the key is longer than prefix
+ * length, followed by prefix length bytes of the key padded with zeros.
+ */
+final class KeyPrefixes {
+
+    static final int PAGE_FLAG = 0x40;
+    static final int MAX_PREFIX_LENGTH = 64;
+    /**
+     * Result of comparison if the key can't be compared by its prefix.
+     */
+    static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private KeyPrefixes() {
+    }
+
+    @NotNull
+    static byte[] getPrefix(@NotNull final ByteIterable key, final int prefixLength) {
+        final byte[] result = new byte[prefixLength + 1];
+        final int keyLength = key.getLength();
+        final int length = Math.min(keyLength, prefixLength);
+        result[0] = (byte) (keyLength > prefixLength ? prefixLength + 1 : keyLength);
+        System.arraycopy(key.getBytesUnsafe(), 0, result, 1, length);
+        return result;
+    }
+
+    /**
+     * @return key addresses with the first byte marked with {@link #PAGE_FLAG}.
+     */
+    @NotNull
+    static ByteIterable markKeyAddresses(@NotNull final ByteIterable keyAddresses) {
+        final byte[] bytes = Arrays.copyOf(keyAddresses.getBytesUnsafe(), keyAddresses.getLength());
+        bytes[0] |= PAGE_FLAG;
+        return new ArrayByteIterable(bytes);
+    }
+
+    @NotNull
+    static ByteIterable getIterable(@NotNull final byte[][] prefixes, final int size, final int prefixLength) {
+        final ByteIterable[] iterables = new ByteIterable[size + 1];
+        iterables[0] = new ArrayByteIterable(new byte[]{(byte) prefixLength});
+        for (int i = 0; i < size; ++i) {
+            iterables[i + 1] = new ArrayByteIterable(prefixes[i]);
+        }
+        return new CompoundByteIterable(iterables);
+    }
+
+    /**
+     * Reads prefixes section of a page.
+     *
+     * @return concatenated prefixes, prefix length is the last element of the array.
+     */
+    @NotNull
+    static byte[] load(@NotNull final ByteIterator it, final int size) {
+        final int prefixLength = it.next();
+        final int length = size * (prefixLength + 1);
+        final byte[] result = new byte[length + 1];
+        for (int i = 0; i < length; ++i) {
+            result[i] = it.next();
+        }
+        result[length] = (byte) prefixLength;
+        return result;
+    }
+
+    static int getPrefixLength(@NotNull final byte[] prefixes) {
+        return prefixes[prefixes.length - 1];
+    }
+
+    @NotNull
+    static byte[] getPrefix(@NotNull final byte[] prefixes, final int index) {
+        final int prefixLength = getPrefixLength(prefixes);
+        final int offset = index * (prefixLength + 1);
+        return Arrays.copyOfRange(prefixes, offset, offset + prefixLength + 1);
+    }
+
+    /**
+     * Compares index-th key of a page with specified key by the prefix of the former.
+     *
+     * @return negative, zero or positive number like Comparable.compareTo() or {@link #UNKNOWN}.
+     */
+    static int compare(@NotNull final byte[] prefixes, final int index,
+                       @NotNull final byte[] key, final int keyLength) {
+        final int prefixLength = getPrefixLength(prefixes);
+        final int offset = index * (prefixLength + 1);
+        final int length = prefixes[offset] & 0xff;
+        final boolean isComplete = length <= prefixLength;
+        final int min = Math.min(isComplete ? length : prefixLength, keyLength);
+        for (int i = 0; i < min; ++i) {
+            final byte b1 = prefixes[offset + 1 + i];
+            final byte b2 = key[i];
+            if (b1 != b2) {
+                return (b1 & 0xff) - (b2 & 0xff);
+            }
+        }
+        if (isComplete) {
+            return length - keyLength;
+        }
+        return keyLength <= prefixLength ? 1 : UNKNOWN;
+    }
+}
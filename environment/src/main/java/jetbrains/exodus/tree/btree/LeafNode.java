@@ -21,12 +21,16 @@ import jetbrains.exodus.log.ByteIteratorWithAddress;
 import jetbrains.exodus.log.RandomAccessLoggable;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
 import jetbrains.exodus.log.iterate.FixedLengthByteIterable;
+import jetbrains.exodus.tree.TreeNodesCache;
 import org.jetbrains.annotations.NotNull;
 
 /**
  * Stateless leaf node for immutable btree
  */
-class LeafNode extends BaseLeafNode {
+class LeafNode extends BaseLeafNode implements TreeNodesCache.Weighted {
+
+    // the node, its loggable and loggable's data iterable, key and value are read from the log on demand
+    private static final int WEIGHT = 112;
 
     @NotNull
     private final RandomAccessLoggable loggable;
@@ -49,6 +53,11 @@ class LeafNode extends BaseLeafNode {
         return loggable.getAddress();
     }
 
+    @Override
+    public int getWeight() {
+        return WEIGHT;
+    }
+
     public int getType() {
         return loggable.getType();
     }
@@ -19,12 +19,20 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.Iterator;
 
+/**
+ * Sorted array of child references. Sets having at least {@linkplain #INDEX_THRESHOLD} children also maintain
+ * an index mapping first bytes of children to their positions in the array, like in adaptive radix tree's
+ * 48-children nodes, so that looking up a child by its first byte takes constant time.
+ */
 final class ChildReferenceSet implements Iterable<ChildReference> {
 
     private static final int CAPACITY_THRESHOLD = 2;
+    static final int INDEX_THRESHOLD = 16;
 
     private ChildReference[] refs;
     private int size;
+    // first byte -> (position in refs + 1) & 0xff, 0 if there is no such child; null for small sets
+    private byte[] index;
 
     ChildReferenceSet() {
         clear(0);
@@ -33,6 +41,7 @@ final class ChildReferenceSet implements Iterable<ChildReference> {
     void clear(final int capacity) {
         refs = capacity == 0 ? null : new ChildReference[Math.max(capacity, CAPACITY_THRESHOLD)];
         size = 0;
+        index = null;
     }
 
     int size() {
@@ -41,6 +50,9 @@ final class ChildReferenceSet implements Iterable<ChildReference> {
 
     void setSize(int size) {
         this.size = size;
+        if (size >= INDEX_THRESHOLD) {
+            buildIndex();
+        }
     }
 
     boolean isEmpty() {
@@ -48,6 +60,11 @@ final class ChildReferenceSet implements Iterable<ChildReference> {
     }
 
     ChildReference get(final byte b) {
+        final byte[] byteIndex = this.index;
+        if (byteIndex != null) {
+            final int i = getIndexedPosition(byteIndex, b & 0xff);
+            return i < 0 ? null : refs[i];
+        }
         final int index = searchFor(b);
         return index < 0 ? null : refs[index];
     }
@@ -60,6 +77,14 @@ final class ChildReferenceSet implements Iterable<ChildReference> {
     int searchFor(final byte b) {
         final ChildReference[] refs = this.refs;
         final int key = b & 0xff;
+        final byte[] byteIndex = this.index;
+        if (byteIndex != null) {
+            final int i = getIndexedPosition(byteIndex, key);
+            if (i >= 0) {
+                return i;
+            }
+            // position to insert at is looked up by binary search
+        }
         int low = 0;
         int high = size - 1;
         while (low <= high) {
@@ -86,6 +111,7 @@ final class ChildReferenceSet implements Iterable<ChildReference> {
         ensureCapacity(size + 1, size);
         refs[size] = ref;
         this.size = size + 1;
+        updateIndex(size);
     }
 
     void insertAt(final int index, @NotNull final ChildReferenceMutable ref) {
@@ -93,10 +119,15 @@ final class ChildReferenceSet implements Iterable<ChildReference> {
         ensureCapacity(size, index);
         refs[index] = ref;
         this.size = size;
+        updateIndex(index);
     }
 
     void setAt(final int index, @NotNull final ChildReference ref) {
         refs[index] = ref;
+        final byte[] byteIndex = this.index;
+        if (byteIndex != null) {
+            byteIndex[ref.firstByte & 0xff] = (byte) (index + 1);
+        }
     }
 
     boolean remove(final byte b) {
@@ -105,6 +136,10 @@ final class ChildReferenceSet implements Iterable<ChildReference> {
             return false;
         }
         final int size = this.size;
+        final byte[] byteIndex = this.index;
+        if (byteIndex != null) {
+            byteIndex[b & 0xff] = 0;
+        }
         if (size == 1) {
             refs = null;
         } else {
@@ -116,6 +151,7 @@ final class ChildReferenceSet implements Iterable<ChildReference> {
             refs[index + refsToCopy] = null;
         }
         this.size = size - 1;
+        updateIndex(index);
         return true;
     }
 
@@ -128,6 +164,41 @@ final class ChildReferenceSet implements Iterable<ChildReference> {
         return new ChildReferenceIterator(this, index);
     }
 
+    /**
+     * Updates positions of children starting from specified one in the index, builds the index
+     * if the set has grown large enough.
+     */
+    private void updateIndex(final int from) {
+        final byte[] byteIndex = this.index;
+        if (byteIndex == null) {
+            if (size >= INDEX_THRESHOLD) {
+                buildIndex();
+            }
+        } else {
+            final ChildReference[] refs = this.refs;
+            for (int i = from; i < size; ++i) {
+                final ChildReference ref = refs[i];
+                if (ref != null) {
+                    byteIndex[ref.firstByte & 0xff] = (byte) (i + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return position of the child with specified first byte or -1 if there is no such child.
+     */
+    private int getIndexedPosition(@NotNull final byte[] byteIndex, final int key) {
+        final int i = byteIndex[key] & 0xff;
+        // in a full set, position + 1 of the last child overflows to 0
+        return i != 0 ? i - 1 : (size == 256 ? 255 : -1);
+    }
+
+    private void buildIndex() {
+        index = new byte[256];
+        updateIndex(0);
+    }
+
     private void ensureCapacity(final int capacity, final int insertPos) {
         final ChildReference[] refs = this.refs;
         if (refs == null) {
@@ -24,12 +24,23 @@ import jetbrains.exodus.log.ByteIterableWithAddress;
 import jetbrains.exodus.log.ByteIteratorWithAddress;
 import jetbrains.exodus.log.Loggable;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
+import jetbrains.exodus.tree.TreeNodesCache;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-final class ImmutableNode extends NodeBase {
+/**
+ * Node read from the log. Depending on the number of children, lookup of a child by its first byte is done
+ * by linear or binary search in the serialized children. Nodes having all 256 children address them directly,
+ * and nodes kept in the tree nodes cache can have an index of children's positions by their first bytes, like
+ * adaptive radix tree's 48-children nodes, so lookups in such nodes take constant time.
+ */
+final class ImmutableNode extends NodeBase implements TreeNodesCache.Weighted {
 
     private static final int CHILDREN_COUNT_TO_TRIGGER_BINARY_SEARCH = 8;
+    private static final int MAX_CHILDREN_COUNT = 256;
+    private static final int NO_INDEX = Integer.MIN_VALUE;
+    // the node, its data iterable and iterables of key and value
+    private static final int BASE_WEIGHT = 144;
 
     private final long address;
     private final byte type;
@@ -38,12 +49,24 @@ final class ImmutableNode extends NodeBase {
     private final int dataOffset;
     private final short childrenCount;
     private final byte childAddressLength;
+    // first byte -> position of child + 1, 0 if there is no such child; null if the node isn't indexed
+    @Nullable
+    private final byte[] childrenIndex;
 
     ImmutableNode(final long address, final byte type, @NotNull final ByteIterableWithAddress data) {
-        this(address, type, data, data.iterator());
+        this(address, type, data, false);
+    }
+
+    /**
+     * @param indexChildren if true and the node has enough children, the index of children by first bytes is built.
+     *                      It's worth building only for nodes which are looked up many times, e.g. cached ones.
+     */
+    ImmutableNode(final long address, final byte type, @NotNull final ByteIterableWithAddress data, final boolean indexChildren) {
+        this(address, type, data, data.iterator(), indexChildren);
     }
 
-    private ImmutableNode(final long address, final byte type, @NotNull final ByteIterableWithAddress data, @NotNull final ByteIteratorWithAddress it) {
+    private ImmutableNode(final long address, final byte type, @NotNull final ByteIterableWithAddress data,
+                          @NotNull final ByteIteratorWithAddress it, final boolean indexChildren) {
         super(extractKey(type, it), extractValue(type, it));
         this.address = address;
         this.type = type;
@@ -57,6 +80,8 @@ final class ImmutableNode extends NodeBase {
             childAddressLength = (byte) 0;
         }
         dataOffset = (int) (it.getAddress() - data.getDataAddress());
+        childrenIndex = indexChildren && childrenCount >= ChildReferenceSet.INDEX_THRESHOLD &&
+                childrenCount < MAX_CHILDREN_COUNT ? buildChildrenIndex() : null;
     }
 
     /**
@@ -70,6 +95,15 @@ final class ImmutableNode extends NodeBase {
         dataOffset = 0;
         childrenCount = (short) 0;
         childAddressLength = (byte) 0;
+        childrenIndex = null;
+    }
+
+    @Override
+    public int getWeight() {
+        final ByteIterable value = this.value;
+        final byte[] childrenIndex = this.childrenIndex;
+        return BASE_WEIGHT + keySequence.getLength() + (value == null ? 0 : value.getLength()) +
+                (childrenIndex == null ? 0 : 16 + childrenIndex.length);
     }
 
     @Override
@@ -91,6 +125,14 @@ final class ImmutableNode extends NodeBase {
     @Nullable
     NodeBase getChild(@NotNull final PatriciaTreeBase tree, final byte b) {
         final int key = b & 0xff;
+        final int position = getIndexedPosition(key);
+        if (position != NO_INDEX) {
+            if (position < 0) {
+                return null;
+            }
+            final long nodeAddress = LongBinding.entryToUnsignedLong(getChildAddressIterator(position), childAddressLength);
+            return PatriciaTreeBase.nodeIsRoot(type) ? tree.loadNode(nodeAddress) : tree.loadNonCachedNode(nodeAddress);
+        }
         if (childrenCount < CHILDREN_COUNT_TO_TRIGGER_BINARY_SEARCH) {
             // linear search
             final ByteIterator it = getDataIterator(0);
@@ -145,6 +187,15 @@ final class ImmutableNode extends NodeBase {
     @NotNull
     NodeChildrenIterator getChildren(final byte b) {
         final int key = b & 0xff;
+        final int position = getIndexedPosition(key);
+        if (position != NO_INDEX) {
+            if (position < 0) {
+                return new EmptyNodeChildrenIterator();
+            }
+            final ByteIterator it = getChildAddressIterator(position);
+            final long suffixAddress = LongBinding.entryToUnsignedLong(it, childAddressLength);
+            return new ImmutableNodeChildrenIterator(it, position + 1, new ChildReference(b, suffixAddress));
+        }
         if (childrenCount < CHILDREN_COUNT_TO_TRIGGER_BINARY_SEARCH) {
             // linear search
             final ByteIterator it = getDataIterator(0);
@@ -185,6 +236,17 @@ final class ImmutableNode extends NodeBase {
     @NotNull
     NodeChildrenIterator getChildrenRange(final byte b) {
         final int key = b & 0xff;
+        if (getIndexedPosition(key) != NO_INDEX) {
+            for (int nextKey = key + 1; nextKey < MAX_CHILDREN_COUNT; ++nextKey) {
+                final int position = getIndexedPosition(nextKey);
+                if (position >= 0) {
+                    final ByteIterator it = getChildAddressIterator(position);
+                    final long suffixAddress = LongBinding.entryToUnsignedLong(it, childAddressLength);
+                    return new ImmutableNodeChildrenIterator(it, position + 1, new ChildReference((byte) nextKey, suffixAddress));
+                }
+            }
+            return new EmptyNodeChildrenIterator();
+        }
         if (childrenCount < CHILDREN_COUNT_TO_TRIGGER_BINARY_SEARCH) {
             // linear search
             final ByteIterator it = getDataIterator(0);
@@ -240,6 +302,36 @@ final class ImmutableNode extends NodeBase {
         return address == Loggable.NULL_ADDRESS ? ByteIterable.EMPTY_ITERATOR : data.iterator(dataOffset + offset);
     }
 
+    /**
+     * @return iterator pointing to the address of the child at specified position.
+     */
+    private ByteIterator getChildAddressIterator(final int position) {
+        return getDataIterator(position * (childAddressLength + 1) + 1);
+    }
+
+    /**
+     * @return position of the child with specified first byte, -1 if there is no such child or
+     * {@linkplain #NO_INDEX} if the position can be only searched for.
+     */
+    private int getIndexedPosition(final int key) {
+        if (childrenCount == MAX_CHILDREN_COUNT) {
+            // children of a full node are addressed directly
+            return key;
+        }
+        final byte[] childrenIndex = this.childrenIndex;
+        return childrenIndex == null ? NO_INDEX : (childrenIndex[key] & 0xff) - 1;
+    }
+
+    private byte[] buildChildrenIndex() {
+        final byte[] result = new byte[MAX_CHILDREN_COUNT];
+        final ByteIterator it = getDataIterator(0);
+        for (int i = 0; i < childrenCount; ++i) {
+            result[it.next() & 0xff] = (byte) (i + 1);
+            it.skip(childAddressLength);
+        }
+        return result;
+    }
+
     @NotNull
     private static ByteIterable extractKey(final byte type, @NotNull final ByteIterator it) {
         if (!PatriciaTreeBase.nodeHasKey(type)) {
@@ -20,6 +20,7 @@ import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
 import jetbrains.exodus.tree.ITree;
 import jetbrains.exodus.tree.ITreeCursor;
+import jetbrains.exodus.tree.TreeCursor;
 import jetbrains.exodus.util.ByteIterableUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -329,6 +330,18 @@ public class PatriciaCursorDecorator implements ITreeCursor {
         return null;
     }
 
+    @Override
+    public boolean getByIndex(final long index) {
+        return TreeCursor.getByIndexIteratively(this, index);
+    }
+
+    @Override
+    public long getIndex() {
+        // keys of the source tree are unique and ordered the same way as pairs
+        return keyBytes == null ? -1 : TreeCursor.getIndexIteratively(
+                patriciaCursor.getTree(), getEscapedKeyValue(getKey(), getValue()), ByteIterable.EMPTY);
+    }
+
     @Override
     public int count() {
         int result = 0;
@@ -49,7 +49,7 @@ public abstract class PatriciaTreeBase implements ITree {
     protected final int structureId;
     protected long size;
     @Nullable
-    protected LongObjectCacheBase treeNodesCache;
+    protected LongObjectCacheBase<Object> treeNodesCache;
 
     protected PatriciaTreeBase(@NotNull final Log log, final int structureId) {
         this.log = log;
@@ -74,6 +74,13 @@ public abstract class PatriciaTreeBase implements ITree {
         return node == null ? null : node.getValue();
     }
 
+    @Override
+    public void getAll(@NotNull final ByteIterable[] keys, @NotNull final ByteIterable[] values) {
+        if (keys.length > 0) {
+            getAll(getRoot(), keys, 0, keys.length, 0, values);
+        }
+    }
+
     @Override
     public boolean hasPair(@NotNull final ByteIterable key, @NotNull final ByteIterable value) {
         final ByteIterable val = get(key);
@@ -114,7 +121,7 @@ public abstract class PatriciaTreeBase implements ITree {
     }
 
     @Override
-    public void setTreeNodesCache(@Nullable final LongObjectCacheBase treeNodesCache) {
+    public void setTreeNodesCache(@Nullable final LongObjectCacheBase<Object> treeNodesCache) {
         this.treeNodesCache = treeNodesCache;
     }
 
@@ -125,7 +132,7 @@ public abstract class PatriciaTreeBase implements ITree {
 
     @NotNull
     final ImmutableNode loadNode(final long address) {
-        final LongObjectCacheBase treeNodesCache = this.treeNodesCache;
+        final LongObjectCacheBase<Object> treeNodesCache = this.treeNodesCache;
         if (treeNodesCache == null) {
             return loadNonCachedNode(address);
         }
@@ -133,7 +140,9 @@ public abstract class PatriciaTreeBase implements ITree {
         if (node != null) {
             return (ImmutableNode) node;
         }
-        final ImmutableNode result = loadNonCachedNode(address);
+        final RandomAccessLoggable loggable = getLoggable(address);
+        // cached node is looked up many times, so it's worth indexing its children
+        final ImmutableNode result = new ImmutableNode(address, loggable.getType(), loggable.getData(), true);
         //noinspection unchecked
         treeNodesCache.cacheObject(address, result);
         return result;
@@ -166,6 +175,59 @@ public abstract class PatriciaTreeBase implements ITree {
 
     abstract NodeBase getRoot();
 
+    /**
+     * Looks up sorted keys from the range [from, to) having common prefix of specified length
+     * in the subtree of specified node. The keys going to the same child are looked up together.
+     */
+    private void getAll(@NotNull final NodeBase node, @NotNull final ByteIterable[] keys,
+                        final int from, final int to, final int prefixLength, @NotNull final ByteIterable[] values) {
+        final ByteIterable keySequence = node.keySequence;
+        final byte[] keySequenceBytes = keySequence.getBytesUnsafe();
+        final int keySequenceLength = keySequence.getLength();
+        final int childByteOffset = prefixLength + keySequenceLength;
+        int i = from;
+        while (i < to) {
+            final ByteIterable key = keys[i];
+            if (!matchesKeySequence(key, prefixLength, keySequenceBytes, keySequenceLength)) {
+                ++i;
+                continue;
+            }
+            if (key.getLength() == childByteOffset) {
+                values[i++] = node.getValue();
+                continue;
+            }
+            final byte childByte = key.getBytesUnsafe()[childByteOffset];
+            int end = i + 1;
+            while (end < to) {
+                final ByteIterable nextKey = keys[end];
+                if (nextKey.getLength() <= childByteOffset || nextKey.getBytesUnsafe()[childByteOffset] != childByte ||
+                        !matchesKeySequence(nextKey, prefixLength, keySequenceBytes, keySequenceLength)) {
+                    break;
+                }
+                ++end;
+            }
+            final NodeBase child = node.getChild(this, childByte);
+            if (child != null) {
+                getAll(child, keys, i, end, childByteOffset + 1, values);
+            }
+            i = end;
+        }
+    }
+
+    private static boolean matchesKeySequence(@NotNull final ByteIterable key, final int offset,
+                                              @NotNull final byte[] keySequenceBytes, final int keySequenceLength) {
+        if (key.getLength() < offset + keySequenceLength) {
+            return false;
+        }
+        final byte[] keyBytes = key.getBytesUnsafe();
+        for (int i = 0; i < keySequenceLength; ++i) {
+            if (keyBytes[offset + i] != keySequenceBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Nullable
     protected NodeBase getNode(@NotNull final ByteIterable key) {
         final ByteIterator it = key.iterator();
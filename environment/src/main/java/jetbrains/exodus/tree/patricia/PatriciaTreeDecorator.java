@@ -55,6 +55,13 @@ abstract class PatriciaTreeDecorator implements ITree {
         return get(key) != null;
     }
 
+    @Override
+    public void getAll(@NotNull final ByteIterable[] keys, @NotNull final ByteIterable[] values) {
+        for (int i = 0; i < keys.length; ++i) {
+            values[i] = get(keys[i]);
+        }
+    }
+
     @Override
     public boolean isEmpty() {
         return treeNoDuplicates.isEmpty();
@@ -66,7 +73,7 @@ abstract class PatriciaTreeDecorator implements ITree {
     }
 
     @Override
-    public void setTreeNodesCache(@Nullable final LongObjectCacheBase cache) {
+    public void setTreeNodesCache(@Nullable final LongObjectCacheBase<Object> cache) {
         treeNoDuplicates.setTreeNodesCache(cache);
     }
 
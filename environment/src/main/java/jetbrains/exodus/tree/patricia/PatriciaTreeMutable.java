@@ -19,6 +19,7 @@ import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.ByteIterator;
 import jetbrains.exodus.ExodusException;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.log.Log;
 import jetbrains.exodus.log.Loggable;
 import jetbrains.exodus.log.NullLoggable;
@@ -121,6 +122,21 @@ final class PatriciaTreeMutable extends PatriciaTreeBase implements ITreeMutable
 
     @Override
     public void putRight(@NotNull final ByteIterable key, @NotNull final ByteIterable value) {
+        putRightImpl(key, value);
+        TreeCursorMutable.notifyCursors(this);
+    }
+
+    @Override
+    public void putAllRight(@NotNull final Iterator<Pair<ByteIterable, ByteIterable>> pairs) {
+        // mutable nodes are written to the log only on save(), so it is enough to notify cursors once
+        while (pairs.hasNext()) {
+            final Pair<ByteIterable, ByteIterable> pair = pairs.next();
+            putRightImpl(pair.getFirst(), pair.getSecond());
+        }
+        TreeCursorMutable.notifyCursors(this);
+    }
+
+    private void putRightImpl(@NotNull final ByteIterable key, @NotNull final ByteIterable value) {
         final ByteIterator it = key.iterator();
         MutableNode node = root;
         MutableNode prev = null;
@@ -170,7 +186,6 @@ final class PatriciaTreeMutable extends PatriciaTreeBase implements ITreeMutable
             }
             node = mutableChild;
         }
-        TreeCursorMutable.notifyCursors(this);
     }
 
     @Override
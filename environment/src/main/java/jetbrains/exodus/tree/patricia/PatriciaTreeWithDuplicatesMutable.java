@@ -16,6 +16,7 @@
 package jetbrains.exodus.tree.patricia;
 
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.log.Loggable;
 import jetbrains.exodus.log.RandomAccessLoggable;
 import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
@@ -73,6 +74,29 @@ final class PatriciaTreeWithDuplicatesMutable extends PatriciaTreeWithDuplicates
                 getEscapedKeyValue(key, value), CompressedUnsignedLongByteIterable.getIterable(key.getLength()));
     }
 
+    @Override
+    public void putAllRight(@NotNull final Iterator<Pair<ByteIterable, ByteIterable>> pairs) {
+        getTreeNoDuplicates().putAllRight(new Iterator<Pair<ByteIterable, ByteIterable>>() {
+            @Override
+            public boolean hasNext() {
+                return pairs.hasNext();
+            }
+
+            @Override
+            public Pair<ByteIterable, ByteIterable> next() {
+                final Pair<ByteIterable, ByteIterable> pair = pairs.next();
+                final ByteIterable key = pair.getFirst();
+                return new Pair<>(getEscapedKeyValue(key, pair.getSecond()),
+                        CompressedUnsignedLongByteIterable.getIterable(key.getLength()));
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        });
+    }
+
     @Override
     public boolean add(@NotNull final ByteIterable key, @NotNull final ByteIterable value) {
         return getTreeNoDuplicates().add(
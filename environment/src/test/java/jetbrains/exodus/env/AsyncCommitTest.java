@@ -0,0 +1,101 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.env;
+
+import jetbrains.exodus.bindings.IntegerBinding;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class AsyncCommitTest extends EnvironmentTestsBase {
+
+    private static final int TRANSACTIONS_COUNT = 200;
+
+    @Test
+    public void commitAsync() throws InterruptedException, ExecutionException, TimeoutException {
+        final Store store = openStoreAutoCommit("store", StoreConfig.WITHOUT_DUPLICATES);
+        final Transaction txn = env.beginTransaction();
+        store.put(txn, IntegerBinding.intToEntry(0), IntegerBinding.intToEntry(0));
+        final CommitFuture future = txn.commitAsync();
+        Assert.assertNotNull(future);
+        Assert.assertFalse(future.cancel(true));
+        future.get(10, TimeUnit.SECONDS);
+        Assert.assertTrue(future.isDone());
+        final CountDownLatch listenerCalled = new CountDownLatch(1);
+        future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                listenerCalled.countDown();
+            }
+        });
+        Assert.assertEquals(0, listenerCalled.getCount());
+        Assert.assertEquals(1, countAutoCommit(store));
+    }
+
+    @Test
+    public void pipelinedCommits() throws InterruptedException, ExecutionException {
+        final Store store = openStoreAutoCommit("store", StoreConfig.WITHOUT_DUPLICATES);
+        final List<CommitFuture> futures = new ArrayList<>();
+        final CountDownLatch listenersCalled = new CountDownLatch(TRANSACTIONS_COUNT);
+        for (int i = 0; i < TRANSACTIONS_COUNT; ++i) {
+            final Transaction txn = env.beginTransaction();
+            store.put(txn, IntegerBinding.intToEntry(i), IntegerBinding.intToEntry(i));
+            final CommitFuture future = txn.commitAsync();
+            Assert.assertNotNull(future);
+            future.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    listenersCalled.countDown();
+                }
+            });
+            futures.add(future);
+        }
+        for (final CommitFuture future : futures) {
+            future.get();
+        }
+        Assert.assertTrue(listenersCalled.await(10, TimeUnit.SECONDS));
+        reopenEnvironment();
+        final Store reopenedStore = openStoreAutoCommit("store", StoreConfig.WITHOUT_DUPLICATES);
+        Assert.assertEquals(TRANSACTIONS_COUNT, countAutoCommit(reopenedStore));
+    }
+
+    @Test
+    public void conflictingCommitAsync() {
+        final Store store = openStoreAutoCommit("store", StoreConfig.WITHOUT_DUPLICATES);
+        final Transaction txn = env.beginTransaction();
+        store.put(txn, IntegerBinding.intToEntry(0), IntegerBinding.intToEntry(0));
+        putAutoCommit(store, IntegerBinding.intToEntry(1), IntegerBinding.intToEntry(1));
+        Assert.assertNull(txn.commitAsync());
+        txn.abort();
+    }
+
+    @Test
+    public void pendingCommitsAreDoneOnClose() {
+        final Store store = openStoreAutoCommit("store", StoreConfig.WITHOUT_DUPLICATES);
+        final Transaction txn = env.beginTransaction();
+        store.put(txn, IntegerBinding.intToEntry(0), IntegerBinding.intToEntry(0));
+        final CommitFuture future = txn.commitAsync();
+        Assert.assertNotNull(future);
+        reopenEnvironment();
+        Assert.assertTrue(future.isDone());
+    }
+}
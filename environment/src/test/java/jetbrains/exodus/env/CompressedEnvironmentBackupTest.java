@@ -0,0 +1,174 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.env;
+
+import jetbrains.exodus.TestUtil;
+import jetbrains.exodus.bindings.IntegerBinding;
+import jetbrains.exodus.io.CompressedLogFiles;
+import jetbrains.exodus.log.LogConfig;
+import jetbrains.exodus.log.LogUtil;
+import jetbrains.exodus.util.CompressBackupUtil;
+import jetbrains.exodus.util.IOUtil;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+
+public class CompressedEnvironmentBackupTest {
+
+    private static final int COUNT = 10000;
+
+    private File envDir;
+    private File backupDir;
+    private File restoreDir;
+
+    @Before
+    public void setUp() {
+        envDir = TestUtil.createTempDir();
+        backupDir = TestUtil.createTempDir();
+        restoreDir = TestUtil.createTempDir();
+    }
+
+    @After
+    public void tearDown() {
+        IOUtil.deleteRecursively(envDir);
+        IOUtil.deleteRecursively(backupDir);
+        IOUtil.deleteRecursively(restoreDir);
+        IOUtil.deleteFile(envDir);
+        IOUtil.deleteFile(backupDir);
+        IOUtil.deleteFile(restoreDir);
+    }
+
+    @Test
+    public void diskUsageIncludesTailFiles() {
+        final Environment env = newCompressedEnvironment();
+        try {
+            fill(env);
+            long logFilesSize = 0;
+            for (final File file : IOUtil.listFiles(envDir)) {
+                if (file.getName().endsWith(LogUtil.LOG_FILE_EXTENSION)) {
+                    logFilesSize += IOUtil.getAdjustedFileLength(file);
+                }
+            }
+            Assert.assertTrue(tailFile(envDir).length() > 0);
+            Assert.assertEquals(logFilesSize + IOUtil.getAdjustedFileLength(tailFile(envDir)) +
+                    IOUtil.getAdjustedFileLength(markerFile(envDir)), env.getDiskUsage());
+        } finally {
+            env.close();
+        }
+    }
+
+    @Test
+    public void backupAndRestore() throws Exception {
+        final File backup;
+        final Environment env = newCompressedEnvironment();
+        try {
+            fill(env);
+            backup = CompressBackupUtil.backup(env, backupDir, null, true);
+        } finally {
+            env.close();
+        }
+        extractEntireZip(backup, restoreDir);
+        Assert.assertTrue(markerFile(restoreDir).exists());
+        Assert.assertTrue(tailFile(restoreDir).exists());
+        // the marker alone should make the restored environment read its log as compressed
+        final Environment restored = Environments.newInstance(restoreDir, newConfig(false));
+        try {
+            restored.executeInReadonlyTransaction(new TransactionalExecutable() {
+                @Override
+                public void execute(@NotNull final Transaction txn) {
+                    final Store store = restored.openStore("store", StoreConfig.USE_EXISTING, txn);
+                    Assert.assertEquals(COUNT, store.count(txn));
+                    for (int i = 0; i < COUNT; ++i) {
+                        Assert.assertEquals(IntegerBinding.intToEntry(i), store.get(txn, IntegerBinding.intToEntry(i)));
+                    }
+                }
+            });
+        } finally {
+            restored.close();
+        }
+    }
+
+    private Environment newCompressedEnvironment() {
+        return Environments.newInstance(envDir, newConfig(true));
+    }
+
+    private static EnvironmentConfig newConfig(final boolean compressed) {
+        final EnvironmentConfig ec = new EnvironmentConfig();
+        ec.setLogCompressed(compressed);
+        ec.setLogFileSize(64);
+        ec.setGcEnabled(false);
+        return ec;
+    }
+
+    private static File tailFile(@NotNull final File dir) {
+        final File[] tails = IOUtil.listFiles(dir);
+        File result = null;
+        for (final File file : tails) {
+            if (file.getName().endsWith(CompressedLogFiles.TAIL_FILE_EXTENSION)) {
+                Assert.assertNull("Only the last file should have a tail", result);
+                result = file;
+            }
+        }
+        Assert.assertNotNull(result);
+        return result;
+    }
+
+    private static File markerFile(@NotNull final File dir) {
+        return new File(dir, LogConfig.COMPRESSED_LOG_MARKER);
+    }
+
+    private static void fill(@NotNull final Environment env) {
+        env.executeInTransaction(new TransactionalExecutable() {
+            @Override
+            public void execute(@NotNull final Transaction txn) {
+                final Store store = env.openStore("store", StoreConfig.WITHOUT_DUPLICATES, txn);
+                for (int i = 0; i < COUNT; ++i) {
+                    store.put(txn, IntegerBinding.intToEntry(i), IntegerBinding.intToEntry(i));
+                }
+            }
+        });
+    }
+
+    private static void extractEntireZip(@NotNull final File zip, @NotNull final File restoreDir) throws IOException {
+        try (ZipFile zipFile = new ZipFile(zip)) {
+            final Enumeration<ZipArchiveEntry> zipEntries = zipFile.getEntries();
+            while (zipEntries.hasMoreElements()) {
+                final ZipArchiveEntry zipEntry = zipEntries.nextElement();
+                final File entryFile = new File(restoreDir, zipEntry.getName());
+                if (zipEntry.isDirectory()) {
+                    entryFile.mkdirs();
+                } else {
+                    entryFile.getParentFile().mkdirs();
+                    try (FileOutputStream target = new FileOutputStream(entryFile)) {
+                        try (InputStream in = zipFile.getInputStream(zipEntry)) {
+                            IOUtil.copyStreams(in, target, IOUtil.BUFFER_ALLOCATOR);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
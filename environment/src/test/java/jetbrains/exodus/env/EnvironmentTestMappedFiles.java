@@ -0,0 +1,32 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.env;
+
+import jetbrains.exodus.core.dataStructures.Pair;
+import jetbrains.exodus.io.DataReader;
+import jetbrains.exodus.io.DataWriter;
+import jetbrains.exodus.io.MappedFileDataReader;
+
+import java.io.IOException;
+
+public class EnvironmentTestMappedFiles extends EnvironmentTest {
+
+    @Override
+    protected Pair<DataReader, DataWriter> createRW() throws IOException {
+        final Pair<DataReader, DataWriter> readerWriterPair = super.createRW();
+        return new Pair<DataReader, DataWriter>(new MappedFileDataReader(getEnvDirectory(), 16), readerWriterPair.getSecond());
+    }
+}
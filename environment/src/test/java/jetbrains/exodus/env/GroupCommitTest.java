@@ -0,0 +1,83 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.env;
+
+import jetbrains.exodus.bindings.IntegerBinding;
+import jetbrains.exodus.log.LogConfig;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GroupCommitTest extends EnvironmentTestsBase {
+
+    private static final int THREADS_COUNT = 8;
+    private static final int TRANSACTIONS_PER_THREAD = 50;
+
+    @Override
+    protected void createEnvironment() {
+        LogConfig config = new LogConfig();
+        config.setReader(reader);
+        config.setWriter(writer);
+        final EnvironmentConfig ec = new EnvironmentConfig();
+        ec.setLogDurableWrite(true);
+        ec.setEnvGroupCommit(true);
+        env = newEnvironmentInstance(config, ec);
+    }
+
+    @Test
+    public void logIsNotSyncedOnEachFlush() {
+        Assert.assertFalse(env.getLog().getConfig().isDurableWrite());
+        env.getEnvironmentConfig().setEnvGroupCommit(false);
+        Assert.assertTrue(env.getLog().getConfig().isDurableWrite());
+        env.getEnvironmentConfig().setEnvGroupCommit(true);
+        Assert.assertFalse(env.getLog().getConfig().isDurableWrite());
+    }
+
+    @Test
+    public void concurrentCommits() throws InterruptedException {
+        final Store store = openStoreAutoCommit("store", StoreConfig.WITHOUT_DUPLICATES);
+        final long transactionsBefore = env.getGroupCommit().getTransactions();
+        final Thread[] threads = new Thread[THREADS_COUNT];
+        for (int i = 0; i < THREADS_COUNT; ++i) {
+            final int threadNumber = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < TRANSACTIONS_PER_THREAD; ++j) {
+                        final int key = threadNumber * TRANSACTIONS_PER_THREAD + j;
+                        env.executeInTransaction(new TransactionalExecutable() {
+                            @Override
+                            public void execute(@NotNull final Transaction txn) {
+                                store.put(txn, IntegerBinding.intToEntry(key), IntegerBinding.intToEntry(key));
+                            }
+                        });
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        final GroupCommit groupCommit = env.getGroupCommit();
+        Assert.assertEquals(THREADS_COUNT * TRANSACTIONS_PER_THREAD, groupCommit.getTransactions() - transactionsBefore);
+        Assert.assertTrue(groupCommit.getBatches() <= groupCommit.getTransactions());
+        Assert.assertTrue(groupCommit.getAverageBatchSize() >= 1);
+        reopenEnvironment();
+        final Store reopenedStore = openStoreAutoCommit("store", StoreConfig.WITHOUT_DUPLICATES);
+        Assert.assertEquals(THREADS_COUNT * TRANSACTIONS_PER_THREAD, countAutoCommit(reopenedStore));
+    }
+}
@@ -19,6 +19,7 @@ import jetbrains.exodus.ArrayByteIterable;
 import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.ExodusException;
 import jetbrains.exodus.TestUtil;
+import jetbrains.exodus.bindings.IntegerBinding;
 import jetbrains.exodus.bindings.LongBinding;
 import jetbrains.exodus.bindings.StringBinding;
 import jetbrains.exodus.core.dataStructures.hash.LongHashSet;
@@ -33,6 +34,7 @@ import org.junit.Test;
 
 import java.security.SecureRandom;
 import java.util.Arrays;
+import java.util.Collections;
 
 public class StoreTest extends EnvironmentTestsBase {
 
@@ -58,6 +60,81 @@ public class StoreTest extends EnvironmentTestsBase {
         successivePutRightWithoutDuplicates(StoreConfig.WITHOUT_DUPLICATES_WITH_PREFIXING);
     }
 
+    @Test
+    public void testGetAll() {
+        getAll(StoreConfig.WITHOUT_DUPLICATES);
+    }
+
+    @Test
+    public void testGetAllWithPrefixing() {
+        getAll(StoreConfig.WITHOUT_DUPLICATES_WITH_PREFIXING);
+    }
+
+    @Test
+    public void testGetAllWithStoreGetCache() {
+        env.getEnvironmentConfig().setEnvStoreGetCacheSize(1000);
+        getAll(StoreConfig.WITHOUT_DUPLICATES);
+    }
+
+    @Test
+    public void testGetAllWithDuplicates() {
+        getAll(StoreConfig.WITH_DUPLICATES);
+    }
+
+    @Test
+    public void testGetAllWithDuplicatesWithPrefixing() {
+        getAll(StoreConfig.WITH_DUPLICATES_WITH_PREFIXING);
+    }
+
+    @Test
+    public void testGetAllWithBloomFilter() {
+        env.getEnvironmentConfig().setEnvStoreBloomFilterBitsPerKey(10);
+        getAll(StoreConfig.WITHOUT_DUPLICATES);
+    }
+
+    @Test
+    public void testBloomFilter() {
+        bloomFilter(StoreConfig.WITHOUT_DUPLICATES);
+    }
+
+    @Test
+    public void testBloomFilterWithPrefixing() {
+        bloomFilter(StoreConfig.WITHOUT_DUPLICATES_WITH_PREFIXING);
+    }
+
+    @Test
+    public void testBloomFilterWithDuplicates() {
+        bloomFilter(StoreConfig.WITH_DUPLICATES);
+    }
+
+    @Test
+    public void testBloomFilterWithDuplicatesWithPrefixing() {
+        bloomFilter(StoreConfig.WITH_DUPLICATES_WITH_PREFIXING);
+    }
+
+    @Test
+    public void testBloomFilterIsBuiltInBackground() throws InterruptedException {
+        env.getEnvironmentConfig().setEnvStoreBloomFilterBitsPerKey(10);
+        final int count = 3000;
+        Transaction txn = env.beginTransaction();
+        final Store store = env.openStore("store", StoreConfig.WITHOUT_DUPLICATES, txn);
+        for (int i = 0; i < count; i += 2) {
+            store.put(txn, IntegerBinding.intToEntry(i), IntegerBinding.intToEntry(-i));
+        }
+        txn.commit();
+        txn = env.beginReadonlyTransaction();
+        final long treeRootAddress = ((TransactionImpl) txn).getTree((StoreImpl) store).getRootAddress();
+        final StoreBloomFilters filters = env.getStoreBloomFilters();
+        Assert.assertNotNull(filters);
+        assertGetAndExists(txn, store, count, 2);
+        for (int i = 0; i < 100 && !filters.hasFilter(treeRootAddress); ++i) {
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(filters.hasFilter(treeRootAddress));
+        assertGetAndExists(txn, store, count, 2);
+        txn.abort();
+    }
+
     @Test
     public void testTruncateWithinTxn() {
         truncateWithinTxn(StoreConfig.WITHOUT_DUPLICATES);
@@ -224,6 +301,85 @@ public class StoreTest extends EnvironmentTestsBase {
         assertNotNullStringValue(store, kv11, "11");
     }
 
+    private void getAll(final StoreConfig config) {
+        final Environment env = getEnvironment();
+        final int count = 3000;
+        final ByteIterable[] keys = new ByteIterable[count];
+        for (int i = 0; i < count; ++i) {
+            keys[i] = IntegerBinding.intToEntry(i);
+        }
+        Collections.shuffle(Arrays.asList(keys));
+        Transaction txn = env.beginTransaction();
+        final Store store = env.openStore("store", config, txn);
+        for (int i = 0; i < count; i += 2) {
+            store.put(txn, IntegerBinding.intToEntry(i), IntegerBinding.intToEntry(-i));
+        }
+        assertGetAll(txn, store, keys);
+        txn.commit();
+        txn = env.beginReadonlyTransaction();
+        assertGetAll(txn, store, keys);
+        // if StoreGetCache is on, some values are got from it
+        assertGetAll(txn, store, keys);
+        txn.abort();
+    }
+
+    private static void assertGetAll(final Transaction txn, final Store store, final ByteIterable[] keys) {
+        final ByteIterable[] values = store.getAll(txn, keys);
+        Assert.assertEquals(keys.length, values.length);
+        for (int i = 0; i < keys.length; ++i) {
+            final int key = IntegerBinding.entryToInt(keys[i]);
+            if (key % 2 == 0) {
+                Assert.assertNotNull(values[i]);
+                Assert.assertEquals(-key, IntegerBinding.entryToInt(values[i]));
+            } else {
+                Assert.assertNull(values[i]);
+            }
+        }
+    }
+
+    private void bloomFilter(final StoreConfig config) {
+        env.getEnvironmentConfig().setEnvStoreBloomFilterBitsPerKey(10);
+        final int count = 3000;
+        Transaction txn = env.beginTransaction();
+        final Store store = env.openStore("store", config, txn);
+        for (int i = 0; i < count; i += 2) {
+            store.put(txn, IntegerBinding.intToEntry(i), IntegerBinding.intToEntry(-i));
+        }
+        txn.commit();
+        txn = env.beginReadonlyTransaction();
+        // the filter is built after a number of lookups, so first pass checks the tree and the next ones check the filter
+        for (int pass = 0; pass < 3; ++pass) {
+            assertGetAndExists(txn, store, count, 2);
+        }
+        txn.abort();
+        txn = env.beginTransaction();
+        for (int i = 1; i < count; i += 2) {
+            store.put(txn, IntegerBinding.intToEntry(i), IntegerBinding.intToEntry(-i));
+        }
+        txn.commit();
+        // new version of the tree gets its own filter
+        txn = env.beginReadonlyTransaction();
+        for (int pass = 0; pass < 3; ++pass) {
+            assertGetAndExists(txn, store, count, 1);
+        }
+        txn.abort();
+    }
+
+    private static void assertGetAndExists(final Transaction txn, final Store store, final int count, final int step) {
+        for (int i = 0; i < count; ++i) {
+            final ByteIterable key = IntegerBinding.intToEntry(i);
+            final ByteIterable value = store.get(txn, key);
+            if (i % step == 0) {
+                Assert.assertNotNull(value);
+                Assert.assertEquals(-i, IntegerBinding.entryToInt(value));
+                Assert.assertTrue(store.exists(txn, key, value));
+            } else {
+                Assert.assertNull(value);
+                Assert.assertFalse(store.exists(txn, key, IntegerBinding.intToEntry(-i)));
+            }
+        }
+    }
+
     private void truncateWithinTxn(final StoreConfig config) {
         Transaction txn = env.beginTransaction();
         final Store store = env.openStore("store", config, txn);
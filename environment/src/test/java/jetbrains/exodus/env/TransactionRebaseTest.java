@@ -0,0 +1,127 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.env;
+
+import jetbrains.exodus.bindings.IntegerBinding;
+import jetbrains.exodus.bindings.StringBinding;
+import jetbrains.exodus.log.LogConfig;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TransactionRebaseTest extends EnvironmentTestsBase {
+
+    @Override
+    protected void createEnvironment() {
+        LogConfig config = new LogConfig();
+        config.setReader(reader);
+        config.setWriter(writer);
+        final EnvironmentConfig ec = new EnvironmentConfig();
+        ec.setEnvTxnRebase(true);
+        env = newEnvironmentInstance(config, ec);
+    }
+
+    @Test
+    public void disjointStores() {
+        final Store store1 = openStoreAutoCommit("store1", StoreConfig.WITHOUT_DUPLICATES);
+        final Store store2 = openStoreAutoCommit("store2", StoreConfig.WITHOUT_DUPLICATES);
+        final Transaction txn = env.beginTransaction();
+        store1.put(txn, IntegerBinding.intToEntry(1), StringBinding.stringToEntry("value1"));
+        putAutoCommit(store2, IntegerBinding.intToEntry(2), StringBinding.stringToEntry("value2"));
+        Assert.assertTrue(txn.commit());
+        assertNotNullStringValue(store1, IntegerBinding.intToEntry(1), "value1");
+        assertNotNullStringValue(store2, IntegerBinding.intToEntry(2), "value2");
+        reopenEnvironment();
+        assertNotNullStringValue(openStoreAutoCommit("store1", StoreConfig.USE_EXISTING), IntegerBinding.intToEntry(1), "value1");
+        assertNotNullStringValue(openStoreAutoCommit("store2", StoreConfig.USE_EXISTING), IntegerBinding.intToEntry(2), "value2");
+    }
+
+    @Test
+    public void sameStore() {
+        final Store store = openStoreAutoCommit("store", StoreConfig.WITHOUT_DUPLICATES);
+        final Transaction txn = env.beginTransaction();
+        store.put(txn, IntegerBinding.intToEntry(1), StringBinding.stringToEntry("value1"));
+        putAutoCommit(store, IntegerBinding.intToEntry(2), StringBinding.stringToEntry("value2"));
+        Assert.assertFalse(txn.flush());
+        txn.abort();
+    }
+
+    @Test
+    public void readStoreChanged() {
+        final Store store1 = openStoreAutoCommit("store1", StoreConfig.WITHOUT_DUPLICATES);
+        final Store store2 = openStoreAutoCommit("store2", StoreConfig.WITHOUT_DUPLICATES);
+        final Transaction txn = env.beginTransaction();
+        Assert.assertNull(store2.get(txn, IntegerBinding.intToEntry(2)));
+        store1.put(txn, IntegerBinding.intToEntry(1), StringBinding.stringToEntry("value1"));
+        putAutoCommit(store2, IntegerBinding.intToEntry(2), StringBinding.stringToEntry("value2"));
+        Assert.assertFalse(txn.flush());
+        txn.abort();
+    }
+
+    @Test
+    public void storeCreatedConcurrently() {
+        final Transaction txn = env.beginTransaction();
+        env.openStore("store", StoreConfig.WITHOUT_DUPLICATES, txn);
+        openStoreAutoCommit("store", StoreConfig.WITHOUT_DUPLICATES);
+        Assert.assertFalse(txn.flush());
+        txn.abort();
+    }
+
+    @Test
+    public void allStoreNamesRead() {
+        final Store store1 = openStoreAutoCommit("store1", StoreConfig.WITHOUT_DUPLICATES);
+        final Transaction txn = env.beginTransaction();
+        final List<String> storeNames = env.getAllStoreNames(txn);
+        store1.put(txn, IntegerBinding.intToEntry(storeNames.size()), StringBinding.stringToEntry("value1"));
+        openStoreAutoCommit("store2", StoreConfig.WITHOUT_DUPLICATES);
+        Assert.assertFalse(txn.flush());
+        txn.abort();
+    }
+
+    @Test
+    public void rebaseDisabled() {
+        env.getEnvironmentConfig().setEnvTxnRebase(false);
+        final Store store1 = openStoreAutoCommit("store1", StoreConfig.WITHOUT_DUPLICATES);
+        final Store store2 = openStoreAutoCommit("store2", StoreConfig.WITHOUT_DUPLICATES);
+        final Transaction txn = env.beginTransaction();
+        store1.put(txn, IntegerBinding.intToEntry(1), StringBinding.stringToEntry("value1"));
+        putAutoCommit(store2, IntegerBinding.intToEntry(2), StringBinding.stringToEntry("value2"));
+        Assert.assertFalse(txn.flush());
+        txn.abort();
+    }
+
+    @Test
+    public void flushAfterRebase() {
+        final Store store1 = openStoreAutoCommit("store1", StoreConfig.WITHOUT_DUPLICATES);
+        final Store store2 = openStoreAutoCommit("store2", StoreConfig.WITHOUT_DUPLICATES);
+        final Transaction txn = env.beginTransaction();
+        store1.put(txn, IntegerBinding.intToEntry(1), StringBinding.stringToEntry("value1"));
+        putAutoCommit(store2, IntegerBinding.intToEntry(2), StringBinding.stringToEntry("value2"));
+        Assert.assertTrue(txn.flush());
+        assertNotNullStringValue(txn, store2, IntegerBinding.intToEntry(2), "value2");
+        store2.put(txn, IntegerBinding.intToEntry(3), StringBinding.stringToEntry("value3"));
+        Assert.assertTrue(txn.commit());
+        env.executeInReadonlyTransaction(new TransactionalExecutable() {
+            @Override
+            public void execute(@NotNull final Transaction txn) {
+                Assert.assertEquals(1, store1.count(txn));
+                Assert.assertEquals(2, store2.count(txn));
+            }
+        });
+    }
+}
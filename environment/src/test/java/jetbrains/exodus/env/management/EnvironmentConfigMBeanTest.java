@@ -16,9 +16,13 @@
 package jetbrains.exodus.env.management;
 
 import jetbrains.exodus.TestUtil;
+import jetbrains.exodus.bindings.IntegerBinding;
+import jetbrains.exodus.env.Cursor;
 import jetbrains.exodus.env.EnvironmentTestsBase;
 import jetbrains.exodus.env.ReadonlyTransactionException;
+import jetbrains.exodus.env.Store;
 import jetbrains.exodus.env.StoreConfig;
+import jetbrains.exodus.env.Transaction;
 import jetbrains.exodus.env.TransactionImpl;
 import org.junit.Assert;
 import org.junit.Test;
@@ -76,6 +80,32 @@ public class EnvironmentConfigMBeanTest extends EnvironmentTestsBase {
         txn.abort();
     }
 
+    @Test
+    public void treeNodesCacheStatistics() throws Exception {
+        beanIsAccessible();
+        platformMBeanServer.setAttribute(envConfigName, new Attribute("TreeNodesCacheMemory", 1L << 20));
+        Assert.assertEquals(1L << 20, env.getEnvironmentConfig().getTreeNodesCacheMemory());
+        final Transaction txn = env.beginTransaction();
+        final Store store = env.openStore("New Store", StoreConfig.WITHOUT_DUPLICATES, txn);
+        for (int i = 0; i < 1000; ++i) {
+            store.put(txn, IntegerBinding.intToEntry(i), IntegerBinding.intToEntry(i));
+        }
+        txn.commit();
+        for (int j = 0; j < 2; ++j) {
+            final Transaction readTxn = env.beginReadonlyTransaction();
+            try (Cursor cursor = store.openCursor(readTxn)) {
+                for (int i = 0; i < 1000; ++i) {
+                    Assert.assertNotNull(cursor.getSearchKey(IntegerBinding.intToEntry(i)));
+                }
+            }
+            readTxn.abort();
+        }
+        Assert.assertTrue((Long) platformMBeanServer.getAttribute(envConfigName, "TreeNodesCacheHits") > 0);
+        Assert.assertTrue((Long) platformMBeanServer.getAttribute(envConfigName, "TreeNodesCacheMisses") > 0);
+        final long weight = (Long) platformMBeanServer.getAttribute(envConfigName, "TreeNodesCacheWeight");
+        Assert.assertTrue(weight > 0 && weight <= 1L << 20);
+    }
+
     @Test
     public void readOnly_XD_448() throws Exception {
         beanIsAccessible();
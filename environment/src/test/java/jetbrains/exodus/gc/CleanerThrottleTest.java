@@ -0,0 +1,101 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.gc;
+
+import jetbrains.exodus.env.EnvironmentConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CleanerThrottleTest {
+
+    private static final long MEGABYTE = 1 << 20;
+    private static final long PERIOD = 100000000L; // adaptation period in nanoseconds
+
+    @Test
+    public void notThrottledByDefault() {
+        final CleanerThrottle throttle = new CleanerThrottle(new EnvironmentConfig());
+        throttle.consumed(1024 * MEGABYTE);
+        throttle.pause();
+        Assert.assertEquals(0, throttle.getRate());
+        Assert.assertEquals(0, throttle.getThrottledTime());
+    }
+
+    @Test
+    public void pause() {
+        final CleanerThrottle throttle = new CleanerThrottle(createConfig(1, 1));
+        final long started = System.currentTimeMillis();
+        throttle.consumed(MEGABYTE / 2);
+        throttle.pause();
+        Assert.assertEquals(MEGABYTE, throttle.getRate());
+        Assert.assertTrue(throttle.getThrottledTime() > 0);
+        Assert.assertTrue(System.currentTimeMillis() - started >= 300);
+    }
+
+    @Test
+    public void adaptToLatency() {
+        final CleanerThrottle throttle = new CleanerThrottle(createConfig(16, 2));
+        for (int i = 0; i < 10; ++i) {
+            throttle.foregroundOperation(1000, false);
+        }
+        long now = System.nanoTime();
+        throttle.consumed(1, now);
+        Assert.assertEquals(16 * MEGABYTE, throttle.getRate());
+        // latency grows while cleaning
+        for (int i = 0; i < 4; ++i) {
+            throttle.foregroundOperation(10000, true);
+            throttle.consumed(1, now += PERIOD);
+        }
+        Assert.assertEquals(2 * MEGABYTE, throttle.getRate());
+        // latency is back to normal
+        throttle.foregroundOperation(1500, true);
+        throttle.consumed(1, now += PERIOD);
+        Assert.assertEquals(3 * MEGABYTE, throttle.getRate());
+        // no foreground operations
+        throttle.consumed(1, now += PERIOD);
+        Assert.assertEquals(4 * MEGABYTE, throttle.getRate());
+        // the rate isn't adapted more often than once a period
+        throttle.consumed(1, now + PERIOD / 2);
+        Assert.assertEquals(4 * MEGABYTE, throttle.getRate());
+    }
+
+    @Test
+    public void foregroundOperationsIgnoredWhileDisabled() {
+        final EnvironmentConfig ec = new EnvironmentConfig();
+        final CleanerThrottle throttle = new CleanerThrottle(ec);
+        Assert.assertFalse(throttle.isEnabled());
+        for (int i = 0; i < 10; ++i) {
+            throttle.foregroundOperation(1000, false);
+        }
+        ec.setGcMaxThroughput(16);
+        ec.setGcMinThroughput(2);
+        Assert.assertTrue(throttle.isEnabled());
+        long now = System.nanoTime();
+        throttle.consumed(1, now);
+        // no baseline latency was observed, so the rate isn't decreased
+        for (int i = 0; i < 4; ++i) {
+            throttle.foregroundOperation(10000, true);
+            throttle.consumed(1, now += PERIOD);
+        }
+        Assert.assertEquals(16 * MEGABYTE, throttle.getRate());
+    }
+
+    private static EnvironmentConfig createConfig(final int maxThroughput, final int minThroughput) {
+        final EnvironmentConfig ec = new EnvironmentConfig();
+        ec.setGcMaxThroughput(maxThroughput);
+        ec.setGcMinThroughput(minThroughput);
+        return ec;
+    }
+}
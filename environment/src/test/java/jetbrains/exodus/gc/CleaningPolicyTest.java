@@ -0,0 +1,51 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.gc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CleaningPolicyTest {
+
+    private static final long FILE_SIZE = 1024;
+    private static final long HIGH_ADDRESS = FILE_SIZE * 100;
+
+    @Test
+    public void maxFreeSpace() {
+        final CleaningPolicy policy = new MaxFreeSpaceCleaningPolicy();
+        Assert.assertTrue(getPriority(policy, 98, 600) > getPriority(policy, 0, 500));
+    }
+
+    @Test
+    public void costBenefitPrefersOldFiles() {
+        final CleaningPolicy policy = new CostBenefitCleaningPolicy();
+        // the young file has more free space, but it's likely to get emptier by itself
+        Assert.assertTrue(getPriority(policy, 0, 500) > getPriority(policy, 98, 600));
+        Assert.assertTrue(getPriority(policy, 0, 600) > getPriority(policy, 0, 500));
+    }
+
+    @Test
+    public void costBenefitBounds() {
+        final CleaningPolicy policy = new CostBenefitCleaningPolicy();
+        Assert.assertEquals(0, getPriority(policy, 0, 0), 0);
+        Assert.assertEquals(HIGH_ADDRESS, getPriority(policy, 0, FILE_SIZE), 0);
+        Assert.assertTrue(getPriority(policy, 99, FILE_SIZE) > 0);
+    }
+
+    private static double getPriority(final CleaningPolicy policy, final int fileNumber, final long freeBytes) {
+        return policy.getPriority(fileNumber * FILE_SIZE, freeBytes, FILE_SIZE, HIGH_ADDRESS);
+    }
+}
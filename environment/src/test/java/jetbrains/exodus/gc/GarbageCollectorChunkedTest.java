@@ -0,0 +1,123 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.gc;
+
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.bindings.IntegerBinding;
+import jetbrains.exodus.bindings.StringBinding;
+import jetbrains.exodus.env.*;
+import jetbrains.exodus.log.Log;
+import jetbrains.exodus.log.LogConfig;
+import jetbrains.exodus.log.RandomAccessLoggable;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class GarbageCollectorChunkedTest extends EnvironmentTestsBase {
+
+    @Override
+    protected void createEnvironment() {
+        LogConfig config = new LogConfig();
+        config.setReader(reader);
+        config.setWriter(writer);
+        final EnvironmentConfig ec = new EnvironmentConfig();
+        ec.setGcChunkSize(1024);
+        env = newEnvironmentInstance(config, ec);
+    }
+
+    @Test
+    public void cleanWholeLog() {
+        set4KbFileWithoutGC();
+        final ByteIterable key = StringBinding.stringToEntry("key");
+        final Store store = openStoreAutoCommit("updateSameKey", StoreConfig.WITHOUT_DUPLICATES);
+        for (int i = 0; i < 1000; ++i) {
+            putAutoCommit(store, key, IntegerBinding.intToEntry(i));
+        }
+        Assert.assertTrue(env.getLog().getNumberOfFiles() > 1);
+
+        env.getGC().cleanWholeLog();
+
+        Assert.assertEquals(1L, env.getLog().getNumberOfFiles());
+        Assert.assertEquals(999, IntegerBinding.entryToInt(getAutoCommit(store, key)));
+    }
+
+    @Test
+    public void resumeFromSavedCursor() {
+        set4KbFileWithoutGC();
+        final ByteIterable key = StringBinding.stringToEntry("key");
+        final Store store = openStoreAutoCommit("updateSameKey", StoreConfig.WITHOUT_DUPLICATES);
+        for (int i = 0; i < 1000; ++i) {
+            putAutoCommit(store, key, IntegerBinding.intToEntry(i));
+        }
+        final Log log = env.getLog();
+        Assert.assertTrue(log.getNumberOfFiles() > 1);
+        final Iterator<RandomAccessLoggable> loggables = log.getLoggableIterator(0);
+        loggables.next();
+        final long cursor = loggables.next().getAddress();
+        env.executeInTransaction(new TransactionalExecutable() {
+            @Override
+            public void execute(@NotNull final Transaction txn) {
+                env.getGC().getUtilizationProfile().putCleaningCursor(txn, 0, cursor);
+            }
+        });
+
+        reopenEnvironment();
+
+        Assert.assertEquals(cursor, env.getGC().getUtilizationProfile().getCleaningCursor(0));
+        env.getGC().cleanWholeLog();
+        Assert.assertEquals(1L, env.getLog().getNumberOfFiles());
+        final Store reopened = openStoreAutoCommit("updateSameKey", StoreConfig.USE_EXISTING);
+        Assert.assertEquals(999, IntegerBinding.entryToInt(getAutoCommit(reopened, key)));
+    }
+
+    @Test
+    public void progressUnderConcurrentCommits() throws InterruptedException {
+        set4KbFileWithoutGC();
+        final Store store = openStoreAutoCommit("store", StoreConfig.WITHOUT_DUPLICATES);
+        for (int i = 0; i < 1000; ++i) {
+            putAutoCommit(store, IntegerBinding.intToEntry(i), StringBinding.stringToEntry("value " + i));
+        }
+        Assert.assertTrue(env.getLog().getNumberOfFiles() > 2);
+        final AtomicBoolean finished = new AtomicBoolean();
+        final Thread writer = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; !finished.get(); ++i) {
+                    putAutoCommit(store, IntegerBinding.intToEntry(1000 + i % 100), StringBinding.stringToEntry("value"));
+                }
+            }
+        };
+        writer.start();
+        try {
+            Assert.assertTrue(env.getGC().doCleanFile(0));
+        } finally {
+            finished.set(true);
+            writer.join();
+        }
+        for (int i = 0; i < 1000; ++i) {
+            Assert.assertEquals("value " + i,
+                    StringBinding.entryToString(getAutoCommit(store, IntegerBinding.intToEntry(i))));
+        }
+    }
+
+    private void set4KbFileWithoutGC() {
+        setLogFileSize(4);
+        env.getEnvironmentConfig().setGcEnabled(false);
+    }
+}
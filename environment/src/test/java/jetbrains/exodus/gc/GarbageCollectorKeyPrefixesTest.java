@@ -0,0 +1,81 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.gc;
+
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.bindings.IntegerBinding;
+import jetbrains.exodus.bindings.StringBinding;
+import jetbrains.exodus.env.*;
+import jetbrains.exodus.log.Log;
+import jetbrains.exodus.log.LogConfig;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GarbageCollectorKeyPrefixesTest extends EnvironmentTestsBase {
+
+    @Override
+    protected EnvironmentImpl newEnvironmentInstance(final LogConfig config, final EnvironmentConfig ec) {
+        ec.setTreeKeyPrefixLength(4);
+        return super.newEnvironmentInstance(config, ec);
+    }
+
+    @Test
+    public void reclaimPagesWithKeyPrefixes() {
+        setLogFileSize(4);
+        env.getEnvironmentConfig().setGcEnabled(false);
+        final Store store = openStoreAutoCommit("store", StoreConfig.WITHOUT_DUPLICATES);
+        for (int i = 0; i < 1000; ++i) {
+            putAutoCommit(store, key(i), IntegerBinding.intToEntry(i));
+        }
+        final Log log = getLog();
+        final long deletionsFileAddress = log.getHighFileAddress();
+        // pages saved without new leaves are reclaimed by their own, not by their leaves
+        env.executeInTransaction(new TransactionalExecutable() {
+            @Override
+            public void execute(@NotNull final Transaction txn) {
+                for (int i = 0; i < 1000; i += 3) {
+                    Assert.assertTrue(store.delete(txn, key(i)));
+                }
+            }
+        });
+        final GarbageCollector gc = getEnvironment().getGC();
+        final long highFileAddress = log.getHighFileAddress();
+        Assert.assertNotEquals(deletionsFileAddress, highFileAddress);
+        long fileAddress = deletionsFileAddress;
+        while (fileAddress != highFileAddress) {
+            gc.doCleanFile(fileAddress);
+            fileAddress = log.getNextFileAddress(fileAddress);
+            gc.testDeletePendingFiles();
+        }
+        reopenEnvironment();
+        final Store reopened = openStoreAutoCommit("store", StoreConfig.USE_EXISTING);
+        Assert.assertEquals(666, countAutoCommit(reopened));
+        for (int i = 0; i < 1000; ++i) {
+            final ByteIterable value = getAutoCommit(reopened, key(i));
+            if (i % 3 == 0) {
+                Assert.assertNull(value);
+            } else {
+                Assert.assertNotNull(value);
+                Assert.assertEquals(i, IntegerBinding.entryToInt(value));
+            }
+        }
+    }
+
+    private static ByteIterable key(final int i) {
+        return StringBinding.stringToEntry("key" + (100000 + i));
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.gc;
+
+import jetbrains.exodus.bindings.IntegerBinding;
+import jetbrains.exodus.env.*;
+import jetbrains.exodus.log.*;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+public class GarbageCollectorTestParallelReclaim extends GarbageCollectorTest {
+
+    private static final int STORES = 8;
+
+    @Override
+    protected void createEnvironment() {
+        LogConfig config = new LogConfig();
+        config.setReader(reader);
+        config.setWriter(writer);
+        final EnvironmentConfig ec = new EnvironmentConfig();
+        ec.setGcReclaimParallelism(4);
+        env = newEnvironmentInstance(config, ec);
+    }
+
+    @Test
+    public void reclaimManyStores() {
+        set1KbFileWithoutGC();
+        fillManyStores(300);
+        cleanAndCheckManyStores(300);
+    }
+
+    @Test
+    public void reclaimManyStoresInBatches() {
+        setLogFileSize(1024);
+        env.getEnvironmentConfig().setGcEnabled(false);
+        fillManyStores(3000);
+        // the first file is reclaimed by several batches
+        Assert.assertTrue(countLoggablesOfStores(0) > GarbageCollector.RECLAIM_BATCH_SIZE);
+        cleanAndCheckManyStores(3000);
+    }
+
+    private void fillManyStores(final int transactions) {
+        final Store[] stores = new Store[STORES];
+        for (int i = 0; i < STORES; ++i) {
+            // stores of both tree types and with duplicates
+            final StoreConfig config = i % 4 == 0 ? StoreConfig.WITHOUT_DUPLICATES :
+                    i % 4 == 1 ? StoreConfig.WITH_DUPLICATES :
+                            i % 4 == 2 ? StoreConfig.WITHOUT_DUPLICATES_WITH_PREFIXING :
+                                    StoreConfig.WITH_DUPLICATES_WITH_PREFIXING;
+            stores[i] = openStoreAutoCommit("store" + i, config);
+        }
+        for (int i = 0; i < transactions; ++i) {
+            final int value = i;
+            env.executeInTransaction(new TransactionalExecutable() {
+                @Override
+                public void execute(@NotNull final Transaction txn) {
+                    for (final Store store : stores) {
+                        store.put(txn, IntegerBinding.intToEntry(value % 50), IntegerBinding.intToEntry(value));
+                    }
+                }
+            });
+        }
+        Assert.assertTrue(env.getLog().getNumberOfFiles() > 1);
+    }
+
+    private void cleanAndCheckManyStores(final int transactions) {
+        env.getGC().cleanWholeLog();
+        reopenEnvironment();
+
+        env.executeInReadonlyTransaction(new TransactionalExecutable() {
+            @Override
+            public void execute(@NotNull final Transaction txn) {
+                for (int i = 0; i < STORES; ++i) {
+                    final Store store = env.openStore("store" + i, StoreConfig.USE_EXISTING, txn);
+                    final boolean duplicates = i % 2 == 1;
+                    Assert.assertEquals(duplicates ? transactions : 50, store.count(txn));
+                    for (int key = 0; key < 50; ++key) {
+                        final int lastValue = transactions - 50 + key;
+                        // without duplicates, the last value put by the key survives
+                        Assert.assertEquals(duplicates ? key : lastValue, IntegerBinding.entryToInt(
+                                store.get(txn, IntegerBinding.intToEntry(key))));
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @return number of loggables of stores in the file.
+     */
+    private long countLoggablesOfStores(final long fileAddress) {
+        final Log log = env.getLog();
+        final long fileEnd = fileAddress + log.getFileSize() * LogUtil.LOG_BLOCK_ALIGNMENT;
+        final Iterator<RandomAccessLoggable> loggables = log.getLoggableIterator(fileAddress);
+        long result = 0;
+        while (loggables.hasNext()) {
+            final RandomAccessLoggable loggable = loggables.next();
+            if (loggable.getAddress() >= fileEnd) {
+                break;
+            }
+            final int structureId = loggable.getStructureId();
+            if (structureId != Loggable.NO_STRUCTURE_ID && structureId != EnvironmentImpl.META_TREE_ID) {
+                ++result;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.gc;
+
+import jetbrains.exodus.env.EnvironmentConfig;
+import jetbrains.exodus.log.LogConfig;
+
+public class GarbageCollectorTestScanResistantCache extends GarbageCollectorTest {
+
+    @Override
+    protected void createEnvironment() {
+        LogConfig config = new LogConfig();
+        config.setReader(reader);
+        config.setWriter(writer);
+        final EnvironmentConfig ec = new EnvironmentConfig();
+        // shared log cache is created only once, so the test needs a separate one
+        ec.setLogCacheShared(false);
+        ec.setMemoryUsage(256 * 1024);
+        ec.setLogCacheScanResistant(true);
+        env = newEnvironmentInstance(config, ec);
+    }
+}
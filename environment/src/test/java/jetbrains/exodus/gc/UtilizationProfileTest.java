@@ -0,0 +1,58 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.gc;
+
+import jetbrains.exodus.bindings.IntegerBinding;
+import jetbrains.exodus.bindings.StringBinding;
+import jetbrains.exodus.env.EnvironmentTestsBase;
+import jetbrains.exodus.env.Store;
+import jetbrains.exodus.env.StoreConfig;
+import jetbrains.exodus.log.Log;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UtilizationProfileTest extends EnvironmentTestsBase {
+
+    @Test
+    public void computeUtilizationFromScratchInParallel() {
+        set1KbFileWithoutGC();
+        for (int i = 0; i < 8; ++i) {
+            final Store store = openStoreAutoCommit("store" + i, StoreConfig.WITHOUT_DUPLICATES);
+            for (int j = 0; j < 50; ++j) {
+                putAutoCommit(store, IntegerBinding.intToEntry(j % 20), StringBinding.stringToEntry("value" + j));
+            }
+        }
+        final Log log = getLog();
+        final long[] fileAddresses = log.getAllFileAddresses();
+        final UtilizationProfile profile = env.getGC().getUtilizationProfile();
+
+        env.getEnvironmentConfig().setEnvStartupParallelism(1);
+        profile.computeUtilizationFromScratch();
+        final long[] freeBytes = new long[fileAddresses.length];
+        long totalFreeBytes = 0;
+        for (int i = 0; i < fileAddresses.length; ++i) {
+            freeBytes[i] = profile.getFileFreeBytes(fileAddresses[i]);
+            totalFreeBytes += freeBytes[i];
+        }
+        Assert.assertTrue(totalFreeBytes > 0);
+
+        env.getEnvironmentConfig().setEnvStartupParallelism(4);
+        profile.computeUtilizationFromScratch();
+        for (int i = 0; i < fileAddresses.length; ++i) {
+            Assert.assertEquals(freeBytes[i], profile.getFileFreeBytes(fileAddresses[i]));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.io;
+
+import jetbrains.exodus.TestUtil;
+import jetbrains.exodus.log.LogUtil;
+import jetbrains.exodus.util.IOUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+public class MappedFileDataReaderTest {
+
+    private static final int FILE_LENGTH = 1024;
+
+    private File dir;
+    private MappedFileDataReader reader;
+
+    @Before
+    public void setUp() {
+        dir = TestUtil.createTempDir();
+        reader = new MappedFileDataReader(dir, 16);
+    }
+
+    @After
+    public void tearDown() {
+        reader.close();
+        IOUtil.deleteRecursively(dir);
+        IOUtil.deleteFile(dir);
+    }
+
+    @Test
+    public void lastFileIsNotMapped() throws IOException {
+        append(0, 0, FILE_LENGTH / 2);
+        assertRead(0, 0, FILE_LENGTH / 2);
+        Assert.assertFalse(reader.isMapped(0));
+        // the last file grows and is read without re-mapping
+        append(0, FILE_LENGTH / 2, FILE_LENGTH / 2);
+        assertRead(0, FILE_LENGTH / 2, FILE_LENGTH / 2);
+        Assert.assertFalse(reader.isMapped(0));
+    }
+
+    @Test
+    public void previousFileIsMappedOnce() throws IOException {
+        append(0, 0, FILE_LENGTH);
+        assertRead(0, 0, FILE_LENGTH);
+        append(FILE_LENGTH, 0, FILE_LENGTH / 2);
+        assertRead(FILE_LENGTH, 0, FILE_LENGTH / 2);
+        assertRead(0, FILE_LENGTH / 2, FILE_LENGTH / 2);
+        Assert.assertTrue(reader.isMapped(0));
+        Assert.assertFalse(reader.isMapped(FILE_LENGTH));
+    }
+
+    @Test
+    public void lastFileIsUnknownAfterItsRemoval() throws IOException {
+        append(0, 0, FILE_LENGTH);
+        append(FILE_LENGTH, 0, FILE_LENGTH / 2);
+        assertRead(FILE_LENGTH, 0, FILE_LENGTH / 2);
+        reader.removeBlock(FILE_LENGTH, RemoveBlockType.Delete);
+        assertRead(0, 0, FILE_LENGTH);
+        Assert.assertFalse(reader.isMapped(0));
+    }
+
+    @Test
+    public void truncatedFileIsNotMapped() throws IOException {
+        append(0, 0, FILE_LENGTH);
+        append(FILE_LENGTH, 0, FILE_LENGTH / 2);
+        assertRead(FILE_LENGTH, 0, FILE_LENGTH / 2);
+        assertRead(0, 0, FILE_LENGTH);
+        Assert.assertTrue(reader.isMapped(0));
+        reader.removeBlock(FILE_LENGTH, RemoveBlockType.Delete);
+        reader.truncateBlock(0, FILE_LENGTH / 2);
+        assertRead(0, 0, FILE_LENGTH / 2);
+        Assert.assertFalse(reader.isMapped(0));
+    }
+
+    private void append(final long fileAddress, final int position, final int count) throws IOException {
+        final byte[] bytes = new byte[count];
+        for (int i = 0; i < count; ++i) {
+            bytes[i] = getByte(fileAddress, position + i);
+        }
+        try (FileOutputStream output = new FileOutputStream(new File(dir, LogUtil.getLogFilename(fileAddress)), true)) {
+            output.write(bytes);
+        }
+    }
+
+    private void assertRead(final long fileAddress, final int position, final int count) {
+        final byte[] output = new byte[count];
+        Assert.assertEquals(count, reader.getBlock(fileAddress).read(output, position, count));
+        for (int i = 0; i < count; ++i) {
+            Assert.assertEquals(getByte(fileAddress, position + i), output[i]);
+        }
+    }
+
+    private static byte getByte(final long fileAddress, final int position) {
+        return (byte) (fileAddress / FILE_LENGTH * 31 + position);
+    }
+}
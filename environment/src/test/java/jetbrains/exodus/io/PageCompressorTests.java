@@ -0,0 +1,93 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.io;
+
+import jetbrains.exodus.ExodusException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class PageCompressorTests {
+
+    private static final int PAGE_SIZE = 4096;
+
+    @Test
+    public void repetitiveData() {
+        final byte[] page = new byte[PAGE_SIZE];
+        for (int i = 0; i < PAGE_SIZE; ++i) {
+            page[i] = (byte) (i % 17 + (i >> 9));
+        }
+        final int compressedLength = assertRoundTrip(page);
+        Assert.assertTrue(compressedLength < PAGE_SIZE / 4);
+    }
+
+    @Test
+    public void zeros() {
+        Assert.assertTrue(assertRoundTrip(new byte[PAGE_SIZE]) < 64);
+    }
+
+    @Test
+    public void randomDataIsIncompressible() {
+        final byte[] page = new byte[PAGE_SIZE];
+        new Random(7).nextBytes(page);
+        final byte[] dest = new byte[PAGE_SIZE];
+        Assert.assertEquals(-1, PageCompressor.compress(page, 0, PAGE_SIZE, dest, 0, PAGE_SIZE - (PAGE_SIZE >> 4)));
+    }
+
+    @Test
+    public void mixedData() {
+        final Random random = new Random(11);
+        final byte[] page = new byte[PAGE_SIZE];
+        for (int i = 0; i < 100; ++i) {
+            // random chunks interleaved with repetitions of previous bytes
+            for (int j = 0; j < PAGE_SIZE; ) {
+                final int length = Math.min(PAGE_SIZE - j, random.nextInt(40) + 1);
+                if (j > 0 && random.nextBoolean()) {
+                    final int from = random.nextInt(j);
+                    for (int k = 0; k < length; ++k) {
+                        page[j + k] = page[from + k];
+                    }
+                } else {
+                    for (int k = 0; k < length; ++k) {
+                        page[j + k] = (byte) random.nextInt(8);
+                    }
+                }
+                j += length;
+            }
+            assertRoundTrip(page);
+        }
+    }
+
+    @Test(expected = ExodusException.class)
+    public void corruptedData() {
+        final byte[] page = new byte[PAGE_SIZE];
+        final byte[] compressed = new byte[PAGE_SIZE];
+        final int length = PageCompressor.compress(page, 0, PAGE_SIZE, compressed, 0, PAGE_SIZE);
+        PageCompressor.decompress(compressed, 0, length - 1, new byte[PAGE_SIZE], 0, PAGE_SIZE);
+    }
+
+    private static int assertRoundTrip(final byte[] page) {
+        final byte[] compressed = new byte[PAGE_SIZE + 16];
+        final int length = PageCompressor.compress(page, 0, PAGE_SIZE, compressed, 3, PAGE_SIZE);
+        Assert.assertTrue(length > 0);
+        final byte[] decompressed = new byte[PAGE_SIZE + 5];
+        PageCompressor.decompress(compressed, 3, length, decompressed, 5, PAGE_SIZE);
+        Assert.assertArrayEquals(page, Arrays.copyOfRange(decompressed, 5, PAGE_SIZE + 5));
+        return length;
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log;
+
+import jetbrains.exodus.TestUtil;
+import jetbrains.exodus.io.CompressedFileDataReader;
+import jetbrains.exodus.io.CompressedFileDataWriter;
+import jetbrains.exodus.io.CompressedLogFiles;
+import jetbrains.exodus.io.FileDataReader;
+import jetbrains.exodus.io.FileDataWriter;
+import jetbrains.exodus.util.IOUtil;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+public class CompressedLogTests extends LogTestsBase {
+
+    private static final int FILE_SIZE = 64; // in Kb
+    private static final int PAGE_SIZE = 4096;
+
+    @Before
+    public void setUp() throws IOException {
+        super.setUp();
+        setCompressed();
+    }
+
+    @Test
+    public void filesAreCompressed() throws IOException {
+        initLog(FILE_SIZE);
+        final long highAddress = writeOneKbLoggables(80);
+        Assert.assertEquals(2, log.getNumberOfFiles());
+        final long firstFileAddress = log.getLowAddress();
+        Assert.assertEquals(FILE_SIZE * 1024, log.getFileSize(firstFileAddress));
+        Assert.assertTrue(getFile(firstFileAddress).length() < FILE_SIZE * 1024 / 4);
+        reopenLog();
+        Assert.assertEquals(highAddress, log.getHighAddress());
+        Assert.assertEquals(80, countLoggables());
+    }
+
+    @Test
+    public void partialPagesAreRecovered() throws IOException {
+        initLog(FILE_SIZE);
+        long highAddress = 0;
+        for (int i = 0; i < 10; ++i) {
+            highAddress = writeOneKbLoggables(1);
+        }
+        assertRecoveredAfterCrash(highAddress, 10);
+    }
+
+    @Test
+    public void partialPagesAreNotWrittenToCompressedFile() throws IOException {
+        initLog(FILE_SIZE);
+        for (int i = 0; i < 40; ++i) {
+            writeOneKbLoggables(1);
+        }
+        final long fileAddress = log.getHighFileAddress();
+        Assert.assertTrue(getFile(fileAddress).length() < 40 * 1024 / 4);
+        Assert.assertTrue(getTailFile(fileAddress).exists());
+        reopenLog();
+        Assert.assertEquals(40, countLoggables());
+    }
+
+    @Test
+    public void tailFilesOfCompleteFilesAreDeleted() throws IOException {
+        initLog(FILE_SIZE);
+        writeOneKbLoggables(80);
+        Assert.assertEquals(2, log.getNumberOfFiles());
+        Assert.assertFalse(getTailFile(log.getLowAddress()).exists());
+        Assert.assertTrue(getTailFile(log.getHighFileAddress()).exists());
+    }
+
+    @Test
+    public void truncatedDataIsNotRecovered() throws IOException {
+        initLog(FILE_SIZE);
+        final long highAddress = writeOneKbLoggables(10);
+        writeOneKbLoggables(10);
+        log.setHighAddress(highAddress);
+        final long newHighAddress = writeOneKbLoggables(1);
+        reopenLog();
+        Assert.assertEquals(newHighAddress, log.getHighAddress());
+        Assert.assertEquals(11, countLoggables());
+    }
+
+    @Test
+    public void truncatedDataIsNotRecoveredAfterCrash() throws IOException {
+        initLog(FILE_SIZE);
+        final long highAddress = writeOneKbLoggables(10);
+        writeOneKbLoggables(10);
+        log.setHighAddress(highAddress);
+        final long newHighAddress = writeOneKbLoggables(1);
+        assertRecoveredAfterCrash(newHighAddress, 11);
+    }
+
+    @Test
+    public void uncompressedFilesAreReadable() throws IOException {
+        reader = new FileDataReader(getLogDirectory(), 16);
+        writer = new FileDataWriter(getLogDirectory());
+        initLog(FILE_SIZE);
+        writeOneKbLoggables(100);
+        closeLog();
+        setCompressed();
+        initLog(FILE_SIZE);
+        final long highAddress = writeOneKbLoggables(100);
+        Assert.assertTrue(getFile(log.getHighFileAddress()).length() < log.getFileSize(log.getHighFileAddress()));
+        reopenLog();
+        Assert.assertEquals(highAddress, log.getHighAddress());
+        Assert.assertEquals(200, countLoggables());
+    }
+
+    private void setCompressed() {
+        final CompressedLogFiles files = new CompressedLogFiles(getLogDirectory(), PAGE_SIZE, 16);
+        reader = new CompressedFileDataReader(getLogDirectory(), 16, files);
+        writer = new CompressedFileDataWriter(getLogDirectory(), files);
+    }
+
+    private long writeOneKbLoggables(final int count) {
+        for (int i = 0; i < count; ++i) {
+            log.write(createOneKbLoggable());
+        }
+        log.flush(true);
+        return log.getHighAddress();
+    }
+
+    private void reopenLog() throws IOException {
+        closeLog();
+        setCompressed();
+        initLog(FILE_SIZE);
+    }
+
+    private long countLoggables() {
+        return countLoggables(log);
+    }
+
+    private static long countLoggables(final Log log) {
+        final LoggableIterator it = log.getLoggableIterator(0);
+        long result = 0;
+        while (it.hasNext()) {
+            final RandomAccessLoggable loggable = it.next();
+            if (loggable.getAddress() >= log.getHighAddress()) {
+                break;
+            }
+            if (!NullLoggable.isNullLoggable(loggable)) {
+                ++result;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Emulates crash: opens copy of files of the log which is not closed.
+     */
+    private void assertRecoveredAfterCrash(final long highAddress, final long loggables) throws IOException {
+        final File copyDirectory = TestUtil.createTempDir();
+        try {
+            for (final File file : IOUtil.listFiles(getLogDirectory())) {
+                try (FileInputStream input = new FileInputStream(file);
+                     FileOutputStream output = new FileOutputStream(new File(copyDirectory, file.getName()))) {
+                    IOUtil.copyStreams(input, output, IOUtil.BUFFER_ALLOCATOR);
+                }
+            }
+            final CompressedLogFiles files = new CompressedLogFiles(copyDirectory, PAGE_SIZE, 16);
+            final LogConfig config = new LogConfig();
+            config.setFileSize(FILE_SIZE);
+            config.setReader(new CompressedFileDataReader(copyDirectory, 16, files));
+            config.setWriter(new CompressedFileDataWriter(copyDirectory, files));
+            final Log recovered = new Log(config);
+            try {
+                Assert.assertEquals(highAddress, recovered.getHighAddress());
+                Assert.assertEquals(loggables, countLoggables(recovered));
+            } finally {
+                recovered.close();
+            }
+        } finally {
+            IOUtil.deleteRecursively(copyDirectory);
+            IOUtil.deleteFile(copyDirectory);
+        }
+    }
+
+    private File getFile(final long fileAddress) {
+        return new File(getLogDirectory(), LogUtil.getLogFilename(fileAddress));
+    }
+
+    private File getTailFile(final long fileAddress) {
+        return new File(getLogDirectory(), LogUtil.getLogFilename(fileAddress) + ".tail");
+    }
+}
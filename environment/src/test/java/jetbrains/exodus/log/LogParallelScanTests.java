@@ -0,0 +1,126 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log;
+
+import jetbrains.exodus.ArrayByteIterable;
+import jetbrains.exodus.io.Block;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LogParallelScanTests extends LogTestsBase {
+
+    private static final int PARALLELISM = 4;
+    private static final byte MARKER_TYPE = 125;
+
+    @Test
+    public void lastLoggableOfType() throws IOException {
+        initParallelLog();
+        final List<Long> markers = new ArrayList<>();
+        for (int i = 0; i < 50; ++i) {
+            for (int j = 0; j < 5; ++j) {
+                log.write(createLoggable((byte) 126));
+            }
+            if (i % 7 == 0) {
+                markers.add(log.write(createLoggable(MARKER_TYPE)));
+            }
+        }
+        // the last marker is a few batches of files away from the end of the log
+        for (int i = 0; i < 100; ++i) {
+            log.write(createLoggable((byte) 126));
+        }
+        log.flush();
+        Assert.assertTrue(log.getNumberOfFiles() > 10);
+        Loggable marker = log.getLastLoggableOfType(MARKER_TYPE);
+        for (int i = markers.size() - 1; i >= 0; --i) {
+            Assert.assertNotNull(marker);
+            Assert.assertEquals((long) markers.get(i), marker.getAddress());
+            marker = log.getLastLoggableOfTypeBefore(MARKER_TYPE, marker.getAddress());
+        }
+        Assert.assertNull(marker);
+    }
+
+    @Test
+    public void reopenLogInParallel() throws IOException {
+        initParallelLog();
+        for (int i = 0; i < 300; ++i) {
+            log.write(createLoggable((byte) 126));
+        }
+        log.flush();
+        final long highAddress = log.getHighAddress();
+        final long files = log.getNumberOfFiles();
+        closeLog();
+        initParallelLog();
+        Assert.assertEquals(highAddress, log.getHighAddress());
+        Assert.assertEquals(files, log.getNumberOfFiles());
+    }
+
+    @Test
+    public void blockLengths() {
+        final Block[] blocks = new Block[37];
+        for (int i = 0; i < blocks.length; ++i) {
+            blocks[i] = new TestBlock(i * 1024, i * 3);
+        }
+        for (final int parallelism : new int[]{1, 2, PARALLELISM, 64}) {
+            final long[] lengths = Log.getBlockLengths(blocks, parallelism);
+            Assert.assertEquals(blocks.length, lengths.length);
+            for (int i = 0; i < blocks.length; ++i) {
+                Assert.assertEquals(i * 3, lengths[i]);
+            }
+        }
+        Assert.assertEquals(0, Log.getBlockLengths(new Block[0], PARALLELISM).length);
+    }
+
+    private void initParallelLog() {
+        final LogConfig config = new LogConfig();
+        config.setFileSize(2);
+        config.setStartupParallelism(PARALLELISM);
+        initLog(config);
+    }
+
+    private static LoggableToWrite createLoggable(final byte type) {
+        return new LoggableToWrite(type, new ArrayByteIterable(new byte[100], 100), Loggable.NO_STRUCTURE_ID);
+    }
+
+    private static class TestBlock implements Block {
+
+        private final long address;
+        private final long length;
+
+        private TestBlock(final long address, final long length) {
+            this.address = address;
+            this.length = length;
+        }
+
+        @Override
+        public long getAddress() {
+            return address;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public int read(final byte[] output, final long position, final int count) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OffHeapPageCacheTests {
+
+    private static final int PAGE_SIZE = 1024;
+    private static final int PAGE_SIZE_LOGARITHM = 10;
+
+    @Test
+    public void cacheAndRemovePage() {
+        final OffHeapPageCache cache = new OffHeapPageCache(PAGE_SIZE * 1024, PAGE_SIZE, PAGE_SIZE_LOGARITHM);
+        final byte[] output = new byte[PAGE_SIZE];
+        Assert.assertFalse(cache.getPage(1, 0, output));
+        cache.cachePage(1, 0, createPage(1));
+        Assert.assertTrue(cache.getPage(1, 0, output));
+        Assert.assertArrayEquals(createPage(1), output);
+        // pages of different logs don't interfere
+        Assert.assertFalse(cache.getPage(2, 0, output));
+        cache.removePage(1, 0);
+        Assert.assertFalse(cache.getPage(1, 0, output));
+    }
+
+    @Test
+    public void evictPages() {
+        final int pagesCount = 1024;
+        final OffHeapPageCache cache = new OffHeapPageCache(PAGE_SIZE * pagesCount, PAGE_SIZE, PAGE_SIZE_LOGARITHM);
+        for (int i = 0; i < pagesCount * 4; ++i) {
+            cache.cachePage(1, (long) i * PAGE_SIZE, createPage(i));
+        }
+        final byte[] output = new byte[PAGE_SIZE];
+        int cachedPages = 0;
+        for (int i = 0; i < pagesCount * 4; ++i) {
+            if (cache.getPage(1, (long) i * PAGE_SIZE, output)) {
+                Assert.assertArrayEquals(createPage(i), output);
+                ++cachedPages;
+            }
+        }
+        Assert.assertTrue(cachedPages > 0);
+        Assert.assertTrue(cachedPages <= pagesCount);
+    }
+
+    @Test
+    public void clear() {
+        final OffHeapPageCache cache = new OffHeapPageCache(PAGE_SIZE * 1024, PAGE_SIZE, PAGE_SIZE_LOGARITHM);
+        for (int i = 0; i < 100; ++i) {
+            cache.cachePage(1, (long) i * PAGE_SIZE, createPage(i));
+        }
+        cache.clear();
+        final byte[] output = new byte[PAGE_SIZE];
+        for (int i = 0; i < 100; ++i) {
+            Assert.assertFalse(cache.getPage(1, (long) i * PAGE_SIZE, output));
+        }
+    }
+
+    private static byte[] createPage(final int seed) {
+        final byte[] result = new byte[PAGE_SIZE];
+        for (int i = 0; i < PAGE_SIZE; ++i) {
+            result[i] = (byte) (seed * 31 + i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log;
+
+import jetbrains.exodus.io.FileDataWriter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+public class PreallocationTests extends LogTestsBase {
+
+    private static final int FILE_SIZE = 64; // in Kb
+
+    @Before
+    public void setUp() throws IOException {
+        super.setUp();
+        writer = new FileDataWriter(getLogDirectory(), FILE_SIZE * 1024);
+    }
+
+    @Test
+    public void filesArePreallocated() throws IOException {
+        initLog(FILE_SIZE);
+        final long highAddress = writeOneKbLoggables(80);
+        Assert.assertEquals(2, log.getNumberOfFiles());
+        for (final long fileAddress : log.getAllFileAddresses()) {
+            Assert.assertEquals(FILE_SIZE * 1024, getFile(fileAddress).length());
+        }
+        Assert.assertEquals(highAddress - FILE_SIZE * 1024, log.getFileSize(log.getHighFileAddress()));
+        reopenLog();
+        Assert.assertEquals(highAddress, log.getHighAddress());
+        Assert.assertEquals(80, countLoggables());
+    }
+
+    @Test
+    public void truncatedDataIsNotRecovered() throws IOException {
+        initLog(FILE_SIZE);
+        final long highAddress = writeOneKbLoggables(10);
+        writeOneKbLoggables(10);
+        log.setHighAddress(highAddress);
+        final long newHighAddress = writeOneKbLoggables(1);
+        reopenLog();
+        Assert.assertEquals(newHighAddress, log.getHighAddress());
+        Assert.assertEquals(11, countLoggables());
+    }
+
+    private long writeOneKbLoggables(final int count) {
+        for (int i = 0; i < count; ++i) {
+            log.write(createOneKbLoggable());
+        }
+        log.flush(true);
+        return log.getHighAddress();
+    }
+
+    private void reopenLog() throws IOException {
+        closeLog();
+        initLog(FILE_SIZE);
+    }
+
+    private long countLoggables() {
+        final LoggableIterator it = log.getLoggableIterator(0);
+        long result = 0;
+        while (it.hasNext()) {
+            final RandomAccessLoggable loggable = it.next();
+            if (loggable.getAddress() >= log.getHighAddress()) {
+                break;
+            }
+            if (!NullLoggable.isNullLoggable(loggable)) {
+                ++result;
+            }
+        }
+        return result;
+    }
+
+    private File getFile(final long fileAddress) {
+        return new File(getLogDirectory(), LogUtil.getLogFilename(fileAddress));
+    }
+}
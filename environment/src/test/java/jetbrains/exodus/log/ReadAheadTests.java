@@ -0,0 +1,122 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.log;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+public class ReadAheadTests extends LogTestsBase {
+
+    private static final int PAGE_SIZE = 1024;
+    private static final int FILE_SIZE = 64; // in Kb
+    private static final int READ_AHEAD_PAGES = 8;
+
+    @Test
+    public void sequentialMissesTriggerReadAhead() throws IOException {
+        writeAndReopen(4);
+        final Log log = getLog();
+        // opening the log reads the last file sequentially
+        waitForReadAhead();
+        final long pagesReadOnOpen = log.getReadAheadPages();
+        final long usefulPagesOnOpen = log.getReadAheadUsefulPages();
+        Assert.assertFalse(log.cache.isCached(log, 2 * PAGE_SIZE));
+        log.cache.getPage(log, 0);
+        log.cache.getPage(log, PAGE_SIZE);
+        waitForReadAhead();
+        for (int i = 2; i < 2 + READ_AHEAD_PAGES; ++i) {
+            Assert.assertTrue(log.cache.isCached(log, i * PAGE_SIZE));
+        }
+        Assert.assertFalse(log.cache.isCached(log, (2 + READ_AHEAD_PAGES) * PAGE_SIZE));
+        Assert.assertEquals(pagesReadOnOpen + READ_AHEAD_PAGES, log.getReadAheadPages());
+        // the stream passes over prefetched pages and misses the next one
+        for (int i = 2; i <= 2 + READ_AHEAD_PAGES; ++i) {
+            log.cache.getPage(log, i * PAGE_SIZE);
+        }
+        waitForReadAhead();
+        Assert.assertEquals(usefulPagesOnOpen + READ_AHEAD_PAGES, log.getReadAheadUsefulPages());
+        Assert.assertEquals(pagesReadOnOpen + 2 * READ_AHEAD_PAGES, log.getReadAheadPages());
+    }
+
+    @Test
+    public void randomMissesDontTriggerReadAhead() throws IOException {
+        writeAndReopen(4);
+        final Log log = getLog();
+        waitForReadAhead();
+        final long pagesReadOnOpen = log.getReadAheadPages();
+        for (int i = 0; i < 64; i += 3) {
+            log.cache.getPage(log, ((i * 37) % 256) * PAGE_SIZE);
+        }
+        waitForReadAhead();
+        Assert.assertEquals(pagesReadOnOpen, log.getReadAheadPages());
+    }
+
+    @Test
+    public void scanWithReadAhead() throws IOException {
+        writeAndReopen(4);
+        final Log log = getLog();
+        final Iterator<RandomAccessLoggable> it = log.getLoggableIterator(0);
+        long count = 0;
+        while (it.hasNext()) {
+            final RandomAccessLoggable loggable = it.next();
+            if (loggable.getAddress() >= log.getHighAddress()) {
+                break;
+            }
+            Assert.assertTrue(NullLoggable.isNullLoggable(loggable));
+            ++count;
+        }
+        Assert.assertEquals(4 * FILE_SIZE * 1024, count);
+        Assert.assertTrue(log.getReadAheadPages() > 0);
+    }
+
+    @Test
+    public void truncateWhileReadingAhead() throws IOException {
+        writeAndReopen(4);
+        final Log log = getLog();
+        for (int i = 0; i < 2 * FILE_SIZE; ++i) {
+            log.cache.getPage(log, i * PAGE_SIZE);
+        }
+        log.setHighAddress(FILE_SIZE * 1024 + PAGE_SIZE / 2);
+        waitForReadAhead();
+        for (long address = FILE_SIZE * 1024 + PAGE_SIZE; address < 4 * FILE_SIZE * 1024; address += PAGE_SIZE) {
+            Assert.assertFalse(log.cache.isCached(log, address));
+        }
+    }
+
+    private void writeAndReopen(final int files) throws IOException {
+        initLog(createConfig(0));
+        for (int i = 0; i < files * FILE_SIZE * 1024; ++i) {
+            getLog().write(NullLoggable.create());
+        }
+        closeLog();
+        initLog(createConfig(READ_AHEAD_PAGES));
+    }
+
+    private static LogConfig createConfig(final int readAheadPages) {
+        final LogConfig config = new LogConfig();
+        config.setFileSize(FILE_SIZE);
+        config.setCachePageSize(PAGE_SIZE);
+        config.setMemoryUsagePercentage(10);
+        config.setReadAheadPages(readAheadPages);
+        return config;
+    }
+
+    private static void waitForReadAhead() {
+        ReadAheadJobProcessor.getInstance().waitForJobs(10);
+    }
+}
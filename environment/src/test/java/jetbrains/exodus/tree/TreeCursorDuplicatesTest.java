@@ -76,6 +76,33 @@ public abstract class TreeCursorDuplicatesTest extends TreeBaseTest {
         initial.run();
     }
 
+    @Test
+    public void testGetByIndex() throws IOException {
+        final TreeAwareRunnable getByIndex = new TreeAwareRunnable(getTreeMutable()) {
+            @Override
+            public void run() {
+                try (ITreeCursor c = _t.openCursor()) {
+                    assertEquals(-1, c.getIndex());
+                    for (int i = values.size() - 1; i >= 0; --i) {
+                        final INode ln = values.get(i);
+                        assertTrue(c.getByIndex(i));
+                        assertEquals(ln.getKey(), c.getKey());
+                        assertEquals(ln.getValue(), c.getValue());
+                        assertEquals(i, c.getIndex());
+                    }
+                    assertFalse(c.getByIndex(values.size()));
+                }
+            }
+        };
+
+        getByIndex.run();
+        long a = tm.save();
+        getByIndex.run();
+        reopen();
+        getByIndex.setTree(openTree(a, true));
+        getByIndex.run();
+    }
+
     @Test
     public void testCount() throws IOException {
         final TreeAwareRunnable count = new TreeAwareRunnable(getTreeMutable()) {
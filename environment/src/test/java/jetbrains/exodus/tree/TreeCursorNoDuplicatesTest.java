@@ -41,6 +41,34 @@ public abstract class TreeCursorNoDuplicatesTest extends CursorTestBase {
         }
     }
 
+    private void checkGetByIndex(final ITree tree) {
+        try (ITreeCursor c = tree.openCursor()) {
+            assertEquals(-1, c.getIndex());
+            for (int i = 0; i < s; i++) {
+                assertTrue(c.getNext());
+                if (i % 37 == 0) {
+                    assertEquals(i, c.getIndex());
+                    assertEquals(key(i), c.getKey());
+                }
+            }
+        }
+        try (ITreeCursor c = tree.openCursor()) {
+            for (int i = s - 1; i >= 0; i -= 7) {
+                assertTrue(c.getByIndex(i));
+                assertEquals(key(i), c.getKey());
+                assertEquals(value("v" + i), c.getValue());
+                assertEquals(i, c.getIndex());
+            }
+            assertFalse(c.getByIndex(s));
+            assertFalse(c.getByIndex(-1));
+            assertTrue(c.getByIndex(5));
+            assertTrue(c.getNext());
+            assertEquals(key(6), c.getKey());
+            assertTrue(c.getByIndex(s - 1));
+            assertFalse(c.getNext());
+        }
+    }
+
     @Test
     public void testOneNode() throws IOException {
         tm = createMutableTree(false, 1);
@@ -106,6 +134,15 @@ public abstract class TreeCursorNoDuplicatesTest extends CursorTestBase {
         assertFalse(c.getNext());
     }
 
+    @Test
+    public void testGetByIndex() throws IOException {
+        checkGetByIndex(tm);
+        long a = getTreeMutable().save();
+        reopen();
+        t = openTree(a, false);
+        checkGetByIndex(t);
+    }
+
     @Test
     public void testCount() throws IOException {
         final GetNext getNext = new GetNext() {
@@ -19,12 +19,13 @@ import jetbrains.exodus.ByteIterable;
 import jetbrains.exodus.TestUtil;
 import jetbrains.exodus.bindings.IntegerBinding;
 import jetbrains.exodus.bindings.LongBinding;
+import jetbrains.exodus.core.dataStructures.Pair;
 import jetbrains.exodus.core.dataStructures.hash.IntHashMap;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
-import java.util.Map;
+import java.util.*;
 
 import static org.junit.Assert.*;
 
@@ -236,6 +237,64 @@ public abstract class TreePutTest extends TreeBaseTest {
         cursor.close();
     }
 
+    @Test
+    public void testPutAllRight() {
+        tm = createMutableTree(false, 1);
+        final int count = 10000;
+        tm.putAllRight(createSortedPairs(0, count, 1));
+        assertEquals(count, tm.getSize());
+        final long address = tm.save();
+        tm = openTree(address, false).getMutableCopy();
+        assertEquals(count, tm.getSize());
+        final ITreeCursor cursor = tm.openCursor();
+        for (int i = 0; i < count; ++i) {
+            Assert.assertTrue(cursor.getNext());
+            Assert.assertEquals(i, IntegerBinding.readCompressed(cursor.getKey().iterator()));
+            Assert.assertEquals(i, IntegerBinding.readCompressed(cursor.getValue().iterator()));
+        }
+        Assert.assertFalse(cursor.getNext());
+        cursor.close();
+        tm.putAllRight(createSortedPairs(count, count + 1000, 1));
+        t = openTree(tm.save(), false);
+        assertEquals(count + 1000, t.getSize());
+        for (int i = 0; i < count + 1000; ++i) {
+            Assert.assertNotNull(t.get(IntegerBinding.intToCompressedEntry(i)));
+        }
+    }
+
+    @Test
+    public void testPutAllRightDuplicates() {
+        tm = createMutableTree(true, 1);
+        final int count = 3000;
+        tm.putAllRight(createSortedPairs(0, count, 3));
+        assertEquals(count * 3, tm.getSize());
+        t = openTree(tm.save(), true);
+        assertEquals(count * 3, t.getSize());
+        final ITreeCursor cursor = t.openCursor();
+        for (int i = 0; i < count; ++i) {
+            for (int j = 0; j < 3; ++j) {
+                Assert.assertTrue(cursor.getNext());
+                Assert.assertEquals(i, IntegerBinding.readCompressed(cursor.getKey().iterator()));
+                Assert.assertEquals(i + j, IntegerBinding.readCompressed(cursor.getValue().iterator()));
+            }
+        }
+        Assert.assertFalse(cursor.getNext());
+        cursor.close();
+    }
+
+    @Test
+    public void testPutAllRightUnsorted() {
+        tm = createMutableTree(false, 1);
+        TestUtil.runWithExpectedException(new Runnable() {
+            @Override
+            public void run() {
+                tm.putAllRight(Arrays.asList(
+                        new Pair<ByteIterable, ByteIterable>(key("2"), value("2")),
+                        new Pair<ByteIterable, ByteIterable>(key("1"), value("1"))).iterator());
+            }
+        }, IllegalArgumentException.class);
+    }
+
     @Test
     public void testPutRight2() {
         tm = createMutableTree(false, 1);
@@ -461,4 +520,14 @@ public abstract class TreePutTest extends TreeBaseTest {
             }
         });
     }
+
+    private static Iterator<Pair<ByteIterable, ByteIterable>> createSortedPairs(final int from, final int to, final int valuesPerKey) {
+        final List<Pair<ByteIterable, ByteIterable>> result = new ArrayList<>();
+        for (int i = from; i < to; ++i) {
+            for (int j = 0; j < valuesPerKey; ++j) {
+                result.add(new Pair<ByteIterable, ByteIterable>(IntegerBinding.intToCompressedEntry(i), IntegerBinding.intToCompressedEntry(i + j)));
+            }
+        }
+        return result.iterator();
+    }
 }
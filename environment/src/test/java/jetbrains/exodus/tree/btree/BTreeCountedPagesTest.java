@@ -0,0 +1,134 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.tree.btree;
+
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.bindings.IntegerBinding;
+import jetbrains.exodus.tree.ITreeCursor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.TreeMap;
+
+public class BTreeCountedPagesTest extends BTreeTestBase {
+
+    private static final BTreeBalancePolicy COUNTED_POLICY = new BTreeBalancePolicy(5, 0, true);
+    private static final BTreeBalancePolicy COUNTED_PREFIXES_POLICY = new BTreeBalancePolicy(5, 4, true);
+    private static final BTreeBalancePolicy NOT_COUNTED_POLICY = new BTreeBalancePolicy(5);
+
+    private final TreeMap<ByteIterable, ByteIterable> expected = new TreeMap<>();
+
+    @Test
+    public void getByIndex() {
+        tm = new BTreeEmpty(log, COUNTED_POLICY, false, 1).getMutableCopy();
+        putRandomKeys(1000);
+        final BTree tree = new BTree(log, COUNTED_POLICY, tm.save(), false, 1);
+        Assert.assertTrue(((InternalPage) tree.getRoot()).hasKeysCounts());
+        t = tree;
+        checkTree();
+    }
+
+    @Test
+    public void getByIndexWithPrefixes() {
+        tm = new BTreeEmpty(log, COUNTED_PREFIXES_POLICY, false, 1).getMutableCopy();
+        putRandomKeys(1000);
+        final BTree tree = new BTree(log, COUNTED_PREFIXES_POLICY, tm.save(), false, 1);
+        Assert.assertTrue(((InternalPage) tree.getRoot()).hasKeysCounts());
+        t = tree;
+        checkTree();
+    }
+
+    @Test
+    public void putDelete() {
+        tm = new BTreeEmpty(log, COUNTED_POLICY, false, 1).getMutableCopy();
+        putRandomKeys(1000);
+        tm = new BTree(log, COUNTED_POLICY, tm.save(), false, 1).getMutableCopy();
+        int i = 0;
+        for (final ByteIterable key : expected.keySet().toArray(new ByteIterable[expected.size()])) {
+            if (i++ % 3 == 0) {
+                Assert.assertTrue(tm.delete(key));
+                expected.remove(key);
+            }
+        }
+        putRandomKeys(300);
+        final BTree tree = new BTree(log, COUNTED_POLICY, tm.save(), false, 1);
+        Assert.assertTrue(((InternalPage) tree.getRoot()).hasKeysCounts());
+        t = tree;
+        checkTree();
+    }
+
+    @Test
+    public void readPagesWithoutCounts() {
+        tm = new BTreeEmpty(log, NOT_COUNTED_POLICY, false, 1).getMutableCopy();
+        putRandomKeys(1000);
+        final long address = tm.save();
+        BTree tree = new BTree(log, COUNTED_POLICY, address, false, 1);
+        Assert.assertFalse(((InternalPage) tree.getRoot()).hasKeysCounts());
+        t = tree;
+        checkTree();
+        // counts of not changed pages are unknown, so the root is saved without counts
+        tm = t.getMutableCopy();
+        putRandomKeys(10);
+        tree = new BTree(log, COUNTED_POLICY, tm.save(), false, 1);
+        Assert.assertFalse(((InternalPage) tree.getRoot()).hasKeysCounts());
+        t = tree;
+        checkTree();
+        tm = t.getMutableCopy();
+        putRandomKeys(300);
+        t = new BTree(log, NOT_COUNTED_POLICY, tm.save(), false, 1);
+        checkTree();
+    }
+
+    private void putRandomKeys(final int count) {
+        for (int i = 0; i < count; ++i) {
+            final ByteIterable key = IntegerBinding.intToEntry(RANDOM.nextInt());
+            final ByteIterable value = key(Integer.toString(i));
+            tm.put(key, value);
+            expected.put(key, value);
+        }
+    }
+
+    private void checkTree() {
+        final ByteIterable[] keys = expected.keySet().toArray(new ByteIterable[expected.size()]);
+        Assert.assertEquals(keys.length, t.getSize());
+        try (ITreeCursor cursor = t.openCursor()) {
+            Assert.assertEquals(-1, cursor.getIndex());
+            for (int i = 0; i < keys.length; ++i) {
+                Assert.assertTrue(cursor.getByIndex(i));
+                assertIterablesMatch(keys[i], cursor.getKey());
+                assertIterablesMatch(expected.get(keys[i]), cursor.getValue());
+                Assert.assertEquals(i, cursor.getIndex());
+            }
+            Assert.assertFalse(cursor.getByIndex(keys.length));
+            Assert.assertFalse(cursor.getByIndex(-1));
+        }
+        try (ITreeCursor cursor = t.openCursor()) {
+            for (int i = 0; i < keys.length; ++i) {
+                assertIterablesMatch(expected.get(keys[i]), t.get(keys[i]));
+                Assert.assertNotNull(cursor.getSearchKey(keys[i]));
+                Assert.assertEquals(i, cursor.getIndex());
+            }
+        }
+        try (ITreeCursor cursor = t.openCursor()) {
+            Assert.assertTrue(cursor.getByIndex(keys.length / 2));
+            for (int i = keys.length / 2 + 1; i < keys.length; ++i) {
+                Assert.assertTrue(cursor.getNext());
+                assertIterablesMatch(keys[i], cursor.getKey());
+            }
+            Assert.assertFalse(cursor.getNext());
+        }
+    }
+}
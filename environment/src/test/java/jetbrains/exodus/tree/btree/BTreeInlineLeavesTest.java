@@ -0,0 +1,167 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.tree.btree;
+
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.tree.ITree;
+import jetbrains.exodus.tree.ITreeCursor;
+import jetbrains.exodus.tree.LongIterator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+public class BTreeInlineLeavesTest extends BTreeTestBase {
+
+    private static final int INLINE_VALUE_MAX_LENGTH = 8;
+    private static final BTreeBalancePolicy INLINE_POLICY = new BTreeBalancePolicy(16, 0, false, INLINE_VALUE_MAX_LENGTH);
+    private static final BTreeBalancePolicy NO_INLINE_POLICY = new BTreeBalancePolicy(16);
+
+    private final TreeMap<ByteIterable, ByteIterable> expected = new TreeMap<>();
+
+    @Test
+    public void putGet() {
+        tm = new BTreeEmpty(log, INLINE_POLICY, false, 1).getMutableCopy();
+        putRandomKeys(1000);
+        t = new BTree(log, INLINE_POLICY, tm.save(), false, 1);
+        checkTree();
+        checkAddresses();
+    }
+
+    @Test
+    public void delete() {
+        tm = new BTreeEmpty(log, INLINE_POLICY, false, 1).getMutableCopy();
+        putRandomKeys(1000);
+        tm = new BTree(log, INLINE_POLICY, tm.save(), false, 1).getMutableCopy();
+        int i = 0;
+        for (final ByteIterable key : expected.keySet().toArray(new ByteIterable[expected.size()])) {
+            if (i++ % 3 == 0) {
+                Assert.assertTrue(tm.delete(key));
+                expected.remove(key);
+            }
+        }
+        t = new BTree(log, INLINE_POLICY, tm.save(), false, 1);
+        checkTree();
+        checkAddresses();
+    }
+
+    @Test
+    public void fewerLoggables() {
+        tm = new BTreeEmpty(log, NO_INLINE_POLICY, false, 1).getMutableCopy();
+        putRandomKeys(1000);
+        final int loggablesCount = countAddresses(new BTree(log, NO_INLINE_POLICY, tm.save(), false, 1));
+        tm = new BTreeEmpty(log, INLINE_POLICY, false, 2).getMutableCopy();
+        for (final Map.Entry<ByteIterable, ByteIterable> entry : expected.entrySet()) {
+            tm.put(entry.getKey(), entry.getValue());
+        }
+        t = new BTree(log, INLINE_POLICY, tm.save(), false, 2);
+        Assert.assertTrue(countAddresses(t) < loggablesCount / 2);
+    }
+
+    @Test
+    public void readLegacyPages() {
+        tm = new BTreeEmpty(log, NO_INLINE_POLICY, false, 1).getMutableCopy();
+        putRandomKeys(500);
+        t = new BTree(log, INLINE_POLICY, tm.save(), false, 1);
+        checkTree();
+        tm = t.getMutableCopy();
+        putRandomKeys(500);
+        t = new BTree(log, INLINE_POLICY, tm.save(), false, 1);
+        checkTree();
+        checkAddresses();
+        tm = t.getMutableCopy();
+        putRandomKeys(500);
+        t = new BTree(log, NO_INLINE_POLICY, tm.save(), false, 1);
+        checkTree();
+        checkAddresses();
+    }
+
+    @Test
+    public void duplicates() {
+        tm = new BTreeEmpty(log, INLINE_POLICY, true, 1).getMutableCopy();
+        for (int i = 0; i < 500; ++i) {
+            final ByteIterable key = key(RANDOM.nextInt(100));
+            final ByteIterable value = key(Integer.toString(i));
+            tm.put(key, value);
+            expected.put(key, value);
+        }
+        t = new BTree(log, INLINE_POLICY, tm.save(), true, 1);
+        for (final ByteIterable key : expected.keySet()) {
+            Assert.assertNotNull(t.get(key));
+        }
+        checkAddresses();
+    }
+
+    private void putRandomKeys(final int count) {
+        for (int i = 0; i < count; ++i) {
+            // composite keys sharing long prefixes
+            final ByteIterable key = key("type" + RANDOM.nextInt(3) + ".property" + RANDOM.nextInt(5) + '.' + RANDOM.nextInt(1000));
+            final ByteIterable value = key(RANDOM.nextInt(5) == 0 ? "long value " + i : Integer.toString(i));
+            tm.put(key, value);
+            expected.put(key, value);
+        }
+    }
+
+    private void checkTree() {
+        Assert.assertEquals(expected.size(), t.getSize());
+        for (final Map.Entry<ByteIterable, ByteIterable> entry : expected.entrySet()) {
+            assertIterablesMatch(entry.getValue(), t.get(entry.getKey()));
+        }
+        try (ITreeCursor cursor = t.openCursor()) {
+            for (final Map.Entry<ByteIterable, ByteIterable> entry : expected.entrySet()) {
+                Assert.assertTrue(cursor.getNext());
+                assertIterablesMatch(entry.getKey(), cursor.getKey());
+                assertIterablesMatch(entry.getValue(), cursor.getValue());
+            }
+            Assert.assertFalse(cursor.getNext());
+        }
+        for (int i = 0; i < 1000; ++i) {
+            final ByteIterable key = key("type" + RANDOM.nextInt(4) + ".property" + RANDOM.nextInt(6) + '.' + RANDOM.nextInt(1000));
+            assertIterablesMatch(expected.get(key), t.get(key));
+            final ByteIterable expectedKey = expected.ceilingKey(key);
+            try (ITreeCursor cursor = t.openCursor()) {
+                final ByteIterable value = cursor.getSearchKeyRange(key);
+                if (expectedKey == null) {
+                    Assert.assertNull(value);
+                } else {
+                    assertIterablesMatch(expectedKey, cursor.getKey());
+                    assertIterablesMatch(expected.get(expectedKey), value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that all addresses of the tree are addresses of loggables of the tree.
+     */
+    private void checkAddresses() {
+        final LongIterator it = t.addressIterator();
+        while (it.hasNext()) {
+            Assert.assertEquals(t.getStructureId(), log.read(it.next()).getStructureId());
+        }
+    }
+
+    private static int countAddresses(final ITree tree) {
+        int result = 0;
+        final LongIterator it = tree.addressIterator();
+        while (it.hasNext()) {
+            it.next();
+            ++result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.tree.btree;
+
+import jetbrains.exodus.ArrayByteIterable;
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.log.RandomAccessLoggable;
+import jetbrains.exodus.log.iterate.CompressedUnsignedLongByteIterable;
+import jetbrains.exodus.tree.ITreeCursor;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class BTreeKeyPrefixesTest extends BTreeTestBase {
+
+    private static final byte[] KEY_BYTES = {0, 1, 0x7f, (byte) 0x80, (byte) 0xff};
+    private static final BTreeBalancePolicy PREFIXES_POLICY = new BTreeBalancePolicy(5, 4);
+    private static final BTreeBalancePolicy NO_PREFIXES_POLICY = new BTreeBalancePolicy(5);
+
+    private final TreeMap<ByteIterable, ByteIterable> expected = new TreeMap<>();
+
+    @Test
+    public void putGet() {
+        tm = new BTreeEmpty(log, PREFIXES_POLICY, false, 1).getMutableCopy();
+        putRandomKeys(500);
+        t = new BTree(log, PREFIXES_POLICY, tm.save(), false, 1);
+        checkTree();
+    }
+
+    @Test
+    public void delete() {
+        tm = new BTreeEmpty(log, PREFIXES_POLICY, false, 1).getMutableCopy();
+        putRandomKeys(500);
+        tm = new BTree(log, PREFIXES_POLICY, tm.save(), false, 1).getMutableCopy();
+        int i = 0;
+        for (final ByteIterable key : expected.keySet().toArray(new ByteIterable[expected.size()])) {
+            if (i++ % 3 == 0) {
+                Assert.assertTrue(tm.delete(key));
+                expected.remove(key);
+            }
+        }
+        t = new BTree(log, PREFIXES_POLICY, tm.save(), false, 1);
+        checkTree();
+    }
+
+    @Test
+    public void reclaimPages() {
+        tm = new BTreeEmpty(log, PREFIXES_POLICY, false, 1).getMutableCopy();
+        putRandomKeys(500);
+        tm = new BTree(log, PREFIXES_POLICY, tm.save(), false, 1).getMutableCopy();
+        final long deletionsAddress = log.getHighAddress();
+        int i = 0;
+        for (final ByteIterable key : expected.keySet().toArray(new ByteIterable[expected.size()])) {
+            if (i++ % 3 == 0) {
+                Assert.assertTrue(tm.delete(key));
+                expected.remove(key);
+            }
+        }
+        // pages saved without new leaves are reclaimable on their own
+        final long rootAddress = tm.save();
+        final List<RandomAccessLoggable> pages = new ArrayList<>();
+        final Iterator<RandomAccessLoggable> loggables = log.getLoggableIterator(deletionsAddress);
+        while (loggables.hasNext()) {
+            final RandomAccessLoggable loggable = loggables.next();
+            if (loggable.getAddress() >= rootAddress) {
+                break;
+            }
+            if (loggable.getType() == BTreeBase.BOTTOM && isReclaimable(loggable)) {
+                pages.add(loggable);
+            }
+        }
+        Assert.assertFalse(pages.isEmpty());
+        for (final RandomAccessLoggable page : pages) {
+            tm = new BTree(log, PREFIXES_POLICY, rootAddress, false, 1).getMutableCopy();
+            Assert.assertTrue(tm.reclaim(page, Collections.<RandomAccessLoggable>emptyIterator()));
+            t = new BTree(log, PREFIXES_POLICY, tm.save(), false, 1);
+            checkTree();
+        }
+    }
+
+    @Test
+    public void readPagesWithoutPrefixes() {
+        tm = new BTreeEmpty(log, NO_PREFIXES_POLICY, false, 1).getMutableCopy();
+        putRandomKeys(300);
+        final long address = tm.save();
+        t = new BTree(log, PREFIXES_POLICY, address, false, 1);
+        checkTree();
+        tm = t.getMutableCopy();
+        putRandomKeys(300);
+        t = new BTree(log, PREFIXES_POLICY, tm.save(), false, 1);
+        checkTree();
+        tm = t.getMutableCopy();
+        putRandomKeys(300);
+        t = new BTree(log, NO_PREFIXES_POLICY, tm.save(), false, 1);
+        checkTree();
+    }
+
+    @Test
+    public void duplicates() {
+        tm = new BTreeEmpty(log, PREFIXES_POLICY, true, 1).getMutableCopy();
+        for (int i = 0; i < 200; ++i) {
+            final ByteIterable key = randomKey();
+            final ByteIterable value = randomKey();
+            if (tm.put(key, value) && !expected.containsKey(key)) {
+                expected.put(key, value);
+            }
+        }
+        t = new BTree(log, PREFIXES_POLICY, tm.save(), true, 1);
+        for (final ByteIterable key : expected.keySet()) {
+            Assert.assertNotNull(t.get(key));
+        }
+    }
+
+    private void putRandomKeys(final int count) {
+        for (int i = 0; i < count; ++i) {
+            final ByteIterable key = randomKey();
+            final ByteIterable value = key(Integer.toString(i));
+            tm.put(key, value);
+            expected.put(key, value);
+        }
+    }
+
+    private void checkTree() {
+        for (final Map.Entry<ByteIterable, ByteIterable> entry : expected.entrySet()) {
+            assertIterablesMatch(entry.getValue(), t.get(entry.getKey()));
+        }
+        for (int i = 0; i < 1000; ++i) {
+            final ByteIterable key = randomKey();
+            assertIterablesMatch(expected.get(key), t.get(key));
+            final ByteIterable expectedKey = expected.ceilingKey(key);
+            try (ITreeCursor cursor = t.openCursor()) {
+                final ByteIterable value = cursor.getSearchKeyRange(key);
+                if (expectedKey == null) {
+                    Assert.assertNull(value);
+                } else {
+                    assertIterablesMatch(expectedKey, cursor.getKey());
+                    assertIterablesMatch(expected.get(expectedKey), value);
+                }
+            }
+        }
+    }
+
+    private static boolean isReclaimable(@NotNull final RandomAccessLoggable page) {
+        return (CompressedUnsignedLongByteIterable.getInt(page.getData().iterator()) & 1) == 1;
+    }
+
+    private static ByteIterable randomKey() {
+        final byte[] bytes = new byte[RANDOM.nextInt(10) + 1];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = KEY_BYTES[RANDOM.nextInt(KEY_BYTES.length)];
+        }
+        return new ArrayByteIterable(bytes);
+    }
+}
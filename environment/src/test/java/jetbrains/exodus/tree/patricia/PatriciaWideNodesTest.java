@@ -0,0 +1,148 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.tree.patricia;
+
+import jetbrains.exodus.ArrayByteIterable;
+import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.ConcurrentLongObjectCache;
+import jetbrains.exodus.tree.ITree;
+import jetbrains.exodus.tree.ITreeCursor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Tests nodes having enough children to be looked up by index or directly.
+ */
+public class PatriciaWideNodesTest extends PatriciaTestBase {
+
+    private final TreeMap<ByteIterable, ByteIterable> expected = new TreeMap<>();
+
+    @Test
+    public void childrenCounts() {
+        for (final int childrenCount : new int[]{15, 16, 17, 48, 200, 255, 256}) {
+            expected.clear();
+            tm = createMutableTree(false, 1);
+            for (final int b : randomBytes(childrenCount)) {
+                put(bytes(b));
+                put(bytes(0, b));
+            }
+            checkTree(tm);
+            checkCachedTree(tm.save());
+        }
+    }
+
+    @Test
+    public void putDelete() {
+        tm = createMutableTree(false, 1);
+        for (final int b : randomBytes(256)) {
+            put(bytes(b));
+            put(bytes(0, b));
+        }
+        t = openTree(tm.save(), false);
+        tm = t.getMutableCopy();
+        final List<Integer> order = randomBytes(256);
+        for (int i = 0; i < order.size(); ++i) {
+            final int b = order.get(i);
+            final ByteIterable key = bytes(0, b);
+            Assert.assertTrue(tm.delete(key));
+            expected.remove(key);
+            if (i % 30 == 0) {
+                checkTree(tm);
+            }
+            if (i % 60 == 0) {
+                checkCachedTree(tm.save());
+                tm = t.getMutableCopy();
+            }
+        }
+        for (final int b : order) {
+            put(bytes(0, b));
+        }
+        checkTree(tm);
+        checkCachedTree(tm.save());
+    }
+
+    private void put(final ByteIterable key) {
+        final ByteIterable value = key(RANDOM.nextInt());
+        tm.put(key, value);
+        expected.put(key, value);
+    }
+
+    private void checkCachedTree(final long address) {
+        t = openTree(address, false);
+        ((PatriciaTreeBase) t).setTreeNodesCache(new ConcurrentLongObjectCache<Object>(1024));
+        // the first pass loads nodes into the cache, the second one uses cached nodes
+        checkTree(t);
+        checkTree(t);
+    }
+
+    private void checkTree(final ITree tree) {
+        Assert.assertEquals(expected.size(), tree.getSize());
+        for (int b = 0; b < 256; ++b) {
+            checkKey(tree, bytes(b));
+            checkKey(tree, bytes(0, b));
+            checkKey(tree, bytes(0, b, 0));
+        }
+        try (ITreeCursor cursor = tree.openCursor()) {
+            for (final ByteIterable key : expected.keySet()) {
+                Assert.assertTrue(cursor.getNext());
+                assertIterablesMatch(key, cursor.getKey());
+            }
+            Assert.assertFalse(cursor.getNext());
+        }
+    }
+
+    private void checkKey(final ITree tree, final ByteIterable key) {
+        final ByteIterable expectedValue = expected.get(key);
+        assertIterablesMatch(expectedValue, tree.get(key));
+        final ByteIterable expectedKey = expected.ceilingKey(key);
+        try (ITreeCursor cursor = tree.openCursor()) {
+            assertIterablesMatch(expectedValue, cursor.getSearchKey(key));
+        }
+        try (ITreeCursor cursor = tree.openCursor()) {
+            final ByteIterable value = cursor.getSearchKeyRange(key);
+            if (expectedKey == null) {
+                Assert.assertNull(value);
+            } else {
+                assertIterablesMatch(expectedKey, cursor.getKey());
+                assertIterablesMatch(expected.get(expectedKey), value);
+            }
+        }
+    }
+
+    private static List<Integer> randomBytes(final int count) {
+        final List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < 256; ++i) {
+            result.add(i);
+        }
+        for (int i = result.size() - 1; i > 0; --i) {
+            Collections.swap(result, i, RANDOM.nextInt(i + 1));
+        }
+        return result.subList(0, count);
+    }
+
+    private static ByteIterable bytes(final int... bytes) {
+        final byte[] result = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; ++i) {
+            result[i] = (byte) bytes[i];
+        }
+        return new ArrayByteIterable(result);
+    }
+}
@@ -112,12 +112,7 @@ public abstract class ByteIterableBase implements ByteIterable {
         if (a == null) {
             return 0;
         }
-        int result = 1;
-        final int length = getLength();
-        for (int i = 0; i < length; i++) {
-            result = 31 * result + a[i];
-        }
-        return result;
+        return ByteIterableUtil.hashCode(a, getLength());
     }
 
     @SuppressWarnings({"AssignmentToForLoopParameter"})
@@ -0,0 +1,37 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.env;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Future;
+
+/**
+ * Result of {@link Transaction#commitAsync()} which is done when the committed transaction is durable.
+ * {@link #get()} throws {@link java.util.concurrent.ExecutionException} if the log failed to sync.
+ * The future can't be cancelled.
+ */
+public interface CommitFuture extends Future<Void> {
+
+    /**
+     * Adds a listener which is called once the future is done. If the future is already done
+     * the listener is called immediately in current thread, otherwise in the log flusher thread,
+     * so the listener shouldn't block.
+     *
+     * @param listener listener to call.
+     */
+    void addListener(@NotNull Runnable listener);
+}
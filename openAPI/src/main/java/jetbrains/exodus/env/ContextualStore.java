@@ -16,20 +16,28 @@
 package jetbrains.exodus.env;
 
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Iterator;
+
 public interface ContextualStore extends Store {
 
     @Nullable
     ByteIterable get(@NotNull final ByteIterable key);
 
+    @NotNull
+    ByteIterable[] getAll(@NotNull final ByteIterable[] keys);
+
     boolean exists(@NotNull final ByteIterable key, @NotNull final ByteIterable data);
 
     boolean put(@NotNull final ByteIterable key, @NotNull final ByteIterable value);
 
     void putRight(@NotNull final ByteIterable key, @NotNull final ByteIterable value);
 
+    void putAllRight(@NotNull final Iterator<Pair<ByteIterable, ByteIterable>> pairs);
+
     boolean add(@NotNull final ByteIterable key, @NotNull final ByteIterable value);
 
     boolean delete(@NotNull final ByteIterable key);
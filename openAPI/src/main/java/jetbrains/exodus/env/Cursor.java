@@ -72,6 +72,23 @@ public interface Cursor extends AutoCloseable {
 
     boolean getSearchBoth(final @NotNull ByteIterable key, final @NotNull ByteIterable value);
 
+    /**
+     * Move to the record with specified zero-based index in the order of records. In a store without duplicates
+     * and key prefixing, the cursor moves in logarithmic time if B-tree pages are saved with numbers of keys in
+     * subtrees (see {@link EnvironmentConfig#TREE_COUNTED_PAGES}), otherwise it iterates records from the first one.
+     *
+     * @param index index of the record
+     * @return true if the record exists
+     */
+    boolean getByIndex(long index);
+
+    /**
+     * @return zero-based index of the current record in the order of records or -1 if the cursor doesn't point
+     * to a record.
+     * @see #getByIndex(long)
+     */
+    long getIndex();
+
     @Nullable
     ByteIterable getSearchBothRange(final @NotNull ByteIterable key, final @NotNull ByteIterable value);
 
@@ -44,6 +44,43 @@ public final class EnvironmentConfig extends AbstractConfig {
 
     public static final String LOG_CACHE_NON_BLOCKING = "exodus.log.cache.nonBlocking";
 
+    /**
+     * If this setting is set to {@code true} log cache uses the W-TinyLFU eviction policy, so full scans of
+     * the log (e.g. by the garbage collector or backup) don't push frequently used pages out of the cache.
+     * The scan-resistant cache is lock-based, so it takes precedence over exodus.log.cache.nonBlocking.
+     */
+    public static final String LOG_CACHE_SCAN_RESISTANT = "exodus.log.cache.scanResistant";
+
+    /**
+     * Size of the second level log cache which keeps pages outside of the Java heap, 0 if it is disabled.
+     * Direct memory available to the JVM is limited by the -XX:MaxDirectMemorySize option.
+     */
+    public static final String LOG_CACHE_OFF_HEAP_SIZE = "exodus.log.cache.offHeapSize"; // in bytes
+
+    /**
+     * If this setting is set to {@code true} log files are read using memory mapping instead of random access files.
+     */
+    public static final String LOG_MAPPED_FILES = "exodus.log.mappedFiles";
+
+    /**
+     * Number of log cache pages which are read ahead in background when sequential reading of the log is detected,
+     * 0 if read-ahead is disabled.
+     */
+    public static final String LOG_READ_AHEAD_PAGES = "exodus.log.readAheadPages";
+
+    /**
+     * If this setting is set to {@code true} each log file is allocated at its full size filled with zeros on
+     * creation, so appending to the file doesn't change its size and syncing it doesn't flush file metadata.
+     */
+    public static final String LOG_PREALLOCATE = "exodus.log.preallocate";
+
+    /**
+     * If this setting is set to {@code true} new log files are written compressed page by page. The setting is
+     * persisted in the log directory, so once set it remains in effect. Compressed files are neither mapped
+     * nor preallocated.
+     */
+    public static final String LOG_COMPRESSED = "exodus.log.compressed";
+
     public static final String LOG_CLEAN_DIRECTORY_EXPECTED = "exodus.log.cleanDirectoryExpected";
 
     public static final String LOG_CLEAR_INVALID = "exodus.log.clearInvalid";
@@ -58,10 +95,38 @@ public final class EnvironmentConfig extends AbstractConfig {
      */
     public static final String ENV_READONLY_EMPTY_STORES = "exodus.env.readonly.emptyStores";
 
+    /**
+     * If this setting is set to {@code true} and exodus.log.durableWrite is also {@code true}, concurrently
+     * committed transactions are made durable by a single sync of the log instead of syncing it for each of them.
+     * Commit returns after its transaction is durable in both modes.
+     */
+    public static final String ENV_GROUP_COMMIT = "exodus.env.groupCommit";
+
     public static final String ENV_STOREGET_CACHE_SIZE = "exodus.env.storeGetCacheSize";
 
+    /**
+     * Number of bits per key of Bloom filters which are built for immutable trees of stores in order to
+     * skip lookups of absent keys in {@code Store.get()} and {@code Store.exists()}. The more bits per key,
+     * the lower false positive rate: 10 bits per key give about 1% of false positives. 0 means that
+     * Bloom filters are not used.
+     */
+    public static final String ENV_STORE_BLOOM_FILTER_BITS_PER_KEY = "exodus.env.storeBloomFilterBitsPerKey";
+
     public static final String ENV_CLOSE_FORCEDLY = "exodus.env.closeForcedly";
 
+    /**
+     * If true, a transaction that is not up-to-date on commit is committed anyway, provided that none of the stores
+     * it has looked up, read or modified was changed by transactions committed after its snapshot.
+     * Otherwise, the transaction is not committed if any other transaction was committed after its snapshot.
+     */
+    public static final String ENV_TXN_REBASE = "exodus.env.txnRebase";
+
+    /**
+     * Number of threads scanning the log on startup: validating log files, looking for the last database root
+     * and computing utilization profile from scratch. By default, it's 1, i.e. the log is scanned sequentially.
+     */
+    public static final String ENV_STARTUP_PARALLELISM = "exodus.env.startupParallelism";
+
     public static final String ENV_MONITOR_TXNS_TIMEOUT = "exodus.env.monitorTxns.timeout"; // in milliseconds
 
     public static final String ENV_MONITOR_TXNS_CHECK_FREQ = "exodus.env.monitorTxns.checkFreq"; // in milliseconds
@@ -70,6 +135,35 @@ public final class EnvironmentConfig extends AbstractConfig {
 
     public static final String TREE_NODES_CACHE_SIZE = "exodus.tree.nodesCacheSize";
 
+    /**
+     * Memory limit in bytes of the environment-wide cache of decoded tree nodes. If it's greater than 0, the cache
+     * is bounded by estimated memory held by cached nodes instead of {@linkplain #TREE_NODES_CACHE_SIZE the number
+     * of nodes}, and it counts hits, misses and evictions. 0 by default.
+     */
+    public static final String TREE_NODES_CACHE_MEMORY = "exodus.tree.nodesCacheMemory"; // in bytes
+
+    /**
+     * Length of key prefixes stored inline in B-tree pages, so that binary search in a page doesn't load leaves
+     * for keys which differ within the prefix length. 0 means that pages are written without key prefixes.
+     * Pages are readable regardless of the setting.
+     */
+    public static final String TREE_KEY_PREFIX_LENGTH = "exodus.tree.keyPrefixLength";
+
+    /**
+     * If true, internal B-tree pages are written with numbers of keys in subtrees of their children, so that
+     * cursors can move to a record by its index and get index of current record in logarithmic time.
+     * Pages are readable regardless of the setting.
+     */
+    public static final String TREE_COUNTED_PAGES = "exodus.tree.countedPages";
+
+    /**
+     * Maximum length of a value which is saved together with its key inline in a B-tree bottom page rather than
+     * in a separate loggable. Keys in such pages are prefix-compressed, and only the first leaf of a page and
+     * leaves with longer values are saved separately. 0 means that all leaves are separate loggables.
+     * Pages are readable regardless of the setting.
+     */
+    public static final String TREE_INLINE_VALUE_MAX_LENGTH = "exodus.tree.inlineValueMaxLength";
+
     public static final String GC_ENABLED = "exodus.gc.enabled";
 
     public static final String GC_START_IN = "exodus.gc.startIn"; // in milliseconds
@@ -92,6 +186,40 @@ public final class EnvironmentConfig extends AbstractConfig {
 
     public static final String GC_UTILIZATION_FROM_SCRATCH = "exodus.gc.utilization.fromScratch";
 
+    /**
+     * If true, cleaner selects files to clean by the cost-benefit policy taking into account age of files,
+     * otherwise it cleans files with more free space first.
+     */
+    public static final String GC_USE_COST_BENEFIT_POLICY = "exodus.gc.useCostBenefitPolicy";
+
+    /**
+     * Size of a chunk of a file in bytes which cleaner reclaims in a single transaction. The position up to which
+     * a file is cleaned is saved together with each chunk, so cleaning resumes from it. If a chunk fails to be
+     * committed due to concurrent transactions, it is cleaned once again exclusively of other commits.
+     * 0 means that a file is cleaned in a single transaction.
+     */
+    public static final String GC_CHUNK_SIZE = "exodus.gc.chunkSize";
+
+    /**
+     * Maximum rate in megabytes per second at which cleaner reads and relocates data. The rate is decreased down
+     * to {@linkplain #GC_MIN_THROUGHPUT} if latency of foreground commits and log cache misses grows while cleaning,
+     * and is increased back otherwise. 0 means that cleaner is not throttled.
+     */
+    public static final String GC_MAX_THROUGHPUT = "exodus.gc.maxThroughput";
+
+    /**
+     * Minimum rate in megabytes per second at which cleaner reads and relocates data if it is throttled.
+     */
+    public static final String GC_MIN_THROUGHPUT = "exodus.gc.minThroughput";
+
+    /**
+     * Number of threads reclaiming loggables of different stores when cleaner cleans a file or its chunk.
+     * Loggables of the file are partitioned by stores in memory and are reclaimed in batches of several thousand
+     * loggables, so memory used for partitioning doesn't grow with file size.
+     * 1 means that loggables are reclaimed sequentially in the cleaner thread.
+     */
+    public static final String GC_RECLAIM_PARALLELISM = "exodus.gc.reclaimParallelism";
+
     public static final String MANAGEMENT_ENABLED = "exodus.managementEnabled";
 
     public EnvironmentConfig() {
@@ -109,17 +237,31 @@ public final class EnvironmentConfig extends AbstractConfig {
                 new Pair(LOG_CACHE_OPEN_FILES, 50),
                 new Pair(LOG_CACHE_SHARED, true),
                 new Pair(LOG_CACHE_NON_BLOCKING, true),
+                new Pair(LOG_CACHE_SCAN_RESISTANT, false),
+                new Pair(LOG_CACHE_OFF_HEAP_SIZE, 0L),
+                new Pair(LOG_MAPPED_FILES, false),
+                new Pair(LOG_READ_AHEAD_PAGES, 0),
+                new Pair(LOG_PREALLOCATE, false),
+                new Pair(LOG_COMPRESSED, false),
                 new Pair(LOG_CLEAN_DIRECTORY_EXPECTED, false),
                 new Pair(LOG_CLEAR_INVALID, false),
                 new Pair(LOG_SYNC_PERIOD, 1000L),
                 new Pair(ENV_IS_READONLY, false),
                 new Pair(ENV_READONLY_EMPTY_STORES, false),
+                new Pair(ENV_GROUP_COMMIT, false),
                 new Pair(ENV_STOREGET_CACHE_SIZE, 0),
+                new Pair(ENV_STORE_BLOOM_FILTER_BITS_PER_KEY, 0),
                 new Pair(ENV_CLOSE_FORCEDLY, false),
+                new Pair(ENV_TXN_REBASE, false),
+                new Pair(ENV_STARTUP_PARALLELISM, 1),
                 new Pair(ENV_MONITOR_TXNS_CHECK_FREQ, 60000),
                 new Pair(ENV_MONITOR_TXNS_TIMEOUT, 0),
                 new Pair(TREE_MAX_PAGE_SIZE, 128),
                 new Pair(TREE_NODES_CACHE_SIZE, 4096),
+                new Pair(TREE_NODES_CACHE_MEMORY, 0L),
+                new Pair(TREE_KEY_PREFIX_LENGTH, 0),
+                new Pair(TREE_COUNTED_PAGES, false),
+                new Pair(TREE_INLINE_VALUE_MAX_LENGTH, 0),
                 new Pair(GC_ENABLED, true),
                 new Pair(GC_START_IN, 60000),
                 new Pair(GC_MIN_UTILIZATION, 75),
@@ -128,6 +270,11 @@ public final class EnvironmentConfig extends AbstractConfig {
                 new Pair(GC_MIN_FILE_AGE, 2),
                 new Pair(GC_FILES_INTERVAL, 1),
                 new Pair(GC_UTILIZATION_FROM_SCRATCH, false),
+                new Pair(GC_USE_COST_BENEFIT_POLICY, false),
+                new Pair(GC_CHUNK_SIZE, 0),
+                new Pair(GC_MAX_THROUGHPUT, 0),
+                new Pair(GC_MIN_THROUGHPUT, 1),
+                new Pair(GC_RECLAIM_PARALLELISM, 1),
                 new Pair(MANAGEMENT_ENABLED, true)
         }, strategy);
     }
@@ -204,6 +351,60 @@ public final class EnvironmentConfig extends AbstractConfig {
         setSetting(LOG_CACHE_NON_BLOCKING, nonBlocking);
     }
 
+    public boolean isLogCacheScanResistant() {
+        return (Boolean) getSetting(LOG_CACHE_SCAN_RESISTANT);
+    }
+
+    public void setLogCacheScanResistant(boolean scanResistant) {
+        setSetting(LOG_CACHE_SCAN_RESISTANT, scanResistant);
+    }
+
+    public long getLogCacheOffHeapSize() {
+        return (Long) getSetting(LOG_CACHE_OFF_HEAP_SIZE);
+    }
+
+    public void setLogCacheOffHeapSize(long bytes) {
+        if (bytes < 0) {
+            throw new InvalidSettingException("Negative off-heap log cache size");
+        }
+        setSetting(LOG_CACHE_OFF_HEAP_SIZE, bytes);
+    }
+
+    public boolean isLogMappedFiles() {
+        return (Boolean) getSetting(LOG_MAPPED_FILES);
+    }
+
+    public void setLogMappedFiles(boolean mappedFiles) {
+        setSetting(LOG_MAPPED_FILES, mappedFiles);
+    }
+
+    public int getLogReadAheadPages() {
+        return (Integer) getSetting(LOG_READ_AHEAD_PAGES);
+    }
+
+    public void setLogReadAheadPages(int pages) {
+        if (pages < 0) {
+            throw new InvalidSettingException("Negative number of log pages to read ahead");
+        }
+        setSetting(LOG_READ_AHEAD_PAGES, pages);
+    }
+
+    public boolean isLogPreallocate() {
+        return (Boolean) getSetting(LOG_PREALLOCATE);
+    }
+
+    public void setLogPreallocate(boolean preallocate) {
+        setSetting(LOG_PREALLOCATE, preallocate);
+    }
+
+    public boolean isLogCompressed() {
+        return (Boolean) getSetting(LOG_COMPRESSED);
+    }
+
+    public void setLogCompressed(boolean compressed) {
+        setSetting(LOG_COMPRESSED, compressed);
+    }
+
     public boolean isLogCleanDirectoryExpected() {
         return (Boolean) getSetting(LOG_CLEAN_DIRECTORY_EXPECTED);
     }
@@ -244,6 +445,14 @@ public final class EnvironmentConfig extends AbstractConfig {
         setSetting(ENV_READONLY_EMPTY_STORES, readonlyEmptyStores);
     }
 
+    public boolean getEnvGroupCommit() {
+        return (Boolean) getSetting(ENV_GROUP_COMMIT);
+    }
+
+    public void setEnvGroupCommit(boolean groupCommit) {
+        setSetting(ENV_GROUP_COMMIT, groupCommit);
+    }
+
     public int getEnvStoreGetCacheSize() {
         return (Integer) getSetting(ENV_STOREGET_CACHE_SIZE);
     }
@@ -255,6 +464,17 @@ public final class EnvironmentConfig extends AbstractConfig {
         setSetting(ENV_STOREGET_CACHE_SIZE, storeGetCacheSize);
     }
 
+    public int getEnvStoreBloomFilterBitsPerKey() {
+        return (Integer) getSetting(ENV_STORE_BLOOM_FILTER_BITS_PER_KEY);
+    }
+
+    public void setEnvStoreBloomFilterBitsPerKey(final int bitsPerKey) {
+        if (bitsPerKey < 0 || bitsPerKey > 64) {
+            throw new InvalidSettingException("Invalid number of Bloom filter bits per key: " + bitsPerKey);
+        }
+        setSetting(ENV_STORE_BLOOM_FILTER_BITS_PER_KEY, bitsPerKey);
+    }
+
     public boolean getEnvCloseForcedly() {
         return (Boolean) getSetting(ENV_CLOSE_FORCEDLY);
     }
@@ -263,6 +483,25 @@ public final class EnvironmentConfig extends AbstractConfig {
         setSetting(ENV_CLOSE_FORCEDLY, closeForcedly);
     }
 
+    public boolean getEnvTxnRebase() {
+        return (Boolean) getSetting(ENV_TXN_REBASE);
+    }
+
+    public void setEnvTxnRebase(boolean rebase) {
+        setSetting(ENV_TXN_REBASE, rebase);
+    }
+
+    public int getEnvStartupParallelism() {
+        return (Integer) getSetting(ENV_STARTUP_PARALLELISM);
+    }
+
+    public void setEnvStartupParallelism(final int parallelism) {
+        if (parallelism < 1) {
+            throw new InvalidSettingException("Startup parallelism should be positive");
+        }
+        setSetting(ENV_STARTUP_PARALLELISM, parallelism);
+    }
+
     public int getEnvMonitorTxnsTimeout() {
         return (Integer) getSetting(ENV_MONITOR_TXNS_TIMEOUT);
     }
@@ -296,6 +535,36 @@ public final class EnvironmentConfig extends AbstractConfig {
         setSetting(TREE_MAX_PAGE_SIZE, pageSize);
     }
 
+    public int getTreeKeyPrefixLength() {
+        return (Integer) getSetting(TREE_KEY_PREFIX_LENGTH);
+    }
+
+    public void setTreeKeyPrefixLength(final int prefixLength) throws InvalidSettingException {
+        if (prefixLength < 0 || prefixLength > 64) {
+            throw new InvalidSettingException("Invalid tree key prefix length: " + prefixLength);
+        }
+        setSetting(TREE_KEY_PREFIX_LENGTH, prefixLength);
+    }
+
+    public boolean getTreeCountedPages() {
+        return (Boolean) getSetting(TREE_COUNTED_PAGES);
+    }
+
+    public void setTreeCountedPages(final boolean countedPages) {
+        setSetting(TREE_COUNTED_PAGES, countedPages);
+    }
+
+    public int getTreeInlineValueMaxLength() {
+        return (Integer) getSetting(TREE_INLINE_VALUE_MAX_LENGTH);
+    }
+
+    public void setTreeInlineValueMaxLength(final int length) throws InvalidSettingException {
+        if (length < 0 || length > 1024) {
+            throw new InvalidSettingException("Invalid tree inline value max length: " + length);
+        }
+        setSetting(TREE_INLINE_VALUE_MAX_LENGTH, length);
+    }
+
     public int getTreeNodesCacheSize() {
         return (Integer) getSetting(TREE_NODES_CACHE_SIZE);
     }
@@ -304,6 +573,17 @@ public final class EnvironmentConfig extends AbstractConfig {
         setSetting(TREE_NODES_CACHE_SIZE, cacheSize);
     }
 
+    public long getTreeNodesCacheMemory() {
+        return (Long) getSetting(TREE_NODES_CACHE_MEMORY);
+    }
+
+    public void setTreeNodesCacheMemory(final long bytes) throws InvalidSettingException {
+        if (bytes < 0) {
+            throw new InvalidSettingException("Negative tree nodes cache memory: " + bytes);
+        }
+        setSetting(TREE_NODES_CACHE_MEMORY, bytes);
+    }
+
     public boolean isGcEnabled() {
         return (Boolean) getSetting(GC_ENABLED);
     }
@@ -380,6 +660,58 @@ public final class EnvironmentConfig extends AbstractConfig {
         setSetting(GC_UTILIZATION_FROM_SCRATCH, fromScratch);
     }
 
+    public boolean getGcUseCostBenefitPolicy() {
+        return (Boolean) getSetting(GC_USE_COST_BENEFIT_POLICY);
+    }
+
+    public void setGcUseCostBenefitPolicy(boolean useCostBenefitPolicy) {
+        setSetting(GC_USE_COST_BENEFIT_POLICY, useCostBenefitPolicy);
+    }
+
+    public int getGcChunkSize() {
+        return (Integer) getSetting(GC_CHUNK_SIZE);
+    }
+
+    public void setGcChunkSize(int chunkSize) throws InvalidSettingException {
+        if (chunkSize < 0) {
+            throw new InvalidSettingException("Invalid chunk size: " + chunkSize);
+        }
+        setSetting(GC_CHUNK_SIZE, chunkSize);
+    }
+
+    public int getGcMaxThroughput() {
+        return (Integer) getSetting(GC_MAX_THROUGHPUT);
+    }
+
+    public void setGcMaxThroughput(int megabytesPerSecond) throws InvalidSettingException {
+        if (megabytesPerSecond < 0) {
+            throw new InvalidSettingException("Invalid maximum throughput: " + megabytesPerSecond);
+        }
+        setSetting(GC_MAX_THROUGHPUT, megabytesPerSecond);
+    }
+
+    public int getGcMinThroughput() {
+        return (Integer) getSetting(GC_MIN_THROUGHPUT);
+    }
+
+    public void setGcMinThroughput(int megabytesPerSecond) throws InvalidSettingException {
+        if (megabytesPerSecond < 1) {
+            throw new InvalidSettingException("Invalid minimum throughput: " + megabytesPerSecond);
+        }
+        setSetting(GC_MIN_THROUGHPUT, megabytesPerSecond);
+    }
+
+    public int getGcReclaimParallelism() {
+        return (Integer) getSetting(GC_RECLAIM_PARALLELISM);
+    }
+
+    public void setGcReclaimParallelism(final int parallelism) throws InvalidSettingException {
+        if (parallelism < 1) {
+            throw new InvalidSettingException("Reclaim parallelism should be positive");
+        }
+        setSetting(GC_RECLAIM_PARALLELISM, parallelism);
+    }
+
     public boolean isManagementEnabled() {
         return (Boolean) getSetting(MANAGEMENT_ENABLED);
     }
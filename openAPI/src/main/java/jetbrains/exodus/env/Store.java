@@ -16,9 +16,12 @@
 package jetbrains.exodus.env;
 
 import jetbrains.exodus.ByteIterable;
+import jetbrains.exodus.core.dataStructures.Pair;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Iterator;
+
 public interface Store {
     @NotNull
     Environment getEnvironment();
@@ -26,6 +29,17 @@ public interface Store {
     @Nullable
     ByteIterable get(@NotNull Transaction txn, @NotNull ByteIterable key);
 
+    /**
+     * <p>Gets values by several keys at once. The keys are looked up in sorted order in a single pass over
+     * the store, so pages common to the keys are read once.</p>
+     *
+     * @param txn  a transaction required
+     * @param keys keys in any order
+     * @return array of values in the order of keys, value is null if its key doesn't exist
+     */
+    @NotNull
+    ByteIterable[] getAll(@NotNull Transaction txn, @NotNull ByteIterable[] keys);
+
     boolean exists(@NotNull Transaction txn, @NotNull ByteIterable key, @NotNull ByteIterable data);
 
     /**
@@ -46,6 +60,16 @@ public interface Store {
 
     void putRight(@NotNull Transaction txn, @NotNull ByteIterable key, @NotNull ByteIterable value);
 
+    /**
+     * <p>Puts key/value pairs sorted by key (and by value if store supports duplicates) which are all greater than
+     * any pair in the store. Equivalent to {@link #putRight(Transaction, ByteIterable, ByteIterable)} called for
+     * each pair, but an empty store is built at once with completely filled pages.</p>
+     *
+     * @param txn   a transaction required
+     * @param pairs sorted key/value pairs
+     */
+    void putAllRight(@NotNull Transaction txn, @NotNull Iterator<Pair<ByteIterable, ByteIterable>> pairs);
+
     /**
      * <p>If tree support duplicates and key already exists, then return false.</p>
      * <p>If tree support duplicates and key doesn't exists, then add key/value pair, return true.</p>
@@ -26,6 +26,18 @@ public interface Transaction {
 
     boolean commit();
 
+    /**
+     * Commits the transaction like {@link #commit()} does, but doesn't wait for the log to be synced.
+     * The log is synced in background, so the calling thread can start next transaction while previous one
+     * is becoming durable. If {@link EnvironmentConfig#LOG_DURABLE_WRITE} is on and
+     * {@link EnvironmentConfig#ENV_GROUP_COMMIT} is off, the log is synced by the commit itself.
+     *
+     * @return future which is done when the transaction is durable or null if the transaction wasn't
+     * committed, i.e. if {@link #commit()} would return false.
+     */
+    @Nullable
+    CommitFuture commitAsync();
+
     boolean flush();
 
     void revert();
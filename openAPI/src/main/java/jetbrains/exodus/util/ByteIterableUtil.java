@@ -18,8 +18,18 @@ package jetbrains.exodus.util;
 import jetbrains.exodus.ByteIterable;
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.ByteOrder;
+
+/**
+ * Comparison and hashing of byte arrays. If {@code sun.misc.Unsafe} is available, bytes are processed
+ * eight at a time as longs, otherwise one at a time.
+ */
 public class ByteIterableUtil {
 
+    private static final int WORD_LENGTH = 8;
+    private static final boolean UNSAFE_AVAILABLE = ByteIterableUtil2.UNSAFE != null;
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
     private ByteIterableUtil() {
     }
 
@@ -28,31 +38,77 @@ public class ByteIterableUtil {
     }
 
     public static int compare(@NotNull final byte[] key1, final int len1, @NotNull final byte[] key2, final int len2) {
-        final int min = Math.min(len1, len2);
-
-        for (int i = 0; i < min; i++) {
-            final byte b1 = key1[i];
-            final byte b2 = key2[i];
-            if (b1 != b2) {
-                return (b1 & 0xff) - (b2 & 0xff);
-            }
-        }
-
-        return (len1 - len2);
+        final int cmp = compare(key1, 0, key2, 0, Math.min(len1, len2));
+        return cmp == 0 ? len1 - len2 : cmp;
     }
 
     public static int compare(@NotNull final byte[] key1, final int len1, final int offset1, @NotNull final byte[] key2, final int len2) {
-        final int min = Math.min(len1 - offset1, len2);
+        final int cmp = compare(key1, offset1, key2, 0, Math.min(len1 - offset1, len2));
+        return cmp == 0 ? len1 - offset1 - len2 : cmp;
+    }
 
-        for (int i = 0; i < min; i++) {
+    /**
+     * Compares {@code length} bytes of two arrays starting from specified offsets.
+     *
+     * @return difference of the first mismatching unsigned bytes or 0 if the ranges are equal.
+     */
+    public static int compare(@NotNull final byte[] key1, final int offset1,
+                              @NotNull final byte[] key2, final int offset2, final int length) {
+        int i = 0;
+        if (length >= WORD_LENGTH && UNSAFE_AVAILABLE &&
+                offset1 >= 0 && offset2 >= 0 && offset1 + length <= key1.length && offset2 + length <= key2.length) {
+            final int words = length & -WORD_LENGTH;
+            for (; i < words; i += WORD_LENGTH) {
+                final long w1 = ByteIterableUtil2.getLong(key1, offset1 + i);
+                final long w2 = ByteIterableUtil2.getLong(key2, offset2 + i);
+                if (w1 != w2) {
+                    // shift of the first mismatching byte within the words
+                    final int shift = LITTLE_ENDIAN ?
+                            Long.numberOfTrailingZeros(w1 ^ w2) & -8 :
+                            56 - (Long.numberOfLeadingZeros(w1 ^ w2) & -8);
+                    return (int) ((w1 >>> shift) & 0xff) - (int) ((w2 >>> shift) & 0xff);
+                }
+            }
+        }
+        for (; i < length; i++) {
             final byte b1 = key1[i + offset1];
-            final byte b2 = key2[i];
+            final byte b2 = key2[i + offset2];
             if (b1 != b2) {
                 return (b1 & 0xff) - (b2 & 0xff);
             }
         }
+        return 0;
+    }
 
-        return (len1 - offset1 - len2);
+    /**
+     * Computes hash code of the first {@code length} bytes of an array. Bytes are combined in little-endian
+     * words of eight bytes, so the result doesn't depend on whether {@code sun.misc.Unsafe} is available.
+     */
+    public static int hashCode(@NotNull final byte[] bytes, final int length) {
+        int result = 1;
+        int i = 0;
+        final int words = length & -WORD_LENGTH;
+        if (UNSAFE_AVAILABLE && length <= bytes.length) {
+            for (; i < words; i += WORD_LENGTH) {
+                final long word = ByteIterableUtil2.getLong(bytes, i);
+                result = 31 * result + hashWord(LITTLE_ENDIAN ? word : Long.reverseBytes(word));
+            }
+        } else {
+            for (; i < words; i += WORD_LENGTH) {
+                long word = 0;
+                for (int j = WORD_LENGTH - 1; j >= 0; --j) {
+                    word = (word << 8) | (bytes[i + j] & 0xff);
+                }
+                result = 31 * result + hashWord(word);
+            }
+        }
+        for (; i < length; i++) {
+            result = 31 * result + bytes[i];
+        }
+        return result;
     }
 
+    private static int hashWord(final long word) {
+        return (int) (word ^ (word >>> 32));
+    }
 }
@@ -63,6 +63,16 @@ public class ByteIterableUtil2 {
         }
     }
 
+    private static final long BYTE_ARRAY_OFFSET = UNSAFE == null ? 0 : UNSAFE.arrayBaseOffset(byte[].class);
+
+    /**
+     * Reads eight bytes of an array starting from specified offset as a long in native byte order.
+     * Can be used only if {@link #UNSAFE} is not null, bounds are not checked.
+     */
+    public static long getLong(@NotNull final byte[] bytes, final int offset) {
+        return UNSAFE.getLong(bytes, BYTE_ARRAY_OFFSET + offset);
+    }
+
     public static int compare2(@NotNull final ByteIterable key1, @NotNull final ByteIterable key2) {
         return compare2(key1.getBytesUnsafe(), key1.getLength(), key2.getBytesUnsafe(), key2.getLength());
     }
@@ -0,0 +1,114 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.util;
+
+import jetbrains.exodus.ExodusException;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs independent tasks in parallel, e.g. tasks of a scan on startup or reclaiming of different stores by cleaner.
+ * Tasks can be run either by a fork-join pool which exists only while they are running, which suits one-off scans,
+ * or by an executor owned by the caller, which suits tasks submitted repeatedly. A single task or tasks with
+ * parallelism 1 are run in the calling thread.
+ */
+public final class ParallelTasks {
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Runs the tasks by a fork-join pool which is created for the call and is shut down after the tasks are done.
+     *
+     * @return results of the tasks in the order of the tasks.
+     */
+    @NotNull
+    public static <T> List<T> invokeAll(@NotNull final List<? extends Callable<T>> tasks, final int parallelism) {
+        final int tasksCount = tasks.size();
+        if (parallelism <= 1 || tasksCount <= 1) {
+            return invokeAllInCurrentThread(tasks);
+        }
+        final ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, tasksCount));
+        try {
+            return invokeAll(tasks, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs the tasks by the executor. The executor is not shut down.
+     *
+     * @return results of the tasks in the order of the tasks.
+     */
+    @NotNull
+    public static <T> List<T> invokeAll(@NotNull final List<? extends Callable<T>> tasks,
+                                        @NotNull final ExecutorService executor) {
+        final int tasksCount = tasks.size();
+        if (tasksCount <= 1) {
+            return invokeAllInCurrentThread(tasks);
+        }
+        final List<T> result = new ArrayList<>(tasksCount);
+        try {
+            for (final Future<T> future : executor.invokeAll(tasks)) {
+                result.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExodusException(e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ExodusException(cause);
+        }
+        return result;
+    }
+
+    /**
+     * Splits range [0, count) into chunks so that there are a few chunks per thread.
+     *
+     * @return size of a chunk.
+     */
+    public static int getChunkSize(final int count, final int parallelism) {
+        return Math.max(1, (count + parallelism * 4 - 1) / (parallelism * 4));
+    }
+
+    private static <T> List<T> invokeAllInCurrentThread(@NotNull final List<? extends Callable<T>> tasks) {
+        final List<T> result = new ArrayList<>(tasks.size());
+        for (final Callable<T> task : tasks) {
+            try {
+                result.add(task.call());
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new ExodusException(e);
+            }
+        }
+        return result;
+    }
+}
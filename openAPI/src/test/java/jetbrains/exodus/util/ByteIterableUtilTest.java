@@ -0,0 +1,97 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.util;
+
+import jetbrains.exodus.ArrayByteIterable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class ByteIterableUtilTest {
+
+    private static final Random RANDOM = new Random(2015);
+
+    @Test
+    public void compareMatchesBytewise() {
+        for (int i = 0; i < 100000; ++i) {
+            final byte[] key1 = randomBytes(RANDOM.nextInt(40));
+            final byte[] key2 = randomSimilarBytes(key1);
+            Assert.assertEquals(compareBytewise(key1, 0, key1.length, key2, key2.length),
+                    ByteIterableUtil.compare(key1, key1.length, key2, key2.length));
+            final int offset = key1.length == 0 ? 0 : RANDOM.nextInt(key1.length);
+            Assert.assertEquals(compareBytewise(key1, offset, key1.length, key2, key2.length),
+                    ByteIterableUtil.compare(key1, key1.length, offset, key2, key2.length));
+        }
+    }
+
+    @Test
+    public void compareHighBytes() {
+        final byte[] key1 = new byte[16];
+        final byte[] key2 = new byte[16];
+        for (int i = 0; i < 16; ++i) {
+            key1[i] = (byte) 0x80;
+            key2[i] = (byte) 0x80;
+        }
+        for (int i = 0; i < 16; ++i) {
+            key2[i] = (byte) 0xff;
+            Assert.assertEquals(0x80 - 0xff, ByteIterableUtil.compare(key1, 16, key2, 16));
+            key2[i] = 0x7f;
+            Assert.assertEquals(1, ByteIterableUtil.compare(key1, 16, key2, 16));
+            key2[i] = (byte) 0x80;
+        }
+        Assert.assertEquals(0, ByteIterableUtil.compare(key1, 16, key2, 16));
+    }
+
+    @Test
+    public void hashCodeDependsOnContentOnly() {
+        for (int i = 0; i < 10000; ++i) {
+            final byte[] bytes = randomBytes(RANDOM.nextInt(40));
+            final byte[] longer = new byte[bytes.length + RANDOM.nextInt(10)];
+            System.arraycopy(bytes, 0, longer, 0, bytes.length);
+            Assert.assertEquals(new ArrayByteIterable(bytes).hashCode(),
+                    new ArrayByteIterable(longer, bytes.length).hashCode());
+        }
+    }
+
+    private static byte[] randomBytes(final int length) {
+        final byte[] result = new byte[length];
+        RANDOM.nextBytes(result);
+        return result;
+    }
+
+    private static byte[] randomSimilarBytes(final byte[] bytes) {
+        final byte[] result = new byte[Math.max(0, bytes.length + RANDOM.nextInt(5) - 2)];
+        System.arraycopy(bytes, 0, result, 0, Math.min(bytes.length, result.length));
+        if (result.length > 0 && RANDOM.nextBoolean()) {
+            result[RANDOM.nextInt(result.length)] = (byte) RANDOM.nextInt();
+        }
+        return result;
+    }
+
+    private static int compareBytewise(final byte[] key1, final int offset1, final int len1,
+                                       final byte[] key2, final int len2) {
+        final int min = Math.min(len1 - offset1, len2);
+        for (int i = 0; i < min; i++) {
+            final int b1 = key1[i + offset1] & 0xff;
+            final int b2 = key2[i] & 0xff;
+            if (b1 != b2) {
+                return b1 - b2;
+            }
+        }
+        return len1 - offset1 - len2;
+    }
+}
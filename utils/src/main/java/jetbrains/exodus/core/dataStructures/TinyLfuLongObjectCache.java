@@ -0,0 +1,89 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.core.dataStructures;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scan-resistant cache with long keys and the W-TinyLFU eviction policy (see {@link TinyLfuPolicy}).
+ */
+public final class TinyLfuLongObjectCache<V> extends LongObjectCacheBase<V> {
+
+    private final Lock lock;
+    private final TinyLfuPolicy<Long, V> policy;
+
+    public TinyLfuLongObjectCache() {
+        this(DEFAULT_SIZE);
+    }
+
+    public TinyLfuLongObjectCache(final int cacheSize) {
+        this(cacheSize, TinyLfuObjectCache.DEFAULT_WINDOW_SIZE_RATIO);
+    }
+
+    public TinyLfuLongObjectCache(final int cacheSize, final float windowSizeRatio) {
+        super(cacheSize);
+        lock = new ReentrantLock();
+        policy = new TinyLfuPolicy<>(size, windowSizeRatio);
+    }
+
+    @Override
+    public void clear() {
+        policy.clear();
+    }
+
+    @Override
+    public void lock() {
+        lock.lock();
+    }
+
+    @Override
+    public void unlock() {
+        lock.unlock();
+    }
+
+    @Override
+    public V cacheObject(final long key, @NotNull final V x) {
+        return policy.put(key, x);
+    }
+
+    @Override
+    public V remove(final long key) {
+        return policy.remove(key);
+    }
+
+    @Override
+    public V tryKey(final long key) {
+        incAttempts();
+        final V result = policy.access(key);
+        if (result != null) {
+            incHits();
+        }
+        return result;
+    }
+
+    @Override
+    public V getObject(final long key) {
+        return policy.get(key);
+    }
+
+    @Override
+    public int count() {
+        return policy.count();
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.core.dataStructures;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scan-resistant cache with the W-TinyLFU eviction policy (see {@link TinyLfuPolicy}). Unlike {@link ObjectCache},
+ * it doesn't let a single pass over a large number of keys push out entries which are accessed often.
+ */
+public final class TinyLfuObjectCache<K, V> extends ObjectCacheBase<K, V> {
+
+    public static final float DEFAULT_WINDOW_SIZE_RATIO = 0.01f;
+
+    private final Lock lock;
+    private final TinyLfuPolicy<K, V> policy;
+
+    public TinyLfuObjectCache() {
+        this(DEFAULT_SIZE);
+    }
+
+    public TinyLfuObjectCache(final int cacheSize) {
+        this(cacheSize, DEFAULT_WINDOW_SIZE_RATIO);
+    }
+
+    public TinyLfuObjectCache(final int cacheSize, final float windowSizeRatio) {
+        super(cacheSize);
+        lock = new ReentrantLock();
+        policy = new TinyLfuPolicy<>(size, windowSizeRatio);
+    }
+
+    @Override
+    public void clear() {
+        policy.clear();
+    }
+
+    @Override
+    public void lock() {
+        lock.lock();
+    }
+
+    @Override
+    public void unlock() {
+        lock.unlock();
+    }
+
+    @Override
+    public V cacheObject(@NotNull final K key, @NotNull final V x) {
+        return policy.put(key, x);
+    }
+
+    @Override
+    public V remove(@NotNull final K key) {
+        return policy.remove(key);
+    }
+
+    @Override
+    public V tryKey(@NotNull final K key) {
+        incAttempts();
+        final V result = policy.access(key);
+        if (result != null) {
+            incHits();
+        }
+        return result;
+    }
+
+    @Override
+    public V getObject(@NotNull final K key) {
+        return policy.get(key);
+    }
+
+    @Override
+    public int count() {
+        return policy.count();
+    }
+}
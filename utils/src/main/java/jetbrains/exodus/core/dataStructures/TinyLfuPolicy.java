@@ -0,0 +1,216 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.core.dataStructures;
+
+import jetbrains.exodus.core.dataStructures.hash.HashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * W-TinyLFU eviction policy. New entries are placed into a small LRU window. An entry evicted from the window
+ * competes with the LRU victim of the main space and is admitted only if it was accessed more often than the
+ * victim, otherwise it is discarded. Access frequencies are estimated by {@link FrequencySketch}. The main space
+ * is a segmented LRU: an entry hit in the probation segment moves to the protected one.
+ * A scan touching each entry once therefore can't push out the frequently used working set.
+ * The policy is not thread-safe, caches using it are responsible for locking and hit rate statistics.
+ */
+final class TinyLfuPolicy<K, V> {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final int windowMaxSize;
+    private final int mainMaxSize;
+    private final int protectedMaxSize;
+    @NotNull
+    private final HashMap<K, Node<K, V>> nodes;
+    @NotNull
+    private final FrequencySketch sketch;
+    @NotNull
+    private final Node<K, V> window;
+    @NotNull
+    private final Node<K, V> probation;
+    @NotNull
+    private final Node<K, V> protectedSegment;
+    private int windowSize;
+    private int probationSize;
+    private int protectedSize;
+
+    TinyLfuPolicy(final int size, final float windowSizeRatio) {
+        windowMaxSize = Math.max(1, (int) (size * windowSizeRatio));
+        mainMaxSize = Math.max(1, size - windowMaxSize);
+        protectedMaxSize = Math.max(1, (int) (mainMaxSize * 0.8f));
+        nodes = new HashMap<>();
+        sketch = new FrequencySketch(size);
+        window = new Node<>(null, null);
+        probation = new Node<>(null, null);
+        protectedSegment = new Node<>(null, null);
+    }
+
+    /**
+     * Looks up the key updating its access frequency and position in the queues.
+     */
+    @Nullable
+    V access(@NotNull final K key) {
+        sketch.increment(key.hashCode());
+        final Node<K, V> node = nodes.get(key);
+        if (node == null) {
+            return null;
+        }
+        switch (node.queue) {
+            case WINDOW:
+                moveToTail(window, node);
+                break;
+            case PROBATION:
+                unlink(node);
+                --probationSize;
+                node.queue = PROTECTED;
+                linkTail(protectedSegment, node);
+                if (++protectedSize > protectedMaxSize) {
+                    final Node<K, V> demoted = protectedSegment.next;
+                    unlink(demoted);
+                    --protectedSize;
+                    demoted.queue = PROBATION;
+                    linkTail(probation, demoted);
+                    ++probationSize;
+                }
+                break;
+            default:
+                moveToTail(protectedSegment, node);
+        }
+        return node.value;
+    }
+
+    @Nullable
+    V get(@NotNull final K key) {
+        final Node<K, V> node = nodes.get(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * @return value pushed out of the cache or null.
+     */
+    @Nullable
+    V put(@NotNull final K key, @NotNull final V value) {
+        Node<K, V> node = nodes.get(key);
+        if (node != null) {
+            node.value = value;
+            return null;
+        }
+        node = new Node<>(key, value);
+        nodes.put(key, node);
+        node.queue = WINDOW;
+        linkTail(window, node);
+        if (++windowSize <= windowMaxSize) {
+            return null;
+        }
+        final Node<K, V> candidate = window.next;
+        unlink(candidate);
+        --windowSize;
+        candidate.queue = PROBATION;
+        if (probationSize + protectedSize < mainMaxSize) {
+            linkTail(probation, candidate);
+            ++probationSize;
+            return null;
+        }
+        Node<K, V> victim = probation.next;
+        if (victim == probation) {
+            // probation segment is empty, so the victim is the least recently used protected entry
+            victim = protectedSegment.next;
+        }
+        if (sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+            removeNode(victim);
+            linkTail(probation, candidate);
+            ++probationSize;
+            return victim.value;
+        }
+        nodes.remove(candidate.key);
+        return candidate.value;
+    }
+
+    @Nullable
+    V remove(@NotNull final K key) {
+        final Node<K, V> node = nodes.get(key);
+        if (node == null) {
+            return null;
+        }
+        removeNode(node);
+        return node.value;
+    }
+
+    void clear() {
+        nodes.clear();
+        sketch.clear();
+        window.prev = window.next = window;
+        probation.prev = probation.next = probation;
+        protectedSegment.prev = protectedSegment.next = protectedSegment;
+        windowSize = probationSize = protectedSize = 0;
+    }
+
+    int count() {
+        return nodes.size();
+    }
+
+    private void removeNode(@NotNull final Node<K, V> node) {
+        nodes.remove(node.key);
+        unlink(node);
+        switch (node.queue) {
+            case WINDOW:
+                --windowSize;
+                break;
+            case PROBATION:
+                --probationSize;
+                break;
+            default:
+                --protectedSize;
+        }
+    }
+
+    private static <K, V> void moveToTail(@NotNull final Node<K, V> head, @NotNull final Node<K, V> node) {
+        unlink(node);
+        linkTail(head, node);
+    }
+
+    private static <K, V> void linkTail(@NotNull final Node<K, V> head, @NotNull final Node<K, V> node) {
+        final Node<K, V> tail = head.prev;
+        node.prev = tail;
+        node.next = head;
+        tail.next = node;
+        head.prev = node;
+    }
+
+    private static <K, V> void unlink(@NotNull final Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = node.next = node;
+    }
+
+    private static final class Node<K, V> {
+
+        private final K key;
+        private V value;
+        private int queue;
+        private Node<K, V> prev;
+        private Node<K, V> next;
+
+        private Node(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+            prev = next = this;
+        }
+    }
+}
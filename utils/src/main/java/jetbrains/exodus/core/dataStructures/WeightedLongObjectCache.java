@@ -0,0 +1,283 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.core.dataStructures;
+
+import jetbrains.exodus.core.dataStructures.hash.HashUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache with long keys bounded by total weight of cached values rather than by their number. Lookups are
+ * lock-free, they only mark found entries as recently used. Updates are serialized by a lock and evict entries
+ * with the CLOCK (second chance) policy until total weight fits the limit. Each key can be placed in one of a few
+ * slots only, so an entry can also be evicted if all slots for its key are occupied.
+ * <p/>
+ * Numbers of hits and misses are updated without synchronization, so they are approximate under concurrent access.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public abstract class WeightedLongObjectCache<V> extends LongObjectCacheBase<V> {
+
+    private static final int SLOTS_PER_KEY = 4;
+    private static final int AVERAGE_WEIGHT = 256;
+
+    private final long maxWeight;
+    private final int bucketCount;
+    private final int shift;
+    private final int mask;
+    private final Entry<V>[] slots;
+    private final Lock lock;
+    private int clockHand;
+    private int count;
+    private volatile long weight;
+    private long hitCount;
+    private long missCount;
+    private volatile long evictionCount;
+
+    /**
+     * @param maxWeight maximum total weight of cached values. The number of slots is chosen so that
+     *                  the cache can be filled with values of average weight {@linkplain #AVERAGE_WEIGHT}.
+     */
+    protected WeightedLongObjectCache(final long maxWeight) {
+        super((int) Math.min(Integer.MAX_VALUE / SLOTS_PER_KEY, maxWeight / AVERAGE_WEIGHT) * SLOTS_PER_KEY);
+        this.maxWeight = maxWeight;
+        bucketCount = HashUtil.getFloorPrime(size / SLOTS_PER_KEY);
+        shift = HashUtil.shift(bucketCount);
+        mask = (1 << shift) - 1;
+        slots = new Entry[bucketCount * SLOTS_PER_KEY];
+        lock = new ReentrantLock();
+    }
+
+    /**
+     * @return weight of the value, e.g. estimated number of bytes of heap memory it holds.
+     */
+    protected abstract int getWeight(@NotNull final V value);
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * @return total weight of cached values.
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public void clear() {
+        lock();
+        try {
+            for (int i = 0; i < slots.length; ++i) {
+                slots[i] = null;
+            }
+            count = 0;
+            weight = 0;
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void lock() {
+        lock.lock();
+    }
+
+    @Override
+    public void unlock() {
+        lock.unlock();
+    }
+
+    @Override
+    public V tryKeyLocked(final long key) {
+        return tryKey(key);
+    }
+
+    @Override
+    public V cacheObject(final long key, @NotNull final V x) {
+        final int valueWeight = getWeight(x);
+        if (valueWeight > maxWeight) {
+            return null;
+        }
+        final Entry<V>[] slots = this.slots;
+        final int firstSlot = getFirstSlot(key);
+        lock();
+        try {
+            int freeSlot = -1;
+            for (int i = firstSlot; i < firstSlot + SLOTS_PER_KEY; ++i) {
+                final Entry<V> entry = slots[i];
+                if (entry == null) {
+                    if (freeSlot < 0) {
+                        freeSlot = i;
+                    }
+                } else if (entry.key == key) {
+                    removeAt(i);
+                    freeSlot = i;
+                    break;
+                }
+            }
+            if (freeSlot < 0) {
+                freeSlot = evictFromBucket(firstSlot);
+            }
+            slots[freeSlot] = new Entry<>(key, x, valueWeight);
+            ++count;
+            weight += valueWeight;
+            while (weight > maxWeight) {
+                evictNext();
+            }
+            return null;
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public V remove(final long key) {
+        final Entry<V>[] slots = this.slots;
+        final int firstSlot = getFirstSlot(key);
+        lock();
+        try {
+            for (int i = firstSlot; i < firstSlot + SLOTS_PER_KEY; ++i) {
+                final Entry<V> entry = slots[i];
+                if (entry != null && entry.key == key) {
+                    removeAt(i);
+                    return entry.value;
+                }
+            }
+            return null;
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public V tryKey(final long key) {
+        incAttempts();
+        final Entry<V> entry = getEntry(key);
+        if (entry == null) {
+            ++missCount;
+            return null;
+        }
+        incHits();
+        ++hitCount;
+        entry.referenced = true;
+        return entry.value;
+    }
+
+    @Override
+    public V getObject(final long key) {
+        final Entry<V> entry = getEntry(key);
+        return entry == null ? null : entry.value;
+    }
+
+    @Override
+    public int count() {
+        return count;
+    }
+
+    private int getFirstSlot(final long key) {
+        return HashUtil.indexFor(key, bucketCount, shift, mask) * SLOTS_PER_KEY;
+    }
+
+    private Entry<V> getEntry(final long key) {
+        final Entry<V>[] slots = this.slots;
+        final int firstSlot = getFirstSlot(key);
+        for (int i = firstSlot; i < firstSlot + SLOTS_PER_KEY; ++i) {
+            final Entry<V> entry = slots[i];
+            if (entry != null && entry.key == key) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Evicts an entry from the full bucket giving a second chance to recently used entries.
+     *
+     * @return index of the freed slot.
+     */
+    private int evictFromBucket(final int firstSlot) {
+        final Entry<V>[] slots = this.slots;
+        for (int i = firstSlot; i < firstSlot + SLOTS_PER_KEY; ++i) {
+            final Entry<V> entry = slots[i];
+            if (entry.referenced) {
+                entry.referenced = false;
+            } else {
+                evict(i);
+                return i;
+            }
+        }
+        evict(firstSlot);
+        return firstSlot;
+    }
+
+    /**
+     * Moves the clock hand to the next slot and evicts its entry unless it was recently used.
+     */
+    private void evictNext() {
+        final int slot = clockHand;
+        clockHand = slot + 1 == slots.length ? 0 : slot + 1;
+        final Entry<V> entry = slots[slot];
+        if (entry != null) {
+            if (entry.referenced) {
+                entry.referenced = false;
+            } else {
+                evict(slot);
+            }
+        }
+    }
+
+    private void evict(final int slot) {
+        removeAt(slot);
+        ++evictionCount;
+    }
+
+    private void removeAt(final int slot) {
+        final Entry<V> entry = slots[slot];
+        slots[slot] = null;
+        --count;
+        weight -= entry.weight;
+    }
+
+    private static final class Entry<V> {
+
+        private final long key;
+        @NotNull
+        private final V value;
+        private final int weight;
+        // benign data race: the flag is set by lookups without synchronization
+        private boolean referenced;
+
+        private Entry(final long key, @NotNull final V value, final int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.core.dataStructures;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TinyLfuObjectCacheTest {
+
+    @Test
+    public void cacheFiniteness() {
+        final TinyLfuObjectCache<Integer, String> cache = new TinyLfuObjectCache<>(100);
+        for (int i = 0; i < 1000; ++i) {
+            cache.put(i, String.valueOf(i));
+        }
+        Assert.assertEquals(100, cache.count());
+    }
+
+    @Test
+    public void pushedOutValue() {
+        final TinyLfuObjectCache<Integer, String> cache = new TinyLfuObjectCache<>(10);
+        int pushedOut = 0;
+        for (int i = 0; i < 100; ++i) {
+            if (cache.cacheObject(i, String.valueOf(i)) != null) {
+                ++pushedOut;
+            }
+        }
+        Assert.assertEquals(90, pushedOut);
+    }
+
+    @Test
+    public void remove() {
+        final TinyLfuObjectCache<String, String> cache = new TinyLfuObjectCache<>(4);
+        cache.put("Eclipse", "An IDE");
+        cache.put("IDEA", "good");
+        Assert.assertEquals("good", cache.remove("IDEA"));
+        Assert.assertNull(cache.get("IDEA"));
+        Assert.assertEquals("An IDE", cache.get("Eclipse"));
+        Assert.assertEquals(1, cache.count());
+        cache.clear();
+        Assert.assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void scanResistance() {
+        final int cacheSize = 1000;
+        final TinyLfuObjectCache<Integer, Integer> cache = new TinyLfuObjectCache<>(cacheSize);
+        final ObjectCache<Integer, Integer> lruCache = new ObjectCache<>(cacheSize);
+        final int hotSetSize = cacheSize / 2;
+        for (int i = 0; i < 10; ++i) {
+            for (int j = 0; j < hotSetSize; ++j) {
+                access(cache, j);
+                access(lruCache, j);
+            }
+        }
+        // a scan of keys which are never accessed again
+        for (int i = hotSetSize; i < hotSetSize + cacheSize * 10; ++i) {
+            access(cache, i);
+            access(lruCache, i);
+        }
+        int hits = 0;
+        int lruHits = 0;
+        for (int j = 0; j < hotSetSize; ++j) {
+            if (cache.getObject(j) != null) {
+                ++hits;
+            }
+            if (lruCache.getObject(j) != null) {
+                ++lruHits;
+            }
+        }
+        Assert.assertTrue(hits > hotSetSize * 9 / 10);
+        Assert.assertTrue(hits > lruHits);
+    }
+
+    @Test
+    public void longKeys() {
+        final TinyLfuLongObjectCache<String> cache = new TinyLfuLongObjectCache<>(100);
+        for (long i = 0; i < 1000; ++i) {
+            cache.put(i, String.valueOf(i));
+        }
+        Assert.assertEquals(100, cache.count());
+        Assert.assertEquals("999", cache.get(999L));
+        Assert.assertEquals("999", cache.remove(999L));
+        Assert.assertFalse(cache.isCached(999L));
+    }
+
+    private static void access(final ObjectCacheBase<Integer, Integer> cache, final int key) {
+        if (cache.tryKey(key) == null) {
+            cache.cacheObject(key, key);
+        }
+    }
+}
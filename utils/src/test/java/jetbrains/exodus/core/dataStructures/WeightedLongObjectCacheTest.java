@@ -0,0 +1,126 @@
+/**
+ * Copyright 2010 - 2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jetbrains.exodus.core.dataStructures;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WeightedLongObjectCacheTest {
+
+    @Test
+    public void weightLimit() {
+        final StringCache cache = new StringCache(100000);
+        for (int i = 0; i < 100000; ++i) {
+            cache.cacheObject(i, String.valueOf(i));
+            Assert.assertTrue(cache.getWeight() <= cache.getMaxWeight());
+        }
+        long weight = 0;
+        int count = 0;
+        for (int i = 0; i < 100000; ++i) {
+            final String value = cache.getObject(i);
+            if (value != null) {
+                weight += value.length();
+                ++count;
+            }
+        }
+        Assert.assertTrue(count > 0);
+        Assert.assertEquals(weight, cache.getWeight());
+        Assert.assertEquals(count, cache.count());
+        Assert.assertEquals(100000 - count, cache.getEvictionCount());
+    }
+
+    @Test
+    public void heavyValues() {
+        final StringCache cache = new StringCache(10000);
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000; ++i) {
+            builder.append('a');
+        }
+        final String heavy = builder.toString();
+        for (int i = 0; i < 100; ++i) {
+            cache.cacheObject(i, heavy);
+            Assert.assertTrue(cache.getWeight() <= cache.getMaxWeight());
+        }
+        Assert.assertEquals(10, cache.count());
+        Assert.assertEquals(90, cache.getEvictionCount());
+        builder.append(heavy).append(heavy).append(heavy).append(heavy).append(heavy).append(heavy)
+                .append(heavy).append(heavy).append(heavy).append('a');
+        cache.cacheObject(100, builder.toString());
+        Assert.assertFalse(cache.isCached(100));
+        Assert.assertEquals(10, cache.count());
+    }
+
+    @Test
+    public void recentlyUsedSurvive() {
+        final StringCache cache = new StringCache(256 * 4);
+        cache.cacheObject(0, "0");
+        for (int i = 1; i < 100000; ++i) {
+            Assert.assertEquals("0", cache.tryKey(0));
+            cache.cacheObject(i * 1000003L, String.valueOf(i));
+        }
+        Assert.assertEquals("0", cache.tryKey(0));
+    }
+
+    @Test
+    public void replace() {
+        final StringCache cache = new StringCache(1000);
+        cache.cacheObject(1, "aaa");
+        cache.cacheObject(1, "bbbbb");
+        Assert.assertEquals("bbbbb", cache.tryKey(1));
+        Assert.assertEquals(1, cache.count());
+        Assert.assertEquals(5, cache.getWeight());
+        Assert.assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void remove() {
+        final StringCache cache = new StringCache(1000);
+        cache.cacheObject(1, "Eclipse");
+        cache.cacheObject(2, "IDEA");
+        Assert.assertEquals("IDEA", cache.remove(2));
+        Assert.assertNull(cache.tryKey(2));
+        Assert.assertEquals("Eclipse", cache.tryKey(1));
+        Assert.assertEquals(1, cache.count());
+        Assert.assertEquals(7, cache.getWeight());
+        cache.clear();
+        Assert.assertTrue(cache.isEmpty());
+        Assert.assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void hitsAndMisses() {
+        final StringCache cache = new StringCache(1000);
+        cache.cacheObject(1, "1");
+        Assert.assertEquals("1", cache.tryKey(1));
+        Assert.assertNull(cache.tryKey(2));
+        Assert.assertEquals("1", cache.tryKey(1));
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    private static class StringCache extends WeightedLongObjectCache<String> {
+
+        private StringCache(final long maxWeight) {
+            super(maxWeight);
+        }
+
+        @Override
+        protected int getWeight(@NotNull final String value) {
+            return value.length();
+        }
+    }
+}